@@ -15,13 +15,16 @@
  */
 package org.reaktivity.nukleus.kafka.internal;
 
+import static org.agrona.concurrent.status.CountersReader.METADATA_LENGTH;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_CACHE_DIRECTORY;
 
 import java.nio.file.Path;
 
 import org.reaktivity.nukleus.Configuration;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCleanupPolicy;
+import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePlacementPolicy;
 import org.reaktivity.nukleus.kafka.internal.types.codec.produce.ProduceAck;
+import org.reaktivity.reaktor.ReaktorConfiguration;
 
 public class KafkaConfiguration extends Configuration
 {
@@ -30,18 +33,41 @@ public class KafkaConfiguration extends Configuration
 
     public static final String KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS_NAME = "nukleus.kafka.client.produce.max.request.millis";
     public static final String KAFKA_CACHE_SERVER_RECONNECT_DELAY_NAME = "nukleus.kafka.cache.server.reconnect";
+    public static final String KAFKA_COUNTERS_MAX_NAME = "nukleus.kafka.counters.max";
+    public static final String KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME = "nukleus.kafka.client.produce.idempotence";
+    public static final String KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME = "nukleus.kafka.client.produce.sticky.bytes";
+    public static final String KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME = "nukleus.kafka.client.connection.pool.size";
+    public static final String KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES_NAME = "nukleus.kafka.client.fetch.pipeline.max.bytes";
+    public static final String KAFKA_CLIENT_ADMIN_BATCH_NAME = "nukleus.kafka.client.admin.batch";
+    public static final String KAFKA_CLIENT_META_MAX_AGE_MILLIS_NAME = "nukleus.kafka.client.meta.max.age.ms";
+    public static final String KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS_NAME = "nukleus.kafka.client.describe.max.age.ms";
+    public static final String KAFKA_CLIENT_RACK_NAME = "nukleus.kafka.client.rack";
+    public static final String KAFKA_CACHE_LEADER_FAILOVER_NAME = "nukleus.kafka.cache.leader.failover";
 
     public static final IntPropertyDef KAFKA_CLIENT_MAX_IDLE_MILLIS;
     public static final IntPropertyDef KAFKA_CLIENT_META_MAX_AGE_MILLIS;
+    public static final BooleanPropertyDef KAFKA_CLIENT_META_SHARED;
+    public static final IntPropertyDef KAFKA_CLIENT_META_SHARED_POLL_MILLIS;
     public static final IntPropertyDef KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS;
+    public static final BooleanPropertyDef KAFKA_CLIENT_ADMIN_BATCH;
+    public static final IntPropertyDef KAFKA_CLIENT_CONNECTION_POOL_SIZE;
     public static final IntPropertyDef KAFKA_CLIENT_FETCH_MAX_WAIT_MILLIS;
     public static final IntPropertyDef KAFKA_CLIENT_FETCH_MAX_BYTES;
     public static final IntPropertyDef KAFKA_CLIENT_FETCH_PARTITION_MAX_BYTES;
+    public static final BooleanPropertyDef KAFKA_CLIENT_FETCH_ADAPTIVE;
+    public static final IntPropertyDef KAFKA_CLIENT_FETCH_ADAPTIVE_LATENCY_MILLIS;
+    public static final IntPropertyDef KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES;
+    public static final PropertyDef<String> KAFKA_CLIENT_RACK;
     public static final IntPropertyDef KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS;
     public static final IntPropertyDef KAFKA_CLIENT_PRODUCE_MAX_RESPONSE_MILLIS;
     public static final IntPropertyDef KAFKA_CLIENT_PRODUCE_MAX_BYTES;
     public static final ShortPropertyDef KAFKA_CLIENT_PRODUCE_ACKS;
+    public static final BooleanPropertyDef KAFKA_CLIENT_PRODUCE_IDEMPOTENCE;
+    public static final IntPropertyDef KAFKA_CLIENT_PRODUCE_MAX_IN_FLIGHT;
+    public static final IntPropertyDef KAFKA_CLIENT_PRODUCE_STICKY_BYTES;
     public static final PropertyDef<Path> KAFKA_CACHE_DIRECTORY;
+    public static final PropertyDef<Path[]> KAFKA_CACHE_DIRECTORIES;
+    public static final PropertyDef<KafkaCachePlacementPolicy> KAFKA_CACHE_PLACEMENT_POLICY;
     public static final LongPropertyDef KAFKA_CACHE_PRODUCE_CAPACITY;
     public static final PropertyDef<KafkaCacheCleanupPolicy> KAFKA_CACHE_CLEANUP_POLICY;
     public static final IntPropertyDef KAFKA_CACHE_MAX_MESSAGE_BYTES;
@@ -54,10 +80,22 @@ public class KafkaConfiguration extends Configuration
     public static final LongPropertyDef KAFKA_CACHE_SEGMENT_MILLIS;
     public static final IntPropertyDef KAFKA_CACHE_SEGMENT_BYTES;
     public static final IntPropertyDef KAFKA_CACHE_SEGMENT_INDEX_BYTES;
+    public static final BooleanPropertyDef KAFKA_CACHE_SEGMENT_COMPRESSION;
+    public static final IntPropertyDef KAFKA_CACHE_SEGMENT_COMPRESSION_BLOCK_BYTES;
+    public static final PropertyDef<String[]> KAFKA_CACHE_INDEX_HEADERS;
     public static final BooleanPropertyDef KAFKA_CACHE_SERVER_BOOTSTRAP;
+    public static final IntPropertyDef KAFKA_CACHE_SERVER_BOOTSTRAP_MAX_CONCURRENT;
+    public static final IntPropertyDef KAFKA_CACHE_SERVER_BOOTSTRAP_MAX_RATE;
     public static final IntPropertyDef KAFKA_CACHE_CLIENT_RECONNECT_DELAY;
     public static final IntPropertyDef KAFKA_CACHE_CLIENT_CLEANUP_DELAY;
     public static final IntPropertyDef KAFKA_CACHE_SERVER_RECONNECT_DELAY;
+    public static final BooleanPropertyDef KAFKA_CACHE_LEADER_FAILOVER;
+    public static final IntPropertyDef KAFKA_CACHE_METRICS_INTERVAL;
+    public static final IntPropertyDef KAFKA_CACHE_HOT_KEYS_MAX;
+    public static final IntPropertyDef KAFKA_CACHE_HOT_KEYS_WINDOW;
+    public static final IntPropertyDef KAFKA_CACHE_MAINTENANCE_TICK;
+    public static final IntPropertyDef KAFKA_CACHE_MAINTENANCE_BATCH;
+    public static final IntPropertyDef KAFKA_COUNTERS_MAX;
 
     private static final ConfigurationDef KAFKA_CONFIG;
 
@@ -66,21 +104,45 @@ public class KafkaConfiguration extends Configuration
         final ConfigurationDef config = new ConfigurationDef("nukleus.kafka");
         KAFKA_CLIENT_MAX_IDLE_MILLIS = config.property("client.max.idle.ms", 1 * 60 * 1000);
         KAFKA_CLIENT_META_MAX_AGE_MILLIS = config.property("client.meta.max.age.ms", 5 * 60 * 1000);
+        KAFKA_CLIENT_META_SHARED = config.property("client.meta.shared", false);
+        KAFKA_CLIENT_META_SHARED_POLL_MILLIS = config.property("client.meta.shared.poll.ms", 100);
         KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS = config.property("client.describe.max.age.ms", 5 * 60 * 1000);
+        KAFKA_CLIENT_ADMIN_BATCH = config.property("client.admin.batch", false);
+        KAFKA_CLIENT_CONNECTION_POOL_SIZE = config.property("client.connection.pool.size", 0);
         KAFKA_CLIENT_FETCH_MAX_WAIT_MILLIS = config.property("client.fetch.max.wait.millis", 1 * 60 * 1000);
         KAFKA_CLIENT_FETCH_MAX_BYTES = config.property("client.fetch.max.bytes", 50 * 1024 * 1024);
         KAFKA_CLIENT_FETCH_PARTITION_MAX_BYTES = config.property("client.fetch.partition.max.bytes", 50 * 1024 * 1024);
+        KAFKA_CLIENT_FETCH_ADAPTIVE = config.property("client.fetch.adaptive", false);
+        KAFKA_CLIENT_FETCH_ADAPTIVE_LATENCY_MILLIS = config.property("client.fetch.adaptive.latency.millis", 100);
+        KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES = config.property("client.fetch.pipeline.max.bytes", 0);
+        KAFKA_CLIENT_RACK = config.property("client.rack", "");
         KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS = config.property("client.produce.max.request.millis", 0);
         KAFKA_CLIENT_PRODUCE_MAX_RESPONSE_MILLIS = config.property("client.produce.max.response.millis", 120000);
         KAFKA_CLIENT_PRODUCE_MAX_BYTES = config.property("client.produce.max.bytes", Integer.MAX_VALUE);
         KAFKA_CLIENT_PRODUCE_ACKS = config.property("client.produce.acks", ProduceAck.IN_SYNC_REPLICAS.value());
+        KAFKA_CLIENT_PRODUCE_IDEMPOTENCE = config.property("client.produce.idempotence", false);
+        KAFKA_CLIENT_PRODUCE_MAX_IN_FLIGHT = config.property("client.produce.max.in.flight", 5);
+        KAFKA_CLIENT_PRODUCE_STICKY_BYTES = config.property("client.produce.sticky.bytes", 0);
         KAFKA_CACHE_DIRECTORY = config.property(Path.class, "cache.directory",
             KafkaConfiguration::cacheDirectory, KafkaNukleus.NAME);
+        KAFKA_CACHE_DIRECTORIES = config.property(Path[].class, "cache.directories",
+            KafkaConfiguration::cacheDirectories, "");
+        KAFKA_CACHE_PLACEMENT_POLICY = config.property(KafkaCachePlacementPolicy.class, "cache.placement.policy",
+            KafkaConfiguration::placementPolicy, "hash");
         KAFKA_CACHE_SERVER_BOOTSTRAP = config.property("cache.server.bootstrap", true);
+        KAFKA_CACHE_SERVER_BOOTSTRAP_MAX_CONCURRENT = config.property("cache.server.bootstrap.max.concurrent", 0);
+        KAFKA_CACHE_SERVER_BOOTSTRAP_MAX_RATE = config.property("cache.server.bootstrap.max.rate", 0);
         KAFKA_CACHE_PRODUCE_CAPACITY = config.property("cache.produce.capacity", Long.MAX_VALUE);
         KAFKA_CACHE_SERVER_RECONNECT_DELAY = config.property("cache.server.reconnect", 5);
         KAFKA_CACHE_CLIENT_RECONNECT_DELAY = config.property("cache.client.reconnect", 0);
         KAFKA_CACHE_CLIENT_CLEANUP_DELAY = config.property("cache.client.cleanup.delay", 30);
+        KAFKA_CACHE_LEADER_FAILOVER = config.property("cache.leader.failover", false);
+        KAFKA_CACHE_METRICS_INTERVAL = config.property("cache.metrics.interval", 0);
+        KAFKA_CACHE_HOT_KEYS_MAX = config.property("cache.hot.keys.max", 0);
+        KAFKA_CACHE_HOT_KEYS_WINDOW = config.property("cache.hot.keys.window", 10000);
+        KAFKA_CACHE_MAINTENANCE_TICK = config.property("cache.maintenance.tick", 0);
+        KAFKA_CACHE_MAINTENANCE_BATCH = config.property("cache.maintenance.batch", 256);
+        KAFKA_COUNTERS_MAX = config.property("counters.max", KafkaConfiguration::defaultCountersMax);
         KAFKA_CACHE_CLEANUP_POLICY = config.property(KafkaCacheCleanupPolicy.class, "cache.cleanup.policy",
                 KafkaConfiguration::cleanupPolicy, "delete");
         KAFKA_CACHE_MAX_MESSAGE_BYTES = config.property("cache.max.message.bytes", 1000012);
@@ -93,6 +155,10 @@ public class KafkaConfiguration extends Configuration
         KAFKA_CACHE_SEGMENT_MILLIS = config.property("cache.segment.ms", 604800000L);
         KAFKA_CACHE_SEGMENT_BYTES = config.property("cache.segment.bytes", 0x40000000);
         KAFKA_CACHE_SEGMENT_INDEX_BYTES = config.property("cache.segment.index.bytes", 0xA00000);
+        KAFKA_CACHE_SEGMENT_COMPRESSION = config.property("cache.segment.compression", false);
+        KAFKA_CACHE_SEGMENT_COMPRESSION_BLOCK_BYTES = config.property("cache.segment.compression.block.bytes", 0x10000);
+        KAFKA_CACHE_INDEX_HEADERS = config.property(String[].class, "cache.index.headers",
+            KafkaConfiguration::indexHeaders, "*");
         KAFKA_CONFIG = config;
     }
 
@@ -117,11 +183,31 @@ public class KafkaConfiguration extends Configuration
         return KAFKA_CLIENT_META_MAX_AGE_MILLIS.getAsInt(this);
     }
 
+    public boolean clientMetaShared()
+    {
+        return KAFKA_CLIENT_META_SHARED.getAsBoolean(this);
+    }
+
+    public long clientMetaSharedPollMillis()
+    {
+        return KAFKA_CLIENT_META_SHARED_POLL_MILLIS.getAsInt(this);
+    }
+
     public long clientDescribeMaxAgeMillis()
     {
         return KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS.getAsInt(this);
     }
 
+    public boolean clientAdminBatch()
+    {
+        return KAFKA_CLIENT_ADMIN_BATCH.getAsBoolean(this);
+    }
+
+    public int clientConnectionPoolSize()
+    {
+        return KAFKA_CLIENT_CONNECTION_POOL_SIZE.getAsInt(this);
+    }
+
     public int clientFetchMaxWaitMillis()
     {
         return KAFKA_CLIENT_FETCH_MAX_WAIT_MILLIS.getAsInt(this);
@@ -137,6 +223,26 @@ public class KafkaConfiguration extends Configuration
         return KAFKA_CLIENT_FETCH_PARTITION_MAX_BYTES.get(this);
     }
 
+    public boolean clientFetchAdaptive()
+    {
+        return KAFKA_CLIENT_FETCH_ADAPTIVE.getAsBoolean(this);
+    }
+
+    public int clientFetchAdaptiveLatencyMillis()
+    {
+        return KAFKA_CLIENT_FETCH_ADAPTIVE_LATENCY_MILLIS.getAsInt(this);
+    }
+
+    public int clientFetchPipelineMaxBytes()
+    {
+        return KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES.getAsInt(this);
+    }
+
+    public String clientRack()
+    {
+        return KAFKA_CLIENT_RACK.get(this);
+    }
+
     public int clientProduceMaxRequestMillis()
     {
         return KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS.getAsInt(this);
@@ -157,11 +263,36 @@ public class KafkaConfiguration extends Configuration
         return KAFKA_CLIENT_PRODUCE_ACKS.getAsShort(this);
     }
 
+    public boolean clientProduceIdempotence()
+    {
+        return KAFKA_CLIENT_PRODUCE_IDEMPOTENCE.getAsBoolean(this);
+    }
+
+    public int clientProduceMaxInFlight()
+    {
+        return KAFKA_CLIENT_PRODUCE_MAX_IN_FLIGHT.getAsInt(this);
+    }
+
+    public int clientProduceStickyBytes()
+    {
+        return KAFKA_CLIENT_PRODUCE_STICKY_BYTES.getAsInt(this);
+    }
+
     public Path cacheDirectory()
     {
         return KAFKA_CACHE_DIRECTORY.get(this);
     }
 
+    public Path[] cacheDirectories()
+    {
+        return KAFKA_CACHE_DIRECTORIES.get(this);
+    }
+
+    public KafkaCachePlacementPolicy cachePlacementPolicy()
+    {
+        return KAFKA_CACHE_PLACEMENT_POLICY.get(this);
+    }
+
     public long cacheProduceCapacity()
     {
         return KAFKA_CACHE_PRODUCE_CAPACITY.get(this);
@@ -222,11 +353,36 @@ public class KafkaConfiguration extends Configuration
         return KAFKA_CACHE_SEGMENT_INDEX_BYTES.getAsInt(this);
     }
 
+    public boolean cacheSegmentCompression()
+    {
+        return KAFKA_CACHE_SEGMENT_COMPRESSION.getAsBoolean(this);
+    }
+
+    public int cacheSegmentCompressionBlockBytes()
+    {
+        return KAFKA_CACHE_SEGMENT_COMPRESSION_BLOCK_BYTES.getAsInt(this);
+    }
+
+    public String[] cacheIndexHeaders()
+    {
+        return KAFKA_CACHE_INDEX_HEADERS.get(this);
+    }
+
     public boolean cacheServerBootstrap()
     {
         return KAFKA_CACHE_SERVER_BOOTSTRAP.getAsBoolean(this);
     }
 
+    public int cacheServerBootstrapMaxConcurrent()
+    {
+        return KAFKA_CACHE_SERVER_BOOTSTRAP_MAX_CONCURRENT.getAsInt(this);
+    }
+
+    public int cacheServerBootstrapMaxRate()
+    {
+        return KAFKA_CACHE_SERVER_BOOTSTRAP_MAX_RATE.getAsInt(this);
+    }
+
     public int cacheClientReconnect()
     {
         return KAFKA_CACHE_CLIENT_RECONNECT_DELAY.getAsInt(this);
@@ -241,6 +397,48 @@ public class KafkaConfiguration extends Configuration
         return KAFKA_CACHE_SERVER_RECONNECT_DELAY.getAsInt(this);
     }
 
+    public boolean cacheLeaderFailover()
+    {
+        return KAFKA_CACHE_LEADER_FAILOVER.getAsBoolean(this);
+    }
+
+    public int cacheMetricsInterval()
+    {
+        return KAFKA_CACHE_METRICS_INTERVAL.getAsInt(this);
+    }
+
+    public int cacheHotKeysMax()
+    {
+        return KAFKA_CACHE_HOT_KEYS_MAX.getAsInt(this);
+    }
+
+    public int cacheHotKeysWindow()
+    {
+        return KAFKA_CACHE_HOT_KEYS_WINDOW.getAsInt(this);
+    }
+
+    public int cacheMaintenanceTick()
+    {
+        return KAFKA_CACHE_MAINTENANCE_TICK.getAsInt(this);
+    }
+
+    public int cacheMaintenanceBatch()
+    {
+        return KAFKA_CACHE_MAINTENANCE_BATCH.getAsInt(this);
+    }
+
+    public int countersMax()
+    {
+        return KAFKA_COUNTERS_MAX.getAsInt(this);
+    }
+
+    private static int defaultCountersMax(
+        Configuration config)
+    {
+        // client, cache client and cache server each take an eighth of the reaktor counter labels
+        return new ReaktorConfiguration(config).counterLabelsBufferCapacity() / METADATA_LENGTH / 8;
+    }
+
     private static Path cacheDirectory(
         Configuration config,
         String cacheDirectory)
@@ -248,6 +446,48 @@ public class KafkaConfiguration extends Configuration
         return REAKTOR_CACHE_DIRECTORY.get(config).resolve(cacheDirectory);
     }
 
+    private static Path[] cacheDirectories(
+        Configuration config,
+        String cacheDirectories)
+    {
+        final String[] directories = cacheDirectories.trim().isEmpty() ? new String[0] : cacheDirectories.split(",");
+        final Path reaktorCacheDirectory = REAKTOR_CACHE_DIRECTORY.get(config);
+
+        Path[] locations = new Path[directories.length];
+        for (int index = 0; index < directories.length; index++)
+        {
+            locations[index] = reaktorCacheDirectory.resolve(directories[index].trim());
+        }
+
+        if (locations.length == 0)
+        {
+            locations = new Path[] { KAFKA_CACHE_DIRECTORY.get(config) };
+        }
+
+        return locations;
+    }
+
+    private static String[] indexHeaders(
+        Configuration config,
+        String indexHeaders)
+    {
+        final String[] headerNames = indexHeaders.trim().isEmpty() ? new String[0] : indexHeaders.split(",");
+
+        for (int index = 0; index < headerNames.length; index++)
+        {
+            headerNames[index] = headerNames[index].trim();
+        }
+
+        return headerNames;
+    }
+
+    private static KafkaCachePlacementPolicy placementPolicy(
+        Configuration config,
+        String placementPolicy)
+    {
+        return KafkaCachePlacementPolicy.valueOf(placementPolicy.replace('-', '_').toUpperCase());
+    }
+
     private static KafkaCacheCleanupPolicy cleanupPolicy(
         Configuration config,
         String cleanupPolicy)
@@ -17,11 +17,14 @@ package org.reaktivity.nukleus.kafka.internal;
 
 import static java.nio.ByteBuffer.allocateDirect;
 import static java.nio.ByteOrder.nativeOrder;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.reaktivity.nukleus.route.RouteKind.CLIENT;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
@@ -32,6 +35,9 @@ import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaType;
 import org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetType;
 import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
 import org.reaktivity.nukleus.kafka.internal.types.control.FreezeFW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaCacheRouteExFW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaHotKeysFW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaHotKeysSampledFW;
 import org.reaktivity.nukleus.kafka.internal.types.control.KafkaRouteExFW;
 import org.reaktivity.nukleus.kafka.internal.types.control.Role;
 import org.reaktivity.nukleus.kafka.internal.types.control.RouteFW;
@@ -39,6 +45,7 @@ import org.reaktivity.nukleus.kafka.internal.types.control.UnrouteFW;
 import org.reaktivity.nukleus.route.RouteKind;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -51,8 +58,12 @@ public final class KafkaController implements Controller
     private final RouteFW.Builder routeRW = new RouteFW.Builder();
     private final UnrouteFW.Builder unrouteRW = new UnrouteFW.Builder();
     private final FreezeFW.Builder freezeRW = new FreezeFW.Builder();
+    private final KafkaHotKeysFW.Builder hotKeysRW = new KafkaHotKeysFW.Builder();
+
+    private final KafkaHotKeysSampledFW hotKeysSampledRO = new KafkaHotKeysSampledFW();
 
     private final KafkaRouteExFW.Builder routeExRW = new KafkaRouteExFW.Builder();
+    private final KafkaCacheRouteExFW.Builder cacheRouteExRW = new KafkaCacheRouteExFW.Builder();
 
     private final OctetsFW extensionRO = new OctetsFW().wrap(new UnsafeBuffer(new byte[0]), 0, 0);
 
@@ -145,8 +156,23 @@ public final class KafkaController implements Controller
                 final String topic = gson.fromJson(object.get("topic"), String.class);
                 final String deltaType = gson.fromJson(object.get("deltaType"), String.class);
                 final String defaultOffset = gson.fromJson(object.get("defaultOffset"), String.class);
+                final String[] indexHeaders = gson.fromJson(object.get("indexHeaders"), String[].class);
 
-                if (topic != null)
+                if (topic != null && indexHeaders != null)
+                {
+                    routeEx = cacheRouteExRW.wrap(extensionBuffer, 0, extensionBuffer.capacity())
+                                            .topic(topic)
+                                            .deltaType(t -> t.set(object.has("deltaType")
+                                                    ? KafkaDeltaType.valueOf(deltaType)
+                                                    : KafkaDeltaType.NONE))
+                                            .defaultOffset(t -> t.set(object.has("defaultOffset")
+                                                    ? KafkaOffsetType.valueOf(defaultOffset)
+                                                    : KafkaOffsetType.HISTORICAL))
+                                            .indexHeaders(hs -> Arrays.stream(indexHeaders)
+                                                    .forEach(h -> hs.item(i -> i.set(h, UTF_8))))
+                                            .build();
+                }
+                else if (topic != null)
                 {
                     routeEx = routeExRW.wrap(extensionBuffer, 0, extensionBuffer.capacity())
                                        .topic(topic)
@@ -190,6 +216,44 @@ public final class KafkaController implements Controller
         return controllerSpi.doFreeze(freeze.typeId(), freeze.buffer(), freeze.offset(), freeze.sizeof());
     }
 
+    public CompletableFuture<String> hotKeys(
+        int count)
+    {
+        long correlationId = controllerSpi.nextCorrelationId();
+
+        KafkaHotKeysFW hotKeys = hotKeysRW.wrap(commandBuffer, 0, commandBuffer.capacity())
+                                          .correlationId(correlationId)
+                                          .nukleus(name())
+                                          .count(count)
+                                          .build();
+
+        return controllerSpi.doCommand(hotKeys.typeId(), hotKeys.buffer(), hotKeys.offset(), hotKeys.sizeof(),
+                                       this::onHotKeysSampled);
+    }
+
+    private String onHotKeysSampled(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        final KafkaHotKeysSampledFW sampled = hotKeysSampledRO.wrap(buffer, index, index + length);
+
+        final JsonArray hotKeys = new JsonArray();
+        sampled.hotKeys().forEach(k ->
+        {
+            final JsonObject hotKey = new JsonObject();
+            hotKey.addProperty("routeId", k.routeId());
+            hotKey.addProperty("topic", k.topic().asString());
+            hotKey.addProperty("partitionId", k.partitionId());
+            hotKey.addProperty("hash", k.hash());
+            hotKey.addProperty("rate", k.rate());
+            hotKeys.add(hotKey);
+        });
+
+        return gson.toJson(hotKeys);
+    }
+
     private CompletableFuture<Long> doRoute(
         RouteKind kind,
         String localAddress,
@@ -22,14 +22,17 @@ import static org.reaktivity.nukleus.route.RouteKind.CLIENT;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.LongFunction;
 
 import org.agrona.collections.Long2ObjectHashMap;
 import org.reaktivity.nukleus.Elektron;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCache;
 import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheClientFactoryBuilder;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheHotKeysRegistry;
 import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheRoute;
 import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheServerFactoryBuilder;
 import org.reaktivity.nukleus.kafka.internal.stream.KafkaClientFactoryBuilder;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaClientMetadata;
 import org.reaktivity.nukleus.kafka.internal.stream.KafkaClientRoute;
 import org.reaktivity.nukleus.kafka.internal.stream.KafkaStreamFactoryBuilder;
 import org.reaktivity.nukleus.route.AddressFactoryBuilder;
@@ -42,19 +45,23 @@ final class KafkaElektron implements Elektron
     private final Long2ObjectHashMap<KafkaCacheRoute> cacheRoutesById;
     private final Map<RouteKind, KafkaStreamFactoryBuilder> streamFactoryBuilders;
     private final Map<RouteKind, AddressFactoryBuilder> addressFactoryBuilders;
+    private final LongFunction<Function<String, KafkaClientMetadata>> supplyClientMetadata;
 
     KafkaElektron(
         int index,
         KafkaConfiguration config,
-        Function<String, KafkaCache> supplyCache)
+        Function<String, KafkaCache> supplyCache,
+        LongFunction<Function<String, KafkaClientMetadata>> supplyClientMetadata,
+        KafkaCacheHotKeysRegistry hotKeys)
     {
+        this.supplyClientMetadata = supplyClientMetadata;
         this.clientRoutesById = new Long2ObjectHashMap<>();
         this.cacheRoutesById = new Long2ObjectHashMap<>();
 
         Map<RouteKind, KafkaStreamFactoryBuilder> streamFactoryBuilders = new EnumMap<>(RouteKind.class);
         streamFactoryBuilders.put(CLIENT, new KafkaClientFactoryBuilder(config, this::supplyClientRoute));
         streamFactoryBuilders.put(CACHE_SERVER, new KafkaCacheServerFactoryBuilder(config, supplyCache,
-            this::supplyCacheRoute));
+            this::supplyCacheRoute, hotKeys));
         streamFactoryBuilders.put(CACHE_CLIENT, new KafkaCacheClientFactoryBuilder(config, supplyCache,
             this::supplyCacheRoute, index));
         this.streamFactoryBuilders = streamFactoryBuilders;
@@ -102,6 +109,12 @@ final class KafkaElektron implements Elektron
     private KafkaClientRoute supplyClientRoute(
         long routeId)
     {
-        return clientRoutesById.computeIfAbsent(routeId, KafkaClientRoute::new);
+        return clientRoutesById.computeIfAbsent(routeId, this::newClientRoute);
+    }
+
+    private KafkaClientRoute newClientRoute(
+        long routeId)
+    {
+        return new KafkaClientRoute(routeId, supplyClientMetadata.apply(routeId));
     }
 }
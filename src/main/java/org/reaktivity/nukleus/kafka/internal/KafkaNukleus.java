@@ -15,24 +15,48 @@
  */
 package org.reaktivity.nukleus.kafka.internal;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.Nukleus;
+import org.reaktivity.nukleus.function.CommandHandler;
+import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCache;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheHotKeysRegistry;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheHotKeysRegistry.KafkaCacheHotKey;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaClientMetadata;
+import org.reaktivity.nukleus.kafka.internal.types.Array32FW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaHotKeyFW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaHotKeysFW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaHotKeysSampledFW;
 
 public final class KafkaNukleus implements Nukleus
 {
     public static final String NAME = "kafka";
 
+    private static final int HOT_KEY_FIXED_SIZE = Long.BYTES + Short.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final KafkaHotKeysFW hotKeysRO = new KafkaHotKeysFW();
+    private final KafkaHotKeysSampledFW.Builder hotKeysSampledRW = new KafkaHotKeysSampledFW.Builder();
+
     private final KafkaConfiguration config;
     private final Map<String, KafkaCache> cachesByName;
+    private final Map<Long, Map<String, KafkaClientMetadata>> clientMetadataByRouteId;
+    private final KafkaCacheHotKeysRegistry hotKeys;
 
     KafkaNukleus(
         KafkaConfiguration config)
     {
         this.config = config;
         this.cachesByName = new ConcurrentHashMap<>();
+        this.clientMetadataByRouteId = new ConcurrentHashMap<>();
+        this.hotKeys = new KafkaCacheHotKeysRegistry();
     }
 
     @Override
@@ -51,7 +75,14 @@ public final class KafkaNukleus implements Nukleus
     public KafkaElektron supplyElektron(
         int index)
     {
-        return new KafkaElektron(index, config, this::supplyCache);
+        return new KafkaElektron(index, config, this::supplyCache, this::supplyClientMetadata, hotKeys);
+    }
+
+    @Override
+    public CommandHandler commandHandler(
+        int msgTypeId)
+    {
+        return msgTypeId == KafkaHotKeysFW.TYPE_ID ? this::onHotKeys : null;
     }
 
     public KafkaCache supplyCache(
@@ -60,9 +91,56 @@ public final class KafkaNukleus implements Nukleus
         return cachesByName.computeIfAbsent(name, this::newCache);
     }
 
+    public Function<String, KafkaClientMetadata> supplyClientMetadata(
+        long routeId)
+    {
+        final Map<String, KafkaClientMetadata> metadataByTopic =
+                clientMetadataByRouteId.computeIfAbsent(routeId, id -> new ConcurrentHashMap<>());
+        return topic -> metadataByTopic.computeIfAbsent(topic, t -> new KafkaClientMetadata());
+    }
+
     private KafkaCache newCache(
         String name)
     {
         return new KafkaCache(config, name);
     }
+
+    private void onHotKeys(
+        DirectBuffer buffer,
+        int index,
+        int length,
+        MessageConsumer reply,
+        MutableDirectBuffer replyBuffer)
+    {
+        final KafkaHotKeysFW command = hotKeysRO.wrap(buffer, index, index + length);
+        final List<KafkaCacheHotKey> sampled = hotKeys.top(command.count());
+
+        final KafkaHotKeysSampledFW response = hotKeysSampledRW.wrap(replyBuffer, 0, replyBuffer.capacity())
+                .correlationId(command.correlationId())
+                .hotKeys(hk -> encodeHotKeys(hk, sampled))
+                .build();
+
+        reply.accept(response.typeId(), response.buffer(), response.offset(), response.sizeof());
+    }
+
+    private static void encodeHotKeys(
+        Array32FW.Builder<KafkaHotKeyFW.Builder, KafkaHotKeyFW> builder,
+        List<KafkaCacheHotKey> sampled)
+    {
+        for (KafkaCacheHotKey hotKey : sampled)
+        {
+            // truncated to what fits in one control response
+            final int sizeof = HOT_KEY_FIXED_SIZE + hotKey.topic.getBytes(UTF_8).length;
+            if (builder.limit() + sizeof > builder.maxLimit())
+            {
+                break;
+            }
+
+            builder.item(k -> k.routeId(hotKey.routeId)
+                               .topic(hotKey.topic)
+                               .partitionId(hotKey.partitionId)
+                               .hash(hotKey.hash)
+                               .rate(hotKey.rate));
+        }
+    }
 }
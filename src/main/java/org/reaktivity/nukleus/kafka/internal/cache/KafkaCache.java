@@ -31,7 +31,7 @@ public final class KafkaCache
 
     private final KafkaConfiguration config;
     private final String name;
-    private final Path location;
+    private final KafkaCachePlacement placement;
     private final Map<String, KafkaCacheTopic> topicsByName;
     private final ThreadLocal<long[]> sortSpaceRef;
 
@@ -41,7 +41,7 @@ public final class KafkaCache
     {
         this.config = config;
         this.name = name;
-        this.location = config.cacheDirectory().resolve(name);
+        this.placement = newPlacement(config, name);
         this.topicsByName = new ConcurrentHashMap<>();
         this.sortSpaceRef = ThreadLocal.withInitial(() -> EMPTY_SORT_SPACE);
     }
@@ -71,7 +71,21 @@ public final class KafkaCache
     private KafkaCacheTopic newTopic(
         String topic)
     {
-        return new KafkaCacheTopic(location, config, name, produceCapacity, topic, this::supplySortSpace);
+        return new KafkaCacheTopic(placement, config, name, produceCapacity, topic, this::supplySortSpace);
+    }
+
+    private static KafkaCachePlacement newPlacement(
+        KafkaConfiguration config,
+        String name)
+    {
+        final Path[] directories = config.cacheDirectories();
+        final Path[] locations = new Path[directories.length];
+        for (int index = 0; index < directories.length; index++)
+        {
+            locations[index] = directories[index].resolve(name);
+        }
+
+        return new KafkaCachePlacement(locations, config.cachePlacementPolicy());
     }
 
     private long[] supplySortSpace(
@@ -0,0 +1,408 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.LangUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.kafka.internal.types.Flyweight;
+
+public abstract class KafkaCacheBlockFile extends KafkaCacheFile
+{
+    private static final int SIZEOF_BLOCK_COUNT = Integer.BYTES;
+    private static final int SIZEOF_BLOCK_RECORD = 4 * Integer.BYTES;
+    private static final int FIELD_OFFSET_BLOCK_POSITION = 0;
+    private static final int FIELD_OFFSET_BLOCK_LENGTH = Integer.BYTES;
+    private static final int FIELD_OFFSET_BLOCK_COMPRESSED_POSITION = 2 * Integer.BYTES;
+    private static final int FIELD_OFFSET_BLOCK_COMPRESSED_LENGTH = 3 * Integer.BYTES;
+
+    private static final int BLOCK_CACHE_SLOTS = 4;
+
+    private static final DirectBuffer EMPTY_BUFFER = new UnsafeBuffer(new byte[0]);
+    private static final ThreadLocal<BlockCache> BLOCK_CACHE = ThreadLocal.withInitial(BlockCache::new);
+
+    private final int blocks;
+    private final int capacity;
+
+    protected KafkaCacheBlockFile(
+        Path location)
+    {
+        super(location);
+        this.blocks = super.capacity() >= SIZEOF_BLOCK_COUNT ? readInt(0) : 0;
+        this.capacity = blocks != 0 ? blockPosition(blocks - 1) + blockLength(blocks - 1) : 0;
+    }
+
+    @Override
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    @Override
+    public int available()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean empty()
+    {
+        return capacity == 0;
+    }
+
+    @Override
+    public <T> T readBytes(
+        int position,
+        Flyweight.Visitor<T> visitor)
+    {
+        T result;
+
+        final int block = findBlock(position);
+        if (block == -1)
+        {
+            result = visitor.visit(EMPTY_BUFFER, 0, 0);
+        }
+        else
+        {
+            final MutableDirectBuffer buffer = BLOCK_CACHE.get().supply(this, block);
+            final int offset = position - blockPosition(block);
+            onBlockRead(buffer, offset, position);
+            result = visitor.visit(buffer, offset, blockLength(block));
+        }
+
+        return result;
+    }
+
+    @Override
+    public void writeBytes(
+        int position,
+        DirectBuffer srcBuffer,
+        int srcIndex,
+        int length)
+    {
+        throw readOnly(position);
+    }
+
+    @Override
+    public void writeLong(
+        int position,
+        long value)
+    {
+        throw readOnly(position);
+    }
+
+    @Override
+    public void writeInt(
+        int position,
+        int value)
+    {
+        throw readOnly(position);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("[%s] %s (%d) blocks %d", getClass().getSimpleName(), location().getFileName(), capacity, blocks);
+    }
+
+    protected final IllegalStateException readOnly(
+        int position)
+    {
+        return new IllegalStateException(String.format("%s is read-only at position %d", location().getFileName(), position));
+    }
+
+    protected void onBlockRead(
+        MutableDirectBuffer block,
+        int offset,
+        int position)
+    {
+    }
+
+    protected static void compressBlocks(
+        KafkaCacheFile source,
+        Path target,
+        int blockBytes,
+        Flyweight.Visitor<? extends Flyweight> entry)
+    {
+        final int capacity = source.capacity();
+        final IntArrayList blockPositions = new IntArrayList();
+
+        for (int position = 0, blockPosition = 0; position < capacity; )
+        {
+            final int limit = source.readBytes(position, entry).limit();
+
+            if (blockPositions.isEmpty() ||
+                position != blockPosition && limit - blockPosition > blockBytes)
+            {
+                blockPositions.addInt(position);
+                blockPosition = position;
+            }
+
+            position = limit;
+        }
+
+        final int blocks = blockPositions.size();
+        final int sizeofHeader = SIZEOF_BLOCK_COUNT + blocks * SIZEOF_BLOCK_RECORD;
+        final MutableDirectBuffer header = new UnsafeBuffer(new byte[sizeofHeader]);
+        header.putInt(0, blocks);
+
+        final Path work = target.resolveSibling(String.format("%s.work", target.getFileName()));
+
+        try (FileChannel channel = FileChannel.open(work, CREATE, TRUNCATE_EXISTING, WRITE))
+        {
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            final byte[] output = new byte[Math.max(blockBytes, 1024)];
+            byte[] input = new byte[0];
+
+            int compressedPosition = sizeofHeader;
+            channel.position(compressedPosition);
+
+            for (int block = 0; block < blocks; block++)
+            {
+                final int blockPosition = blockPositions.getInt(block);
+                final int blockLimit = block + 1 < blocks ? blockPositions.getInt(block + 1) : capacity;
+                final int blockLength = blockLimit - blockPosition;
+
+                if (input.length < blockLength)
+                {
+                    input = new byte[BitUtil.findNextPositivePowerOfTwo(blockLength)];
+                }
+
+                source.readMapped(blockPosition, input, blockLength);
+
+                deflater.reset();
+                deflater.setInput(input, 0, blockLength);
+                deflater.finish();
+
+                int compressedLength = 0;
+                while (!deflater.finished())
+                {
+                    final int deflated = deflater.deflate(output);
+                    write(channel, ByteBuffer.wrap(output, 0, deflated));
+                    compressedLength += deflated;
+                }
+
+                final int blockAt = SIZEOF_BLOCK_COUNT + block * SIZEOF_BLOCK_RECORD;
+                header.putInt(blockAt + FIELD_OFFSET_BLOCK_POSITION, blockPosition);
+                header.putInt(blockAt + FIELD_OFFSET_BLOCK_LENGTH, blockLength);
+                header.putInt(blockAt + FIELD_OFFSET_BLOCK_COMPRESSED_POSITION, compressedPosition);
+                header.putInt(blockAt + FIELD_OFFSET_BLOCK_COMPRESSED_LENGTH, compressedLength);
+
+                compressedPosition += compressedLength;
+            }
+
+            deflater.end();
+
+            channel.position(0L);
+            write(channel, ByteBuffer.wrap(header.byteArray()));
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        try
+        {
+            Files.move(work, target, REPLACE_EXISTING);
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    private int findBlock(
+        int position)
+    {
+        int block = -1;
+
+        if (0 <= position && position < capacity)
+        {
+            int lowIndex = 0;
+            int highIndex = blocks - 1;
+
+            while (lowIndex < highIndex)
+            {
+                final int midIndex = (lowIndex + highIndex + 1) >>> 1;
+
+                if (blockPosition(midIndex) <= position)
+                {
+                    lowIndex = midIndex;
+                }
+                else
+                {
+                    highIndex = midIndex - 1;
+                }
+            }
+
+            block = lowIndex;
+        }
+
+        return block;
+    }
+
+    private int blockPosition(
+        int block)
+    {
+        return readInt(SIZEOF_BLOCK_COUNT + block * SIZEOF_BLOCK_RECORD + FIELD_OFFSET_BLOCK_POSITION);
+    }
+
+    private int blockLength(
+        int block)
+    {
+        return readInt(SIZEOF_BLOCK_COUNT + block * SIZEOF_BLOCK_RECORD + FIELD_OFFSET_BLOCK_LENGTH);
+    }
+
+    private int blockCompressedPosition(
+        int block)
+    {
+        return readInt(SIZEOF_BLOCK_COUNT + block * SIZEOF_BLOCK_RECORD + FIELD_OFFSET_BLOCK_COMPRESSED_POSITION);
+    }
+
+    private int blockCompressedLength(
+        int block)
+    {
+        return readInt(SIZEOF_BLOCK_COUNT + block * SIZEOF_BLOCK_RECORD + FIELD_OFFSET_BLOCK_COMPRESSED_LENGTH);
+    }
+
+    private static void write(
+        FileChannel channel,
+        ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class BlockCache
+    {
+        private final KafkaCacheBlockFile[] files;
+        private final int[] blocks;
+        private final long[] accessedAt;
+        private final UnsafeBuffer[] buffers;
+        private final Inflater inflater;
+
+        private byte[] input;
+        private long accesses;
+
+        private BlockCache()
+        {
+            this.files = new KafkaCacheBlockFile[BLOCK_CACHE_SLOTS];
+            this.blocks = new int[BLOCK_CACHE_SLOTS];
+            this.accessedAt = new long[BLOCK_CACHE_SLOTS];
+            this.buffers = new UnsafeBuffer[BLOCK_CACHE_SLOTS];
+            for (int slot = 0; slot < BLOCK_CACHE_SLOTS; slot++)
+            {
+                buffers[slot] = new UnsafeBuffer(ByteBuffer.allocate(0));
+            }
+            this.inflater = new Inflater();
+            this.input = new byte[0];
+        }
+
+        private MutableDirectBuffer supply(
+            KafkaCacheBlockFile file,
+            int block)
+        {
+            int slot = -1;
+            int victim = 0;
+
+            for (int candidate = 0; candidate < BLOCK_CACHE_SLOTS; candidate++)
+            {
+                if (files[candidate] == file && blocks[candidate] == block)
+                {
+                    slot = candidate;
+                    break;
+                }
+
+                if (accessedAt[candidate] < accessedAt[victim])
+                {
+                    victim = candidate;
+                }
+            }
+
+            if (slot == -1)
+            {
+                slot = victim;
+                inflate(file, block, slot);
+                files[slot] = file;
+                blocks[slot] = block;
+            }
+
+            accessedAt[slot] = ++accesses;
+
+            return buffers[slot];
+        }
+
+        private void inflate(
+            KafkaCacheBlockFile file,
+            int block,
+            int slot)
+        {
+            final int length = file.blockLength(block);
+            final int compressedLength = file.blockCompressedLength(block);
+
+            if (input.length < compressedLength)
+            {
+                input = new byte[BitUtil.findNextPositivePowerOfTwo(compressedLength)];
+            }
+
+            UnsafeBuffer buffer = buffers[slot];
+            if (buffer.capacity() < length)
+            {
+                buffer.wrap(ByteBuffer.allocate(BitUtil.findNextPositivePowerOfTwo(length)));
+            }
+
+            file.readMapped(file.blockCompressedPosition(block), input, compressedLength);
+
+            try
+            {
+                final byte[] output = buffer.byteBuffer().array();
+
+                inflater.reset();
+                inflater.setInput(input, 0, compressedLength);
+
+                int inflated = 0;
+                while (inflated < length && !inflater.finished() && !inflater.needsInput())
+                {
+                    inflated += inflater.inflate(output, inflated, length - inflated);
+                }
+                assert inflated == length : String.format("%d == %d", inflated, length);
+            }
+            catch (DataFormatException ex)
+            {
+                LangUtil.rethrowUnchecked(ex);
+            }
+        }
+    }
+}
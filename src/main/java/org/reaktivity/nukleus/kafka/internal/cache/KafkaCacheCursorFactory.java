@@ -21,6 +21,7 @@ import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.cursorIndex;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.cursorRetryValue;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.cursorValue;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheHash.hash32;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaSkip.SKIP_MANY;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaValueMatchFW.KIND_SKIP;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaValueMatchFW.KIND_VALUE;
@@ -28,7 +29,7 @@ import static org.reaktivity.nukleus.kafka.internal.types.KafkaValueMatchFW.KIND
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.CRC32C;
+import java.util.function.Predicate;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
@@ -59,7 +60,6 @@ public final class KafkaCacheCursorFactory
     private final KafkaHeaderFW headerRO = new KafkaHeaderFW();
 
     private final MutableDirectBuffer writeBuffer;
-    private final CRC32C checksum;
     private final KafkaFilterCondition nullKeyInfo;
 
     public static final int POSITION_UNSET = -1;
@@ -69,8 +69,7 @@ public final class KafkaCacheCursorFactory
         MutableDirectBuffer writeBuffer)
     {
         this.writeBuffer = writeBuffer;
-        this.checksum = new CRC32C();
-        this.nullKeyInfo = initNullKeyInfo(checksum);
+        this.nullKeyInfo = initNullKeyInfo();
     }
 
     public KafkaCacheCursor newCursor(
@@ -310,7 +309,7 @@ public final class KafkaCacheCursorFactory
         public void markEntryDirty(
             KafkaCacheEntryFW entry)
         {
-            segmentNode.markDirty(entry);
+            segmentNode.markDirty(entry, position);
         }
 
         @Override
@@ -491,13 +490,12 @@ public final class KafkaCacheCursorFactory
             }
 
             protected Equals(
-                CRC32C checksum,
                 DirectBuffer buffer,
                 int index,
                 int length)
             {
                 this.value = copyBuffer(buffer, index, length);
-                this.hash = computeHash(buffer, index, length, checksum);
+                this.hash = hash32(buffer, index, length);
                 this.comparable = new UnsafeBuffer();
             }
 
@@ -515,6 +513,7 @@ public final class KafkaCacheCursorFactory
             private final KafkaFilterCondition nested;
 
             private int positionSkip;
+            private int positionNext;
 
             private Not(
                 KafkaFilterCondition nested)
@@ -556,6 +555,8 @@ public final class KafkaCacheCursorFactory
                     positionSkip = nested.next(positionSkip + 1);
                 }
 
+                this.positionNext = positionNext;
+
                 return positionNext;
             }
 
@@ -564,7 +565,50 @@ public final class KafkaCacheCursorFactory
                 KafkaCacheEntryFW cacheEntry)
             {
                 return none.test(cacheEntry) &&
-                    (cacheEntry.offset() < positionSkip || !nested.test(cacheEntry));
+                    (positionNext < positionSkip || !nested.test(cacheEntry));
+            }
+
+            @Override
+            public String toString()
+            {
+                return String.format("%s[%s]", getClass().getSimpleName(), nested.toString());
+            }
+        }
+
+        private static final class Scan extends KafkaFilterCondition
+        {
+            private final None none;
+            private final KafkaFilterCondition nested;
+
+            private Scan(
+                KafkaFilterCondition nested)
+            {
+                this.none = new None();
+                this.nested = nested;
+            }
+
+            @Override
+            public int reset(
+                KafkaCacheSegment segment,
+                long offset,
+                long latestOffset,
+                int position)
+            {
+                return none.reset(segment, offset, latestOffset, POSITION_UNSET);
+            }
+
+            @Override
+            public int next(
+                int position)
+            {
+                return none.next(position);
+            }
+
+            @Override
+            public boolean test(
+                KafkaCacheEntryFW cacheEntry)
+            {
+                return none.test(cacheEntry) && nested.test(cacheEntry);
             }
 
             @Override
@@ -583,7 +627,6 @@ public final class KafkaCacheCursorFactory
             private final KafkaHeaderFW headersItemRO;
 
             private HeaderSequence(
-                CRC32C checksum,
                 KafkaValueMatchFW valueMatch,
                 KafkaHeaderFW headersItem,
                 KafkaHeadersFW headers)
@@ -619,7 +662,7 @@ public final class KafkaCacheCursorFactory
                                 .value(value.buffer(), value.offset(), value.sizeof())
                                 .build();
 
-                        conditions.add(new Header(checksum, headerCopy));
+                        conditions.add(new Header(headerCopy));
                     }
 
                     matchItemOffset = matchItem.limit();
@@ -704,10 +747,9 @@ public final class KafkaCacheCursorFactory
         private static final class Key extends Equals
         {
             private Key(
-                CRC32C checksum,
                 KafkaKeyFW key)
             {
-                super(checksum, key.buffer(), key.offset(), key.sizeof());
+                super(key.buffer(), key.offset(), key.sizeof());
             }
 
             @Override
@@ -723,10 +765,9 @@ public final class KafkaCacheCursorFactory
             private final MutableBoolean match;
 
             private Header(
-                CRC32C checksum,
                 KafkaHeaderFW header)
             {
-                super(checksum, header.buffer(), header.offset(), header.sizeof());
+                super(header.buffer(), header.offset(), header.sizeof());
                 this.match = new MutableBoolean();
             }
 
@@ -962,26 +1003,17 @@ public final class KafkaCacheCursorFactory
             copy.putBytes(0, buffer, index, length);
             return copy;
         }
-
-        private static int computeHash(
-            DirectBuffer buffer,
-            int index,
-            int length,
-            CRC32C checksum)
-        {
-            final ByteBuffer byteBuffer = buffer.byteBuffer();
-            assert byteBuffer != null;
-            byteBuffer.clear();
-            byteBuffer.position(index);
-            byteBuffer.limit(index + length);
-            checksum.reset();
-            checksum.update(byteBuffer);
-            return (int) checksum.getValue();
-        }
     }
 
     public KafkaFilterCondition asCondition(
         ArrayFW<KafkaFilterFW> filters)
+    {
+        return asCondition(filters, n -> true);
+    }
+
+    public KafkaFilterCondition asCondition(
+        ArrayFW<KafkaFilterFW> filters,
+        Predicate<OctetsFW> indexedHeader)
     {
         KafkaFilterCondition condition;
         if (filters.isEmpty())
@@ -991,24 +1023,26 @@ public final class KafkaCacheCursorFactory
         else
         {
             final List<KafkaFilterCondition> asConditions = new ArrayList<>();
-            filters.forEach(f -> asConditions.add(asCondition(f)));
+            filters.forEach(f -> asConditions.add(asCondition(f, indexedHeader)));
             condition = asConditions.size() == 1 ? asConditions.get(0) : new KafkaFilterCondition.Or(asConditions);
         }
         return condition;
     }
 
     private KafkaFilterCondition asCondition(
-        KafkaFilterFW filter)
+        KafkaFilterFW filter,
+        Predicate<OctetsFW> indexedHeader)
     {
         final ArrayFW<KafkaConditionFW> conditions = filter.conditions();
         assert !conditions.isEmpty();
         List<KafkaFilterCondition> asConditions = new ArrayList<>();
-        conditions.forEach(c -> asConditions.add(asCondition(c)));
+        conditions.forEach(c -> asConditions.add(asCondition(c, indexedHeader)));
         return asConditions.size() == 1 ? asConditions.get(0) : new KafkaFilterCondition.And(asConditions);
     }
 
     private KafkaFilterCondition asCondition(
-        KafkaConditionFW condition)
+        KafkaConditionFW condition,
+        Predicate<OctetsFW> indexedHeader)
     {
         KafkaFilterCondition asCondition = null;
 
@@ -1018,13 +1052,13 @@ public final class KafkaCacheCursorFactory
             asCondition = asKeyCondition(condition.key());
             break;
         case KafkaConditionFW.KIND_HEADER:
-            asCondition = asHeaderCondition(condition.header());
+            asCondition = asHeaderCondition(condition.header(), indexedHeader);
             break;
         case KafkaConditionFW.KIND_NOT:
-            asCondition = asNotCondition(condition.not());
+            asCondition = asNotCondition(condition.not(), indexedHeader);
             break;
         case KafkaConditionFW.KIND_HEADERS:
-            asCondition = asHeadersCondition(condition.headers());
+            asCondition = asHeadersCondition(condition.headers(), indexedHeader);
             break;
         }
 
@@ -1037,17 +1071,21 @@ public final class KafkaCacheCursorFactory
     {
         final OctetsFW value = key.value();
 
-        return value == null ? nullKeyInfo : new KafkaFilterCondition.Key(checksum, key);
+        return value == null ? nullKeyInfo : new KafkaFilterCondition.Key(key);
     }
 
     private KafkaFilterCondition asHeaderCondition(
-        KafkaHeaderFW header)
+        KafkaHeaderFW header,
+        Predicate<OctetsFW> indexedHeader)
     {
-        return new KafkaFilterCondition.Header(checksum, header);
+        final KafkaFilterCondition condition = new KafkaFilterCondition.Header(header);
+
+        return indexedHeader.test(header.name()) ? condition : new KafkaFilterCondition.Scan(condition);
     }
 
     private KafkaFilterCondition asNotCondition(
-        KafkaNotFW not)
+        KafkaNotFW not,
+        Predicate<OctetsFW> indexedHeader)
     {
         final KafkaConditionFW condition = not.condition();
 
@@ -1058,32 +1096,34 @@ public final class KafkaCacheCursorFactory
             filterCondition = new KafkaFilterCondition.Not(asKeyCondition(condition.key()));
             break;
         case KafkaConditionFW.KIND_HEADER:
-            filterCondition = new KafkaFilterCondition.Not(asHeaderCondition(condition.header()));
+            filterCondition = new KafkaFilterCondition.Not(asHeaderCondition(condition.header(), indexedHeader));
             break;
         case KafkaConditionFW.KIND_NOT:
-            filterCondition = asCondition(condition.not().condition());
+            filterCondition = asCondition(condition.not().condition(), indexedHeader);
             break;
         case KafkaConditionFW.KIND_HEADERS:
-            filterCondition = new KafkaFilterCondition.Not(asHeadersCondition(condition.headers()));
+            filterCondition = new KafkaFilterCondition.Not(asHeadersCondition(condition.headers(), indexedHeader));
             break;
         }
         return filterCondition;
     }
 
     private KafkaFilterCondition asHeadersCondition(
-        KafkaHeadersFW headers)
+        KafkaHeadersFW headers,
+        Predicate<OctetsFW> indexedHeader)
     {
-        return new KafkaFilterCondition.HeaderSequence(checksum, valueMatchRO, headerRO, headers);
+        final KafkaFilterCondition condition = new KafkaFilterCondition.HeaderSequence(valueMatchRO, headerRO, headers);
+
+        return indexedHeader.test(headers.name()) ? condition : new KafkaFilterCondition.Scan(condition);
     }
 
-    private static KafkaFilterCondition.Key initNullKeyInfo(
-        CRC32C checksum)
+    private static KafkaFilterCondition.Key initNullKeyInfo()
     {
         final KafkaKeyFW nullKeyRO = new KafkaKeyFW.Builder()
                 .wrap(new UnsafeBuffer(ByteBuffer.allocate(5)), 0, 5)
                 .length(-1)
                 .value((OctetsFW) null)
                 .build();
-        return new KafkaFilterCondition.Key(checksum, nullKeyRO);
+        return new KafkaFilterCondition.Key(nullKeyRO);
     }
 }
@@ -16,10 +16,13 @@
 package org.reaktivity.nukleus.kafka.internal.cache;
 
 import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
 import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
-import static java.util.Objects.requireNonNull;
+import static org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW.FIELD_OFFSET_DESCENDANT;
+import static org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW.FIELD_OFFSET_FLAGS;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -36,6 +39,8 @@ import org.agrona.LangUtil;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.kafka.internal.types.Flyweight;
+import org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheDeltaFW;
+import org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW;
 
 public class KafkaCacheFile implements AutoCloseable
 {
@@ -51,6 +56,9 @@ public class KafkaCacheFile implements AutoCloseable
     private static final String EXT_KSCAN = ".kscan";
     private static final String EXT_KSCAN_WORK = ".kscan.work";
     private static final String EXT_KINDEX = ".kindex";
+    private static final String EXT_ZLOG = ".zlog";
+    private static final String EXT_ZLOG_ENTRIES = ".zlentries";
+    private static final String EXT_ZDELTA = ".zdelta";
 
     private static final String FORMAT_FILE = "%%019d%s";
     private static final String FORMAT_LOG_FILE = String.format(FORMAT_FILE, EXT_LOG);
@@ -62,13 +70,15 @@ public class KafkaCacheFile implements AutoCloseable
     private static final String FORMAT_NINDEX_FILE = String.format(FORMAT_FILE, EXT_NINDEX);
     private static final String FORMAT_KSCAN_FILE = String.format(FORMAT_FILE, EXT_KSCAN);
     private static final String FORMAT_KINDEX_FILE = String.format(FORMAT_FILE, EXT_KINDEX);
+    private static final String FORMAT_ZLOG_FILE = String.format(FORMAT_FILE, EXT_ZLOG);
+    private static final String FORMAT_ZLOG_ENTRIES_FILE = String.format(FORMAT_FILE, EXT_ZLOG_ENTRIES);
+    private static final String FORMAT_ZDELTA_FILE = String.format(FORMAT_FILE, EXT_ZDELTA);
 
     private final Path location;
     private final MappedByteBuffer mappedByteBuf;
     private final MutableDirectBuffer mappedBuf;
     private final FileChannel appender;
-    private final MutableDirectBuffer appendBuf;
-    private final ByteBuffer appendByteBuf;
+    private final int appendCapacity;
 
     private volatile int maxCapacity;
     private volatile int capacity;   // only ever increases
@@ -77,14 +87,13 @@ public class KafkaCacheFile implements AutoCloseable
     public KafkaCacheFile(
         Path location,
         int capacity,
-        MutableDirectBuffer appendBuf)
+        int appendCapacity)
     {
         this.location = location;
         this.mappedByteBuf = mapCreateAppend(location, capacity);
         this.mappedBuf = new UnsafeBuffer(mappedByteBuf);
         this.appender = openAppender(location);
-        this.appendBuf = requireNonNull(appendBuf);
-        this.appendByteBuf = requireNonNull(appendBuf.byteBuffer());
+        this.appendCapacity = appendCapacity;
         this.capacity = 0;
         this.maxCapacity = capacity;
     }
@@ -96,8 +105,7 @@ public class KafkaCacheFile implements AutoCloseable
         this.mappedByteBuf = mapReadWrite(location);
         this.mappedBuf = new UnsafeBuffer(mappedByteBuf);
         this.appender = null;
-        this.appendBuf = null;
-        this.appendByteBuf = null;
+        this.appendCapacity = 0;
         this.capacity = mappedBuf.capacity();
         this.maxCapacity = mappedBuf.capacity();
     }
@@ -140,6 +148,12 @@ public class KafkaCacheFile implements AutoCloseable
         return mappedBuf.getLong(position);
     }
 
+    public int readInt(
+        int position)
+    {
+        return mappedBuf.getInt(position);
+    }
+
     public void writeBytes(
         int position,
         Flyweight flyweight)
@@ -178,6 +192,8 @@ public class KafkaCacheFile implements AutoCloseable
 
         assert remaining <= maxCapacity;
 
+        final MutableDirectBuffer appendBuf = appendBuf();
+
         while (remaining > 0)
         {
             final int length = Math.min(remaining, appendBuf.capacity());
@@ -211,6 +227,8 @@ public class KafkaCacheFile implements AutoCloseable
         {
             try
             {
+                final MutableDirectBuffer appendBuf = appendBuf();
+                final ByteBuffer appendByteBuf = appendBuf.byteBuffer();
                 final int appendableBytes = appendBuf.capacity();
 
                 int remainingBytes = length;
@@ -255,6 +273,8 @@ public class KafkaCacheFile implements AutoCloseable
         {
             try
             {
+                final MutableDirectBuffer appendBuf = appendBuf();
+                final ByteBuffer appendByteBuf = appendBuf.byteBuffer();
                 appendByteBuf.clear();
                 appendBuf.putLong(0, value);
                 appendByteBuf.limit(Long.BYTES);
@@ -285,6 +305,8 @@ public class KafkaCacheFile implements AutoCloseable
         {
             try
             {
+                final MutableDirectBuffer appendBuf = appendBuf();
+                final ByteBuffer appendByteBuf = appendBuf.byteBuffer();
                 appendByteBuf.clear();
                 appendBuf.putInt(0, value);
                 appendByteBuf.limit(Integer.BYTES);
@@ -322,14 +344,7 @@ public class KafkaCacheFile implements AutoCloseable
 
     public void delete()
     {
-        try
-        {
-            Files.deleteIfExists(location);
-        }
-        catch (IOException ex)
-        {
-            LangUtil.rethrowUnchecked(ex);
-        }
+        deleteIfExists(location);
     }
 
     public boolean empty()
@@ -343,12 +358,39 @@ public class KafkaCacheFile implements AutoCloseable
         return String.format("[%s] %s (%d)", getClass().getSimpleName(), location.getFileName(), capacity);
     }
 
+    private MutableDirectBuffer appendBuf()
+    {
+        // resolved per append, never retained, so each writing thread uses its own scratch buffer
+        return KafkaCacheScratch.current().appendBuf(appendCapacity);
+    }
+
+    protected final void readMapped(
+        int position,
+        byte[] dst,
+        int length)
+    {
+        mappedBuf.getBytes(position, dst, 0, length);
+    }
+
     @Override
     public void close()
     {
         IoUtil.unmap(mappedByteBuf);
     }
 
+    private static void deleteIfExists(
+        Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
     private static MappedByteBuffer mapCreateAppend(
         Path file,
         int capacity)
@@ -413,9 +455,9 @@ public class KafkaCacheFile implements AutoCloseable
             Path location,
             long baseOffset,
             int capacity,
-            MutableDirectBuffer appendBuf)
+            int appendCapacity)
         {
-            super(location.resolve(String.format(FORMAT_LOG_FILE, baseOffset)), capacity, appendBuf);
+            super(location.resolve(String.format(FORMAT_LOG_FILE, baseOffset)), capacity, appendCapacity);
         }
 
         public Log(
@@ -432,9 +474,9 @@ public class KafkaCacheFile implements AutoCloseable
             Path location,
             long baseOffset,
             int capacity,
-            MutableDirectBuffer appendBuf)
+            int appendCapacity)
         {
-            super(location.resolve(String.format(FORMAT_INDEX_FILE, baseOffset)), capacity, appendBuf);
+            super(location.resolve(String.format(FORMAT_INDEX_FILE, baseOffset)), capacity, appendCapacity);
         }
 
         public Index(
@@ -451,10 +493,10 @@ public class KafkaCacheFile implements AutoCloseable
             Path location,
             long baseOffset,
             int capacity,
-            MutableDirectBuffer appendBuf,
+            int appendCapacity,
             IntFunction<long[]> sortSpaceRef)
         {
-            super(location.resolve(String.format(FORMAT_HSCAN_FILE, baseOffset)), capacity, appendBuf, sortSpaceRef);
+            super(location.resolve(String.format(FORMAT_HSCAN_FILE, baseOffset)), capacity, appendCapacity, sortSpaceRef);
         }
 
         @Override
@@ -487,10 +529,10 @@ public class KafkaCacheFile implements AutoCloseable
             Path location,
             long baseOffset,
             int capacity,
-            MutableDirectBuffer appendBuf,
+            int appendCapacity,
             IntFunction<long[]> sortSpaceRef)
         {
-            super(location.resolve(String.format(FORMAT_KSCAN_FILE, baseOffset)), capacity, appendBuf, sortSpaceRef);
+            super(location.resolve(String.format(FORMAT_KSCAN_FILE, baseOffset)), capacity, appendCapacity, sortSpaceRef);
         }
 
         @Override
@@ -523,10 +565,10 @@ public class KafkaCacheFile implements AutoCloseable
             Path location,
             long baseOffset,
             int capacity,
-            MutableDirectBuffer appendBuf,
+            int appendCapacity,
             IntFunction<long[]> sortSpaceRef)
         {
-            super(location.resolve(String.format(FORMAT_NSCAN_FILE, baseOffset)), capacity, appendBuf, sortSpaceRef);
+            super(location.resolve(String.format(FORMAT_NSCAN_FILE, baseOffset)), capacity, appendCapacity, sortSpaceRef);
         }
 
         @Override
@@ -559,9 +601,9 @@ public class KafkaCacheFile implements AutoCloseable
             Path location,
             long baseOffset,
             int capacity,
-            MutableDirectBuffer appendBuf)
+            int appendCapacity)
         {
-            super(location.resolve(String.format(FORMAT_DELTA_FILE, baseOffset)), capacity, appendBuf);
+            super(location.resolve(String.format(FORMAT_DELTA_FILE, baseOffset)), capacity, appendCapacity);
         }
 
         public Delta(
@@ -571,4 +613,203 @@ public class KafkaCacheFile implements AutoCloseable
             super(location.resolve(String.format(FORMAT_DELTA_FILE, baseOffset)));
         }
     }
+
+    public static final class CompressedLog extends KafkaCacheBlockFile
+    {
+        private static final int SIZEOF_ENTRY_RECORD = Integer.BYTES + Integer.BYTES + Long.BYTES;
+        private static final int FIELD_OFFSET_ENTRY_POSITION = 0;
+        private static final int FIELD_OFFSET_ENTRY_FLAGS = Integer.BYTES;
+        private static final int FIELD_OFFSET_ENTRY_DESCENDANT = 2 * Integer.BYTES;
+
+        private final KafkaCacheFile entriesFile;
+        private final int entries;
+
+        public CompressedLog(
+            Path location,
+            long baseOffset)
+        {
+            super(location.resolve(String.format(FORMAT_ZLOG_FILE, baseOffset)));
+            this.entriesFile = new KafkaCacheFile(location.resolve(String.format(FORMAT_ZLOG_ENTRIES_FILE, baseOffset)));
+            this.entries = entriesFile.capacity() / SIZEOF_ENTRY_RECORD;
+        }
+
+        @Override
+        public void writeInt(
+            int position,
+            int value)
+        {
+            final int entry = findEntry(position);
+            assert entry != -1;
+            final int entryAt = entry * SIZEOF_ENTRY_RECORD;
+            final int fieldOffset = position - entriesFile.readInt(entryAt + FIELD_OFFSET_ENTRY_POSITION);
+
+            if (fieldOffset != FIELD_OFFSET_FLAGS)
+            {
+                throw readOnly(position);
+            }
+
+            entriesFile.writeInt(entryAt + FIELD_OFFSET_ENTRY_FLAGS, value);
+        }
+
+        @Override
+        public void writeLong(
+            int position,
+            long value)
+        {
+            final int entry = findEntry(position);
+            assert entry != -1;
+            final int entryAt = entry * SIZEOF_ENTRY_RECORD;
+            final int fieldOffset = position - entriesFile.readInt(entryAt + FIELD_OFFSET_ENTRY_POSITION);
+
+            if (fieldOffset != FIELD_OFFSET_DESCENDANT)
+            {
+                throw readOnly(position);
+            }
+
+            entriesFile.writeLong(entryAt + FIELD_OFFSET_ENTRY_DESCENDANT, value);
+        }
+
+        @Override
+        public void delete()
+        {
+            super.delete();
+            entriesFile.delete();
+        }
+
+        @Override
+        public void close()
+        {
+            super.close();
+            entriesFile.close();
+        }
+
+        @Override
+        protected void onBlockRead(
+            MutableDirectBuffer block,
+            int offset,
+            int position)
+        {
+            final int entry = findEntry(position);
+            if (entry != -1)
+            {
+                final int entryAt = entry * SIZEOF_ENTRY_RECORD;
+                if (entriesFile.readInt(entryAt + FIELD_OFFSET_ENTRY_POSITION) == position)
+                {
+                    final int flags = entriesFile.readInt(entryAt + FIELD_OFFSET_ENTRY_FLAGS);
+                    final long descendant = entriesFile.readLong(entryAt + FIELD_OFFSET_ENTRY_DESCENDANT);
+                    block.putInt(offset + FIELD_OFFSET_FLAGS, flags);
+                    block.putLong(offset + FIELD_OFFSET_DESCENDANT, descendant);
+                }
+            }
+        }
+
+        private int findEntry(
+            int position)
+        {
+            int lowIndex = 0;
+            int highIndex = entries - 1;
+
+            while (lowIndex < highIndex)
+            {
+                final int midIndex = (lowIndex + highIndex + 1) >>> 1;
+                final int midPosition = entriesFile.readInt(midIndex * SIZEOF_ENTRY_RECORD + FIELD_OFFSET_ENTRY_POSITION);
+
+                if (midPosition <= position)
+                {
+                    lowIndex = midIndex;
+                }
+                else
+                {
+                    highIndex = midIndex - 1;
+                }
+            }
+
+            return entries != 0 ? lowIndex : -1;
+        }
+
+        public static void compress(
+            KafkaCacheFile logFile,
+            Path location,
+            long baseOffset,
+            int blockBytes)
+        {
+            final KafkaCacheEntryFW entry = new KafkaCacheEntryFW();
+            final Path zlog = location.resolve(String.format(FORMAT_ZLOG_FILE, baseOffset));
+
+            compressBlocks(logFile, zlog, blockBytes, entry::wrap);
+        }
+
+        public static void compressEntries(
+            KafkaCacheFile logFile,
+            Path location,
+            long baseOffset)
+        {
+            final KafkaCacheEntryFW entry = new KafkaCacheEntryFW();
+            final Path zlogEntries = location.resolve(String.format(FORMAT_ZLOG_ENTRIES_FILE, baseOffset));
+
+            final MutableDirectBuffer entriesBuf = new UnsafeBuffer(new byte[SIZEOF_ENTRY_RECORD]);
+            final ByteBuffer entriesByteBuf = ByteBuffer.wrap(entriesBuf.byteArray());
+
+            try (FileChannel channel = FileChannel.open(zlogEntries, CREATE, TRUNCATE_EXISTING, WRITE))
+            {
+                for (int position = 0; position < logFile.capacity(); )
+                {
+                    final KafkaCacheEntryFW logEntry = logFile.readBytes(position, entry::wrap);
+
+                    entriesBuf.putInt(FIELD_OFFSET_ENTRY_POSITION, position);
+                    entriesBuf.putInt(FIELD_OFFSET_ENTRY_FLAGS, logEntry.flags());
+                    entriesBuf.putLong(FIELD_OFFSET_ENTRY_DESCENDANT, logEntry.descendant());
+
+                    entriesByteBuf.clear();
+                    while (entriesByteBuf.hasRemaining())
+                    {
+                        channel.write(entriesByteBuf);
+                    }
+
+                    position = logEntry.limit();
+                }
+            }
+            catch (IOException ex)
+            {
+                LangUtil.rethrowUnchecked(ex);
+            }
+        }
+
+        public static void discard(
+            Path location,
+            long baseOffset)
+        {
+            deleteIfExists(location.resolve(String.format(FORMAT_ZLOG_FILE, baseOffset)));
+            deleteIfExists(location.resolve(String.format(FORMAT_ZLOG_ENTRIES_FILE, baseOffset)));
+        }
+    }
+
+    public static final class CompressedDelta extends KafkaCacheBlockFile
+    {
+        public CompressedDelta(
+            Path location,
+            long baseOffset)
+        {
+            super(location.resolve(String.format(FORMAT_ZDELTA_FILE, baseOffset)));
+        }
+
+        public static void compress(
+            KafkaCacheFile deltaFile,
+            Path location,
+            long baseOffset,
+            int blockBytes)
+        {
+            final KafkaCacheDeltaFW delta = new KafkaCacheDeltaFW();
+            final Path zdelta = location.resolve(String.format(FORMAT_ZDELTA_FILE, baseOffset));
+
+            compressBlocks(deltaFile, zdelta, blockBytes, delta::wrap);
+        }
+
+        public static void discard(
+            Path location,
+            long baseOffset)
+        {
+            deleteIfExists(location.resolve(String.format(FORMAT_ZDELTA_FILE, baseOffset)));
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static java.lang.Long.rotateLeft;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+import org.agrona.DirectBuffer;
+
+public final class KafkaCacheHash
+{
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_BYTES = 4 * Long.BYTES;
+
+    public static int hash32(
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        final long hash = xxhash64(buffer, index, length, 0L);
+        // folded to the 32-bit key of hash index records, so collisions are no rarer than with CRC32C
+        return (int)(hash ^ (hash >>> 32));
+    }
+
+    public static long xxhash64(
+        DirectBuffer buffer,
+        int index,
+        int length,
+        long seed)
+    {
+        final int limit = index + length;
+        int offset = index;
+        long hash;
+
+        if (length >= STRIPE_BYTES)
+        {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+
+            final int stripeLimit = limit - STRIPE_BYTES;
+            do
+            {
+                v1 = round(v1, buffer.getLong(offset, LITTLE_ENDIAN));
+                v2 = round(v2, buffer.getLong(offset + Long.BYTES, LITTLE_ENDIAN));
+                v3 = round(v3, buffer.getLong(offset + 2 * Long.BYTES, LITTLE_ENDIAN));
+                v4 = round(v4, buffer.getLong(offset + 3 * Long.BYTES, LITTLE_ENDIAN));
+                offset += STRIPE_BYTES;
+            }
+            while (offset <= stripeLimit);
+
+            hash = rotateLeft(v1, 1) + rotateLeft(v2, 7) + rotateLeft(v3, 12) + rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        }
+        else
+        {
+            hash = seed + PRIME64_5;
+        }
+
+        hash += length;
+
+        while (offset + Long.BYTES <= limit)
+        {
+            hash ^= round(0L, buffer.getLong(offset, LITTLE_ENDIAN));
+            hash = rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            offset += Long.BYTES;
+        }
+
+        if (offset + Integer.BYTES <= limit)
+        {
+            hash ^= (buffer.getInt(offset, LITTLE_ENDIAN) & 0xFFFF_FFFFL) * PRIME64_1;
+            hash = rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            offset += Integer.BYTES;
+        }
+
+        while (offset < limit)
+        {
+            hash ^= (buffer.getByte(offset) & 0xFFL) * PRIME64_5;
+            hash = rotateLeft(hash, 11) * PRIME64_1;
+            offset++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+
+        return hash;
+    }
+
+    private static long round(
+        long accumulator,
+        long input)
+    {
+        accumulator += input * PRIME64_2;
+        accumulator = rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private static long mergeRound(
+        long accumulator,
+        long value)
+    {
+        accumulator ^= round(0L, value);
+        return accumulator * PRIME64_1 + PRIME64_4;
+    }
+
+    private KafkaCacheHash()
+    {
+        // no instances
+    }
+}
@@ -48,9 +48,9 @@ public abstract class KafkaCacheIndexFile extends KafkaCacheFile
     protected KafkaCacheIndexFile(
         Path location,
         int capacity,
-        MutableDirectBuffer appendBuf)
+        int appendCapacity)
     {
-        super(location, capacity, appendBuf);
+        super(location, capacity, appendCapacity);
     }
 
     protected KafkaCacheIndexFile(
@@ -95,12 +95,17 @@ public abstract class KafkaCacheIndexFile extends KafkaCacheFile
 
     public static class SortedByKey extends KafkaCacheIndexFile
     {
+        private static final int FENCE_INDEX_SHIFT = 9;
+        private static final int FENCE_INDEX_COUNT = 1 << FENCE_INDEX_SHIFT;
+
+        private volatile int[] fences;
+
         protected SortedByKey(
             Path location,
             int capacity,
-            MutableDirectBuffer appendBuf)
+            int appendCapacity)
         {
-            super(location, capacity, appendBuf);
+            super(location, capacity, appendCapacity);
         }
 
         protected SortedByKey(
@@ -117,52 +122,13 @@ public abstract class KafkaCacheIndexFile extends KafkaCacheFile
 
             long first = cursor(lastIndex + 1, available() != 0 ? RETRY_SEGMENT_VALUE : NEXT_SEGMENT_VALUE);
 
-            int lowIndex = 0;
-            int highIndex = lastIndex;
-
-            while (lowIndex <= highIndex)
+            final int lowIndex = search(key, 0);
+            if (lowIndex <= lastIndex)
             {
-                final int midIndex = (lowIndex + highIndex) >>> 1;
-                final long midEntry = readLong(midIndex << 3);
-                final int midKey = indexKey(midEntry);
-                final int compareKey = compareUnsigned(midKey, key);
-
-                if (compareKey < 0)
-                {
-                    lowIndex = midIndex + 1;
-                }
-                else if (compareKey > 0)
-                {
-                    highIndex = midIndex - 1;
-                }
-                else
+                final long lowEntry = readLong(lowIndex << 3);
+                if (indexKey(lowEntry) == key)
                 {
-                    long lowEntry;
-
-                    lowIndex = midIndex;
-                    lowEntry = midEntry;
-
-                    while (lowIndex > 0)
-                    {
-                        final int candidateIndex = lowIndex - 1;
-                        assert candidateIndex <= lastIndex;
-
-                        final long candidateEntry = readLong(candidateIndex << 3);
-                        final int candidateKey = indexKey(candidateEntry);
-
-                        if (candidateKey != key)
-                        {
-                            break;
-                        }
-
-                        lowIndex = candidateIndex;
-                        lowEntry = candidateEntry;
-                    }
-
-                    assert 0 <= lowIndex && lowIndex <= midIndex;
-
                     first = cursor(lowIndex, indexValue(lowEntry));
-                    break;
                 }
             }
 
@@ -175,54 +141,13 @@ public abstract class KafkaCacheIndexFile extends KafkaCacheFile
         {
             long last = cursor(-1, NEXT_SEGMENT_VALUE);
 
-            final int lastIndex = (capacity() >> 3) - 1;
-
-            int lowIndex = 0;
-            int highIndex = lastIndex;
-
-            while (lowIndex <= highIndex)
+            final int highIndex = search(key, 1) - 1;
+            if (highIndex >= 0)
             {
-                final int midIndex = (lowIndex + highIndex) >>> 1;
-                final long midEntry = readLong(midIndex << 3);
-                final int midKey = indexKey(midEntry);
-                final int compareKey = compareUnsigned(midKey, key);
-
-                if (compareKey < 0)
-                {
-                    lowIndex = midIndex + 1;
-                }
-                else if (compareKey > 0)
-                {
-                    highIndex = midIndex - 1;
-                }
-                else
+                final long highEntry = readLong(highIndex << 3);
+                if (indexKey(highEntry) == key)
                 {
-                    long highEntry;
-
-                    highIndex = midIndex;
-                    highEntry = midEntry;
-
-                    while (highIndex < lastIndex)
-                    {
-                        final int candidateIndex = highIndex + 1;
-                        assert candidateIndex >= 0;
-
-                        final long candidateEntry = readLong(candidateIndex << 3);
-                        final int candidateKey = indexKey(candidateEntry);
-
-                        if (candidateKey != key)
-                        {
-                            break;
-                        }
-
-                        highIndex = candidateIndex;
-                        highEntry = candidateEntry;
-                    }
-
-                    assert midIndex <= highIndex && highIndex <= lastIndex;
-
                     last = cursor(highIndex, indexValue(highEntry));
-                    break;
                 }
             }
 
@@ -348,6 +273,85 @@ public abstract class KafkaCacheIndexFile extends KafkaCacheFile
 
             return lower;
         }
+
+        private int search(
+            int key,
+            int threshold)
+        {
+            // returns lowest index where compareUnsigned(indexKey, key) >= threshold
+            final int[] fences = fences();
+
+            int lowIndex = 0;
+            int highIndex = capacity() >> 3;
+
+            if (fences != null)
+            {
+                int lowFence = 0;
+                int highFence = fences.length;
+
+                while (lowFence < highFence)
+                {
+                    final int midFence = (lowFence + highFence) >>> 1;
+
+                    if (compareUnsigned(fences[midFence], key) >= threshold)
+                    {
+                        highFence = midFence;
+                    }
+                    else
+                    {
+                        lowFence = midFence + 1;
+                    }
+                }
+
+                if (lowFence > 0)
+                {
+                    lowIndex = ((lowFence - 1) << FENCE_INDEX_SHIFT) + 1;
+                }
+
+                if (lowFence < fences.length)
+                {
+                    highIndex = lowFence << FENCE_INDEX_SHIFT;
+                }
+            }
+
+            while (lowIndex < highIndex)
+            {
+                final int midIndex = (lowIndex + highIndex) >>> 1;
+                final int midKey = indexKey(readLong(midIndex << 3));
+
+                if (compareUnsigned(midKey, key) >= threshold)
+                {
+                    highIndex = midIndex;
+                }
+                else
+                {
+                    lowIndex = midIndex + 1;
+                }
+            }
+
+            return lowIndex;
+        }
+
+        private int[] fences()
+        {
+            int[] fences = this.fences;
+
+            if (fences == null && available() == 0)
+            {
+                final int entries = capacity() >> 3;
+                fences = new int[(entries + FENCE_INDEX_COUNT - 1) >> FENCE_INDEX_SHIFT];
+
+                for (int fence = 0; fence < fences.length; fence++)
+                {
+                    final int fenceIndex = fence << FENCE_INDEX_SHIFT;
+                    fences[fence] = indexKey(readLong(fenceIndex << 3));
+                }
+
+                this.fences = fences;
+            }
+
+            return fences;
+        }
     }
 
     public static class SortedByValue extends KafkaCacheIndexFile
@@ -357,10 +361,10 @@ public abstract class KafkaCacheIndexFile extends KafkaCacheFile
         protected SortedByValue(
             Path location,
             int capacity,
-            MutableDirectBuffer appendBuf,
+            int appendCapacity,
             IntFunction<long[]> sortSpaceRef)
         {
-            super(location, capacity, appendBuf);
+            super(location, capacity, appendCapacity);
             this.sortSpaceRef = sortSpaceRef;
         }
 
@@ -15,11 +15,12 @@
  */
 package org.reaktivity.nukleus.kafka.internal.cache;
 
-import static java.nio.ByteBuffer.allocateDirect;
+import static java.lang.Integer.toUnsignedLong;
 import static java.util.Objects.requireNonNull;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.NEXT_SEGMENT_VALUE;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.RETRY_SEGMENT_VALUE;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.cursorValue;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheHash.hash32;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheIndexRecord.SIZEOF_INDEX_RECORD;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaType.JSON_PATCH;
 import static org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW.FIELD_OFFSET_DELTA_POSITION;
@@ -27,13 +28,16 @@ import static org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryF
 import static org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW.FIELD_OFFSET_FLAGS;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.IntFunction;
-import java.util.zip.CRC32C;
 
 import javax.json.JsonArray;
 import javax.json.JsonPatch;
@@ -43,7 +47,6 @@ import javax.json.JsonWriter;
 import javax.json.spi.JsonProvider;
 
 import org.agrona.DirectBuffer;
-import org.agrona.ExpandableArrayBuffer;
 import org.agrona.LangUtil;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.MutableInteger;
@@ -76,6 +79,13 @@ public final class KafkaCachePartition
 
     private static final long OFFSET_HISTORICAL = KafkaOffsetType.HISTORICAL.value();
 
+    private static final ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor(r ->
+    {
+        final Thread thread = new Thread(r, "kafka-cache-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final KafkaCacheEntryFW headEntryRO = new KafkaCacheEntryFW();
     private final KafkaCacheEntryFW logEntryRO = new KafkaCacheEntryFW();
     private final KafkaCacheDeltaFW deltaEntryRO = new KafkaCacheDeltaFW();
@@ -83,20 +93,16 @@ public final class KafkaCachePartition
     private final MutableDirectBuffer entryInfo = new UnsafeBuffer(new byte[5 * Long.BYTES + 3 * Integer.BYTES]);
     private final MutableDirectBuffer valueInfo = new UnsafeBuffer(new byte[Integer.BYTES]);
 
-    private final DirectBufferInputStream ancestorIn = new DirectBufferInputStream();
-    private final DirectBufferInputStream headIn = new DirectBufferInputStream();
-    private final MutableDirectBuffer diffBuffer = new ExpandableArrayBuffer();
-    private final ExpandableDirectBufferOutputStream diffOut = new ExpandableDirectBufferOutputStream();
-
     private final Path location;
     private final KafkaCacheTopicConfig config;
     private final String cache;
     private final String topic;
     private final int id;
-    private final MutableDirectBuffer appendBuf;
+    private final int appendCapacity;
     private final IntFunction<long[]> sortSpaceRef;
     private final Node sentinel;
-    private final CRC32C checksum;
+    private final boolean compressible;
+    private final Deque<Node> compressing;
 
     private long progress;
 
@@ -117,10 +123,11 @@ public final class KafkaCachePartition
         this.cache = cache;
         this.topic = topic;
         this.id = id;
-        this.appendBuf = new UnsafeBuffer(allocateDirect(appendCapacity));
+        this.appendCapacity = appendCapacity;
         this.sortSpaceRef = sortSpaceRef;
         this.sentinel = new Node();
-        this.checksum = new CRC32C();
+        this.compressible = true;
+        this.compressing = new ArrayDeque<>();
         this.progress = OFFSET_HISTORICAL;
         this.produceCapacity = new AtomicLong(0);
     }
@@ -143,10 +150,11 @@ public final class KafkaCachePartition
         this.produceCapacity = produceCapacity;
         this.topic = topic;
         this.id = id;
-        this.appendBuf = new UnsafeBuffer(allocateDirect(appendCapacity));
+        this.appendCapacity = appendCapacity;
         this.sortSpaceRef = sortSpaceRef;
         this.sentinel = new Node();
-        this.checksum = new CRC32C();
+        this.compressible = false;
+        this.compressing = new ArrayDeque<>();
         this.progress = OFFSET_HISTORICAL;
     }
 
@@ -192,9 +200,11 @@ public final class KafkaCachePartition
     {
         assert offset >= progress;
 
+        swapCompressed();
+
         final Node head = sentinel.previous;
 
-        KafkaCacheSegment segment = new KafkaCacheSegment(location, config, topic, id, offset, appendBuf, sortSpaceRef);
+        KafkaCacheSegment segment = new KafkaCacheSegment(location, config, topic, id, offset, appendCapacity, sortSpaceRef);
         Node node = new Node(segment);
         node.previous = head;
         node.next = sentinel;
@@ -205,6 +215,7 @@ public final class KafkaCachePartition
         {
             final KafkaCacheSegment tail = head.segment.freeze();
             head.segment(tail);
+            head.compressIfNecessary();
         }
 
         produceCapacity.getAndAdd(segmentBytes());
@@ -320,6 +331,8 @@ public final class KafkaCachePartition
         assert offset > this.progress : String.format("%d > %d", offset, this.progress);
         this.progress = offset;
 
+        swapCompressed();
+
         final Node head = sentinel.previous;
         assert head != sentinel;
 
@@ -416,15 +429,14 @@ public final class KafkaCachePartition
 
         if (!headers.isEmpty())
         {
-            final DirectBuffer buffer = headers.buffer();
-            final ByteBuffer byteBuffer = buffer.byteBuffer();
-            assert byteBuffer != null;
-            byteBuffer.clear();
             headers.forEach(h ->
             {
-                final long hash = computeHash(h);
-                final long hashEntry = (hash << 32) | logFile.markValue();
-                hashFile.appendLong(hashEntry);
+                if (config.indexesHeader(h.name()))
+                {
+                    final long hash = computeHash(h);
+                    final long hashEntry = (hash << 32) | logFile.markValue();
+                    hashFile.appendLong(hashEntry);
+                }
             });
         }
 
@@ -441,6 +453,12 @@ public final class KafkaCachePartition
             final OctetsFW headValue = headEntry.value();
             assert headEntry.offset$() == progress;
 
+            final KafkaCacheScratch scratch = KafkaCacheScratch.current();
+            final DirectBufferInputStream ancestorIn = scratch.ancestorIn;
+            final DirectBufferInputStream headIn = scratch.headIn;
+            final MutableDirectBuffer diffBuffer = scratch.diffBuffer;
+            final ExpandableDirectBufferOutputStream diffOut = scratch.diffOut;
+
             final JsonProvider json = JsonProvider.provider();
             ancestorIn.wrap(ancestorValue.buffer(), ancestorValue.offset(), ancestorValue.sizeof());
             final JsonReader ancestorReader = json.createReader(ancestorIn);
@@ -537,15 +555,14 @@ public final class KafkaCachePartition
 
         if (!headers.isEmpty())
         {
-            final DirectBuffer buffer = headers.buffer();
-            final ByteBuffer byteBuffer = buffer.byteBuffer();
-            assert byteBuffer != null;
-            byteBuffer.clear();
             headers.forEach(h ->
             {
-                final long hash = computeHash(h);
-                final long hashEntry = (hash << 32) | entryMark.value;
-                hashFile.appendLong(hashEntry);
+                if (config.indexesHeader(h.name()))
+                {
+                    final long hash = computeHash(h);
+                    final long hashEntry = (hash << 32) | entryMark.value;
+                    hashFile.appendLong(hashEntry);
+                }
             });
         }
         else
@@ -633,12 +650,26 @@ public final class KafkaCachePartition
         return config.cleanupPolicy;
     }
 
+    public boolean indexesHeader(
+        OctetsFW name)
+    {
+        return config.indexesHeader(name);
+    }
+
     public long computeKeyHash(
         KafkaKeyFW key)
     {
         return computeHash(key);
     }
 
+    public void swapCompressed()
+    {
+        while (!compressing.isEmpty() && compressing.peekFirst().swapCompressed())
+        {
+            compressing.removeFirst();
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -650,14 +681,8 @@ public final class KafkaCachePartition
     {
         // TODO: compute null key hash in advance
         final DirectBuffer buffer = keyOrHeader.buffer();
-        final ByteBuffer byteBuffer = buffer.byteBuffer();
-        byteBuffer.clear();
-        assert byteBuffer != null;
-        checksum.reset();
-        byteBuffer.position(keyOrHeader.offset());
-        byteBuffer.limit(keyOrHeader.limit());
-        checksum.update(byteBuffer);
-        return checksum.getValue();
+        final int hash = hash32(buffer, keyOrHeader.offset(), keyOrHeader.sizeof());
+        return toUnsignedLong(hash);
     }
 
     public final class Node
@@ -666,6 +691,8 @@ public final class KafkaCachePartition
         private volatile KafkaCachePartition.Node previous;
         private volatile KafkaCachePartition.Node next;
 
+        private CompletableFuture<Void> compressed;
+
         Node()
         {
             this.segment = null;
@@ -714,9 +741,22 @@ public final class KafkaCachePartition
             return ancestorNode;
         }
 
+        public CompletableFuture<Void> compressed()
+        {
+            return compressed != null ? compressed : CompletableFuture.completedFuture(null);
+        }
+
         public void remove()
         {
             assert segment != null;
+
+            if (compressed != null)
+            {
+                final KafkaCacheSegment removed = segment;
+                compressed.whenComplete((r, ex) -> removed.discardCompressed());
+                compressed = null;
+            }
+
             segment.delete();
             segment.close();
 
@@ -742,7 +782,7 @@ public final class KafkaCachePartition
                 // TODO: use temporary files plus move to avoid corrupted log on restart
                 segment.delete();
 
-                final KafkaCacheSegment appender = new KafkaCacheSegment(segment, config, appendBuf, sortSpaceRef);
+                final KafkaCacheSegment appender = new KafkaCacheSegment(segment, config, appendCapacity, sortSpaceRef);
                 final KafkaCacheFile logFile = segment.logFile();
                 final KafkaCacheFile deltaFile = segment.deltaFile();
 
@@ -766,9 +806,12 @@ public final class KafkaCachePartition
 
                         headers.forEach(header ->
                         {
-                            final long headerHash = computeHash(header);
-                            final long headerHashEntry = headerHash << 32 | appender.logFile().capacity();
-                            appender.hashFile().appendLong(headerHashEntry);
+                            if (config.indexesHeader(header.name()))
+                            {
+                                final long headerHash = computeHash(header);
+                                final long headerHashEntry = headerHash << 32 | appender.logFile().capacity();
+                                appender.hashFile().appendLong(headerHashEntry);
+                            }
                         });
 
                         appender.logFile().appendBytes(logEntry);
@@ -789,7 +832,7 @@ public final class KafkaCachePartition
                         appender.lastOffset(logOffset);
                     }
 
-                    logPosition = logEntry.limit();
+                    logPosition += logEntry.sizeof();
                 }
 
                 segment.close();
@@ -805,6 +848,7 @@ public final class KafkaCachePartition
                 else
                 {
                     segment(frozen);
+                    compressIfNecessary();
                 }
             }
         }
@@ -831,7 +875,7 @@ public final class KafkaCachePartition
                     if (key.equals(cacheEntry.key()))
                     {
                         ancestor = cacheEntry;
-                        markDescendantAndDirty(ancestor, descendantOffset);
+                        markDescendantAndDirty(ancestor, position, descendantOffset);
                         break ancestor;
                     }
                     hashCursor = hashFile.lower((int) hash, hashCursor);
@@ -855,29 +899,67 @@ public final class KafkaCachePartition
             final KafkaCacheEntryFW dirtyEntry = logFile.readBytes(position, dirty::tryWrap);
             assert dirtyEntry != null;
 
-            markDirty(dirtyEntry);
+            markDirty(dirtyEntry, position);
 
             return dirtyEntry;
         }
 
         private void markDescendantAndDirty(
             KafkaCacheEntryFW ancestor,
+            int position,
             long descendantOffset)
         {
             final KafkaCacheFile logFile = segment.logFile();
-            logFile.writeLong(ancestor.offset() + FIELD_OFFSET_DESCENDANT, descendantOffset);
-            logFile.writeInt(ancestor.offset() + FIELD_OFFSET_FLAGS, CACHE_ENTRY_FLAGS_DIRTY);
+            logFile.writeLong(position + FIELD_OFFSET_DESCENDANT, descendantOffset);
+            logFile.writeInt(position + FIELD_OFFSET_FLAGS, CACHE_ENTRY_FLAGS_DIRTY);
             segment.markDirtyBytes(ancestor.sizeof());
         }
 
         public void markDirty(
-            KafkaCacheEntryFW entry)
+            KafkaCacheEntryFW entry,
+            int position)
         {
             final KafkaCacheFile logFile = segment.logFile();
-            logFile.writeInt(entry.offset() + FIELD_OFFSET_FLAGS, CACHE_ENTRY_FLAGS_DIRTY);
+            logFile.writeInt(position + FIELD_OFFSET_FLAGS, CACHE_ENTRY_FLAGS_DIRTY);
             segment.markDirtyBytes(entry.sizeof());
         }
 
+        private void compressIfNecessary()
+        {
+            if (compressible && config.segmentCompression)
+            {
+                final KafkaCacheSegment frozen = segment.acquire();
+                final int blockBytes = config.segmentCompressionBlockBytes;
+
+                if (compressed == null)
+                {
+                    compressing.addLast(this);
+                }
+
+                // single compressor thread, so a re-frozen segment never races an earlier compression of the same files
+                this.compressed = CompletableFuture.runAsync(() -> compress(frozen, blockBytes), COMPRESSOR);
+            }
+        }
+
+        private boolean swapCompressed()
+        {
+            if (compressed != null && compressed.isDone())
+            {
+                if (compressed.isCompletedExceptionally())
+                {
+                    segment.discardCompressed();
+                }
+                else
+                {
+                    segment(segment.compressed());
+                }
+
+                compressed = null;
+            }
+
+            return compressed == null;
+        }
+
         @Override
         public String toString()
         {
@@ -886,6 +968,20 @@ public final class KafkaCachePartition
         }
     }
 
+    private static void compress(
+        KafkaCacheSegment frozen,
+        int blockBytes)
+    {
+        try
+        {
+            frozen.compress(blockBytes);
+        }
+        finally
+        {
+            frozen.release();
+        }
+    }
+
     private static Path createDirectories(
         Path directory)
     {
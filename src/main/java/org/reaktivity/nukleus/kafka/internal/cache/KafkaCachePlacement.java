@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class KafkaCachePlacement
+{
+    private static final String FORMAT_PARTITION_DIRECTORY = "%s-%d";
+
+    private final Path[] locations;
+    private final KafkaCachePlacementPolicy policy;
+    private final AtomicInteger placements;
+    private final Map<String, Path> locationsByPartition;
+
+    public KafkaCachePlacement(
+        Path location)
+    {
+        this(new Path[] { location }, KafkaCachePlacementPolicy.HASH);
+    }
+
+    public KafkaCachePlacement(
+        Path[] locations,
+        KafkaCachePlacementPolicy policy)
+    {
+        assert locations.length > 0;
+        this.locations = locations;
+        this.policy = policy;
+        this.placements = new AtomicInteger();
+        this.locationsByPartition = new ConcurrentHashMap<>();
+    }
+
+    public Path location(
+        String topic,
+        int partitionId)
+    {
+        final String partition = String.format(FORMAT_PARTITION_DIRECTORY, topic, partitionId);
+        return locationsByPartition.computeIfAbsent(partition, p -> place(topic, partitionId, p));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("[%s] %s %d", getClass().getSimpleName(), policy, locations.length);
+    }
+
+    private Path place(
+        String topic,
+        int partitionId,
+        String partition)
+    {
+        Path location = null;
+
+        if (locations.length == 1)
+        {
+            location = locations[0];
+        }
+        else
+        {
+            for (Path candidate : locations)
+            {
+                if (Files.isDirectory(candidate.resolve(partition)))
+                {
+                    location = candidate;
+                    break;
+                }
+            }
+
+            if (location == null)
+            {
+                location = locations[policy.select(locations, topic, partitionId, placements)];
+            }
+        }
+
+        return location;
+    }
+}
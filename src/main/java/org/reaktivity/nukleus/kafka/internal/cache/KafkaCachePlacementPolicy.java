@@ -0,0 +1,105 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.agrona.LangUtil;
+
+public enum KafkaCachePlacementPolicy
+{
+    HASH
+    {
+        public int select(
+            Path[] locations,
+            String topic,
+            int partitionId,
+            AtomicInteger placements)
+        {
+            return Math.floorMod(31 * topic.hashCode() + partitionId, locations.length);
+        }
+    },
+    ROUND_ROBIN
+    {
+        public int select(
+            Path[] locations,
+            String topic,
+            int partitionId,
+            AtomicInteger placements)
+        {
+            return Math.floorMod(placements.getAndIncrement(), locations.length);
+        }
+    },
+    LEAST_USED
+    {
+        public int select(
+            Path[] locations,
+            String topic,
+            int partitionId,
+            AtomicInteger placements)
+        {
+            int selected = 0;
+            long selectedSpace = -1L;
+
+            for (int index = 0; index < locations.length; index++)
+            {
+                final long usableSpace = usableSpace(locations[index]);
+                if (usableSpace > selectedSpace)
+                {
+                    selected = index;
+                    selectedSpace = usableSpace;
+                }
+            }
+
+            return selected;
+        }
+    };
+
+    public abstract int select(
+        Path[] locations,
+        String topic,
+        int partitionId,
+        AtomicInteger placements);
+
+    private static long usableSpace(
+        Path location)
+    {
+        long usableSpace = 0L;
+
+        try
+        {
+            Path existing = location.toAbsolutePath();
+            while (existing != null && !Files.exists(existing))
+            {
+                existing = existing.getParent();
+            }
+
+            if (existing != null)
+            {
+                usableSpace = Files.getFileStore(existing).getUsableSpace();
+            }
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        return usableSpace;
+    }
+}
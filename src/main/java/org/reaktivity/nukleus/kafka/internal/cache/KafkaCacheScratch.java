@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static java.nio.ByteBuffer.allocateDirect;
+
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.io.DirectBufferInputStream;
+import org.agrona.io.ExpandableDirectBufferOutputStream;
+
+final class KafkaCacheScratch
+{
+    private static final ThreadLocal<KafkaCacheScratch> SCRATCH = ThreadLocal.withInitial(KafkaCacheScratch::new);
+
+    final DirectBufferInputStream ancestorIn = new DirectBufferInputStream();
+    final DirectBufferInputStream headIn = new DirectBufferInputStream();
+    final MutableDirectBuffer diffBuffer = new ExpandableArrayBuffer();
+    final ExpandableDirectBufferOutputStream diffOut = new ExpandableDirectBufferOutputStream();
+
+    private MutableDirectBuffer appendBuf;
+
+    private KafkaCacheScratch()
+    {
+        this.appendBuf = new UnsafeBuffer(allocateDirect(0));
+    }
+
+    static KafkaCacheScratch current()
+    {
+        return SCRATCH.get();
+    }
+
+    MutableDirectBuffer appendBuf(
+        int capacityMin)
+    {
+        if (appendBuf.capacity() < capacityMin)
+        {
+            appendBuf = new UnsafeBuffer(allocateDirect(capacityMin));
+        }
+
+        return appendBuf;
+    }
+}
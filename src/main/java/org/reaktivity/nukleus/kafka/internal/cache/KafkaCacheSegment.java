@@ -20,7 +20,6 @@ import static java.lang.System.currentTimeMillis;
 import java.nio.file.Path;
 import java.util.function.IntFunction;
 
-import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetType;
 
 public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
@@ -28,6 +27,7 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
     private static final long OFFSET_LIVE = KafkaOffsetType.LIVE.value();
 
     private final Path location;
+    private final KafkaCacheTopicConfig config;
     private final String name;
     private final int id;
     private final long baseOffset;
@@ -49,7 +49,7 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
     public KafkaCacheSegment(
         KafkaCacheSegment segment,
         KafkaCacheTopicConfig config,
-        MutableDirectBuffer appendBuf,
+        int appendCapacity,
         IntFunction<long[]> sortSpaceRef)
     {
         this(segment.location,
@@ -57,7 +57,7 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
                 segment.name,
                 segment.id,
                 segment.baseOffset,
-                appendBuf,
+                appendCapacity,
                 sortSpaceRef);
     }
 
@@ -67,21 +67,23 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
         String name,
         int id,
         long baseOffset,
-        MutableDirectBuffer appendBuf,
+        int appendCapacity,
         IntFunction<long[]> sortSpaceRef)
     {
         this.location = location;
+        this.config = config;
         this.name = name;
         this.id = id;
         this.baseOffset = baseOffset;
         this.lastOffset = OFFSET_LIVE;
         this.timestamp = currentTimeMillis();
-        this.logFile = new KafkaCacheFile.Log(location, baseOffset, config.segmentBytes, appendBuf);
-        this.deltaFile = new KafkaCacheFile.Delta(location, baseOffset, config.segmentBytes, appendBuf);
-        this.indexFile = new KafkaCacheFile.Index(location, baseOffset, config.segmentIndexBytes, appendBuf);
-        this.hashFile = new KafkaCacheFile.HashScan(location, baseOffset, config.segmentIndexBytes, appendBuf, sortSpaceRef);
-        this.keysFile = new KafkaCacheFile.KeysScan(location, baseOffset, config.segmentIndexBytes, appendBuf, sortSpaceRef);
-        this.nullsFile = new KafkaCacheFile.NullsScan(location, baseOffset, config.segmentIndexBytes, appendBuf, sortSpaceRef);
+        this.logFile = new KafkaCacheFile.Log(location, baseOffset, config.segmentBytes, appendCapacity);
+        this.deltaFile = new KafkaCacheFile.Delta(location, baseOffset, config.segmentBytes, appendCapacity);
+        this.indexFile = new KafkaCacheFile.Index(location, baseOffset, config.segmentIndexBytes, appendCapacity);
+        this.hashFile = new KafkaCacheFile.HashScan(location, baseOffset, config.segmentIndexBytes, appendCapacity, sortSpaceRef);
+        this.keysFile = new KafkaCacheFile.KeysScan(location, baseOffset, config.segmentIndexBytes, appendCapacity, sortSpaceRef);
+        this.nullsFile = new KafkaCacheFile.NullsScan(location, baseOffset, config.segmentIndexBytes,
+                appendCapacity, sortSpaceRef);
     }
 
     public KafkaCacheSegment(
@@ -89,16 +91,22 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
         String name,
         int id,
         long baseOffset,
-        long lastOffset)
+        long lastOffset,
+        boolean compressed)
     {
         this.location = location;
+        this.config = null;
         this.name = name;
         this.id = id;
         this.baseOffset = baseOffset;
         this.lastOffset = lastOffset;
         this.timestamp = currentTimeMillis();
-        this.logFile = new KafkaCacheFile.Log(location, baseOffset);
-        this.deltaFile = new KafkaCacheFile.Delta(location, baseOffset);
+        this.logFile = compressed
+                ? new KafkaCacheFile.CompressedLog(location, baseOffset)
+                : new KafkaCacheFile.Log(location, baseOffset);
+        this.deltaFile = compressed
+                ? new KafkaCacheFile.CompressedDelta(location, baseOffset)
+                : new KafkaCacheFile.Delta(location, baseOffset);
         this.indexFile = new KafkaCacheFile.Index(location, baseOffset);
         this.hashFile = new KafkaCacheFile.HashIndex(location, baseOffset);
         this.keysFile = new KafkaCacheFile.KeysIndex(location, baseOffset);
@@ -186,7 +194,7 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
         nullsFile.freeze();
         keysFile.freeze();
 
-        final KafkaCacheSegment frozen = new KafkaCacheSegment(location, name, id, baseOffset, lastOffset);
+        final KafkaCacheSegment frozen = new KafkaCacheSegment(location, name, id, baseOffset, lastOffset, false);
 
         frozen.dirtySince = dirtySince;
         frozen.dirtyBytes = dirtyBytes;
@@ -195,6 +203,35 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
         return frozen;
     }
 
+    public void compress(
+        int blockBytes)
+    {
+        // note: entry flags and descendant are overlaid from entries file, so safe while still marking dirty
+        KafkaCacheFile.CompressedLog.compress(logFile, location, baseOffset, blockBytes);
+        KafkaCacheFile.CompressedDelta.compress(deltaFile, location, baseOffset, blockBytes);
+    }
+
+    public KafkaCacheSegment compressed()
+    {
+        KafkaCacheFile.CompressedLog.compressEntries(logFile, location, baseOffset);
+        logFile.delete();
+        deltaFile.delete();
+
+        final KafkaCacheSegment compressed = new KafkaCacheSegment(location, name, id, baseOffset, lastOffset, true);
+
+        compressed.dirtySince = dirtySince;
+        compressed.dirtyBytes = dirtyBytes;
+        compressed.cleanableAt = cleanableAt;
+
+        return compressed;
+    }
+
+    public void discardCompressed()
+    {
+        KafkaCacheFile.CompressedLog.discard(location, baseOffset);
+        KafkaCacheFile.CompressedDelta.discard(location, baseOffset);
+    }
+
     public void delete()
     {
         logFile.delete();
@@ -221,6 +258,17 @@ public final class KafkaCacheSegment extends KafkaCacheObject<KafkaCacheSegment>
         return dirtySince;
     }
 
+    public int dirtyBytes()
+    {
+        return dirtyBytes;
+    }
+
+    public long size()
+    {
+        return (long) logFile.capacity() + deltaFile.capacity() + indexFile.capacity() +
+                hashFile.capacity() + keysFile.capacity() + nullsFile.capacity();
+    }
+
     public void markDirtyBytes(
         int dirtyBytes)
     {
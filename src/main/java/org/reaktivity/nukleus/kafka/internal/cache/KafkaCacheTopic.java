@@ -27,7 +27,7 @@ import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
 
 public final class KafkaCacheTopic
 {
-    private final Path location;
+    private final KafkaCachePlacement placement;
     private final String cache;
     private final long maxProduceCapacity;
     private final AtomicLong produceCapacity;
@@ -39,14 +39,14 @@ public final class KafkaCacheTopic
     private IntFunction<long[]> sortSpaceRef;
 
     public KafkaCacheTopic(
-        Path location,
+        KafkaCachePlacement placement,
         KafkaConfiguration config,
         String cache,
         AtomicLong produceCapacity,
         String name,
         IntFunction<long[]> sortSpaceRef)
     {
-        this.location = location;
+        this.placement = placement;
         this.config = new KafkaCacheTopicConfig(config);
         this.appendCapacity = REAKTOR_BUFFER_SLOT_CAPACITY.get(config);
         this.cache = cache;
@@ -96,6 +96,7 @@ public final class KafkaCacheTopic
     private KafkaCachePartition newFetchPartition(
         int id)
     {
+        final Path location = placement.location(name, id);
         return new KafkaCachePartition(location, config, cache, name, id, appendCapacity, sortSpaceRef);
     }
 
@@ -103,6 +104,7 @@ public final class KafkaCacheTopic
         int id,
         int index)
     {
+        final Path location = placement.location(name, id);
         return new KafkaCachePartition(location, config, cache, produceCapacity, maxProduceCapacity, name, id, appendCapacity,
             sortSpaceRef, index);
     }
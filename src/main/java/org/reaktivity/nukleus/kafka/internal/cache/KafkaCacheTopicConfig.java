@@ -16,13 +16,16 @@
 package org.reaktivity.nukleus.kafka.internal.cache;
 
 import static java.lang.Double.parseDouble;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
 import org.reaktivity.nukleus.kafka.internal.types.String16FW;
 
 public final class KafkaCacheTopicConfig
@@ -40,6 +43,8 @@ public final class KafkaCacheTopicConfig
     private static final String16FW MAX_COMPACTION_LAG_MILLIS = new String16FW("max.compaction.lag.ms");
     private static final String16FW MIN_CLEANABLE_DIRTY_RATIO = new String16FW("min.cleanable.dirty.ratio");
 
+    private static final String INDEX_HEADERS_ALL = "*";
+
     private static final String16FW CLEANUP_POLICY_COMPACT = new String16FW("compact");
     private static final String16FW CLEANUP_POLICY_DELETE = new String16FW("delete");
     private static final String16FW CLEANUP_POLICY_COMPACT_DELETE = new String16FW("compact,delete");
@@ -57,6 +62,12 @@ public final class KafkaCacheTopicConfig
     public volatile long maxCompactionLagMillis;
     public volatile double minCleanableDirtyRatio;
 
+    public volatile boolean segmentCompression;
+    public volatile int segmentCompressionBlockBytes;
+
+    // set from the cache route or nukleus.kafka.cache.index.headers, kafka has no equivalent topic config
+    public volatile OctetsFW[] indexHeaders;
+
     private static final Map<String16FW, BiConsumer<KafkaCacheTopicConfig, String16FW>> CHANGE_HANDLERS;
 
     static
@@ -90,6 +101,29 @@ public final class KafkaCacheTopicConfig
         this.minCompactionLagMillis = config.cacheMinCompactionLagMillis();
         this.maxCompactionLagMillis = config.cacheMaxCompactionLagMillis();
         this.minCleanableDirtyRatio = config.cacheMinCleanableDirtyRatio();
+        this.segmentCompression = config.cacheSegmentCompression();
+        this.segmentCompressionBlockBytes = config.cacheSegmentCompressionBlockBytes();
+        this.indexHeaders = asIndexHeaders(config.cacheIndexHeaders());
+    }
+
+    public boolean indexesHeader(
+        OctetsFW name)
+    {
+        final OctetsFW[] indexHeaders = this.indexHeaders;
+
+        boolean indexes = indexHeaders == null;
+        for (int index = 0; !indexes && index < indexHeaders.length; index++)
+        {
+            indexes = indexHeaders[index].equals(name);
+        }
+
+        return indexes;
+    }
+
+    public void indexHeaders(
+        String[] headerNames)
+    {
+        this.indexHeaders = asIndexHeaders(headerNames);
     }
 
     public void onChanged(
@@ -216,4 +250,25 @@ public final class KafkaCacheTopicConfig
         final DirectBuffer text = value.value();
         return parseDouble(text.getStringWithoutLengthAscii(0, text.capacity()));
     }
+
+    private static OctetsFW[] asIndexHeaders(
+        String[] headerNames)
+    {
+        OctetsFW[] indexHeaders = new OctetsFW[headerNames.length];
+
+        for (int index = 0; index < headerNames.length; index++)
+        {
+            final String headerName = headerNames[index];
+            if (INDEX_HEADERS_ALL.equals(headerName))
+            {
+                indexHeaders = null;
+                break;
+            }
+
+            final byte[] name = headerName.getBytes(UTF_8);
+            indexHeaders[index] = new OctetsFW().wrap(new UnsafeBuffer(name), 0, name.length);
+        }
+
+        return indexHeaders;
+    }
 }
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class KafkaCacheBootstrapScheduler
+{
+    static final long NO_DEADLINE = -1L;
+
+    private static final long RATE_WINDOW_MILLIS = 1000L;
+
+    private final int maxConcurrent;
+    private final int maxRate;
+    private final List<Task> pending;
+
+    private int active;
+    private long rateWindowAt;
+    private int rateWindowStarts;
+
+    interface Task
+    {
+        boolean subscribed();
+
+        void start(
+            long traceId);
+    }
+
+    KafkaCacheBootstrapScheduler(
+        int maxConcurrent,
+        int maxRate)
+    {
+        this.maxConcurrent = maxConcurrent;
+        this.maxRate = maxRate;
+        this.pending = new ArrayList<>();
+        this.rateWindowAt = -RATE_WINDOW_MILLIS;
+    }
+
+    int active()
+    {
+        return active;
+    }
+
+    int pending()
+    {
+        return pending.size();
+    }
+
+    void schedule(
+        Task task)
+    {
+        assert !pending.contains(task);
+        pending.add(task);
+    }
+
+    boolean cancel(
+        Task task)
+    {
+        return pending.remove(task);
+    }
+
+    void release()
+    {
+        assert active > 0;
+        active--;
+    }
+
+    long dispatch(
+        long traceId,
+        long now)
+    {
+        long deadline = NO_DEADLINE;
+
+        while (!pending.isEmpty() && (maxConcurrent == 0 || active < maxConcurrent))
+        {
+            if (maxRate != 0)
+            {
+                if (now - rateWindowAt >= RATE_WINDOW_MILLIS)
+                {
+                    rateWindowAt = now;
+                    rateWindowStarts = 0;
+                }
+
+                if (rateWindowStarts == maxRate)
+                {
+                    deadline = rateWindowAt + RATE_WINDOW_MILLIS;
+                    break;
+                }
+
+                rateWindowStarts++;
+            }
+
+            final Task task = pending.remove(nextTaskIndex());
+            active++;
+            task.start(traceId);
+        }
+
+        return deadline;
+    }
+
+    private int nextTaskIndex()
+    {
+        int index = 0;
+        for (int candidate = 0; candidate < pending.size(); candidate++)
+        {
+            if (pending.get(candidate).subscribed())
+            {
+                index = candidate;
+                break;
+            }
+        }
+        return index;
+    }
+}
@@ -68,7 +68,8 @@ public final class KafkaCacheClientFactory implements StreamFactory
         LongFunction<BudgetDebitor> supplyDebitor,
         Function<String, KafkaCache> supplyCache,
         LongFunction<KafkaCacheRoute> supplyCacheRoute,
-        int index)
+        int index,
+        KafkaCounters counters)
     {
         final Long2ObjectHashMap<MessageConsumer> correlations = new Long2ObjectHashMap<>();
         final KafkaMergedBudgetAccountant accountant = new KafkaMergedBudgetAccountant(supplyDebitor, supplyBudgetId, creditor);
@@ -83,11 +84,11 @@ public final class KafkaCacheClientFactory implements StreamFactory
 
         final KafkaCacheClientFetchFactory cacheFetchFactory = new KafkaCacheClientFetchFactory(
                 config, router, writeBuffer, bufferPool, signaler, supplyInitialId, supplyReplyId, supplyTraceId,
-                supplyTypeId, accountant::supplyDebitor, supplyCache, supplyCacheRoute, correlations);
+                supplyTypeId, accountant::supplyDebitor, supplyCache, supplyCacheRoute, correlations, counters);
 
         final KafkaCacheClientProduceFactory cacheProduceFactory = new KafkaCacheClientProduceFactory(
                 config, router, writeBuffer, bufferPool, creditor, signaler, supplyInitialId, supplyReplyId, supplyTraceId,
-                supplyBudgetId, supplyTypeId, supplyCache, supplyCacheRoute, correlations, index);
+                supplyBudgetId, supplyTypeId, supplyCache, supplyCacheRoute, correlations, index, counters);
 
         final KafkaMergedFactory cacheMergedFactory = new KafkaMergedFactory(
                 config, router, writeBuffer, supplyInitialId, supplyReplyId, supplyTraceId, supplyTypeId,
@@ -16,6 +16,7 @@
 package org.reaktivity.nukleus.kafka.internal.stream;
 
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
@@ -51,6 +52,7 @@ public final class KafkaCacheClientFactoryBuilder implements KafkaStreamFactoryB
     private ToIntFunction<String> supplyTypeId;
     private LongSupplier supplyBudgetId;
     private LongFunction<BudgetDebitor> supplyDebitor;
+    private Function<String, LongConsumer> supplyAccumulator;
 
     public KafkaCacheClientFactoryBuilder(
         KafkaConfiguration config,
@@ -152,10 +154,19 @@ public final class KafkaCacheClientFactoryBuilder implements KafkaStreamFactoryB
         return this;
     }
 
+    @Override
+    public KafkaCacheClientFactoryBuilder setAccumulatorSupplier(
+        Function<String, LongConsumer> supplyAccumulator)
+    {
+        this.supplyAccumulator = supplyAccumulator;
+        return this;
+    }
+
     @Override
     public StreamFactory build()
     {
         final BufferPool bufferPool = supplyBufferPool.get();
+        final KafkaCounters counters = new KafkaCounters("cache", config.countersMax(), supplyAccumulator);
 
         return new KafkaCacheClientFactory(
                 config,
@@ -172,6 +183,7 @@ public final class KafkaCacheClientFactoryBuilder implements KafkaStreamFactoryB
                 supplyDebitor,
                 supplyCache,
                 supplyCacheRoute,
-                index);
+                index,
+                counters);
     }
 }
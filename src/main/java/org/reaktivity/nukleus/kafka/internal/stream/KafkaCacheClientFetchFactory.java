@@ -15,8 +15,11 @@
  */
 package org.reaktivity.nukleus.kafka.internal.stream;
 
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.reaktivity.nukleus.budget.BudgetCreditor.NO_BUDGET_ID;
 import static org.reaktivity.nukleus.budget.BudgetDebitor.NO_DEBITOR_INDEX;
+import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetFW.Builder.DEFAULT_LATEST_OFFSET;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetType.HISTORICAL;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetType.LIVE;
@@ -98,6 +101,7 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
     private static final int FLAG_NONE = 0x00;
 
     private static final int SIGNAL_FANOUT_REPLY_WINDOW = 1;
+    private static final int SIGNAL_FANOUT_METRICS = 2;
 
     private final RouteFW routeRO = new RouteFW();
     private final KafkaRouteExFW routeExRO = new KafkaRouteExFW();
@@ -120,7 +124,6 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
     private final ResetFW.Builder resetRW = new ResetFW.Builder();
     private final WindowFW.Builder windowRW = new WindowFW.Builder();
     private final KafkaBeginExFW.Builder kafkaBeginExRW = new KafkaBeginExFW.Builder();
-    private final KafkaDataExFW.Builder kafkaDataExRW = new KafkaDataExFW.Builder();
     private final KafkaResetExFW.Builder kafkaResetExRW = new KafkaResetExFW.Builder();
 
     private final MessageFunction<RouteFW> wrapRoute = (t, b, i, l) -> routeRO.wrap(b, i, i + l);
@@ -132,6 +135,7 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
     private final RouteManager router;
     private final MutableDirectBuffer writeBuffer;
     private final MutableDirectBuffer extBuffer;
+    private final KafkaExtensionEncoder extensionEncoder;
     private final BufferPool bufferPool;
     private final Signaler signaler;
     private final LongUnaryOperator supplyInitialId;
@@ -141,6 +145,8 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
     private final LongFunction<KafkaCacheRoute> supplyCacheRoute;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
     private final KafkaCacheCursorFactory cursorFactory;
+    private final KafkaCounters counters;
+    private final int metricsInterval;
 
     public KafkaCacheClientFetchFactory(
         KafkaConfiguration config,
@@ -155,12 +161,14 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
         LongFunction<BudgetDebitor> supplyDebitor,
         Function<String, KafkaCache> supplyCache,
         LongFunction<KafkaCacheRoute> supplyCacheRoute,
-        Long2ObjectHashMap<MessageConsumer> correlations)
+        Long2ObjectHashMap<MessageConsumer> correlations,
+        KafkaCounters counters)
     {
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.router = router;
         this.writeBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
         this.extBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.extensionEncoder = new KafkaExtensionEncoder(kafkaTypeId, extBuffer);
         this.bufferPool = bufferPool;
         this.signaler = signaler;
         this.supplyInitialId = supplyInitialId;
@@ -170,6 +178,8 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
         this.supplyCacheRoute = supplyCacheRoute;
         this.correlations = correlations;
         this.cursorFactory = new KafkaCacheCursorFactory(writeBuffer);
+        this.counters = counters;
+        this.metricsInterval = config.cacheMetricsInterval();
     }
 
     @Override
@@ -244,7 +254,7 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
                 fanout = newFanout;
             }
 
-            final KafkaFilterCondition condition = cursorFactory.asCondition(filters);
+            final KafkaFilterCondition condition = cursorFactory.asCondition(filters, fanout.partition::indexesHeader);
             final long latestOffset = kafkaFetchBeginEx.partition().latestOffset();
             final KafkaOffsetType maximumOffset = KafkaOffsetType.valueOf((byte) latestOffset);
             final int leaderId = cacheRoute.leadersByPartitionId.get(partitionId);
@@ -313,6 +323,33 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
         receiver.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
     }
 
+    private void doData(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        int flags,
+        long budgetId,
+        int reserved,
+        OctetsFW payload,
+        Flyweight extension)
+    {
+        final DataFW data = dataRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .flags(flags)
+                .budgetId(budgetId)
+                .reserved(reserved)
+                .payload(payload)
+                .extension(extension.buffer(), extension.offset(), extension.sizeof())
+                .build();
+
+        receiver.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
+    }
+
     private void doEnd(
         MessageConsumer receiver,
         long routeId,
@@ -399,6 +436,9 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
         private final long authorization;
         private final KafkaCachePartition partition;
         private final List<KafkaCacheClientFetchStream> members;
+        private final KafkaTopicCounters topicCounters;
+        private final KafkaLatencyHistogram deliveryLag;
+        private final KafkaCachePartitionGauges gauges;
 
         private long leaderId;
         private long initialId;
@@ -409,6 +449,8 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
 
         private long partitionOffset;
         private long latestOffset;
+        private long metricsId = NO_CANCEL_ID;
+        private long[] cursorLags = new long[0];
 
         private KafkaCacheClientFetchFanout(
             long routeId,
@@ -425,6 +467,9 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
             this.members = new ArrayList<>();
             this.leaderId = leaderId;
             this.receiver = NO_RECEIVER;
+            this.topicCounters = counters.supplyTopicCounters(routeId, partition.topic());
+            this.deliveryLag = counters.supplyHistogram(routeId, "fetch.delivery.lag.us");
+            this.gauges = counters.supplyPartitionGauges(routeId, partition.topic(), partition.id());
         }
 
         private void onClientFanoutMemberOpening(
@@ -445,6 +490,7 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
 
             assert !members.isEmpty();
 
+            doClientFanoutMetricsSignalIfNecessary();
             doClientFanoutInitialBeginIfNecessary(traceId);
 
             if (KafkaState.initialOpened(state))
@@ -471,11 +517,53 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
 
             if (members.isEmpty())
             {
+                if (metricsId != NO_CANCEL_ID)
+                {
+                    signaler.cancel(metricsId);
+                    this.metricsId = NO_CANCEL_ID;
+                    gauges.resetCursorLag();
+                }
+
                 doClientFanoutInitialAbortIfNecessary(traceId);
                 doClientFanoutReplyResetIfNecessary(traceId);
             }
         }
 
+        private void onClientFanoutMetricsSignal(
+            int signalId)
+        {
+            assert signalId == SIGNAL_FANOUT_METRICS;
+
+            this.metricsId = NO_CANCEL_ID;
+
+            final int memberCount = members.size();
+            if (cursorLags.length < memberCount)
+            {
+                cursorLags = new long[memberCount];
+            }
+
+            for (int index = 0; index < memberCount; index++)
+            {
+                final KafkaCacheClientFetchStream member = members.get(index);
+                cursorLags[index] = Math.max(partitionOffset + 1 - member.cursor.offset, 0L);
+            }
+
+            gauges.sampleCursorLag(cursorLags, memberCount);
+
+            doClientFanoutMetricsSignalIfNecessary();
+        }
+
+        private void doClientFanoutMetricsSignalIfNecessary()
+        {
+            if (metricsInterval != 0 && metricsId == NO_CANCEL_ID && !members.isEmpty())
+            {
+                this.metricsId = signaler.signalAt(
+                    currentTimeMillis() + metricsInterval,
+                    SIGNAL_FANOUT_METRICS,
+                    this::onClientFanoutMetricsSignal);
+            }
+        }
+
         private void doClientFanoutInitialBeginIfNecessary(
             long traceId)
         {
@@ -624,7 +712,10 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
             this.partitionOffset = partitionOffset;
             this.latestOffset = latestOffset;
 
-            members.forEach(s -> s.doClientReplyDataIfNecessary(traceId));
+            for (int i = 0; i < members.size(); i++)
+            {
+                members.get(i).doClientReplyDataIfNecessary(traceId);
+            }
 
             // defer reply window credit until next tick
             assert reserved == KafkaCacheServerFetchFactory.SIZE_OF_FLUSH_WITH_EXTENSION;
@@ -1092,6 +1183,13 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
                     break;
                 }
 
+                group.topicCounters.fetchBytes.accept(length);
+                if ((flags & FLAG_FIN) != 0x00)
+                {
+                    group.topicCounters.fetchRecords.accept(1L);
+                    group.deliveryLag.record(MILLISECONDS.toMicros(currentTimeMillis() - timestamp));
+                }
+
                 if ((flags & FLAG_FIN) == 0x00)
                 {
                     this.messageOffset += length;
@@ -1122,23 +1220,10 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
             replyBudget -= reserved;
             assert replyBudget >= 0 : String.format("[%016x] %d >= 0", replyId, replyBudget);
 
-            doData(sender, routeId, replyId, traceId, authorization, flags, replyBudgetId, reserved, value,
-                ex -> ex.set((b, o, l) -> kafkaDataExRW.wrap(b, o, l)
-                        .typeId(kafkaTypeId)
-                        .fetch(f -> f.timestamp(timestamp)
-                                     .partition(p -> p.partitionId(partitionId)
-                                                      .partitionOffset(partitionOffset)
-                                                      .latestOffset(latestOffset))
-                                     .key(k -> k.length(key.length())
-                                                .value(key.value()))
-                                     .delta(d -> d.type(t -> t.set(deltaType))
-                                                              .ancestorOffset(ancestorOffset))
-                                     .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
-                                                                                       .name(h.name())
-                                                                                       .valueLen(h.valueLen())
-                                                                                       .value(h.value())))))
-                        .build()
-                        .sizeof()));
+            final KafkaDataExFW kafkaDataEx = extensionEncoder.fetchDataFull(timestamp, partitionId, partitionOffset,
+                    latestOffset, key, deltaType, ancestorOffset, headers);
+
+            doData(sender, routeId, replyId, traceId, authorization, flags, replyBudgetId, reserved, value, kafkaDataEx);
         }
 
         private void doClientReplyDataInit(
@@ -1159,20 +1244,10 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
             replyBudget -= reserved;
             assert replyBudget >= 0 : String.format("[%016x] %d >= 0", replyId, replyBudget);
 
-            doData(sender, routeId, replyId, traceId, authorization, flags, replyBudgetId, reserved, fragment,
-                ex -> ex.set((b, o, l) -> kafkaDataExRW.wrap(b, o, l)
-                        .typeId(kafkaTypeId)
-                        .fetch(f -> f.deferred(deferred)
-                                     .timestamp(timestamp)
-                                     .partition(p -> p.partitionId(partitionId)
-                                                      .partitionOffset(partitionOffset)
-                                                      .latestOffset(latestOffset))
-                                     .key(k -> k.length(key.length())
-                                                .value(key.value()))
-                                     .delta(d -> d.type(t -> t.set(deltaType))
-                                                  .ancestorOffset(ancestorOffset)))
-                        .build()
-                        .sizeof()));
+            final KafkaDataExFW kafkaDataEx = extensionEncoder.fetchDataInit(deferred, timestamp, partitionId, partitionOffset,
+                    latestOffset, key, deltaType, ancestorOffset);
+
+            doData(sender, routeId, replyId, traceId, authorization, flags, replyBudgetId, reserved, fragment, kafkaDataEx);
         }
 
         private void doClientReplyDataNone(
@@ -1204,20 +1279,10 @@ public final class KafkaCacheClientFetchFactory implements StreamFactory
             replyBudget -= reserved;
             assert replyBudget >= 0 : String.format("[%016x] %d >= 0", replyId, replyBudget);
 
-            doData(sender, routeId, replyId, traceId, authorization, flags, replyBudgetId, reserved, fragment,
-                ex -> ex.set((b, o, l) -> kafkaDataExRW.wrap(b, o, l)
-                        .typeId(kafkaTypeId)
-                        .fetch(f -> f.partition(p -> p.partitionId(partitionId)
-                                                      .partitionOffset(partitionOffset)
-                                                      .latestOffset(latestOffset))
-                                     .delta(d -> d.type(t -> t.set(deltaType))
-                                                  .ancestorOffset(ancestorOffset))
-                                     .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
-                                                                                       .name(h.name())
-                                                                                       .valueLen(h.valueLen())
-                                                                                       .value(h.value())))))
-                        .build()
-                        .sizeof()));
+            final KafkaDataExFW kafkaDataEx = extensionEncoder.fetchDataFin(partitionId, partitionOffset, latestOffset,
+                    deltaType, ancestorOffset, headers);
+
+            doData(sender, routeId, replyId, traceId, authorization, flags, replyBudgetId, reserved, fragment, kafkaDataEx);
         }
 
         private void doClientReplyEnd(
@@ -16,7 +16,9 @@
 package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.reaktivity.nukleus.budget.BudgetCreditor.NO_CREDITOR_INDEX;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
@@ -24,6 +26,7 @@ import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition.CACHE_ENTRY_FLAGS_COMPLETED;
 import static org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetFW.Builder.DEFAULT_LATEST_OFFSET;
 
+import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.LongFunction;
@@ -104,6 +107,10 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
 
     private static final int SIGNAL_SEGMENT_COMPACT = 1;
     private static final int SIGNAL_GROUP_CLEANUP = 2;
+    private static final int SIGNAL_LEADER_FAILOVER = 3;
+
+    private static final int ACK_LATENCY_WINDOW = 1024;
+    private static final int ACK_LATENCY_MASK = ACK_LATENCY_WINDOW - 1;
 
     private final RouteFW routeRO = new RouteFW();
     private final KafkaRouteExFW routeExRO = new KafkaRouteExFW();
@@ -119,6 +126,7 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
     private final ExtensionFW extensionRO = new ExtensionFW();
     private final KafkaBeginExFW kafkaBeginExRO = new KafkaBeginExFW();
     private final KafkaFlushExFW kafkaFlushExRO = new KafkaFlushExFW();
+    private final KafkaResetExFW kafkaResetExRO = new KafkaResetExFW();
 
     private final BeginFW.Builder beginRW = new BeginFW.Builder();
     private final DataFW.Builder dataRW = new DataFW.Builder();
@@ -130,7 +138,6 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
     private final KafkaBeginExFW.Builder kafkaBeginExRW = new KafkaBeginExFW.Builder();
     private final KafkaDataExFW kafkaDataExRO = new KafkaDataExFW();
     private final KafkaResetExFW.Builder kafkaResetExRW = new KafkaResetExFW.Builder();
-    private final KafkaFlushExFW.Builder kafkaFlushExRW = new KafkaFlushExFW.Builder();
 
     private final KafkaCacheEntryFW entryRO = new KafkaCacheEntryFW();
 
@@ -143,8 +150,10 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
     private final Signaler signaler;
     private final MutableDirectBuffer writeBuffer;
     private final MutableDirectBuffer extBuffer;
+    private final KafkaExtensionEncoder extensionEncoder;
     private final LongUnaryOperator supplyInitialId;
     private final LongUnaryOperator supplyReplyId;
+    private final LongSupplier supplyTraceId;
     private final LongSupplier supplyBudgetId;
     private final Function<String, KafkaCache> supplyCache;
     private final LongFunction<KafkaCacheRoute> supplyCacheRoute;
@@ -153,6 +162,8 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
     private final int initialBudgetMax;
     private final int localIndex;
     private final int cleanupDelay;
+    private final boolean leaderFailover;
+    private final KafkaCounters counters;
 
     public KafkaCacheClientProduceFactory(
         KafkaConfiguration config,
@@ -169,17 +180,20 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         Function<String, KafkaCache> supplyCache,
         LongFunction<KafkaCacheRoute> supplyCacheRoute,
         Long2ObjectHashMap<MessageConsumer> correlations,
-        int localIndex)
+        int localIndex,
+        KafkaCounters counters)
     {
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.router = router;
         this.writeBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
         this.extBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.extensionEncoder = new KafkaExtensionEncoder(kafkaTypeId, extBuffer);
         this.bufferPool = bufferPool;
         this.creditor = creditor;
         this.signaler = signaler;
         this.supplyInitialId = supplyInitialId;
         this.supplyReplyId = supplyReplyId;
+        this.supplyTraceId = supplyTraceId;
         this.supplyBudgetId = supplyBudgetId;
         this.supplyCache = supplyCache;
         this.supplyCacheRoute = supplyCacheRoute;
@@ -187,7 +201,9 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         this.initialBudgetMax = bufferPool.slotCapacity();
         this.localIndex = localIndex;
         this.cleanupDelay = config.cacheClientCleanupDelay();
+        this.leaderFailover = config.cacheLeaderFailover();
         this.cursorFactory = new KafkaCacheCursorFactory(writeBuffer);
+        this.counters = counters;
     }
 
     @Override
@@ -252,7 +268,7 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                 final KafkaCachePartition partition = topic.supplyProducePartition(partitionId, localIndex);
                 final KafkaCacheClientProduceFan newFan =
                         new KafkaCacheClientProduceFan(resolvedId, authorization, affinity, budget,
-                            partition);
+                            partition, cacheRoute);
 
                 cacheRoute.clientProduceFansByTopicPartition.put(partitionKey, newFan);
                 fan = newFan;
@@ -327,7 +343,7 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         long authorization,
         long budgetId,
         int reserved,
-        Consumer<OctetsFW.Builder> extension)
+        Flyweight extension)
     {
         final FlushFW flush = flushRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                                      .routeId(routeId)
@@ -336,7 +352,7 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                                      .authorization(authorization)
                                      .budgetId(budgetId)
                                      .reserved(reserved)
-                                     .extension(extension)
+                                     .extension(extension.buffer(), extension.offset(), extension.sizeof())
                                      .build();
 
         receiver.accept(flush.typeId(), flush.buffer(), flush.offset(), flush.sizeof());
@@ -431,6 +447,11 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         private final long routeId;
         private final long authorization;
         private final int partitionId;
+        private final KafkaCacheRoute cacheRoute;
+        private final KafkaTopicCounters topicCounters;
+        private final KafkaLatencyHistogram produceAck;
+        private final long[] appendedOffsets;
+        private final long[] appendedAt;
 
         private long leaderId;
         private long initialId;
@@ -450,6 +471,9 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         private long compactAt = Long.MAX_VALUE;
         private long compactId = NO_CANCEL_ID;
         private long groupCleanupId = NO_CANCEL_ID;
+        private long failoverId = NO_CANCEL_ID;
+        private int failoverAttempt;
+        private boolean migrating;
 
         private long partitionIndex = NO_CREDITOR_INDEX;
 
@@ -458,9 +482,11 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
             long authorization,
             long leaderId,
             KafkaCacheClientBudget budget,
-            KafkaCachePartition partition)
+            KafkaCachePartition partition,
+            KafkaCacheRoute cacheRoute)
         {
             this.routeId = routeId;
+            this.cacheRoute = cacheRoute;
             this.authorization = authorization;
             this.partition = partition;
             this.partitionId = partition.id();
@@ -469,6 +495,11 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
             this.leaderId = leaderId;
             this.defaultOffset = KafkaOffsetType.LIVE;
             this.cursor = cursorFactory.newCursor(cursorFactory.asCondition(EMPTY_FILTER), KafkaDeltaType.NONE);
+            this.topicCounters = counters.supplyTopicCounters(routeId, partition.topic());
+            this.produceAck = counters.supplyHistogram(routeId, "produce.ack.us");
+            this.appendedOffsets = new long[ACK_LATENCY_WINDOW];
+            this.appendedAt = new long[ACK_LATENCY_WINDOW];
+            Arrays.fill(appendedOffsets, -1L);
 
             partition.newHeadIfNecessary(0L);
 
@@ -492,8 +523,16 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                 correlations.remove(replyId);
                 leaderId = member.leaderId;
 
-                members.forEach((s, m) -> m.cleanupClient(traceId, ERROR_NOT_LEADER_FOR_PARTITION));
-                members.clear();
+                if (leaderFailover)
+                {
+                    cancelFailoverIfNecessary();
+                    migrating = false;
+                }
+                else
+                {
+                    members.forEach((s, m) -> m.cleanupClient(traceId, ERROR_NOT_LEADER_FOR_PARTITION));
+                    members.clear();
+                }
             }
 
             if (groupCleanupId != NO_CANCEL_ID)
@@ -562,6 +601,10 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
             this.replyId = supplyReplyId.applyAsLong(initialId);
             this.receiver = router.supplyReceiver(initialId);
 
+            final long resumeOffset = leaderFailover
+                    ? Math.min(offsetHighWatermark, lastAckOffsetHighWatermark - 1)
+                    : offsetHighWatermark;
+
             correlations.put(replyId, this::onClientFanMessage);
             router.setThrottle(initialId, this::onClientFanMessage);
             doBegin(receiver, routeId, initialId, traceId, authorization, leaderId,
@@ -571,7 +614,7 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                                        .topic(partition.topic())
                                        .partition(par -> par
                                            .partitionId(partitionId)
-                                           .partitionOffset(offsetHighWatermark)))
+                                           .partitionOffset(resumeOffset)))
                         .build()
                         .sizeof()));
             state = KafkaState.openingInitial(state);
@@ -624,6 +667,8 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                     partition.writeProduceEntryStart(partitionOffset, stream.segment, stream.entryMark, stream.position,
                         timestamp, stream.initialId, sequence, key, keyHash, valueLength, headers);
                     stream.partitionOffset = partitionOffset;
+                    appendedOffsets[partitionOffset & ACK_LATENCY_MASK] = partitionOffset;
+                    appendedAt[partitionOffset & ACK_LATENCY_MASK] = nanoTime();
                     partitionOffset++;
                 }
                 else
@@ -635,11 +680,13 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
             if (valueFragment != null && error == NO_ERROR)
             {
                 partition.writeProduceEntryContinue(stream.segment, stream.position, valueFragment);
+                topicCounters.produceBytes.accept(valueFragment.sizeof());
             }
 
             if ((flags & FLAGS_FIN) != 0x00 && error == NO_ERROR)
             {
                 partition.writeProduceEntryFin(stream.segment, stream.entryMark);
+                topicCounters.produceRecords.accept(1L);
                 flushClientFanInitialIfNecessary(traceId);
             }
 
@@ -685,13 +732,9 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         {
             if (initialBudget >= SIZE_OF_FLUSH_WITH_EXTENSION)
             {
-                doFlush(receiver, routeId, initialId, traceId, authorization, 0L, SIZE_OF_FLUSH_WITH_EXTENSION,
-                    ex -> ex.set((b, o, l) -> kafkaFlushExRW.wrap(b, o, l)
-                                        .typeId(kafkaTypeId)
-                                        .produce(f -> f.partition(p -> p.partitionId(partitionId)
-                                                              .partitionOffset(offsetHighWatermark)))
-                                        .build()
-                                        .sizeof()));
+                final KafkaFlushExFW kafkaFlushEx = extensionEncoder.produceFlush(partitionId, offsetHighWatermark);
+
+                doFlush(receiver, routeId, initialId, traceId, authorization, 0L, SIZE_OF_FLUSH_WITH_EXTENSION, kafkaFlushEx);
             }
         }
 
@@ -717,17 +760,102 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         {
             final long traceId = reset.traceId();
             final OctetsFW extension = reset.extension();
+            final KafkaResetExFW kafkaResetEx = extension.get(kafkaResetExRO::tryWrap);
+            final int error = kafkaResetEx != null ? kafkaResetEx.error() : -1;
 
-            members.forEach((s, m) -> m.doClientInitialResetIfNecessary(traceId, extension));
+            if (error > 0)
+            {
+                topicCounters.onError(error);
+            }
 
-            if (!KafkaState.initialClosed(state))
+            if (leaderFailover && !members.isEmpty() && (error == ERROR_NOT_LEADER_FOR_PARTITION || leaderChanged()))
+            {
+                if (!KafkaState.initialClosed(state))
+                {
+                    onClientFanInitialClosed();
+                }
+
+                doClientFanReplyResetIfNecessary(traceId);
+
+                onClientFanLeaderLost();
+            }
+            else
             {
-                onClientFanInitialClosed();
+                members.forEach((s, m) -> m.doClientInitialResetIfNecessary(traceId, extension));
+
+                if (!KafkaState.initialClosed(state))
+                {
+                    onClientFanInitialClosed();
+                }
+
+                doClientFanReplyResetIfNecessary(traceId);
+
+                ackOffsetHighWatermark(traceId, offsetHighWatermark);
             }
+        }
+
+        private void onClientFanLeaderLost()
+        {
+            final boolean resolved = resolveLeaderIfNecessary();
 
-            doClientFanReplyResetIfNecessary(traceId);
+            cancelFailoverIfNecessary();
 
-            ackOffsetHighWatermark(traceId, offsetHighWatermark);
+            final long failoverMillis = resolved ? 0L : Math.min(50 << failoverAttempt++, SECONDS.toMillis(1));
+
+            this.migrating = true;
+            this.failoverId = signaler.signalAt(
+                currentTimeMillis() + failoverMillis,
+                SIGNAL_LEADER_FAILOVER,
+                this::onClientFanFailoverSignal);
+        }
+
+        private void onClientFanFailoverSignal(
+            int signalId)
+        {
+            assert signalId == SIGNAL_LEADER_FAILOVER;
+
+            this.failoverId = NO_CANCEL_ID;
+
+            if (migrating)
+            {
+                final long traceId = supplyTraceId.getAsLong();
+
+                migrating = false;
+                resolveLeaderIfNecessary();
+
+                if (!members.isEmpty())
+                {
+                    doClientFanInitialBeginIfNecessary(traceId);
+                }
+            }
+        }
+
+        private boolean leaderChanged()
+        {
+            final int newLeaderId = cacheRoute.leadersByPartitionId.get(partitionId);
+            return newLeaderId != cacheRoute.leadersByPartitionId.missingValue() && newLeaderId != leaderId;
+        }
+
+        private boolean resolveLeaderIfNecessary()
+        {
+            final boolean resolved = leaderChanged();
+
+            if (resolved)
+            {
+                this.leaderId = cacheRoute.leadersByPartitionId.get(partitionId);
+                this.failoverAttempt = 0;
+            }
+
+            return resolved;
+        }
+
+        private void cancelFailoverIfNecessary()
+        {
+            if (failoverId != NO_CANCEL_ID)
+            {
+                signaler.cancel(failoverId);
+                this.failoverId = NO_CANCEL_ID;
+            }
         }
 
         private void onClientFanInitialWindow(
@@ -746,6 +874,11 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                 budget.credit(traceId, partitionIndex, initialBudget);
 
                 members.forEach((s, m) -> m.doClientInitialWindowIfNecessary(traceId));
+
+                if (leaderFailover && offsetHighWatermark >= lastAckOffsetHighWatermark)
+                {
+                    doFlushClientInitialIfNecessary(traceId);
+                }
             }
         }
 
@@ -910,10 +1043,22 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
                 final long memberStreamId = entry.ownerId();
                 final KafkaCacheClientProduceStream member = members.get(memberStreamId);
                 member.onMessageAck(traceId, entry.offset$());
+                recordProduceAck(lastAckOffsetHighWatermark);
                 lastAckOffsetHighWatermark++;
             }
         }
 
+        private void recordProduceAck(
+            long partitionOffset)
+        {
+            final int index = (int) partitionOffset & ACK_LATENCY_MASK;
+            if (appendedOffsets[index] == partitionOffset)
+            {
+                produceAck.record(NANOSECONDS.toMicros(nanoTime() - appendedAt[index]));
+                appendedOffsets[index] = -1L;
+            }
+        }
+
         private KafkaCacheEntryFW markEntryDirty(
             long partitionOffset)
         {
@@ -947,7 +1092,10 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
 
             doClientFanInitialAbortIfNecessary(traceId);
 
-            members.forEach((s, m) -> m.doClientReplyEndIfNecessary(traceId));
+            if (!migrating)
+            {
+                members.forEach((s, m) -> m.doClientReplyEndIfNecessary(traceId));
+            }
 
             state = KafkaState.closedReply(state);
         }
@@ -957,7 +1105,10 @@ public final class KafkaCacheClientProduceFactory implements StreamFactory
         {
             final long traceId = abort.traceId();
 
-            members.forEach((s, m) -> m.doClientReplyAbortIfNecessary(traceId));
+            if (!migrating)
+            {
+                members.forEach((s, m) -> m.doClientReplyAbortIfNecessary(traceId));
+            }
 
             state = KafkaState.closedReply(state);
         }
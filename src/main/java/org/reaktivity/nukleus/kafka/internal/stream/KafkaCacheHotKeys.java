@@ -0,0 +1,181 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.Arrays;
+
+public final class KafkaCacheHotKeys
+{
+    static final int SKETCH_DEPTH = 4;
+    static final int SKETCH_WIDTH = 2048;
+
+    private static final int SKETCH_MASK = SKETCH_WIDTH - 1;
+    private static final int[] SKETCH_SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f };
+
+    private final int[] sketch;
+    private final int[] heapHashes;
+    private final long[] heapCounts;
+    private final int heapCapacity;
+
+    private int heapSize;
+
+    public KafkaCacheHotKeys(
+        int heapCapacity)
+    {
+        this.sketch = new int[SKETCH_DEPTH * SKETCH_WIDTH];
+        this.heapHashes = new int[heapCapacity];
+        this.heapCounts = new long[heapCapacity];
+        this.heapCapacity = heapCapacity;
+    }
+
+    public void record(
+        int keyHash)
+    {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++)
+        {
+            final int index = row * SKETCH_WIDTH + (mix(keyHash, SKETCH_SEEDS[row]) & SKETCH_MASK);
+            final int count = sketch[index] + 1;
+            if (count > 0)
+            {
+                sketch[index] = count;
+            }
+            estimate = Math.min(estimate, sketch[index]);
+        }
+
+        final int position = indexOf(keyHash);
+        if (position != -1)
+        {
+            heapCounts[position] = estimate;
+            siftDown(position);
+        }
+        else if (heapSize < heapCapacity)
+        {
+            heapHashes[heapSize] = keyHash;
+            heapCounts[heapSize] = estimate;
+            siftUp(heapSize++);
+        }
+        else if (heapCapacity != 0 && estimate > heapCounts[0])
+        {
+            heapHashes[0] = keyHash;
+            heapCounts[0] = estimate;
+            siftDown(0);
+        }
+    }
+
+    public int size()
+    {
+        return heapSize;
+    }
+
+    public int drain(
+        int[] hashes,
+        long[] counts)
+    {
+        final int drained = heapSize;
+        for (int rank = drained - 1; rank >= 0; rank--)
+        {
+            hashes[rank] = heapHashes[0];
+            counts[rank] = heapCounts[0];
+            heapSize--;
+            heapHashes[0] = heapHashes[heapSize];
+            heapCounts[0] = heapCounts[heapSize];
+            siftDown(0);
+        }
+
+        Arrays.fill(sketch, 0);
+
+        return drained;
+    }
+
+    private int indexOf(
+        int keyHash)
+    {
+        for (int index = 0; index < heapSize; index++)
+        {
+            if (heapHashes[index] == keyHash)
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void siftUp(
+        int index)
+    {
+        while (index > 0)
+        {
+            final int parent = (index - 1) >> 1;
+            if (heapCounts[parent] <= heapCounts[index])
+            {
+                break;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(
+        int index)
+    {
+        while (true)
+        {
+            final int left = (index << 1) + 1;
+            final int right = left + 1;
+
+            int smallest = index;
+            if (left < heapSize && heapCounts[left] < heapCounts[smallest])
+            {
+                smallest = left;
+            }
+            if (right < heapSize && heapCounts[right] < heapCounts[smallest])
+            {
+                smallest = right;
+            }
+            if (smallest == index)
+            {
+                break;
+            }
+            swap(smallest, index);
+            index = smallest;
+        }
+    }
+
+    private void swap(
+        int i,
+        int j)
+    {
+        final int hash = heapHashes[i];
+        heapHashes[i] = heapHashes[j];
+        heapHashes[j] = hash;
+
+        final long count = heapCounts[i];
+        heapCounts[i] = heapCounts[j];
+        heapCounts[j] = count;
+    }
+
+    private static int mix(
+        int hash,
+        int seed)
+    {
+        int h = (hash ^ seed) * 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class KafkaCacheHotKeysRegistry
+{
+    private final Map<String, KafkaCacheHotKey[]> hotKeysByPartition;
+
+    public KafkaCacheHotKeysRegistry()
+    {
+        this.hotKeysByPartition = new ConcurrentHashMap<>();
+    }
+
+    public List<KafkaCacheHotKey> top(
+        int count)
+    {
+        final List<KafkaCacheHotKey> hotKeys = new ArrayList<>();
+        hotKeysByPartition.values().forEach(sampled -> Collections.addAll(hotKeys, sampled));
+        hotKeys.sort((k1, k2) -> Long.compare(k2.rate, k1.rate));
+        return hotKeys.subList(0, Math.min(Math.max(count, 0), hotKeys.size()));
+    }
+
+    void publish(
+        long routeId,
+        String topic,
+        int partitionId,
+        int[] hashes,
+        long[] rates,
+        int count)
+    {
+        final KafkaCacheHotKey[] sampled = new KafkaCacheHotKey[count];
+        for (int rank = 0; rank < count; rank++)
+        {
+            sampled[rank] = new KafkaCacheHotKey(routeId, topic, partitionId, hashes[rank], rates[rank]);
+        }
+        hotKeysByPartition.put(partitionKey(routeId, topic, partitionId), sampled);
+    }
+
+    void withdraw(
+        long routeId,
+        String topic,
+        int partitionId)
+    {
+        hotKeysByPartition.remove(partitionKey(routeId, topic, partitionId));
+    }
+
+    private static String partitionKey(
+        long routeId,
+        String topic,
+        int partitionId)
+    {
+        return String.format("%d.%s.%d", routeId, topic, partitionId);
+    }
+
+    public static final class KafkaCacheHotKey
+    {
+        public final long routeId;
+        public final String topic;
+        public final int partitionId;
+        public final int hash;
+        public final long rate;
+
+        KafkaCacheHotKey(
+            long routeId,
+            String topic,
+            int partitionId,
+            int hash,
+            long rate)
+        {
+            this.routeId = routeId;
+            this.topic = topic;
+            this.partitionId = partitionId;
+            this.hash = hash;
+            this.rate = rate;
+        }
+    }
+}
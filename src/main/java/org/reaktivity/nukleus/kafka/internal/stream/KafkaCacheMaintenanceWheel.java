@@ -0,0 +1,230 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+public final class KafkaCacheMaintenanceWheel
+{
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 4;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long SPAN_MAX = (1L << (SLOT_BITS * LEVELS)) - 1;
+    private static final int NO_SLOT = -1;
+
+    private final long tickMillis;
+    private final Timer[] slots;
+
+    private long currentTick;
+    private long cascadedTick;
+    private int size;
+
+    public KafkaCacheMaintenanceWheel(
+        long tickMillis,
+        long nowMillis)
+    {
+        assert tickMillis > 0L;
+        this.tickMillis = tickMillis;
+        this.slots = new Timer[SLOTS * LEVELS];
+        this.currentTick = nowMillis / tickMillis;
+        this.cascadedTick = currentTick - 1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void schedule(
+        Timer timer,
+        long deadlineMillis)
+    {
+        cancel(timer);
+
+        timer.deadlineMillis = deadlineMillis;
+        timer.deadlineTick = Math.max(toTick(deadlineMillis), currentTick);
+        link(timer);
+        size++;
+    }
+
+    public void cancel(
+        Timer timer)
+    {
+        if (timer.slot != NO_SLOT)
+        {
+            unlink(timer);
+            size--;
+        }
+    }
+
+    public int advance(
+        long nowMillis,
+        int batchMax)
+    {
+        final long nowTick = nowMillis / tickMillis;
+
+        if (size == 0 && currentTick < nowTick)
+        {
+            currentTick = nowTick;
+            cascadedTick = nowTick - 1;
+        }
+
+        int expired = 0;
+        while (expired < batchMax && currentTick <= nowTick)
+        {
+            if (cascadedTick != currentTick)
+            {
+                cascade(currentTick);
+                cascadedTick = currentTick;
+            }
+
+            final int slot = (int) (currentTick & SLOT_MASK);
+            for (Timer timer = slots[slot]; timer != null && expired < batchMax; timer = slots[slot])
+            {
+                unlink(timer);
+
+                if (timer.deadlineTick <= currentTick)
+                {
+                    size--;
+                    expired++;
+                    timer.handler.run();
+                }
+                else
+                {
+                    link(timer);
+                }
+            }
+
+            if (slots[slot] == null)
+            {
+                currentTick++;
+            }
+        }
+
+        return expired;
+    }
+
+    private void cascade(
+        long tick)
+    {
+        for (int level = LEVELS - 1; level > 0; level--)
+        {
+            final int shift = SLOT_BITS * level;
+            if ((tick & ((1L << shift) - 1)) == 0L)
+            {
+                final int slot = level * SLOTS + (int) ((tick >>> shift) & SLOT_MASK);
+                for (Timer timer = slots[slot]; timer != null; timer = slots[slot])
+                {
+                    unlink(timer);
+                    link(timer);
+                }
+            }
+        }
+    }
+
+    private void link(
+        Timer timer)
+    {
+        final long delta = timer.deadlineTick - currentTick;
+
+        int level = 0;
+        long placementTick = timer.deadlineTick;
+        if (delta > SPAN_MAX)
+        {
+            level = LEVELS - 1;
+            placementTick = currentTick + SPAN_MAX;
+        }
+        else
+        {
+            while (delta >>> (SLOT_BITS * (level + 1)) != 0L)
+            {
+                level++;
+            }
+        }
+
+        final int slot = level * SLOTS + (int) ((placementTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        final Timer head = slots[slot];
+
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = head;
+        if (head != null)
+        {
+            head.previous = timer;
+        }
+        slots[slot] = timer;
+    }
+
+    private void unlink(
+        Timer timer)
+    {
+        final Timer previous = timer.previous;
+        final Timer next = timer.next;
+
+        if (previous != null)
+        {
+            previous.next = next;
+        }
+        else
+        {
+            slots[timer.slot] = next;
+        }
+
+        if (next != null)
+        {
+            next.previous = previous;
+        }
+
+        timer.slot = NO_SLOT;
+        timer.previous = null;
+        timer.next = null;
+    }
+
+    private long toTick(
+        long deadlineMillis)
+    {
+        return deadlineMillis > Long.MAX_VALUE - tickMillis
+                ? Long.MAX_VALUE / tickMillis
+                : (deadlineMillis + tickMillis - 1) / tickMillis;
+    }
+
+    public static final class Timer
+    {
+        private final Runnable handler;
+
+        private Timer previous;
+        private Timer next;
+        private int slot = NO_SLOT;
+        private long deadlineMillis;
+        private long deadlineTick;
+
+        public Timer(
+            Runnable handler)
+        {
+            this.handler = handler;
+        }
+
+        public boolean scheduled()
+        {
+            return slot != NO_SLOT;
+        }
+
+        public long deadline()
+        {
+            return deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.Arrays;
+
+import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition;
+import org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheSegment;
+
+public final class KafkaCachePartitionGauges
+{
+    static final int COUNTERS = 7;
+
+    public final KafkaGauge segments;
+    public final KafkaGauge bytes;
+    public final KafkaGauge dirtyRatio;
+    public final KafkaGauge compactAt;
+    public final KafkaGauge headOffset;
+    public final KafkaGauge cursorLagMax;
+    public final KafkaGauge cursorLagMedian;
+
+    private final KafkaCounters counters;
+    private final long routeId;
+    private final String prefix;
+
+    private KafkaGauge[] hotKeyHashes;
+    private KafkaGauge[] hotKeyRates;
+
+    KafkaCachePartitionGauges(
+        KafkaCounters counters,
+        long routeId,
+        String topic,
+        int partitionId)
+    {
+        final String prefix = String.format("%s.%d", topic, partitionId);
+        final boolean reserved = counters.reserve(COUNTERS);
+        this.counters = counters;
+        this.routeId = routeId;
+        this.prefix = prefix;
+        this.hotKeyHashes = new KafkaGauge[0];
+        this.hotKeyRates = new KafkaGauge[0];
+        this.segments = supplyGauge(reserved, "segments");
+        this.bytes = supplyGauge(reserved, "bytes");
+        this.dirtyRatio = supplyGauge(reserved, "dirty.ratio.permille");
+        this.compactAt = supplyGauge(reserved, "compact.at");
+        this.headOffset = supplyGauge(reserved, "head.offset");
+        this.cursorLagMax = supplyGauge(reserved, "cursor.lag.max");
+        this.cursorLagMedian = supplyGauge(reserved, "cursor.lag.median");
+    }
+
+    public void sampleSegments(
+        KafkaCachePartition partition,
+        long nextCompactAt,
+        long nextHeadOffset)
+    {
+        int segmentCount = 0;
+        long segmentBytes = 0L;
+        long logBytes = 0L;
+        long dirtyBytes = 0L;
+
+        for (KafkaCachePartition.Node node = partition.sentinel().next(); !node.sentinel(); node = node.next())
+        {
+            final KafkaCacheSegment segment = node.segment();
+            segmentCount++;
+            segmentBytes += segment.size();
+            logBytes += segment.logFile().capacity();
+            dirtyBytes += segment.dirtyBytes();
+        }
+
+        segments.set(segmentCount);
+        bytes.set(segmentBytes);
+        dirtyRatio.set(logBytes != 0L ? dirtyBytes * 1000L / logBytes : 0L);
+        compactAt.set(nextCompactAt != Long.MAX_VALUE ? nextCompactAt : 0L);
+        headOffset.set(Math.max(nextHeadOffset, 0L));
+    }
+
+    public void resetSegments()
+    {
+        segments.set(0L);
+        bytes.set(0L);
+        dirtyRatio.set(0L);
+        compactAt.set(0L);
+        headOffset.set(0L);
+    }
+
+    public void sampleCursorLag(
+        long[] lags,
+        int count)
+    {
+        long lagMax = 0L;
+        long lagMedian = 0L;
+
+        if (count > 0)
+        {
+            Arrays.sort(lags, 0, count);
+            lagMax = lags[count - 1];
+            lagMedian = lags[(count - 1) >> 1];
+        }
+
+        cursorLagMax.set(lagMax);
+        cursorLagMedian.set(lagMedian);
+    }
+
+    public void sampleHotKeys(
+        int[] hashes,
+        long[] rates,
+        int count)
+    {
+        if (hotKeyHashes.length < count)
+        {
+            final KafkaGauge[] newHotKeyHashes = Arrays.copyOf(hotKeyHashes, count);
+            final KafkaGauge[] newHotKeyRates = Arrays.copyOf(hotKeyRates, count);
+            for (int rank = hotKeyHashes.length; rank < count; rank++)
+            {
+                final boolean reserved = counters.reserve(2);
+                newHotKeyHashes[rank] = supplyGauge(reserved, hotKeyName(rank, "hash"));
+                newHotKeyRates[rank] = supplyGauge(reserved, hotKeyName(rank, "rate"));
+            }
+            this.hotKeyHashes = newHotKeyHashes;
+            this.hotKeyRates = newHotKeyRates;
+        }
+
+        for (int rank = 0; rank < hotKeyHashes.length; rank++)
+        {
+            hotKeyHashes[rank].set(rank < count ? hashes[rank] : 0L);
+            hotKeyRates[rank].set(rank < count ? rates[rank] : 0L);
+        }
+    }
+
+    public void resetCursorLag()
+    {
+        cursorLagMax.set(0L);
+        cursorLagMedian.set(0L);
+    }
+
+    private KafkaGauge supplyGauge(
+        boolean reserved,
+        String name)
+    {
+        return new KafkaGauge(reserved ? counters.supplyAccumulator(routeId, prefix, name) : KafkaCounters.noAccumulator());
+    }
+
+    static String hotKeyName(
+        int rank,
+        String name)
+    {
+        return String.format("hot.%d.%s", rank, name);
+    }
+}
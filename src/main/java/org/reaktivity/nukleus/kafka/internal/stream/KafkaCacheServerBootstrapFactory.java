@@ -15,9 +15,14 @@
  */
 package org.reaktivity.nukleus.kafka.internal.stream;
 
+import static java.lang.System.currentTimeMillis;
+import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
+import static org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheBootstrapScheduler.NO_DEADLINE;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.function.ToIntFunction;
@@ -28,6 +33,7 @@ import org.agrona.collections.Long2LongHashMap;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.collections.MutableInteger;
 import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.concurrent.Signaler;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.function.MessageFunction;
 import org.reaktivity.nukleus.function.MessagePredicate;
@@ -79,6 +85,8 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
     private static final int ERROR_NOT_LEADER_FOR_PARTITION = 6;
 
+    private static final int SIGNAL_BOOTSTRAP_DISPATCH = 1;
+
     private static final Consumer<OctetsFW.Builder> EMPTY_EXTENSION = ex -> {};
 
     private final RouteFW routeRO = new RouteFW();
@@ -114,23 +122,38 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
     private final LongUnaryOperator supplyInitialId;
     private final LongUnaryOperator supplyReplyId;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
+    private final Signaler signaler;
+    private final LongSupplier supplyTraceId;
+    private final LongFunction<KafkaCacheRoute> supplyCacheRoute;
+    private final KafkaCacheBootstrapScheduler scheduler;
+
+    private long dispatchId = NO_CANCEL_ID;
 
     public KafkaCacheServerBootstrapFactory(
         KafkaConfiguration config,
         RouteManager router,
         MutableDirectBuffer writeBuffer,
+        Signaler signaler,
         LongUnaryOperator supplyInitialId,
         LongUnaryOperator supplyReplyId,
         LongSupplier supplyTraceId,
         ToIntFunction<String> supplyTypeId,
+        LongFunction<KafkaCacheRoute> supplyCacheRoute,
         Long2ObjectHashMap<MessageConsumer> correlations)
     {
+        final int maxConcurrent = config.cacheServerBootstrapMaxConcurrent();
+        final int maxRate = config.cacheServerBootstrapMaxRate();
+
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.router = router;
         this.writeBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.signaler = signaler;
         this.supplyInitialId = supplyInitialId;
         this.supplyReplyId = supplyReplyId;
+        this.supplyTraceId = supplyTraceId;
+        this.supplyCacheRoute = supplyCacheRoute;
         this.correlations = correlations;
+        this.scheduler = maxConcurrent != 0 || maxRate != 0 ? new KafkaCacheBootstrapScheduler(maxConcurrent, maxRate) : null;
     }
 
     @Override
@@ -291,6 +314,27 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
         sender.accept(reset.typeId(), reset.buffer(), reset.offset(), reset.sizeof());
     }
 
+    private void doBootstrapDispatch(
+        long traceId)
+    {
+        final long deadline = scheduler.dispatch(traceId, currentTimeMillis());
+
+        if (deadline != NO_DEADLINE && dispatchId == NO_CANCEL_ID)
+        {
+            dispatchId = signaler.signalAt(deadline, SIGNAL_BOOTSTRAP_DISPATCH, this::onBootstrapDispatchSignal);
+        }
+    }
+
+    private void onBootstrapDispatchSignal(
+        int signalId)
+    {
+        assert signalId == SIGNAL_BOOTSTRAP_DISPATCH;
+
+        dispatchId = NO_CANCEL_ID;
+
+        doBootstrapDispatch(supplyTraceId.getAsLong());
+    }
+
     private final class KafkaBootstrapStream
     {
         private final MessageConsumer sender;
@@ -308,6 +352,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
         private final long defaultOffset;
 
         private int state;
+        private KafkaCacheRoute fetchRoute;
 
         private long replyBudgetId;
         private int replyPadding;
@@ -391,6 +436,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
             describeStream.doDescribeInitialEndIfNecessary(traceId);
             metaStream.doMetaInitialEndIfNecessary(traceId);
+            cancelFetchWarmUpsIfNecessary(traceId);
             fetchStreams.forEach(f -> f.doFetchInitialEndIfNecessary(traceId));
 
             doBootstrapReplyEndIfNecessary(traceId);
@@ -406,6 +452,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
             describeStream.doDescribeInitialAbortIfNecessary(traceId);
             metaStream.doMetaInitialAbortIfNecessary(traceId);
+            cancelFetchWarmUpsIfNecessary(traceId);
             fetchStreams.forEach(f -> f.doFetchInitialAbortIfNecessary(traceId));
 
             doBootstrapReplyAbortIfNecessary(traceId);
@@ -432,6 +479,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
             describeStream.doDescribeReplyReset(traceId);
             metaStream.doMetaReplyReset(traceId);
+            cancelFetchWarmUpsIfNecessary(traceId);
             fetchStreams.forEach(f -> f.doFetchReplyReset(traceId));
 
             doBootstrapInitialResetIfNecessary(traceId);
@@ -513,6 +561,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
                 doBootstrapReplyEnd(traceId);
                 describeStream.doDescribeReplyResetIfNecessary(traceId);
                 metaStream.doMetaReplyResetIfNecessary(traceId);
+                cancelFetchWarmUpsIfNecessary(traceId);
                 fetchStreams.forEach(f -> f.doFetchReplyResetIfNecessary(traceId));
             }
         }
@@ -525,6 +574,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
                 doBootstrapReplyAbort(traceId);
                 describeStream.doDescribeReplyResetIfNecessary(traceId);
                 metaStream.doMetaReplyResetIfNecessary(traceId);
+                cancelFetchWarmUpsIfNecessary(traceId);
                 fetchStreams.forEach(f -> f.doFetchReplyResetIfNecessary(traceId));
             }
         }
@@ -537,6 +587,7 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
                 doBootstrapInitialReset(traceId);
                 describeStream.doDescribeInitialAbortIfNecessary(traceId);
                 metaStream.doMetaInitialAbortIfNecessary(traceId);
+                cancelFetchWarmUpsIfNecessary(traceId);
                 fetchStreams.forEach(f -> f.doFetchInitialAbortIfNecessary(traceId));
             }
         }
@@ -579,14 +630,27 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
             if (leader != null && leader.leaderId != leaderId)
             {
                 leader.leaderId = leaderId;
-                leader.doFetchInitialBeginIfNecessary(traceId, partitionOffset);
+
+                if (!leader.pending)
+                {
+                    leader.doFetchInitialBeginIfNecessary(traceId, partitionOffset);
+                }
             }
 
             if (leader == null)
             {
                 leader = new KafkaBootstrapFetchStream(partitionId, leaderId, this);
-                leader.doFetchInitialBegin(traceId, partitionOffset);
-                fetchStreams.add(leader);
+
+                if (scheduler != null)
+                {
+                    fetchStreams.add(leader);
+                    leader.doFetchInitialSchedule(traceId);
+                }
+                else
+                {
+                    leader.doFetchInitialBegin(traceId, partitionOffset);
+                    fetchStreams.add(leader);
+                }
             }
 
             assert leader != null;
@@ -648,6 +712,50 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
             return partitionOffset;
         }
 
+        private boolean hasSubscribers(
+            int partitionId)
+        {
+            if (fetchRoute == null)
+            {
+                final MessagePredicate filter = (t, b, i, l) ->
+                {
+                    final RouteFW route = wrapRoute.apply(t, b, i, l);
+                    final KafkaRouteExFW routeEx = route.extension().get(routeExRO::tryWrap);
+                    final String16FW routeTopic = routeEx != null ? routeEx.topic() : null;
+                    return !route.localAddress().equals(route.remoteAddress()) &&
+                            (routeTopic == null || routeTopic.asString().equals(topic));
+                };
+
+                final RouteFW route = router.resolve(resolvedId, authorization, filter, wrapRoute);
+                if (route != null)
+                {
+                    fetchRoute = supplyCacheRoute.apply(route.correlationId());
+                }
+            }
+
+            return fetchRoute != null &&
+                    fetchRoute.serverFetchFanoutsByTopicPartition.containsKey(fetchRoute.topicPartitionKey(topic, partitionId));
+        }
+
+        private void cancelFetchWarmUpsIfNecessary(
+            long traceId)
+        {
+            if (scheduler != null)
+            {
+                for (int index = fetchStreams.size() - 1; index >= 0; index--)
+                {
+                    final KafkaBootstrapFetchStream fetchStream = fetchStreams.get(index);
+                    if (fetchStream.pending)
+                    {
+                        scheduler.cancel(fetchStream);
+                        fetchStreams.remove(index);
+                    }
+                }
+
+                fetchStreams.forEach(f -> f.doFetchWarmedIfNecessary(traceId));
+            }
+        }
+
         private KafkaBootstrapFetchStream findPartitionLeader(
             int partitionId)
         {
@@ -1135,12 +1243,14 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
         }
     }
 
-    private final class KafkaBootstrapFetchStream
+    private final class KafkaBootstrapFetchStream implements KafkaCacheBootstrapScheduler.Task
     {
         private final int partitionId;
         private final KafkaBootstrapStream bootstrap;
 
         private int leaderId;
+        private boolean pending;
+        private boolean warming;
 
         private long initialId;
         private long replyId;
@@ -1163,6 +1273,42 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
             this.bootstrap = bootstrap;
         }
 
+        @Override
+        public boolean subscribed()
+        {
+            return bootstrap.hasSubscribers(partitionId);
+        }
+
+        @Override
+        public void start(
+            long traceId)
+        {
+            assert pending;
+            pending = false;
+            warming = true;
+
+            doFetchInitialBegin(traceId, bootstrap.nextPartitionOffset(partitionId));
+        }
+
+        private void doFetchInitialSchedule(
+            long traceId)
+        {
+            pending = true;
+            scheduler.schedule(this);
+            doBootstrapDispatch(traceId);
+        }
+
+        private void doFetchWarmedIfNecessary(
+            long traceId)
+        {
+            if (warming)
+            {
+                warming = false;
+                scheduler.release();
+                doBootstrapDispatch(traceId);
+            }
+        }
+
         private void doFetchInitialBeginIfNecessary(
             long traceId,
             long partitionOffset)
@@ -1250,6 +1396,8 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
             assert KafkaState.closed(state);
 
+            doFetchWarmedIfNecessary(traceId);
+
             bootstrap.onPartitionLeaderError(traceId, partitionId, error);
         }
 
@@ -1336,6 +1484,11 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
                 this.partitionOffset = partition.partitionOffset();
 
+                if (partition.partitionOffset() >= partition.latestOffset())
+                {
+                    doFetchWarmedIfNecessary(traceId);
+                }
+
                 doFetchReplyWindow(traceId, reserved);
             }
         }
@@ -1347,6 +1500,8 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
             state = KafkaState.closedReply(state);
 
+            doFetchWarmedIfNecessary(traceId);
+
             bootstrap.doBootstrapReplyEndIfNecessary(traceId);
 
             doFetchInitialEndIfNecessary(traceId);
@@ -1359,6 +1514,8 @@ public final class KafkaCacheServerBootstrapFactory implements StreamFactory
 
             state = KafkaState.closedReply(state);
 
+            doFetchWarmedIfNecessary(traceId);
+
             bootstrap.doBootstrapReplyAbortIfNecessary(traceId);
 
             doFetchInitialAbortIfNecessary(traceId);
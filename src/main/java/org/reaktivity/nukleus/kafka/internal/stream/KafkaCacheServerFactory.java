@@ -65,13 +65,15 @@ public final class KafkaCacheServerFactory implements StreamFactory
         Function<String, KafkaCache> supplyCache,
         LongFunction<KafkaCacheRoute> supplyCacheRoute,
         Long2ObjectHashMap<MessageConsumer> correlations,
-        LongToIntFunction supplyRemoteIndex)
+        LongToIntFunction supplyRemoteIndex,
+        KafkaCounters counters,
+        KafkaCacheHotKeysRegistry hotKeys)
     {
         final Int2ObjectHashMap<StreamFactory> streamFactoriesByKind = new Int2ObjectHashMap<>();
 
         streamFactoriesByKind.put(KafkaBeginExFW.KIND_BOOTSTRAP, new KafkaCacheServerBootstrapFactory(
-                config, router, writeBuffer, supplyInitialId, supplyReplyId,
-                supplyTraceId, supplyTypeId, correlations));
+                config, router, writeBuffer, signaler, supplyInitialId, supplyReplyId,
+                supplyTraceId, supplyTypeId, supplyCacheRoute, correlations));
 
         streamFactoriesByKind.put(KafkaBeginExFW.KIND_META, new KafkaCacheMetaFactory(
                 config, router, writeBuffer, bufferPool, signaler, supplyInitialId, supplyReplyId,
@@ -83,7 +85,7 @@ public final class KafkaCacheServerFactory implements StreamFactory
 
         streamFactoriesByKind.put(KafkaBeginExFW.KIND_FETCH, new KafkaCacheServerFetchFactory(
                 config, router, writeBuffer, bufferPool, signaler, supplyInitialId, supplyReplyId,
-                supplyTraceId, supplyTypeId, supplyCache, supplyCacheRoute, correlations));
+                supplyTraceId, supplyTypeId, supplyCache, supplyCacheRoute, correlations, counters, hotKeys));
 
         streamFactoriesByKind.put(KafkaBeginExFW.KIND_PRODUCE, new KafkaCacheServerProduceFactory(
                 config, router, writeBuffer, signaler, supplyInitialId, supplyReplyId,
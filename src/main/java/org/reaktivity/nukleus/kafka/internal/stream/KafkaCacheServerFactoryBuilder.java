@@ -16,6 +16,7 @@
 package org.reaktivity.nukleus.kafka.internal.stream;
 
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
 import java.util.function.LongToIntFunction;
@@ -40,6 +41,7 @@ public final class KafkaCacheServerFactoryBuilder implements KafkaStreamFactoryB
     private final KafkaConfiguration config;
     private final Function<String, KafkaCache> supplyCache;
     private final LongFunction<KafkaCacheRoute> supplyCacheRoute;
+    private final KafkaCacheHotKeysRegistry hotKeys;
     private final AddressFactoryBuilder addressFactoryBuilder;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
 
@@ -53,15 +55,18 @@ public final class KafkaCacheServerFactoryBuilder implements KafkaStreamFactoryB
     private ToIntFunction<String> supplyTypeId;
     private Signaler signaler;
     private LongToIntFunction supplyRemoteIndex;
+    private Function<String, LongConsumer> supplyAccumulator;
 
     public KafkaCacheServerFactoryBuilder(
         KafkaConfiguration config,
         Function<String, KafkaCache> supplyCache,
-        LongFunction<KafkaCacheRoute> supplyCacheRoute)
+        LongFunction<KafkaCacheRoute> supplyCacheRoute,
+        KafkaCacheHotKeysRegistry hotKeys)
     {
         this.config = config;
         this.supplyCache = supplyCache;
         this.supplyCacheRoute = supplyCacheRoute;
+        this.hotKeys = hotKeys;
         this.correlations = new Long2ObjectHashMap<>();
         this.addressFactoryBuilder = new KafkaCacheServerAddressFactoryBuilder(config, correlations);
     }
@@ -152,10 +157,19 @@ public final class KafkaCacheServerFactoryBuilder implements KafkaStreamFactoryB
         return this;
     }
 
+    @Override
+    public KafkaCacheServerFactoryBuilder setAccumulatorSupplier(
+        Function<String, LongConsumer> supplyAccumulator)
+    {
+        this.supplyAccumulator = supplyAccumulator;
+        return this;
+    }
+
     @Override
     public StreamFactory build()
     {
         final BufferPool bufferPool = supplyBufferPool.get();
+        final KafkaCounters counters = new KafkaCounters("cache", config.countersMax(), supplyAccumulator);
 
         return new KafkaCacheServerFactory(
                 config,
@@ -171,6 +185,8 @@ public final class KafkaCacheServerFactoryBuilder implements KafkaStreamFactoryB
                 supplyCache,
                 supplyCacheRoute,
                 correlations,
-                supplyRemoteIndex);
+                supplyRemoteIndex,
+                counters,
+                hotKeys);
     }
 }
@@ -16,6 +16,8 @@
 package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
 import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.cursorNextValue;
@@ -30,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
@@ -52,6 +55,7 @@ import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition.Node;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheSegment;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheTopic;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheMaintenanceWheel.Timer;
 import org.reaktivity.nukleus.kafka.internal.types.ArrayFW;
 import org.reaktivity.nukleus.kafka.internal.types.Flyweight;
 import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaFW;
@@ -63,6 +67,7 @@ import org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetType;
 import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
 import org.reaktivity.nukleus.kafka.internal.types.String16FW;
 import org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW;
+import org.reaktivity.nukleus.kafka.internal.types.control.KafkaCacheRouteExFW;
 import org.reaktivity.nukleus.kafka.internal.types.control.KafkaRouteExFW;
 import org.reaktivity.nukleus.kafka.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.AbortFW;
@@ -100,9 +105,13 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
     private static final int SIGNAL_SEGMENT_RETAIN = 2;
     private static final int SIGNAL_SEGMENT_DELETE = 3;
     private static final int SIGNAL_SEGMENT_COMPACT = 4;
+    private static final int SIGNAL_METRICS = 5;
+    private static final int SIGNAL_HOT_KEYS = 6;
+    private static final int SIGNAL_MAINTENANCE = 7;
 
     private final RouteFW routeRO = new RouteFW();
     private final KafkaRouteExFW routeExRO = new KafkaRouteExFW();
+    private final KafkaCacheRouteExFW cacheRouteExRO = new KafkaCacheRouteExFW();
 
     private final BeginFW beginRO = new BeginFW();
     private final DataFW dataRO = new DataFW();
@@ -124,7 +133,6 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
     private final ResetFW.Builder resetRW = new ResetFW.Builder();
     private final WindowFW.Builder windowRW = new WindowFW.Builder();
     private final KafkaBeginExFW.Builder kafkaBeginExRW = new KafkaBeginExFW.Builder();
-    private final KafkaFlushExFW.Builder kafkaFlushExRW = new KafkaFlushExFW.Builder();
 
     private final MessageFunction<RouteFW> wrapRoute = (t, b, i, l) -> routeRO.wrap(b, i, i + l);
 
@@ -134,6 +142,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
     private final RouteManager router;
     private final MutableDirectBuffer writeBuffer;
     private final MutableDirectBuffer extBuffer;
+    private final KafkaExtensionEncoder extensionEncoder;
     private final BufferPool bufferPool;
     private final Signaler signaler;
     private final LongUnaryOperator supplyInitialId;
@@ -143,6 +152,18 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
     private final LongFunction<KafkaCacheRoute> supplyCacheRoute;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
     private final int reconnectDelay;
+    private final boolean leaderFailover;
+    private final KafkaCounters counters;
+    private final int metricsInterval;
+    private final int hotKeysMax;
+    private final int hotKeysWindow;
+    private final KafkaCacheHotKeysRegistry hotKeysRegistry;
+    private final int maintenanceTick;
+    private final int maintenanceBatch;
+    private final KafkaCacheMaintenanceWheel maintenance;
+    private final IntConsumer onMaintenanceSignal = this::onMaintenanceSignal;
+
+    private long maintenanceId = NO_CANCEL_ID;
 
     public KafkaCacheServerFetchFactory(
         KafkaConfiguration config,
@@ -156,12 +177,15 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
         ToIntFunction<String> supplyTypeId,
         Function<String, KafkaCache> supplyCache,
         LongFunction<KafkaCacheRoute> supplyCacheRoute,
-        Long2ObjectHashMap<MessageConsumer> correlations)
+        Long2ObjectHashMap<MessageConsumer> correlations,
+        KafkaCounters counters,
+        KafkaCacheHotKeysRegistry hotKeysRegistry)
     {
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.router = router;
         this.writeBuffer = writeBuffer;
         this.extBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.extensionEncoder = new KafkaExtensionEncoder(kafkaTypeId, extBuffer);
         this.bufferPool = bufferPool;
         this.signaler = signaler;
         this.supplyInitialId = supplyInitialId;
@@ -171,6 +195,15 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
         this.supplyCacheRoute = supplyCacheRoute;
         this.correlations = correlations;
         this.reconnectDelay = config.cacheServerReconnect();
+        this.leaderFailover = config.cacheLeaderFailover();
+        this.counters = counters;
+        this.metricsInterval = config.cacheMetricsInterval();
+        this.hotKeysMax = config.cacheHotKeysMax();
+        this.hotKeysWindow = config.cacheHotKeysWindow();
+        this.hotKeysRegistry = hotKeysRegistry;
+        this.maintenanceTick = config.cacheMaintenanceTick();
+        this.maintenanceBatch = config.cacheMaintenanceBatch();
+        this.maintenance = maintenanceTick > 0 ? new KafkaCacheMaintenanceWheel(maintenanceTick, currentTimeMillis()) : null;
     }
 
     @Override
@@ -231,9 +264,16 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                 final String cacheName = route.localAddress().asString();
                 final KafkaCache cache = supplyCache.apply(cacheName);
                 final KafkaCacheTopic topic = cache.supplyTopic(topicName);
+                final KafkaCacheRouteExFW cacheRouteEx = route.extension().get(cacheRouteExRO::tryWrap);
+                if (cacheRouteEx != null)
+                {
+                    final List<String> indexHeaders = new ArrayList<>();
+                    cacheRouteEx.indexHeaders().forEach(h -> indexHeaders.add(h.asString()));
+                    topic.config().indexHeaders(indexHeaders.toArray(new String[0]));
+                }
                 final KafkaCachePartition partition = topic.supplyFetchPartition(partitionId);
                 final KafkaCacheServerFetchFanout newFanout = new KafkaCacheServerFetchFanout(resolvedId, authorization,
-                        affinity, partition, routeDeltaType, defaultOffset);
+                        affinity, partition, routeDeltaType, defaultOffset, cacheRoute);
 
                 cacheRoute.serverFetchFanoutsByTopicPartition.put(partitionKey, newFanout);
                 fanout = newFanout;
@@ -254,6 +294,36 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
         return newStream;
     }
 
+    private void scheduleMaintenance(
+        Timer timer,
+        long deadlineMillis)
+    {
+        maintenance.schedule(timer, deadlineMillis);
+
+        if (maintenanceId == NO_CANCEL_ID)
+        {
+            final long nextAt = currentTimeMillis() + maintenanceTick;
+            this.maintenanceId = signaler.signalAt(nextAt, SIGNAL_MAINTENANCE, onMaintenanceSignal);
+        }
+    }
+
+    private void onMaintenanceSignal(
+        int signalId)
+    {
+        assert signalId == SIGNAL_MAINTENANCE;
+
+        this.maintenanceId = NO_CANCEL_ID;
+
+        final long now = currentTimeMillis();
+        final int expired = maintenance.advance(now, maintenanceBatch);
+
+        if (maintenance.size() != 0)
+        {
+            final long nextAt = expired == maintenanceBatch ? now : now + maintenanceTick;
+            this.maintenanceId = signaler.signalAt(nextAt, SIGNAL_MAINTENANCE, onMaintenanceSignal);
+        }
+    }
+
     private void doBegin(
         MessageConsumer receiver,
         long routeId,
@@ -283,7 +353,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
         long authorization,
         long budgetId,
         int reserved,
-        Consumer<OctetsFW.Builder> extension)
+        Flyweight extension)
     {
         final FlushFW flush = flushRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                 .routeId(routeId)
@@ -292,7 +362,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                 .authorization(authorization)
                 .budgetId(budgetId)
                 .reserved(reserved)
-                .extension(extension)
+                .extension(extension.buffer(), extension.offset(), extension.sizeof())
                 .build();
 
         receiver.accept(flush.typeId(), flush.buffer(), flush.offset(), flush.sizeof());
@@ -387,6 +457,16 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
         private final KafkaOffsetType defaultOffset;
         private final long retentionMillisMax;
         private final List<KafkaCacheServerFetchStream> members;
+        private final KafkaCacheRoute cacheRoute;
+        private final KafkaTopicCounters topicCounters;
+        private final KafkaLatencyHistogram cacheAppend;
+        private final KafkaCachePartitionGauges gauges;
+        private final KafkaCacheHotKeys hotKeys;
+        private final int[] hotKeyHashes;
+        private final long[] hotKeyCounts;
+        private final Timer retainTimer;
+        private final Timer deleteTimer;
+        private final Timer compactTimer;
 
         private long leaderId;
         private long initialId;
@@ -403,6 +483,10 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
         private long compactAt = Long.MAX_VALUE;
         private long reconnectAt = NO_CANCEL_ID;
         private int reconnectAttempt;
+        private boolean migrating;
+        private long appendStartedAt;
+        private long metricsId = NO_CANCEL_ID;
+        private long hotKeysId = NO_CANCEL_ID;
 
         private KafkaCacheServerFetchFanout(
             long routeId,
@@ -410,8 +494,10 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             long leaderId,
             KafkaCachePartition partition,
             KafkaDeltaType deltaType,
-            KafkaOffsetType defaultOffset)
+            KafkaOffsetType defaultOffset,
+            KafkaCacheRoute cacheRoute)
         {
+            this.cacheRoute = cacheRoute;
             this.routeId = routeId;
             this.authorization = authorization;
             this.partition = partition;
@@ -420,6 +506,15 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             this.retentionMillisMax = defaultOffset == LIVE ? SECONDS.toMillis(30) : Long.MAX_VALUE;
             this.members = new ArrayList<>();
             this.leaderId = leaderId;
+            this.topicCounters = counters.supplyTopicCounters(routeId, partition.topic());
+            this.cacheAppend = counters.supplyHistogram(routeId, "cache.append.us");
+            this.gauges = counters.supplyPartitionGauges(routeId, partition.topic(), partition.id());
+            this.hotKeys = hotKeysMax != 0 && hotKeysWindow > 0 ? new KafkaCacheHotKeys(hotKeysMax) : null;
+            this.hotKeyHashes = new int[hotKeysMax];
+            this.hotKeyCounts = new long[hotKeysMax];
+            this.retainTimer = maintenance != null ? new Timer(this::onServerFanoutSegmentRetain) : null;
+            this.deleteTimer = maintenance != null ? new Timer(this::onServerFanoutSegmentDelete) : null;
+            this.compactTimer = maintenance != null ? new Timer(this::onServerFanoutSegmentCompact) : null;
         }
 
         private void onServerFanoutMemberOpening(
@@ -433,14 +528,24 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                 doServerFanoutReplyResetIfNecessary(traceId);
                 leaderId = member.leaderId;
 
-                members.forEach(m -> m.cleanupServer(traceId, ERROR_NOT_LEADER_FOR_PARTITION));
-                members.clear();
+                if (leaderFailover)
+                {
+                    cancelReconnectIfNecessary();
+                    migrating = false;
+                }
+                else
+                {
+                    members.forEach(m -> m.cleanupServer(traceId, ERROR_NOT_LEADER_FOR_PARTITION));
+                    members.clear();
+                }
             }
 
             members.add(member);
 
             assert !members.isEmpty();
 
+            doServerFanoutMetricsSignalIfNecessary();
+            doServerFanoutHotKeysSignalIfNecessary();
             doServerFanoutInitialBeginIfNecessary(traceId);
 
             if (KafkaState.initialOpened(state))
@@ -468,6 +573,27 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                     this.reconnectAt = NO_CANCEL_ID;
                 }
 
+                if (metricsId != NO_CANCEL_ID)
+                {
+                    signaler.cancel(metricsId);
+                    this.metricsId = NO_CANCEL_ID;
+                }
+
+                if (hotKeysId != NO_CANCEL_ID)
+                {
+                    signaler.cancel(hotKeysId);
+                    this.hotKeysId = NO_CANCEL_ID;
+                    hotKeysRegistry.withdraw(routeId, partition.topic(), partition.id());
+                }
+
+                if (maintenance != null)
+                {
+                    maintenance.cancel(retainTimer);
+                    maintenance.cancel(deleteTimer);
+                    maintenance.cancel(compactTimer);
+                    this.compactAt = Long.MAX_VALUE;
+                }
+
                 correlations.remove(replyId);
                 doServerFanoutInitialAbortIfNecessary(traceId);
                 doServerFanoutReplyResetIfNecessary(traceId);
@@ -642,6 +768,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             if ((flags & FLAGS_INIT) != 0x00)
             {
                 assert kafkaFetchDataEx != null;
+                this.appendStartedAt = nanoTime();
                 final int deferred = kafkaFetchDataEx.deferred();
                 final int partitionId = kafkaFetchDataEx.partition().partitionId();
                 final long partitionOffset = kafkaFetchDataEx.partition().partitionOffset();
@@ -666,27 +793,24 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
 
                 if (nextHead != head)
                 {
-                    if (retainId != NO_CANCEL_ID)
-                    {
-                        signaler.cancel(retainId);
-                        this.retainId = NO_CANCEL_ID;
-                    }
-
-                    assert retainId == NO_CANCEL_ID;
-
                     final long retainAt = partition.retainAt(nextHead.segment());
-                    this.retainId = doServerFanoutInitialSignalAt(retainAt, SIGNAL_SEGMENT_RETAIN);
+                    doServerFanoutSegmentRetainAt(retainAt);
 
-                    if (deleteId == NO_CANCEL_ID &&
+                    if (!isServerFanoutSegmentDeleteScheduled() &&
                         partition.cleanupPolicy().delete() &&
                         !nextHead.previous().sentinel())
                     {
                         final long deleteAt = partition.deleteAt(nextHead.previous().segment(), retentionMillisMax);
-                        this.deleteId = doServerFanoutInitialSignalAt(deleteAt, SIGNAL_SEGMENT_DELETE);
+                        doServerFanoutSegmentDeleteAt(deleteAt);
                     }
                 }
 
                 final long keyHash = partition.computeKeyHash(key);
+                if (hotKeys != null && key.length() != -1)
+                {
+                    hotKeys.record((int) keyHash);
+                }
+
                 final KafkaCacheEntryFW ancestor = findAndMarkAncestor(key, nextHead, (int) keyHash, partitionOffset);
                 partition.writeEntryStart(partitionOffset, timestamp, key, keyHash, valueLength, ancestor, deltaType);
             }
@@ -694,6 +818,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             if (valueFragment != null)
             {
                 partition.writeEntryContinue(valueFragment);
+                topicCounters.fetchBytes.accept(valueFragment.sizeof());
             }
 
             if ((flags & FLAGS_FIN) != 0x00)
@@ -711,11 +836,16 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                 assert partitionOffset >= this.partitionOffset;
 
                 partition.writeEntryFinish(headers, deltaType);
+                topicCounters.fetchRecords.accept(1L);
+                cacheAppend.record(NANOSECONDS.toMicros(nanoTime() - appendStartedAt));
 
                 this.partitionOffset = partitionOffset;
                 this.latestOffset = latestOffset;
 
-                members.forEach(s -> s.doServerReplyFlushIfNecessary(traceId));
+                for (int i = 0; i < members.size(); i++)
+                {
+                    members.get(i).doServerReplyFlushIfNecessary(traceId);
+                }
             }
 
             doServerFanoutReplyWindow(traceId, reserved);
@@ -739,17 +869,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                         final long newCompactAt = partition.compactAt(head.segment());
                         if (newCompactAt != Long.MAX_VALUE)
                         {
-                            if (compactId != NO_CANCEL_ID && newCompactAt < compactAt)
-                            {
-                                signaler.cancel(compactId);
-                                this.compactId = NO_CANCEL_ID;
-                            }
-
-                            if (compactId == NO_CANCEL_ID)
-                            {
-                                this.compactAt = newCompactAt;
-                                this.compactId = doServerFanoutInitialSignalAt(newCompactAt, SIGNAL_SEGMENT_COMPACT);
-                            }
+                            doServerFanoutSegmentCompactAt(newCompactAt);
                         }
                     }
                     break ancestor;
@@ -781,17 +901,7 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
                                     final long newCompactAt = partition.compactAt(segment);
                                     if (newCompactAt != Long.MAX_VALUE)
                                     {
-                                        if (compactId != NO_CANCEL_ID && newCompactAt < compactAt)
-                                        {
-                                            signaler.cancel(compactId);
-                                            this.compactId = NO_CANCEL_ID;
-                                        }
-
-                                        if (compactId == NO_CANCEL_ID)
-                                        {
-                                            this.compactAt = newCompactAt;
-                                            this.compactId = doServerFanoutInitialSignalAt(newCompactAt, SIGNAL_SEGMENT_COMPACT);
-                                        }
+                                        doServerFanoutSegmentCompactAt(newCompactAt);
                                     }
                                 }
                                 break ancestor;
@@ -822,7 +932,14 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
 
             doServerFanoutInitialEndIfNecessary(traceId);
 
-            if (reconnectDelay != 0 && !members.isEmpty())
+            if (migrating)
+            {
+                if (KafkaConfiguration.DEBUG)
+                {
+                    System.out.format("[0x%016x] %s FETCH migrating, affinity %d\n", initialId, partition, leaderId);
+                }
+            }
+            else if (reconnectDelay != 0 && !members.isEmpty())
             {
                 if (KafkaConfiguration.DEBUG)
                 {
@@ -859,7 +976,14 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
 
             doServerFanoutInitialAbortIfNecessary(traceId);
 
-            if (reconnectDelay != 0 && !members.isEmpty())
+            if (migrating)
+            {
+                if (KafkaConfiguration.DEBUG)
+                {
+                    System.out.format("[0x%016x] %s FETCH migrating, affinity %d\n", initialId, partition, leaderId);
+                }
+            }
+            else if (reconnectDelay != 0 && !members.isEmpty())
             {
                 if (KafkaConfiguration.DEBUG)
                 {
@@ -900,7 +1024,17 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             final KafkaResetExFW kafkaResetEx = extension.get(kafkaResetExRO::tryWrap);
             final int error = kafkaResetEx != null ? kafkaResetEx.error() : -1;
 
-            if (reconnectDelay != 0 && !members.isEmpty() &&
+            if (error > 0)
+            {
+                topicCounters.onError(error);
+            }
+
+            if (leaderFailover && !members.isEmpty() &&
+                (error == ERROR_NOT_LEADER_FOR_PARTITION || leaderChanged()))
+            {
+                onServerFanoutLeaderLost();
+            }
+            else if (reconnectDelay != 0 && !members.isEmpty() &&
                 error != ERROR_NOT_LEADER_FOR_PARTITION)
             {
                 if (KafkaConfiguration.DEBUG)
@@ -954,9 +1088,121 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
 
             final long traceId = supplyTraceId.getAsLong();
 
+            if (migrating)
+            {
+                migrating = false;
+                resolveLeaderIfNecessary();
+            }
+
             doServerFanoutInitialBeginIfNecessary(traceId);
         }
 
+        private void onServerFanoutMetricsSignal(
+            int signalId)
+        {
+            assert signalId == SIGNAL_METRICS;
+
+            this.metricsId = NO_CANCEL_ID;
+
+            gauges.sampleSegments(partition, compactAt, partitionOffset);
+
+            doServerFanoutMetricsSignalIfNecessary();
+        }
+
+        private void doServerFanoutMetricsSignalIfNecessary()
+        {
+            if (metricsInterval != 0 && metricsId == NO_CANCEL_ID && !members.isEmpty())
+            {
+                this.metricsId = signaler.signalAt(
+                    currentTimeMillis() + metricsInterval,
+                    SIGNAL_METRICS,
+                    this::onServerFanoutMetricsSignal);
+            }
+        }
+
+        private void onServerFanoutHotKeysSignal(
+            int signalId)
+        {
+            assert signalId == SIGNAL_HOT_KEYS;
+
+            this.hotKeysId = NO_CANCEL_ID;
+
+            final int count = hotKeys.drain(hotKeyHashes, hotKeyCounts);
+            for (int rank = 0; rank < count; rank++)
+            {
+                hotKeyCounts[rank] = hotKeyCounts[rank] * SECONDS.toMillis(1) / hotKeysWindow;
+            }
+
+            gauges.sampleHotKeys(hotKeyHashes, hotKeyCounts, count);
+            hotKeysRegistry.publish(routeId, partition.topic(), partition.id(), hotKeyHashes, hotKeyCounts, count);
+
+            if (KafkaConfiguration.DEBUG && count != 0)
+            {
+                System.out.format("%s FETCH hot key hash %d at %d/s\n", partition, hotKeyHashes[0], hotKeyCounts[0]);
+            }
+
+            doServerFanoutHotKeysSignalIfNecessary();
+        }
+
+        private void doServerFanoutHotKeysSignalIfNecessary()
+        {
+            if (hotKeys != null && hotKeysId == NO_CANCEL_ID && !members.isEmpty())
+            {
+                this.hotKeysId = signaler.signalAt(
+                    currentTimeMillis() + hotKeysWindow,
+                    SIGNAL_HOT_KEYS,
+                    this::onServerFanoutHotKeysSignal);
+            }
+        }
+
+        private void onServerFanoutLeaderLost()
+        {
+            final boolean resolved = resolveLeaderIfNecessary();
+
+            if (KafkaConfiguration.DEBUG)
+            {
+                System.out.format("[0x%016x] %s FETCH leader lost, affinity %d\n", initialId, partition, leaderId);
+            }
+
+            cancelReconnectIfNecessary();
+
+            final long reconnectMillis = resolved ? 0L : Math.min(50 << reconnectAttempt++, SECONDS.toMillis(1));
+
+            this.migrating = true;
+            this.reconnectAt = signaler.signalAt(
+                currentTimeMillis() + reconnectMillis,
+                SIGNAL_RECONNECT,
+                this::onServerFanoutSignal);
+        }
+
+        private boolean leaderChanged()
+        {
+            final int newLeaderId = cacheRoute.leadersByPartitionId.get(partition.id());
+            return newLeaderId != cacheRoute.leadersByPartitionId.missingValue() && newLeaderId != leaderId;
+        }
+
+        private boolean resolveLeaderIfNecessary()
+        {
+            final boolean resolved = leaderChanged();
+
+            if (resolved)
+            {
+                this.leaderId = cacheRoute.leadersByPartitionId.get(partition.id());
+                this.reconnectAttempt = 0;
+            }
+
+            return resolved;
+        }
+
+        private void cancelReconnectIfNecessary()
+        {
+            if (reconnectAt != NO_CANCEL_ID)
+            {
+                signaler.cancel(reconnectAt);
+                this.reconnectAt = NO_CANCEL_ID;
+            }
+        }
+
         private void onServerFanoutInitialSignal(
             SignalFW signal)
         {
@@ -965,25 +1211,23 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             switch (signalId)
             {
             case SIGNAL_SEGMENT_RETAIN:
-                onServerFanoutInitialSignalSegmentRetain(signal);
+                onServerFanoutSegmentRetain();
                 break;
             case SIGNAL_SEGMENT_DELETE:
-                onServerFanoutInitialSignalSegmentDelete(signal);
+                onServerFanoutSegmentDelete();
                 break;
             case SIGNAL_SEGMENT_COMPACT:
-                onServerFanoutInitialSignalSegmentCompact(signal);
+                onServerFanoutSegmentCompact();
                 break;
             }
         }
 
-        private void onServerFanoutInitialSignalSegmentRetain(
-            SignalFW signal)
+        private void onServerFanoutSegmentRetain()
         {
             partition.append(partitionOffset + 1);
         }
 
-        private void onServerFanoutInitialSignalSegmentDelete(
-            SignalFW signal)
+        private void onServerFanoutSegmentDelete()
         {
             final long now = currentTimeMillis();
 
@@ -996,19 +1240,16 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             }
             assert segmentNode != null;
 
+            this.deleteId = NO_CANCEL_ID;
+
             if (segmentNode != partition.head())
             {
                 final long deleteAt = partition.deleteAt(segmentNode.segment(), retentionMillisMax);
-                this.deleteId = doServerFanoutInitialSignalAt(deleteAt, SIGNAL_SEGMENT_DELETE);
-            }
-            else
-            {
-                this.deleteId = NO_CANCEL_ID;
+                doServerFanoutSegmentDeleteAt(deleteAt);
             }
         }
 
-        private void onServerFanoutInitialSignalSegmentCompact(
-            SignalFW signal)
+        private void onServerFanoutSegmentCompact()
         {
             final long now = currentTimeMillis();
 
@@ -1051,6 +1292,72 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
             doWindow(receiver, routeId, replyId, traceId, authorization, 0L, credit, 0);
         }
 
+        private void doServerFanoutSegmentRetainAt(
+            long retainAt)
+        {
+            if (maintenance != null)
+            {
+                scheduleMaintenance(retainTimer, retainAt);
+            }
+            else
+            {
+                if (retainId != NO_CANCEL_ID)
+                {
+                    signaler.cancel(retainId);
+                    this.retainId = NO_CANCEL_ID;
+                }
+
+                assert retainId == NO_CANCEL_ID;
+
+                this.retainId = doServerFanoutInitialSignalAt(retainAt, SIGNAL_SEGMENT_RETAIN);
+            }
+        }
+
+        private boolean isServerFanoutSegmentDeleteScheduled()
+        {
+            return maintenance != null ? deleteTimer.scheduled() : deleteId != NO_CANCEL_ID;
+        }
+
+        private void doServerFanoutSegmentDeleteAt(
+            long deleteAt)
+        {
+            if (maintenance != null)
+            {
+                scheduleMaintenance(deleteTimer, deleteAt);
+            }
+            else
+            {
+                this.deleteId = doServerFanoutInitialSignalAt(deleteAt, SIGNAL_SEGMENT_DELETE);
+            }
+        }
+
+        private void doServerFanoutSegmentCompactAt(
+            long newCompactAt)
+        {
+            if (maintenance != null)
+            {
+                if (!compactTimer.scheduled() || newCompactAt < compactAt)
+                {
+                    this.compactAt = newCompactAt;
+                    scheduleMaintenance(compactTimer, newCompactAt);
+                }
+            }
+            else
+            {
+                if (compactId != NO_CANCEL_ID && newCompactAt < compactAt)
+                {
+                    signaler.cancel(compactId);
+                    this.compactId = NO_CANCEL_ID;
+                }
+
+                if (compactId == NO_CANCEL_ID)
+                {
+                    this.compactAt = newCompactAt;
+                    this.compactId = doServerFanoutInitialSignalAt(newCompactAt, SIGNAL_SEGMENT_COMPACT);
+                }
+            }
+        }
+
         private long doServerFanoutInitialSignalAt(
             long timeMillis,
             int signalId)
@@ -1276,14 +1583,10 @@ public final class KafkaCacheServerFetchFactory implements StreamFactory
 
             assert replyBudget >= 0;
 
-            doFlush(sender, routeId, replyId, traceId, authorization, 0L, reserved,
-                ex -> ex.set((b, o, l) -> kafkaFlushExRW.wrap(b, o, l)
-                        .typeId(kafkaTypeId)
-                        .fetch(f -> f.partition(p -> p.partitionId(group.partition.id())
-                                                      .partitionOffset(group.partitionOffset)
-                                                      .latestOffset(group.latestOffset)))
-                        .build()
-                        .sizeof()));
+            final KafkaFlushExFW kafkaFlushEx =
+                    extensionEncoder.fetchFlush(group.partition.id(), group.partitionOffset, group.latestOffset);
+
+            doFlush(sender, routeId, replyId, traceId, authorization, 0L, reserved, kafkaFlushEx);
 
             this.partitionOffset = group.partitionOffset + 1;
             this.latestOffset = group.latestOffset + 1;
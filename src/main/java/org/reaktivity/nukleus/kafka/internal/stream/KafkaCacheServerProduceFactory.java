@@ -122,8 +122,6 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
     private final ResetFW.Builder resetRW = new ResetFW.Builder();
     private final WindowFW.Builder windowRW = new WindowFW.Builder();
     private final KafkaBeginExFW.Builder kafkaBeginExRW = new KafkaBeginExFW.Builder();
-    private final KafkaDataExFW.Builder kafkaDataExRW = new KafkaDataExFW.Builder();
-    private final KafkaFlushExFW.Builder kafkaFlushExRW = new KafkaFlushExFW.Builder();
     private final KafkaResetExFW.Builder kafkaResetExRW = new KafkaResetExFW.Builder();
 
     private final MessageFunction<RouteFW> wrapRoute = (t, b, i, l) -> routeRO.wrap(b, i, i + l);
@@ -136,6 +134,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
     private final RouteManager router;
     private final MutableDirectBuffer writeBuffer;
     private final MutableDirectBuffer extBuffer;
+    private final KafkaExtensionEncoder extensionEncoder;
     private final Signaler signaler;
     private final LongUnaryOperator supplyInitialId;
     private final LongUnaryOperator supplyReplyId;
@@ -167,6 +166,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
         this.router = router;
         this.writeBuffer = writeBuffer;
         this.extBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.extensionEncoder = new KafkaExtensionEncoder(kafkaTypeId, extBuffer);
         this.signaler = signaler;
         this.supplyInitialId = supplyInitialId;
         this.supplyReplyId = supplyReplyId;
@@ -284,7 +284,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
         long budgetId,
         int reserved,
         OctetsFW payload,
-        Consumer<OctetsFW.Builder> extension)
+        Flyweight extension)
     {
         final DataFW data = dataRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                 .routeId(routeId)
@@ -295,7 +295,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
                 .budgetId(budgetId)
                 .reserved(reserved)
                 .payload(payload)
-                .extension(extension)
+                .extension(extension.buffer(), extension.offset(), extension.sizeof())
                 .build();
 
         receiver.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
@@ -309,7 +309,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
         long authorization,
         long budgetId,
         int reserved,
-        Consumer<OctetsFW.Builder> extension)
+        Flyweight extension)
     {
         final FlushFW flush = flushRW.wrap(writeBuffer, 0, writeBuffer.capacity())
                                      .routeId(routeId)
@@ -318,7 +318,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
                                      .authorization(authorization)
                                      .budgetId(budgetId)
                                      .reserved(reserved)
-                                     .extension(extension)
+                                     .extension(extension.buffer(), extension.offset(), extension.sizeof())
                                      .build();
 
         receiver.accept(flush.typeId(), flush.buffer(), flush.offset(), flush.sizeof());
@@ -587,7 +587,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
             long budgetId,
             int reserved,
             OctetsFW payload,
-            Consumer<OctetsFW.Builder> extension)
+            Flyweight extension)
         {
             if (KafkaConfiguration.DEBUG_PRODUCE)
             {
@@ -1118,19 +1118,9 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
             int reserved,
             int flags)
         {
-            fan.doServerFanInitialData(traceId, flags, 0L, reserved, value,
-                ex -> ex.set((b, o, l) -> kafkaDataExRW.wrap(b, o, l)
-                           .typeId(kafkaTypeId)
-                           .produce(f -> f.timestamp(timestamp)
-                                        .sequence(sequence)
-                                        .crc32c(checksum)
-                                        .key(k -> k.length(key.length()).value(key.value()))
-                                        .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
-                                                                                          .name(h.name())
-                                                                                          .valueLen(h.valueLen())
-                                                                                          .value(h.value())))))
-                           .build()
-                           .sizeof()));
+            final KafkaDataExFW kafkaDataEx = extensionEncoder.produceDataFull(timestamp, sequence, checksum, key, headers);
+
+            fan.doServerFanInitialData(traceId, flags, 0L, reserved, value, kafkaDataEx);
         }
 
         private void doServerInitialDataInit(
@@ -1145,20 +1135,10 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
             int reserved,
             int flags)
         {
-            fan.doServerFanInitialData(traceId, flags, 0L, reserved, value,
-                ex -> ex.set((b, o, l) -> kafkaDataExRW.wrap(b, o, l)
-                           .typeId(kafkaTypeId)
-                           .produce(f -> f.deferred(deferred)
-                                          .timestamp(timestamp)
-                                          .sequence(sequence)
-                                          .crc32c(checksum)
-                                          .key(k -> k.length(key.length()).value(key.value()))
-                                          .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
-                                                                                            .name(h.name())
-                                                                                            .valueLen(h.valueLen())
-                                                                                            .value(h.value())))))
-                           .build()
-                           .sizeof()));
+            final KafkaDataExFW kafkaDataEx =
+                    extensionEncoder.produceDataInit(deferred, timestamp, sequence, checksum, key, headers);
+
+            fan.doServerFanInitialData(traceId, flags, 0L, reserved, value, kafkaDataEx);
         }
 
         private void doServerInitialDataNone(
@@ -1168,7 +1148,7 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
             int length,
             int flags)
         {
-            fan.doServerFanInitialData(traceId, flags, 0L, reserved, fragment, EMPTY_EXTENSION);
+            fan.doServerFanInitialData(traceId, flags, 0L, reserved, fragment, EMPTY_OCTETS);
         }
 
         private void doServerInitialDataFin(
@@ -1178,15 +1158,9 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
             int reserved,
             int flags)
         {
-            fan.doServerFanInitialData(traceId, flags, 0L, reserved, fragment,
-                ex -> ex.set((b, o, l) -> kafkaDataExRW.wrap(b, o, l)
-                           .typeId(kafkaTypeId)
-                           .produce(f -> f.headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
-                                                                                            .name(h.name())
-                                                                                            .valueLen(h.valueLen())
-                                                                                            .value(h.value())))))
-                           .build()
-                           .sizeof()));
+            final KafkaDataExFW kafkaDataEx = extensionEncoder.produceDataFin(headers);
+
+            fan.doServerFanInitialData(traceId, flags, 0L, reserved, fragment, kafkaDataEx);
         }
 
         private void doServerInitialResetIfNecessary(
@@ -1243,13 +1217,9 @@ public final class KafkaCacheServerProduceFactory implements StreamFactory
         private void doFlushServerReply(
             long traceId)
         {
-            doFlush(sender, routeId, replyId, traceId, authorization, 0L, SIZE_OF_FLUSH_WITH_EXTENSION,
-                ex -> ex.set((b, o, l) -> kafkaFlushExRW.wrap(b, o, l)
-                                                        .typeId(kafkaTypeId)
-                                                        .produce(f -> f.partition(p -> p.partitionId(partition.id())
-                                                                                        .partitionOffset(partitionOffset)))
-                                                        .build()
-                                                        .sizeof()));
+            final KafkaFlushExFW kafkaFlushEx = extensionEncoder.produceFlush(partition.id(), partitionOffset);
+
+            doFlush(sender, routeId, replyId, traceId, authorization, 0L, SIZE_OF_FLUSH_WITH_EXTENSION, kafkaFlushEx);
         }
 
         private void doServerReplyBeginIfNecessary(
@@ -34,14 +34,15 @@ public final class KafkaChecksum
      * Copyright (c) 2000-2011 ymnk, JCraft,Inc. All rights reserved.
      */
     private static final int GF2_DIM = 32;
+
+    private static final ThreadLocal<long[][]> GF2_MATRICES = ThreadLocal.withInitial(() -> new long[2][GF2_DIM]);
+
     public static long combineCRC32C(
         long crc1,
         long crc2,
         long len2)
     {
         long row;
-        long[] even = new long[GF2_DIM];
-        long[] odd = new long[GF2_DIM];
 
         // degenerate case (also disallow negative lengths)
         if (len2 <= 0)
@@ -49,6 +50,11 @@ public final class KafkaChecksum
             return crc1;
         }
 
+        // scratch matrices are fully overwritten below, so reuse them per thread
+        final long[][] matrices = GF2_MATRICES.get();
+        final long[] even = matrices[0];
+        final long[] odd = matrices[1];
+
         // put operator for one zero bit in odd
         odd[0] = 0x82F63B78L;          // CRC-32C polynomial
         row = 1;
@@ -0,0 +1,1241 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Int2IntHashMap;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.buffer.BufferPool;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.AbortFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.route.RouteManager;
+
+final class KafkaClientConnectionPool
+{
+    private static final int FIELD_OFFSET_REQUEST_CORRELATION_ID = 8;
+    private static final int FIELD_OFFSET_RESPONSE_CORRELATION_ID = 4;
+    private static final int SIZEOF_REQUEST_HEADER = 12;
+    private static final int SIZEOF_RESPONSE_HEADER = 8;
+    private static final int SIZEOF_LENGTH = 4;
+
+    private static final DirectBuffer EMPTY_BUFFER = new UnsafeBuffer();
+    private static final OctetsFW EMPTY_OCTETS = new OctetsFW().wrap(EMPTY_BUFFER, 0, 0);
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final EndFW endRO = new EndFW();
+    private final AbortFW abortRO = new AbortFW();
+    private final ResetFW resetRO = new ResetFW();
+    private final WindowFW windowRO = new WindowFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final EndFW.Builder endRW = new EndFW.Builder();
+    private final AbortFW.Builder abortRW = new AbortFW.Builder();
+    private final ResetFW.Builder resetRW = new ResetFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final int poolSize;
+    private final RouteManager router;
+    private final MutableDirectBuffer writeBuffer;
+    private final MutableDirectBuffer dataBuffer;
+    private final MutableDirectBuffer headerBuffer;
+    private final BufferPool bufferPool;
+    private final LongUnaryOperator supplyInitialId;
+    private final LongUnaryOperator supplyReplyId;
+    private final Long2ObjectHashMap<MessageConsumer> correlations;
+    private final Long2ObjectHashMap<Long2ObjectHashMap<List<KafkaClientConnection>>> connectionsByRouteId;
+
+    KafkaClientConnectionPool(
+        KafkaConfiguration config,
+        RouteManager router,
+        MutableDirectBuffer writeBuffer,
+        BufferPool bufferPool,
+        LongUnaryOperator supplyInitialId,
+        LongUnaryOperator supplyReplyId,
+        Long2ObjectHashMap<MessageConsumer> correlations)
+    {
+        this.poolSize = config.clientConnectionPoolSize();
+        this.router = router;
+        this.writeBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.dataBuffer = new UnsafeBuffer(new byte[writeBuffer.capacity()]);
+        this.headerBuffer = new UnsafeBuffer(new byte[SIZEOF_RESPONSE_HEADER]);
+        this.bufferPool = bufferPool;
+        this.supplyInitialId = supplyInitialId;
+        this.supplyReplyId = supplyReplyId;
+        this.correlations = correlations;
+        this.connectionsByRouteId = new Long2ObjectHashMap<>();
+    }
+
+    MessageConsumer supplyNetwork(
+        long initialId)
+    {
+        final KafkaClientStream stream = new KafkaClientStream(initialId);
+        return stream::onClient;
+    }
+
+    private KafkaClientConnection supplyConnection(
+        long routeId,
+        long affinity)
+    {
+        final Long2ObjectHashMap<List<KafkaClientConnection>> connectionsByAffinity =
+                connectionsByRouteId.computeIfAbsent(routeId, r -> new Long2ObjectHashMap<>());
+        final List<KafkaClientConnection> connections = connectionsByAffinity.computeIfAbsent(affinity, a -> new ArrayList<>());
+
+        KafkaClientConnection connection = null;
+        for (int index = 0; index < connections.size(); index++)
+        {
+            final KafkaClientConnection candidate = connections.get(index);
+            if (connection == null || candidate.streams.size() < connection.streams.size())
+            {
+                connection = candidate;
+            }
+        }
+
+        if (connection == null ||
+            connections.size() < poolSize && !connection.streams.isEmpty())
+        {
+            connection = new KafkaClientConnection(routeId, connections);
+            connections.add(connection);
+        }
+
+        return connection;
+    }
+
+    private void doBegin(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        long affinity,
+        OctetsFW extension)
+    {
+        final BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .affinity(affinity)
+                .extension(extension.buffer(), extension.offset(), extension.sizeof())
+                .build();
+
+        receiver.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+    }
+
+    private void doData(
+        MessageConsumer receiver,
+        MutableDirectBuffer frameBuffer,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int reserved,
+        DirectBuffer payload,
+        int offset,
+        int length)
+    {
+        final DataFW data = dataRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .budgetId(budgetId)
+                .reserved(reserved)
+                .payload(payload, offset, length)
+                .build();
+
+        receiver.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
+    }
+
+    private void doEnd(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization)
+    {
+        final EndFW end = endRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                               .routeId(routeId)
+                               .streamId(streamId)
+                               .traceId(traceId)
+                               .authorization(authorization)
+                               .build();
+
+        receiver.accept(end.typeId(), end.buffer(), end.offset(), end.sizeof());
+    }
+
+    private void doAbort(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization)
+    {
+        final AbortFW abort = abortRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                                     .routeId(routeId)
+                                     .streamId(streamId)
+                                     .traceId(traceId)
+                                     .authorization(authorization)
+                                     .build();
+
+        receiver.accept(abort.typeId(), abort.buffer(), abort.offset(), abort.sizeof());
+    }
+
+    private void doWindow(
+        MessageConsumer sender,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int credit,
+        int padding)
+    {
+        final WindowFW window = windowRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .budgetId(budgetId)
+                .credit(credit)
+                .padding(padding)
+                .build();
+
+        sender.accept(window.typeId(), window.buffer(), window.offset(), window.sizeof());
+    }
+
+    private void doReset(
+        MessageConsumer sender,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization)
+    {
+        final ResetFW reset = resetRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+               .routeId(routeId)
+               .streamId(streamId)
+               .traceId(traceId)
+               .authorization(authorization)
+               .extension(EMPTY_OCTETS.buffer(), EMPTY_OCTETS.offset(), EMPTY_OCTETS.sizeof())
+               .build();
+
+        sender.accept(reset.typeId(), reset.buffer(), reset.offset(), reset.sizeof());
+    }
+
+    private final class KafkaClientStream
+    {
+        private final long initialId;
+        private final long replyId;
+
+        private MessageConsumer client;
+        private KafkaClientConnection connection;
+
+        private long routeId;
+        private long authorization;
+        private long affinity;
+
+        private int state;
+
+        private int initialBudget;
+        private int replyBudget;
+        private int replyPadding;
+        private long replyBudgetId;
+
+        private int encodeSlot = NO_SLOT;
+        private int encodeSlotOffset;
+
+        private int replySlot = NO_SLOT;
+        private int replySlotOffset;
+
+        KafkaClientStream(
+            long initialId)
+        {
+            this.initialId = initialId;
+            this.replyId = supplyReplyId.applyAsLong(initialId);
+        }
+
+        private void onClient(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            switch (msgTypeId)
+            {
+            case BeginFW.TYPE_ID:
+                final BeginFW begin = beginRO.wrap(buffer, index, index + length);
+                onClientBegin(begin);
+                break;
+            case DataFW.TYPE_ID:
+                final DataFW data = dataRO.wrap(buffer, index, index + length);
+                onClientData(data);
+                break;
+            case EndFW.TYPE_ID:
+                final EndFW end = endRO.wrap(buffer, index, index + length);
+                onClientEnd(end);
+                break;
+            case AbortFW.TYPE_ID:
+                final AbortFW abort = abortRO.wrap(buffer, index, index + length);
+                onClientAbort(abort);
+                break;
+            case WindowFW.TYPE_ID:
+                final WindowFW window = windowRO.wrap(buffer, index, index + length);
+                onClientWindow(window);
+                break;
+            case ResetFW.TYPE_ID:
+                final ResetFW reset = resetRO.wrap(buffer, index, index + length);
+                onClientReset(reset);
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void onClientBegin(
+            BeginFW begin)
+        {
+            final long traceId = begin.traceId();
+
+            this.routeId = begin.routeId();
+            this.authorization = begin.authorization();
+            this.affinity = begin.affinity();
+            this.client = correlations.remove(replyId);
+            this.state = KafkaState.openingInitial(0);
+            this.initialBudget = 0;
+            this.replyBudget = 0;
+
+            assert client != null;
+
+            connection = supplyConnection(routeId, affinity);
+            connection.attach(traceId, this, begin.extension());
+        }
+
+        private void onClientData(
+            DataFW data)
+        {
+            final long traceId = data.traceId();
+            final int reserved = data.reserved();
+
+            initialBudget -= reserved;
+
+            if (initialBudget < 0)
+            {
+                cleanup(traceId);
+            }
+            else
+            {
+                final OctetsFW payload = data.payload();
+
+                DirectBuffer buffer = payload.buffer();
+                int offset = payload.offset();
+                int limit = payload.limit();
+
+                if (encodeSlot != NO_SLOT)
+                {
+                    final MutableDirectBuffer encodeBuffer = bufferPool.buffer(encodeSlot);
+                    encodeBuffer.putBytes(encodeSlotOffset, buffer, offset, limit - offset);
+                    encodeSlotOffset += limit - offset;
+
+                    buffer = encodeBuffer;
+                    offset = 0;
+                    limit = encodeSlotOffset;
+                }
+
+                encodeRequests(traceId, buffer, offset, limit);
+            }
+        }
+
+        private void onClientEnd(
+            EndFW end)
+        {
+            final long traceId = end.traceId();
+
+            state = KafkaState.closedInitial(state);
+
+            doClientReplyEndIfNecessary(traceId);
+            detach(traceId);
+        }
+
+        private void onClientAbort(
+            AbortFW abort)
+        {
+            final long traceId = abort.traceId();
+
+            state = KafkaState.closedInitial(state);
+
+            doClientReplyAbortIfNecessary(traceId);
+            detach(traceId);
+        }
+
+        private void onClientWindow(
+            WindowFW window)
+        {
+            final long traceId = window.traceId();
+
+            replyBudgetId = window.budgetId();
+            replyBudget += window.credit();
+            replyPadding = window.padding();
+
+            state = KafkaState.openedReply(state);
+
+            flushClientReplyIfNecessary(traceId);
+        }
+
+        private void onClientReset(
+            ResetFW reset)
+        {
+            final long traceId = reset.traceId();
+
+            state = KafkaState.closedReply(state);
+
+            doClientInitialResetIfNecessary(traceId);
+            detach(traceId);
+        }
+
+        private void onConnectionReady(
+            long traceId)
+        {
+            if (!KafkaState.replyOpening(state))
+            {
+                state = KafkaState.openingReply(state);
+                doBegin(client, routeId, replyId, traceId, authorization, affinity, EMPTY_OCTETS);
+            }
+
+            state = KafkaState.openedInitial(state);
+            doClientInitialWindowIfNecessary(traceId);
+        }
+
+        private void onConnectionClosed(
+            long traceId)
+        {
+            connection = null;
+
+            doClientReplyAbortIfNecessary(traceId);
+            doClientInitialResetIfNecessary(traceId);
+            cleanupEncodeSlotIfNecessary();
+            cleanupReplySlotIfNecessary();
+        }
+
+        private void encodeRequestsIfNecessary(
+            long traceId)
+        {
+            if (encodeSlot != NO_SLOT)
+            {
+                final MutableDirectBuffer buffer = bufferPool.buffer(encodeSlot);
+                encodeRequests(traceId, buffer, 0, encodeSlotOffset);
+            }
+        }
+
+        private void encodeRequests(
+            long traceId,
+            DirectBuffer buffer,
+            int offset,
+            int limit)
+        {
+            final int progress = connection != null ? connection.encodeRequests(traceId, this, buffer, offset, limit) : limit;
+
+            if (progress < limit)
+            {
+                if (encodeSlot == NO_SLOT)
+                {
+                    encodeSlot = bufferPool.acquire(initialId);
+                }
+
+                if (encodeSlot == NO_SLOT)
+                {
+                    cleanup(traceId);
+                }
+                else
+                {
+                    final MutableDirectBuffer encodeBuffer = bufferPool.buffer(encodeSlot);
+                    encodeBuffer.putBytes(0, buffer, progress, limit - progress);
+                    encodeSlotOffset = limit - progress;
+                }
+            }
+            else
+            {
+                cleanupEncodeSlotIfNecessary();
+            }
+
+            doClientInitialWindowIfNecessary(traceId);
+        }
+
+        private boolean doClientReplyHeader(
+            long traceId,
+            int length,
+            int correlationId)
+        {
+            final boolean replyable = replySlot == NO_SLOT ||
+                    bufferPool.slotCapacity() - replySlotOffset >= SIZEOF_RESPONSE_HEADER;
+
+            if (replyable)
+            {
+                headerBuffer.putInt(0, length, BIG_ENDIAN);
+                headerBuffer.putInt(FIELD_OFFSET_RESPONSE_CORRELATION_ID, correlationId, BIG_ENDIAN);
+
+                doClientReply(traceId, headerBuffer, 0, SIZEOF_RESPONSE_HEADER);
+            }
+
+            return replyable;
+        }
+
+        private int doClientReply(
+            long traceId,
+            DirectBuffer buffer,
+            int offset,
+            int limit)
+        {
+            int progress = limit;
+
+            if (!KafkaState.replyClosed(state))
+            {
+                progress = offset;
+
+                if (replySlot == NO_SLOT)
+                {
+                    progress += doClientReplyData(traceId, buffer, offset, limit - offset);
+                }
+
+                if (progress < limit)
+                {
+                    if (replySlot == NO_SLOT)
+                    {
+                        replySlot = bufferPool.acquire(replyId);
+                    }
+
+                    if (replySlot == NO_SLOT)
+                    {
+                        cleanup(traceId);
+                        progress = limit;
+                    }
+                    else
+                    {
+                        // buffers only what fits, the connection stops decoding until the client window drains it
+                        final int length = Math.min(bufferPool.slotCapacity() - replySlotOffset, limit - progress);
+                        final MutableDirectBuffer replyBuffer = bufferPool.buffer(replySlot);
+                        replyBuffer.putBytes(replySlotOffset, buffer, progress, length);
+                        replySlotOffset += length;
+                        progress += length;
+                    }
+                }
+            }
+
+            return progress - offset;
+        }
+
+        private void flushClientReplyIfNecessary(
+            long traceId)
+        {
+            if (replySlot != NO_SLOT)
+            {
+                final MutableDirectBuffer replyBuffer = bufferPool.buffer(replySlot);
+                final int length = doClientReplyData(traceId, replyBuffer, 0, replySlotOffset);
+                final int remaining = replySlotOffset - length;
+
+                if (remaining > 0)
+                {
+                    replyBuffer.putBytes(0, replyBuffer, length, remaining);
+                    replySlotOffset = remaining;
+                }
+                else
+                {
+                    cleanupReplySlotIfNecessary();
+                }
+
+                if (connection != null)
+                {
+                    connection.decodeNetworkIfNecessary(traceId);
+                }
+            }
+        }
+
+        private int doClientReplyData(
+            long traceId,
+            DirectBuffer buffer,
+            int offset,
+            int maxLength)
+        {
+            int length = maxLength;
+
+            if (!KafkaState.replyClosed(state))
+            {
+                length = Math.max(Math.min(replyBudget - replyPadding, maxLength), 0);
+
+                if (length > 0)
+                {
+                    final int reserved = length + replyPadding;
+
+                    replyBudget -= reserved;
+
+                    doData(client, dataBuffer, routeId, replyId, traceId, authorization, replyBudgetId,
+                        reserved, buffer, offset, length);
+                }
+            }
+
+            return length;
+        }
+
+        private void doClientReplyEndIfNecessary(
+            long traceId)
+        {
+            if (KafkaState.replyOpening(state) && !KafkaState.replyClosed(state))
+            {
+                state = KafkaState.closedReply(state);
+                doEnd(client, routeId, replyId, traceId, authorization);
+            }
+        }
+
+        private void doClientReplyAbortIfNecessary(
+            long traceId)
+        {
+            if (KafkaState.replyOpening(state) && !KafkaState.replyClosed(state))
+            {
+                state = KafkaState.closedReply(state);
+                doAbort(client, routeId, replyId, traceId, authorization);
+            }
+        }
+
+        private void doClientInitialWindowIfNecessary(
+            long traceId)
+        {
+            if (KafkaState.initialOpened(state) && !KafkaState.initialClosed(state))
+            {
+                final int credit = bufferPool.slotCapacity() - encodeSlotOffset - initialBudget;
+                if (credit > 0)
+                {
+                    initialBudget += credit;
+                    doWindow(client, routeId, initialId, traceId, authorization, 0L, credit, 0);
+                }
+            }
+        }
+
+        private void doClientInitialResetIfNecessary(
+            long traceId)
+        {
+            if (!KafkaState.initialClosed(state))
+            {
+                state = KafkaState.closedInitial(state);
+                doReset(client, routeId, initialId, traceId, authorization);
+            }
+        }
+
+        private void detach(
+            long traceId)
+        {
+            cleanupEncodeSlotIfNecessary();
+            cleanupReplySlotIfNecessary();
+
+            if (connection != null)
+            {
+                final KafkaClientConnection connection = this.connection;
+                this.connection = null;
+                connection.detach(traceId, this);
+            }
+        }
+
+        private void cleanup(
+            long traceId)
+        {
+            doClientInitialResetIfNecessary(traceId);
+            doClientReplyAbortIfNecessary(traceId);
+            detach(traceId);
+        }
+
+        private void cleanupEncodeSlotIfNecessary()
+        {
+            if (encodeSlot != NO_SLOT)
+            {
+                bufferPool.release(encodeSlot);
+                encodeSlot = NO_SLOT;
+                encodeSlotOffset = 0;
+            }
+        }
+
+        private void cleanupReplySlotIfNecessary()
+        {
+            if (replySlot != NO_SLOT)
+            {
+                bufferPool.release(replySlot);
+                replySlot = NO_SLOT;
+                replySlotOffset = 0;
+            }
+        }
+    }
+
+    private final class KafkaClientConnection
+    {
+        private final long routeId;
+        private final long initialId;
+        private final long replyId;
+        private final MessageConsumer network;
+        private final List<KafkaClientConnection> connections;
+        private final List<KafkaClientStream> streams;
+        private final Int2ObjectHashMap<KafkaClientStream> streamsByCorrelationId;
+        private final Int2IntHashMap correlationIds;
+
+        private int state;
+        private long authorization;
+
+        private long initialBudgetId;
+        private int initialBudget;
+        private int initialPadding;
+        private int replyBudget;
+
+        private int encodeSlot = NO_SLOT;
+        private int encodeSlotOffset;
+        private long encodeSlotTraceId;
+
+        private int decodeSlot = NO_SLOT;
+        private int decodeSlotOffset;
+        private int decodeSlotReserved;
+
+        private KafkaClientStream decodeStream;
+        private int decodableResponseBytes;
+        private boolean decoding;
+
+        private int nextCorrelationId;
+
+        KafkaClientConnection(
+            long routeId,
+            List<KafkaClientConnection> connections)
+        {
+            this.routeId = routeId;
+            this.initialId = supplyInitialId.applyAsLong(routeId);
+            this.replyId = supplyReplyId.applyAsLong(initialId);
+            this.network = router.supplyReceiver(initialId);
+            this.connections = connections;
+            this.streams = new ArrayList<>();
+            this.streamsByCorrelationId = new Int2ObjectHashMap<>();
+            this.correlationIds = new Int2IntHashMap(-1);
+        }
+
+        private void onNetwork(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            switch (msgTypeId)
+            {
+            case BeginFW.TYPE_ID:
+                final BeginFW begin = beginRO.wrap(buffer, index, index + length);
+                onNetworkBegin(begin);
+                break;
+            case DataFW.TYPE_ID:
+                final DataFW data = dataRO.wrap(buffer, index, index + length);
+                onNetworkData(data);
+                break;
+            case EndFW.TYPE_ID:
+                final EndFW end = endRO.wrap(buffer, index, index + length);
+                onNetworkEnd(end);
+                break;
+            case AbortFW.TYPE_ID:
+                final AbortFW abort = abortRO.wrap(buffer, index, index + length);
+                onNetworkAbort(abort);
+                break;
+            case ResetFW.TYPE_ID:
+                final ResetFW reset = resetRO.wrap(buffer, index, index + length);
+                onNetworkReset(reset);
+                break;
+            case WindowFW.TYPE_ID:
+                final WindowFW window = windowRO.wrap(buffer, index, index + length);
+                onNetworkWindow(window);
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void attach(
+            long traceId,
+            KafkaClientStream stream,
+            OctetsFW extension)
+        {
+            streams.add(stream);
+
+            if (!KafkaState.initialOpening(state))
+            {
+                doNetworkBegin(traceId, stream.authorization, stream.affinity, extension);
+            }
+            else if (KafkaState.replyOpened(state))
+            {
+                stream.onConnectionReady(traceId);
+            }
+        }
+
+        private void detach(
+            long traceId,
+            KafkaClientStream stream)
+        {
+            streams.remove(stream);
+
+            for (Iterator<KafkaClientStream> i = streamsByCorrelationId.values().iterator(); i.hasNext(); )
+            {
+                if (i.next() == stream)
+                {
+                    i.remove();
+                }
+            }
+
+            if (decodeStream == stream)
+            {
+                decodeStream = null;
+            }
+
+            if (streams.isEmpty())
+            {
+                connections.remove(this);
+                doNetworkEndIfNecessary(traceId);
+            }
+            else
+            {
+                decodeNetworkIfNecessary(traceId);
+            }
+        }
+
+        private void onNetworkBegin(
+            BeginFW begin)
+        {
+            final long traceId = begin.traceId();
+
+            state = KafkaState.openedReply(state);
+
+            doNetworkWindow(traceId, 0L, bufferPool.slotCapacity(), 0);
+
+            for (int index = 0; index < streams.size(); index++)
+            {
+                streams.get(index).onConnectionReady(traceId);
+            }
+        }
+
+        private void onNetworkData(
+            DataFW data)
+        {
+            final long traceId = data.traceId();
+            final long budgetId = data.budgetId();
+            final int reserved = data.reserved();
+
+            replyBudget -= reserved;
+
+            if (replyBudget < 0)
+            {
+                cleanupNetwork(traceId);
+            }
+            else
+            {
+                final OctetsFW payload = data.payload();
+
+                DirectBuffer buffer = payload.buffer();
+                int offset = payload.offset();
+                int limit = payload.limit();
+                int decodeReserved = reserved;
+
+                if (decodeSlot != NO_SLOT)
+                {
+                    final MutableDirectBuffer decodeBuffer = bufferPool.buffer(decodeSlot);
+                    decodeBuffer.putBytes(decodeSlotOffset, buffer, offset, limit - offset);
+                    decodeSlotOffset += limit - offset;
+                    decodeSlotReserved += reserved;
+
+                    buffer = decodeBuffer;
+                    offset = 0;
+                    limit = decodeSlotOffset;
+                    decodeReserved = decodeSlotReserved;
+                }
+
+                decodeNetwork(traceId, budgetId, decodeReserved, buffer, offset, limit);
+            }
+        }
+
+        private void onNetworkEnd(
+            EndFW end)
+        {
+            final long traceId = end.traceId();
+
+            state = KafkaState.closedReply(state);
+
+            cleanupNetwork(traceId);
+        }
+
+        private void onNetworkAbort(
+            AbortFW abort)
+        {
+            final long traceId = abort.traceId();
+
+            state = KafkaState.closedReply(state);
+
+            cleanupNetwork(traceId);
+        }
+
+        private void onNetworkReset(
+            ResetFW reset)
+        {
+            final long traceId = reset.traceId();
+
+            state = KafkaState.closedInitial(state);
+
+            cleanupNetwork(traceId);
+        }
+
+        private void onNetworkWindow(
+            WindowFW window)
+        {
+            final long traceId = window.traceId();
+
+            initialBudgetId = window.budgetId();
+            initialBudget += window.credit();
+            initialPadding = window.padding();
+
+            state = KafkaState.openedInitial(state);
+
+            encodeNetwork(traceId);
+
+            for (int index = 0; index < streams.size(); index++)
+            {
+                streams.get(index).encodeRequestsIfNecessary(traceId);
+            }
+        }
+
+        private void doNetworkBegin(
+            long traceId,
+            long authorization,
+            long affinity,
+            OctetsFW extension)
+        {
+            this.authorization = authorization;
+
+            state = KafkaState.openingInitial(state);
+            correlations.put(replyId, this::onNetwork);
+
+            router.setThrottle(initialId, this::onNetwork);
+            doBegin(network, routeId, initialId, traceId, authorization, affinity, extension);
+        }
+
+        private void doNetworkEndIfNecessary(
+            long traceId)
+        {
+            if (!KafkaState.initialClosed(state))
+            {
+                state = KafkaState.closedInitial(state);
+                doEnd(network, routeId, initialId, traceId, authorization);
+            }
+
+            cleanupEncodeSlotIfNecessary();
+        }
+
+        private void doNetworkAbortIfNecessary(
+            long traceId)
+        {
+            if (!KafkaState.initialClosed(state))
+            {
+                state = KafkaState.closedInitial(state);
+                doAbort(network, routeId, initialId, traceId, authorization);
+            }
+
+            cleanupEncodeSlotIfNecessary();
+        }
+
+        private void doNetworkResetIfNecessary(
+            long traceId)
+        {
+            if (!KafkaState.replyClosed(state))
+            {
+                state = KafkaState.closedReply(state);
+                correlations.remove(replyId);
+                doReset(network, routeId, replyId, traceId, authorization);
+            }
+
+            cleanupDecodeSlotIfNecessary();
+        }
+
+        private void doNetworkWindow(
+            long traceId,
+            long budgetId,
+            int credit,
+            int padding)
+        {
+            replyBudget += credit;
+
+            doWindow(network, routeId, replyId, traceId, authorization, budgetId, credit, padding);
+        }
+
+        private int encodeRequests(
+            long traceId,
+            KafkaClientStream stream,
+            DirectBuffer buffer,
+            int offset,
+            int limit)
+        {
+            int progress = offset;
+
+            while (limit - progress >= SIZEOF_REQUEST_HEADER)
+            {
+                final int size = SIZEOF_LENGTH + buffer.getInt(progress, BIG_ENDIAN);
+
+                if (size > bufferPool.slotCapacity())
+                {
+                    stream.cleanup(traceId);
+                    progress = limit;
+                    break;
+                }
+
+                if (limit - progress < size ||
+                    bufferPool.slotCapacity() - encodeSlotOffset < size)
+                {
+                    break;
+                }
+
+                if (encodeSlot == NO_SLOT)
+                {
+                    encodeSlot = bufferPool.acquire(initialId);
+                }
+
+                if (encodeSlot == NO_SLOT)
+                {
+                    break;
+                }
+
+                final int correlationId = nextCorrelationId++ & Integer.MAX_VALUE;
+                final int streamCorrelationId = buffer.getInt(progress + FIELD_OFFSET_REQUEST_CORRELATION_ID, BIG_ENDIAN);
+
+                streamsByCorrelationId.put(correlationId, stream);
+                correlationIds.put(correlationId, streamCorrelationId);
+
+                final MutableDirectBuffer encodeBuffer = bufferPool.buffer(encodeSlot);
+                encodeBuffer.putBytes(encodeSlotOffset, buffer, progress, size);
+                encodeBuffer.putInt(encodeSlotOffset + FIELD_OFFSET_REQUEST_CORRELATION_ID, correlationId, BIG_ENDIAN);
+                encodeSlotOffset += size;
+                encodeSlotTraceId = traceId;
+
+                progress += size;
+            }
+
+            encodeNetwork(traceId);
+
+            return progress;
+        }
+
+        private void encodeNetwork(
+            long traceId)
+        {
+            if (encodeSlot != NO_SLOT && KafkaState.initialOpened(state))
+            {
+                final MutableDirectBuffer encodeBuffer = bufferPool.buffer(encodeSlot);
+                final int maxLength = encodeSlotOffset;
+                final int length = Math.max(Math.min(initialBudget - initialPadding, maxLength), 0);
+
+                if (length > 0)
+                {
+                    final int reserved = length + initialPadding;
+
+                    initialBudget -= reserved;
+
+                    assert initialBudget >= 0 : String.format("%d >= 0", initialBudget);
+
+                    doData(network, writeBuffer, routeId, initialId, encodeSlotTraceId, authorization, initialBudgetId,
+                        reserved, encodeBuffer, 0, length);
+
+                    final int remaining = maxLength - length;
+                    if (remaining > 0)
+                    {
+                        encodeBuffer.putBytes(0, encodeBuffer, length, remaining);
+                        encodeSlotOffset = remaining;
+                    }
+                    else
+                    {
+                        cleanupEncodeSlotIfNecessary();
+                    }
+                }
+            }
+        }
+
+        private void decodeNetworkIfNecessary(
+            long traceId)
+        {
+            if (decodeSlot != NO_SLOT && !decoding)
+            {
+                final MutableDirectBuffer buffer = bufferPool.buffer(decodeSlot);
+                final long budgetId = 0L;
+                final int offset = 0;
+                final int limit = decodeSlotOffset;
+                final int reserved = decodeSlotReserved;
+
+                decodeNetwork(traceId, budgetId, reserved, buffer, offset, limit);
+            }
+        }
+
+        private void decodeNetwork(
+            long traceId,
+            long budgetId,
+            int reserved,
+            DirectBuffer buffer,
+            int offset,
+            int limit)
+        {
+            int progress = offset;
+
+            decoding = true;
+
+            decode:
+            while (progress < limit)
+            {
+                if (decodableResponseBytes == 0)
+                {
+                    if (limit - progress < SIZEOF_RESPONSE_HEADER)
+                    {
+                        break decode;
+                    }
+
+                    final int length = buffer.getInt(progress, BIG_ENDIAN);
+                    final int correlationId = buffer.getInt(progress + FIELD_OFFSET_RESPONSE_CORRELATION_ID, BIG_ENDIAN);
+                    final KafkaClientStream stream = streamsByCorrelationId.get(correlationId);
+                    final int streamCorrelationId = correlationIds.get(correlationId);
+
+                    if (stream != null && !stream.doClientReplyHeader(traceId, length, streamCorrelationId))
+                    {
+                        break decode;
+                    }
+
+                    streamsByCorrelationId.remove(correlationId);
+                    correlationIds.remove(correlationId);
+
+                    decodeStream = stream;
+                    decodableResponseBytes = length - (SIZEOF_RESPONSE_HEADER - SIZEOF_LENGTH);
+                    progress += SIZEOF_RESPONSE_HEADER;
+                }
+                else
+                {
+                    final int length = Math.min(decodableResponseBytes, limit - progress);
+                    final KafkaClientStream stream = decodeStream;
+                    final int replied = stream != null
+                            ? stream.doClientReply(traceId, buffer, progress, progress + length)
+                            : length;
+
+                    progress += replied;
+                    decodableResponseBytes -= replied;
+
+                    if (replied < length)
+                    {
+                        break decode;
+                    }
+                }
+
+                if (decodableResponseBytes == 0)
+                {
+                    decodeStream = null;
+                }
+            }
+
+            decoding = false;
+
+            if (progress < limit)
+            {
+                if (decodeSlot == NO_SLOT)
+                {
+                    decodeSlot = bufferPool.acquire(replyId);
+                }
+
+                if (decodeSlot == NO_SLOT)
+                {
+                    cleanupNetwork(traceId);
+                }
+                else
+                {
+                    final MutableDirectBuffer decodeBuffer = bufferPool.buffer(decodeSlot);
+                    decodeBuffer.putBytes(0, buffer, progress, limit - progress);
+                    decodeSlotOffset = limit - progress;
+                    decodeSlotReserved = (int) ((long) (limit - progress) * reserved / (limit - offset));
+                    assert decodeSlotReserved >= 0;
+                }
+            }
+            else
+            {
+                cleanupDecodeSlotIfNecessary();
+            }
+
+            if (!KafkaState.replyClosed(state))
+            {
+                final int credit = bufferPool.slotCapacity() - decodeSlotOffset - replyBudget;
+                if (credit > 0)
+                {
+                    doNetworkWindow(traceId, budgetId, credit, 0);
+                }
+            }
+        }
+
+        private void cleanupNetwork(
+            long traceId)
+        {
+            connections.remove(this);
+
+            doNetworkResetIfNecessary(traceId);
+            doNetworkAbortIfNecessary(traceId);
+
+            while (!streams.isEmpty())
+            {
+                final KafkaClientStream stream = streams.remove(streams.size() - 1);
+                stream.onConnectionClosed(traceId);
+            }
+
+            streamsByCorrelationId.clear();
+            correlationIds.clear();
+            decodeStream = null;
+            decodableResponseBytes = 0;
+        }
+
+        private void cleanupEncodeSlotIfNecessary()
+        {
+            if (encodeSlot != NO_SLOT)
+            {
+                bufferPool.release(encodeSlot);
+                encodeSlot = NO_SLOT;
+                encodeSlotOffset = 0;
+                encodeSlotTraceId = 0;
+            }
+        }
+
+        private void cleanupDecodeSlotIfNecessary()
+        {
+            if (decodeSlot != NO_SLOT)
+            {
+                bufferPool.release(decodeSlot);
+                decodeSlot = NO_SLOT;
+                decodeSlotOffset = 0;
+                decodeSlotReserved = 0;
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -121,6 +122,8 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
     private final Map<String, String> newConfigs = new LinkedHashMap<>();
     private final List<String> changedConfigs = new ArrayList<>();
+    private final List<String> encodeResources = new ArrayList<>();
+    private final List<String> encodeConfigs = new ArrayList<>();
 
     private final KafkaDescribeClientDecoder decodeResponse = this::decodeResponse;
     private final KafkaDescribeClientDecoder decodeIgnoreAll = this::decodeIgnoreAll;
@@ -128,6 +131,7 @@ public final class KafkaClientDescribeFactory implements StreamFactory
     private final MessageFunction<RouteFW> wrapRoute = (t, b, i, l) -> routeRO.wrap(b, i, i + l);
 
     private final long maxAgeMillis;
+    private final boolean adminBatch;
     private final int kafkaTypeId;
     private final RouteManager router;
     private final MutableDirectBuffer writeBuffer;
@@ -138,6 +142,8 @@ public final class KafkaClientDescribeFactory implements StreamFactory
     private final LongUnaryOperator supplyInitialId;
     private final LongUnaryOperator supplyReplyId;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
+    private final LongFunction<MessageConsumer> supplyNetwork;
+    private final Long2ObjectHashMap<KafkaDescribeGroup> groups;
 
     public KafkaClientDescribeFactory(
         KafkaConfiguration config,
@@ -150,9 +156,11 @@ public final class KafkaClientDescribeFactory implements StreamFactory
         LongSupplier supplyTraceId,
         ToIntFunction<String> supplyTypeId,
         LongFunction<BudgetDebitor> supplyDebitor,
-        Long2ObjectHashMap<MessageConsumer> correlations)
+        Long2ObjectHashMap<MessageConsumer> correlations,
+        LongFunction<MessageConsumer> supplyNetwork)
     {
         this.maxAgeMillis = Math.min(config.clientDescribeMaxAgeMillis(), config.clientMaxIdleMillis() >> 1);
+        this.adminBatch = config.clientAdminBatch();
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.router = router;
         this.signaler = signaler;
@@ -163,6 +171,8 @@ public final class KafkaClientDescribeFactory implements StreamFactory
         this.supplyInitialId = supplyInitialId;
         this.supplyReplyId = supplyReplyId;
         this.correlations = correlations;
+        this.supplyNetwork = supplyNetwork;
+        this.groups = new Long2ObjectHashMap<>();
     }
 
     @Override
@@ -239,6 +249,25 @@ public final class KafkaClientDescribeFactory implements StreamFactory
         return newStream;
     }
 
+    private KafkaDescribeGroup supplyGroup(
+        long resolvedId,
+        long affinity)
+    {
+        KafkaDescribeGroup group = null;
+
+        if (adminBatch)
+        {
+            group = groups.computeIfAbsent(resolvedId, id -> new KafkaDescribeGroup(id, affinity));
+
+            if (group.affinity != affinity)
+            {
+                group = null;
+            }
+        }
+
+        return group;
+    }
+
     private MessageConsumer newNetworkStream(
         BeginFW begin,
         MessageConsumer network)
@@ -471,7 +500,7 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
                     client.onDecodeResource(traceId, client.authorization, resourceError, resourceName);
                     // TODO: use different decoder for configs
-                    if (resourceError != ERROR_NONE || !client.topic.equals(resourceName))
+                    if (client.group == null && (resourceError != ERROR_NONE || !client.topic.equals(resourceName)))
                     {
                         client.decoder = decodeIgnoreAll;
                         break decode;
@@ -496,8 +525,10 @@ public final class KafkaClientDescribeFactory implements StreamFactory
                         newConfigs.put(name, value);
                     }
 
-                    client.onDecodeResponse(traceId, newConfigs);
+                    client.onDecodeConfigs(traceId, newConfigs);
                 }
+
+                client.onDecodeResponse(traceId);
             }
         }
 
@@ -600,7 +631,15 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
             state = KafkaState.openingInitial(state);
 
-            client.doNetworkBegin(traceId, authorization, affinity);
+            final KafkaDescribeGroup group = supplyGroup(client.routeId, affinity);
+            if (group != null)
+            {
+                group.join(traceId, authorization, client);
+            }
+            else
+            {
+                client.doNetworkBegin(traceId, authorization, affinity);
+            }
         }
 
         private void onApplicationData(
@@ -619,7 +658,12 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
             state = KafkaState.closedInitial(state);
 
-            client.doNetworkEnd(traceId, authorization);
+            if (client.isCarrier())
+            {
+                client.doNetworkEnd(traceId, authorization);
+            }
+
+            client.leaveGroupIfNecessary(traceId);
         }
 
         private void onApplicationAbort(
@@ -629,7 +673,12 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
             state = KafkaState.closedInitial(state);
 
-            client.doNetworkAbortIfNecessary(traceId);
+            if (client.isCarrier())
+            {
+                client.doNetworkAbortIfNecessary(traceId);
+            }
+
+            client.leaveGroupIfNecessary(traceId);
         }
 
         private void onApplicationWindow(
@@ -651,7 +700,17 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
             state = KafkaState.closedInitial(state);
 
-            client.doNetworkResetIfNecessary(traceId);
+            if (client.isCarrier())
+            {
+                client.doNetworkResetIfNecessary(traceId);
+
+                if (client.group != null)
+                {
+                    client.doNetworkAbortIfNecessary(traceId);
+                }
+            }
+
+            client.leaveGroupIfNecessary(traceId);
         }
 
         private void doApplicationBeginIfNecessary(
@@ -796,6 +855,7 @@ public final class KafkaClientDescribeFactory implements StreamFactory
             private int nextResponseId;
 
             private KafkaDescribeClientDecoder decoder;
+            private KafkaDescribeGroup group;
 
             KafkaDescribeClient(
                 long routeId,
@@ -805,7 +865,7 @@ public final class KafkaClientDescribeFactory implements StreamFactory
                 this.routeId = routeId;
                 this.initialId = supplyInitialId.applyAsLong(routeId);
                 this.replyId = supplyReplyId.applyAsLong(initialId);
-                this.network = router.supplyReceiver(initialId);
+                this.network = supplyNetwork.apply(initialId);
                 this.decoder = decodeResponse;
                 this.topic = requireNonNull(topic);
                 this.configs = new LinkedHashMap<>(configs.size());
@@ -817,6 +877,22 @@ public final class KafkaClientDescribeFactory implements StreamFactory
                 long authorization,
                 int errorCode,
                 String resource)
+            {
+                if (group != null)
+                {
+                    group.onDecodeResource(traceId, authorization, errorCode, resource);
+                }
+                else
+                {
+                    onDecodeMemberResource(traceId, authorization, errorCode, resource);
+                }
+            }
+
+            private void onDecodeMemberResource(
+                long traceId,
+                long authorization,
+                int errorCode,
+                String resource)
             {
                 switch (errorCode)
                 {
@@ -829,7 +905,10 @@ public final class KafkaClientDescribeFactory implements StreamFactory
                                                                  .error(errorCode)
                                                                  .build();
                     cleanupApplication(traceId, resetEx);
-                    doNetworkEnd(traceId, authorization);
+                    if (group == null)
+                    {
+                        doNetworkEnd(traceId, authorization);
+                    }
                     break;
                 }
             }
@@ -941,6 +1020,11 @@ public final class KafkaClientDescribeFactory implements StreamFactory
                 cleanupDecodeSlotIfNecessary();
 
                 doApplicationEnd(traceId);
+
+                if (group != null)
+                {
+                    group.dissolve(traceId);
+                }
             }
 
             private void onNetworkAbort(
@@ -1119,28 +1203,37 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
                 encodeProgress = requestHeader.limit();
 
+                final List<String> resources = group != null ? group.supplyResources() : null;
+                final int resourceCount = resources != null ? resources.size() : 1;
+
                 final DescribeConfigsRequestFW describeConfigsRequest =
                         describeConfigsRequestRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
-                                                .resourceCount(1)
+                                                .resourceCount(resourceCount)
                                                 .build();
 
                 encodeProgress = describeConfigsRequest.limit();
 
-                final ResourceRequestFW resourceRequest = resourceRequestRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
-                        .type(RESOURCE_TYPE_TOPIC)
-                        .name(topic)
-                        .configNamesCount(configs.size())
-                        .build();
-
-                encodeProgress = resourceRequest.limit();
-
-                for (String config : configs.keySet())
+                for (int resourceIndex = 0; resourceIndex < resourceCount; resourceIndex++)
                 {
-                    final String16FW configName = configNameRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
-                            .set(config, UTF_8)
+                    final String resource = resources != null ? resources.get(resourceIndex) : topic;
+                    final Collection<String> resourceConfigs = group != null ? group.supplyConfigs(resource) : configs.keySet();
+
+                    final ResourceRequestFW resourceRequest = resourceRequestRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
+                            .type(RESOURCE_TYPE_TOPIC)
+                            .name(resource)
+                            .configNamesCount(resourceConfigs.size())
                             .build();
 
-                    encodeProgress = configName.limit();
+                    encodeProgress = resourceRequest.limit();
+
+                    for (String config : resourceConfigs)
+                    {
+                        final String16FW configName = configNameRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
+                                .set(config, UTF_8)
+                                .build();
+
+                        encodeProgress = configName.limit();
+                    }
                 }
 
                 final int requestId = nextRequestId++;
@@ -1262,7 +1355,21 @@ public final class KafkaClientDescribeFactory implements StreamFactory
                 }
             }
 
-            private void onDecodeResponse(
+            private void onDecodeConfigs(
+                long traceId,
+                Map<String, String> newConfigs)
+            {
+                if (group != null)
+                {
+                    group.onDecodeConfigs(traceId, newConfigs);
+                }
+                else
+                {
+                    onDecodeMemberConfigs(traceId, newConfigs);
+                }
+            }
+
+            private void onDecodeMemberConfigs(
                 long traceId,
                 Map<String, String> newConfigs)
             {
@@ -1291,18 +1398,70 @@ public final class KafkaClientDescribeFactory implements StreamFactory
 
                     doApplicationData(traceId, authorization, kafkaDataEx);
                 }
+            }
 
+            private void onDecodeResponse(
+                long traceId)
+            {
                 nextResponseId++;
+
+                if (group != null)
+                {
+                    group.onDecodeResponse(traceId, this);
+                }
+                else
+                {
+                    doScheduleNextRequest();
+                }
+            }
+
+            private void doScheduleNextRequest()
+            {
                 signaler.signalAt(currentTimeMillis() + maxAgeMillis, routeId, initialId, SIGNAL_NEXT_REQUEST);
             }
 
+            private boolean isCarrier()
+            {
+                return group != null ? group.carrier == this : KafkaState.initialOpening(state);
+            }
+
+            private void leaveGroupIfNecessary(
+                long traceId)
+            {
+                if (group != null)
+                {
+                    group.leave(traceId, this);
+                }
+            }
+
+            private void cleanupMember(
+                long traceId)
+            {
+                cleanupApplication(traceId, EMPTY_OCTETS);
+            }
+
             private void cleanupNetwork(
                 long traceId)
             {
-                doNetworkResetIfNecessary(traceId);
-                doNetworkAbortIfNecessary(traceId);
+                if (isCarrier())
+                {
+                    doNetworkResetIfNecessary(traceId);
+                    doNetworkAbortIfNecessary(traceId);
+                }
 
                 cleanupApplication(traceId, EMPTY_OCTETS);
+
+                if (group != null)
+                {
+                    if (group.carrier == this)
+                    {
+                        group.dissolve(traceId);
+                    }
+                    else
+                    {
+                        group.leave(traceId, this);
+                    }
+                }
             }
 
             private void cleanupDecodeSlotIfNecessary()
@@ -1328,4 +1487,213 @@ public final class KafkaClientDescribeFactory implements StreamFactory
             }
         }
     }
+
+    private final class KafkaDescribeGroup
+    {
+        private final long resolvedId;
+        private final long affinity;
+        private final List<KafkaDescribeStream.KafkaDescribeClient> members;
+        private final List<KafkaDescribeStream.KafkaDescribeClient> decodeMembers;
+        private final List<KafkaDescribeStream.KafkaDescribeClient> failedMembers;
+
+        private KafkaDescribeStream.KafkaDescribeClient carrier;
+        private boolean refresh;
+
+        KafkaDescribeGroup(
+            long resolvedId,
+            long affinity)
+        {
+            this.resolvedId = resolvedId;
+            this.affinity = affinity;
+            this.members = new ArrayList<>();
+            this.decodeMembers = new ArrayList<>();
+            this.failedMembers = new ArrayList<>();
+        }
+
+        private void join(
+            long traceId,
+            long authorization,
+            KafkaDescribeStream.KafkaDescribeClient member)
+        {
+            member.group = this;
+            member.authorization = authorization;
+            members.add(member);
+
+            if (carrier == null)
+            {
+                carrier = member;
+                carrier.doNetworkBegin(traceId, authorization, affinity);
+            }
+            else if (carrier.nextRequestId == carrier.nextResponseId)
+            {
+                carrier.doEncodeRequest(traceId, carrier.initialBudgetId);
+            }
+            else
+            {
+                refresh = true;
+            }
+        }
+
+        private void leave(
+            long traceId,
+            KafkaDescribeStream.KafkaDescribeClient member)
+        {
+            members.remove(member);
+            decodeMembers.remove(member);
+            member.group = null;
+
+            if (members.isEmpty())
+            {
+                carrier = null;
+                groups.remove(resolvedId);
+            }
+            else if (carrier == member)
+            {
+                carrier = members.get(0);
+                refresh = false;
+                carrier.doNetworkBegin(traceId, carrier.authorization, affinity);
+            }
+        }
+
+        private void dissolve(
+            long traceId)
+        {
+            final KafkaDescribeStream.KafkaDescribeClient carrier = this.carrier;
+
+            while (!members.isEmpty())
+            {
+                final KafkaDescribeStream.KafkaDescribeClient member = members.remove(members.size() - 1);
+                member.group = null;
+
+                if (member != carrier)
+                {
+                    member.cleanupMember(traceId);
+                }
+            }
+
+            decodeMembers.clear();
+            failedMembers.clear();
+
+            this.carrier = null;
+            groups.remove(resolvedId);
+        }
+
+        private List<String> supplyResources()
+        {
+            encodeResources.clear();
+
+            for (int index = 0; index < members.size(); index++)
+            {
+                final String topic = members.get(index).topic;
+                if (!encodeResources.contains(topic))
+                {
+                    encodeResources.add(topic);
+                }
+            }
+
+            return encodeResources;
+        }
+
+        private List<String> supplyConfigs(
+            String resource)
+        {
+            encodeConfigs.clear();
+
+            for (int index = 0; index < members.size(); index++)
+            {
+                final KafkaDescribeStream.KafkaDescribeClient member = members.get(index);
+                if (member.topic.equals(resource))
+                {
+                    for (String config : member.configs.keySet())
+                    {
+                        if (!encodeConfigs.contains(config))
+                        {
+                            encodeConfigs.add(config);
+                        }
+                    }
+                }
+            }
+
+            return encodeConfigs;
+        }
+
+        private void onDecodeResource(
+            long traceId,
+            long authorization,
+            int errorCode,
+            String resource)
+        {
+            decodeMembers.clear();
+
+            for (int index = 0; index < members.size(); index++)
+            {
+                final KafkaDescribeStream.KafkaDescribeClient member = members.get(index);
+                if (member.topic.equals(resource))
+                {
+                    if (errorCode == ERROR_NONE)
+                    {
+                        decodeMembers.add(member);
+                    }
+                    else
+                    {
+                        failedMembers.add(member);
+                    }
+                }
+            }
+
+            for (int index = 0; index < failedMembers.size(); index++)
+            {
+                final KafkaDescribeStream.KafkaDescribeClient member = failedMembers.get(index);
+                if (member.topic.equals(resource))
+                {
+                    member.authorization = authorization;
+                    member.onDecodeMemberResource(traceId, authorization, errorCode, resource);
+                }
+            }
+        }
+
+        private void onDecodeConfigs(
+            long traceId,
+            Map<String, String> newConfigs)
+        {
+            for (int index = 0; index < decodeMembers.size(); index++)
+            {
+                final KafkaDescribeStream.KafkaDescribeClient member = decodeMembers.get(index);
+                member.authorization = carrier.authorization;
+                member.onDecodeMemberConfigs(traceId, newConfigs);
+            }
+
+            decodeMembers.clear();
+        }
+
+        private void onDecodeResponse(
+            long traceId,
+            KafkaDescribeStream.KafkaDescribeClient responder)
+        {
+            for (int index = 0; index < failedMembers.size(); index++)
+            {
+                final KafkaDescribeStream.KafkaDescribeClient member = failedMembers.get(index);
+                if (member == carrier)
+                {
+                    member.doNetworkEnd(traceId, member.authorization);
+                }
+                leave(traceId, member);
+            }
+
+            failedMembers.clear();
+
+            if (carrier == responder)
+            {
+                if (refresh)
+                {
+                    refresh = false;
+                    responder.doEncodeRequestIfNecessary(traceId, responder.initialBudgetId);
+                }
+                else
+                {
+                    responder.doScheduleNextRequest();
+                }
+            }
+        }
+    }
 }
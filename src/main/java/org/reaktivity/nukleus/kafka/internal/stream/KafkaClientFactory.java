@@ -62,30 +62,37 @@ public final class KafkaClientFactory implements StreamFactory
         LongSupplier supplyBudgetId,
         LongFunction<BudgetDebitor> supplyDebitor,
         BudgetCreditor creditor,
-        LongFunction<KafkaClientRoute> supplyClientRoute)
+        LongFunction<KafkaClientRoute> supplyClientRoute,
+        KafkaCounters counters)
     {
         final Long2ObjectHashMap<MessageConsumer> correlations = new Long2ObjectHashMap<>();
         final KafkaMergedBudgetAccountant accountant = new KafkaMergedBudgetAccountant(supplyDebitor, supplyBudgetId, creditor);
+        final LongFunction<MessageConsumer> supplyNetwork = config.clientConnectionPoolSize() > 0 ?
+                new KafkaClientConnectionPool(config, router, writeBuffer, bufferPool,
+                        supplyInitialId, supplyReplyId, correlations)::supplyNetwork :
+                router::supplyReceiver;
 
         final KafkaClientMetaFactory clientMetaFactory = new KafkaClientMetaFactory(
                 config, router, signaler, writeBuffer, bufferPool,
                 supplyInitialId, supplyReplyId, supplyTraceId,
-                supplyTypeId, accountant::supplyDebitor, correlations, supplyClientRoute);
+                supplyTypeId, accountant::supplyDebitor, correlations, supplyNetwork, supplyClientRoute);
 
         final KafkaClientDescribeFactory clientDescribeFactory = new KafkaClientDescribeFactory(
                 config, router, signaler, writeBuffer, bufferPool,
                 supplyInitialId, supplyReplyId, supplyTraceId,
-                supplyTypeId, accountant::supplyDebitor, correlations);
+                supplyTypeId, accountant::supplyDebitor, correlations, supplyNetwork);
 
+        // fetch long-polls hold their connection for up to max wait, so never share it
         final KafkaClientFetchFactory clientFetchFactory = new KafkaClientFetchFactory(
                 config, router, signaler, writeBuffer, bufferPool,
                 supplyInitialId, supplyReplyId, supplyTraceId,
-                supplyTypeId, accountant::supplyDebitor, correlations, supplyClientRoute);
+                supplyTypeId, accountant::supplyDebitor, correlations, router::supplyReceiver, supplyClientRoute, counters);
 
+        // produce pipelines its in-flight requests per connection, so never share it
         final KafkaClientProduceFactory clientProduceFactory = new KafkaClientProduceFactory(
                 config, router, signaler, writeBuffer, bufferPool,
                 supplyInitialId, supplyReplyId, supplyTraceId,
-                supplyTypeId, correlations, supplyClientRoute);
+                supplyTypeId, correlations, router::supplyReceiver, supplyClientRoute, counters);
 
         final KafkaMergedFactory clientMergedFactory = new KafkaMergedFactory(
                 config, router, writeBuffer, supplyInitialId, supplyReplyId, supplyTraceId,
@@ -15,6 +15,8 @@
  */
 package org.reaktivity.nukleus.kafka.internal.stream;
 
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
 import java.util.function.LongUnaryOperator;
@@ -47,6 +49,7 @@ public final class KafkaClientFactoryBuilder implements KafkaStreamFactoryBuilde
     private ToIntFunction<String> supplyTypeId;
     private LongSupplier supplyBudgetId;
     private BudgetCreditor creditor;
+    private Function<String, LongConsumer> supplyAccumulator;
 
     public KafkaClientFactoryBuilder(
         KafkaConfiguration config,
@@ -144,10 +147,19 @@ public final class KafkaClientFactoryBuilder implements KafkaStreamFactoryBuilde
         return this;
     }
 
+    @Override
+    public KafkaClientFactoryBuilder setAccumulatorSupplier(
+        Function<String, LongConsumer> supplyAccumulator)
+    {
+        this.supplyAccumulator = supplyAccumulator;
+        return this;
+    }
+
     @Override
     public StreamFactory build()
     {
         final BufferPool bufferPool = supplyBufferPool.get();
+        final KafkaCounters counters = new KafkaCounters("client", config.countersMax(), supplyAccumulator);
 
         return new KafkaClientFactory(
                 config,
@@ -162,6 +174,7 @@ public final class KafkaClientFactoryBuilder implements KafkaStreamFactoryBuilde
                 supplyBudgetId,
                 supplyDebitor,
                 creditor,
-                supplyClientRoute);
+                supplyClientRoute,
+                counters);
     }
 }
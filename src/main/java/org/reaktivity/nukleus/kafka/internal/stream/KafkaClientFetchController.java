@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+final class KafkaClientFetchController
+{
+    private static final double RATE_WEIGHT = 0.25;
+
+    private final int maxWaitMillisMax;
+    private final int maxBytesMin;
+    private final int maxBytesMax;
+    private final int latencyMillis;
+
+    private int minBytes;
+    private int maxWaitMillis;
+    private int maxBytes;
+    private double bytesPerMilli;
+
+    KafkaClientFetchController(
+        int maxWaitMillisMax,
+        int maxBytesMin,
+        int maxBytesMax,
+        int latencyMillis)
+    {
+        this.maxWaitMillisMax = maxWaitMillisMax;
+        this.maxBytesMin = Math.min(maxBytesMin, maxBytesMax);
+        this.maxBytesMax = maxBytesMax;
+        this.latencyMillis = Math.min(latencyMillis, maxWaitMillisMax);
+        this.minBytes = 1;
+        this.maxWaitMillis = maxWaitMillisMax;
+        this.maxBytes = this.maxBytesMin;
+    }
+
+    int minBytes()
+    {
+        return minBytes;
+    }
+
+    int maxWaitMillis()
+    {
+        return maxWaitMillis;
+    }
+
+    int maxBytes()
+    {
+        return maxBytes;
+    }
+
+    void onFetchResponse(
+        int responseBytes,
+        long elapsedMillis,
+        int credit,
+        int backlogBytes)
+    {
+        final double sample = (double) responseBytes / Math.max(elapsedMillis, 1L);
+        bytesPerMilli += RATE_WEIGHT * (sample - bytesPerMilli);
+
+        if (backlogBytes > 0)
+        {
+            maxBytes = Math.max(maxBytes >> 1, maxBytesMin);
+        }
+        else if (responseBytes >= maxBytes - (maxBytes >> 3))
+        {
+            maxBytes = (int) Math.min((long) maxBytes << 1, maxBytesMax);
+        }
+
+        final long minBytesMax = Math.max(Math.min(maxBytes, credit), 1);
+        final long minBytesTarget = (long) (bytesPerMilli * latencyMillis);
+        minBytes = (int) Math.max(Math.min(minBytesTarget, minBytesMax), 1L);
+
+        maxWaitMillis = minBytes > 1 ? latencyMillis : maxWaitMillisMax;
+    }
+}
@@ -15,7 +15,11 @@
  */
 package org.reaktivity.nukleus.kafka.internal.stream;
 
+import static java.lang.System.nanoTime;
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.reaktivity.nukleus.budget.BudgetDebitor.NO_DEBITOR_INDEX;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 import static org.reaktivity.nukleus.kafka.internal.types.codec.offsets.IsolationLevel.READ_UNCOMMITTED;
@@ -80,6 +84,7 @@ import org.reaktivity.nukleus.kafka.internal.types.stream.FlushFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaBeginExFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaDataExFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaFetchBeginExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaFetchDataExFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaResetExFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.kafka.internal.types.stream.SignalFW;
@@ -104,6 +109,7 @@ public final class KafkaClientFetchFactory implements StreamFactory
     private static final long OFFSET_HISTORICAL = KafkaOffsetType.HISTORICAL.value();
 
     private static final int SIGNAL_NEXT_REQUEST = 1;
+    private static final int SIGNAL_SWITCH_REPLICA = 2;
 
     private static final DirectBuffer EMPTY_BUFFER = new UnsafeBuffer();
     private static final OctetsFW EMPTY_OCTETS = new OctetsFW().wrap(EMPTY_BUFFER, 0, 0);
@@ -115,6 +121,15 @@ public final class KafkaClientFetchFactory implements StreamFactory
 
     private static final short FETCH_API_KEY = 1;
     private static final short FETCH_API_VERSION = 5;
+    private static final short FETCH_RACK_API_VERSION = 11;
+
+    private static final int FETCH_SESSION_ID_NONE = 0;
+    private static final int FETCH_SESSION_EPOCH_FINAL = -1;
+    private static final int FETCH_LEADER_EPOCH_NONE = -1;
+    private static final int FETCH_PREFERRED_REPLICA_NONE = -1;
+    private static final int FETCH_REQUESTS_IN_FLIGHT_MASK = 0x01;
+    private static final int FETCH_SESSION_RESPONSE_SIZE =
+            FetchResponseFW.FIELD_OFFSET_TOPIC_COUNT + Short.BYTES + Integer.BYTES + Integer.BYTES;
 
     private final RouteFW routeRO = new RouteFW();
     private final KafkaRouteExFW kafkaRouteExRO = new KafkaRouteExFW();
@@ -187,12 +202,18 @@ public final class KafkaClientFetchFactory implements StreamFactory
     private final KafkaFetchClientDecoder decodeIgnoreRecordBatch = this::decodeIgnoreRecordBatch;
     private final KafkaFetchClientDecoder decodeIgnoreRecordSet = this::decodeIgnoreRecordSet;
     private final KafkaFetchClientDecoder decodeIgnoreAll = this::decodeIgnoreAll;
+    private final KafkaFetchClientDecoder decodeFetchSession = this::decodeFetchSession;
+    private final KafkaFetchClientDecoder decodeFetchPreferredReplica = this::decodeFetchPreferredReplica;
 
     private final MessageFunction<RouteFW> wrapRoute = (t, b, i, l) -> routeRO.wrap(b, i, i + l);
 
     private final int fetchMaxBytes;
     private final int fetchMaxWaitMillis;
     private final int partitionMaxBytes;
+    private final boolean fetchAdaptive;
+    private final int fetchAdaptiveLatencyMillis;
+    private final int fetchPipelineMaxBytes;
+    private final byte[] fetchRackId;
     private final int kafkaTypeId;
     private final int tcpTypeId;
     private final RouteManager router;
@@ -205,7 +226,9 @@ public final class KafkaClientFetchFactory implements StreamFactory
     private final LongUnaryOperator supplyReplyId;
     private final LongFunction<BudgetDebitor> supplyDebitor;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
+    private final LongFunction<MessageConsumer> supplyNetwork;
     private final LongFunction<KafkaClientRoute> supplyClientRoute;
+    private final KafkaCounters counters;
     private final int decodeMaxBytes;
 
     public KafkaClientFetchFactory(
@@ -220,11 +243,17 @@ public final class KafkaClientFetchFactory implements StreamFactory
         ToIntFunction<String> supplyTypeId,
         LongFunction<BudgetDebitor> supplyDebitor,
         Long2ObjectHashMap<MessageConsumer> correlations,
-        LongFunction<KafkaClientRoute> supplyClientRoute)
+        LongFunction<MessageConsumer> supplyNetwork,
+        LongFunction<KafkaClientRoute> supplyClientRoute,
+        KafkaCounters counters)
     {
         this.fetchMaxBytes = config.clientFetchMaxBytes();
         this.fetchMaxWaitMillis = config.clientFetchMaxWaitMillis();
         this.partitionMaxBytes = config.clientFetchPartitionMaxBytes();
+        this.fetchAdaptive = config.clientFetchAdaptive();
+        this.fetchAdaptiveLatencyMillis = config.clientFetchAdaptiveLatencyMillis();
+        this.fetchPipelineMaxBytes = config.clientFetchPipelineMaxBytes();
+        this.fetchRackId = rackId(config.clientRack());
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.tcpTypeId = supplyTypeId.applyAsInt("tcp");
         this.router = router;
@@ -237,7 +266,9 @@ public final class KafkaClientFetchFactory implements StreamFactory
         this.supplyReplyId = supplyReplyId;
         this.supplyDebitor = supplyDebitor;
         this.correlations = correlations;
+        this.supplyNetwork = supplyNetwork;
         this.supplyClientRoute = supplyClientRoute;
+        this.counters = counters;
         this.decodeMaxBytes = decodePool.slotCapacity();
     }
 
@@ -733,7 +764,8 @@ public final class KafkaClientFetchFactory implements StreamFactory
             {
                 progress = responseHeader.limit();
                 client.decodableResponseBytes = responseHeader.length();
-                client.decoder = decodeFetch;
+                client.decodeFetchResponseBytes = responseHeader.length();
+                client.decoder = fetchRackId != null ? decodeFetchSession : decodeFetch;
             }
         }
 
@@ -771,6 +803,34 @@ public final class KafkaClientFetchFactory implements StreamFactory
         return progress;
     }
 
+    private int decodeFetchSession(
+        KafkaFetchStream.KafkaFetchClient client,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int reserved,
+        DirectBuffer buffer,
+        int offset,
+        int progress,
+        int limit)
+    {
+        final int length = limit - progress;
+
+        if (length >= FETCH_SESSION_RESPONSE_SIZE)
+        {
+            final int topicCountAt = progress + FETCH_SESSION_RESPONSE_SIZE - Integer.BYTES;
+
+            progress += FETCH_SESSION_RESPONSE_SIZE;
+
+            client.decodableTopics = buffer.getInt(topicCountAt, BIG_ENDIAN);
+            client.decodableResponseBytes -= FETCH_SESSION_RESPONSE_SIZE;
+            assert client.decodableResponseBytes >= 0;
+            client.decoder = decodeFetchTopic;
+        }
+
+        return progress;
+    }
+
     private int decodeFetchTopic(
         KafkaFetchStream.KafkaFetchClient client,
         long traceId,
@@ -787,7 +847,7 @@ public final class KafkaClientFetchFactory implements StreamFactory
         decode:
         if (client.decodableTopics == 0)
         {
-            client.onDecodeResponse(traceId);
+            client.onDecodeFetchResponse(traceId);
             client.decoder = decodeFetchResponse;
             break decode;
         }
@@ -876,7 +936,7 @@ public final class KafkaClientFetchFactory implements StreamFactory
         decode:
         if (client.decodableTransactions <= 0)
         {
-            client.decoder = decodeFetchRecordSet;
+            client.decoder = fetchRackId != null ? decodeFetchPreferredReplica : decodeFetchRecordSet;
             break decode;
         }
         else if (length != 0)
@@ -896,6 +956,35 @@ public final class KafkaClientFetchFactory implements StreamFactory
         return progress;
     }
 
+    private int decodeFetchPreferredReplica(
+        KafkaFetchStream.KafkaFetchClient client,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int reserved,
+        DirectBuffer buffer,
+        int offset,
+        int progress,
+        int limit)
+    {
+        final int length = limit - progress;
+
+        if (length >= Integer.BYTES)
+        {
+            final int replicaId = buffer.getInt(progress, BIG_ENDIAN);
+
+            progress += Integer.BYTES;
+
+            client.decodableResponseBytes -= Integer.BYTES;
+            assert client.decodableResponseBytes >= 0;
+
+            client.onDecodeFetchPreferredReplica(replicaId);
+            client.decoder = decodeFetchRecordSet;
+        }
+
+        return progress;
+    }
+
     private int decodeFetchRecordSet(
         KafkaFetchStream.KafkaFetchClient client,
         long traceId,
@@ -1018,6 +1107,11 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 client.decodableRecordBatchBytes -= recordBatchProgress;
                 assert client.decodableRecordBatchBytes >= 0;
 
+                if (client.decodableRecordSetBytes == client.decodableRecordBatchBytes)
+                {
+                    client.doPipelineFetchRequestIfNecessary(traceId, client.decodeRecordBatchLastOffset);
+                }
+
                 if (isCompressedBatch(attributes) || isControlBatch(attributes))
                 {
                     client.decoder = decodeIgnoreRecordBatch;
@@ -1893,14 +1987,27 @@ public final class KafkaClientFetchFactory implements StreamFactory
         {
             private final LongLongConsumer encodeOffsetsRequest = this::doEncodeOffsetsRequest;
             private final LongLongConsumer encodeFetchRequest = this::doEncodeFetchRequest;
+            private final Consumer<KafkaFetchDataExFW.Builder> encodeRecord = this::doEncodeRecord;
+            private final Consumer<KafkaFetchDataExFW.Builder> encodeRecordValueInit = this::doEncodeRecordValueInit;
+            private final Consumer<KafkaFetchDataExFW.Builder> encodeRecordValueFin = this::doEncodeRecordValueFin;
+            private final Consumer<KafkaOffsetFW.Builder> encodeRecordPartition = this::doEncodeRecordPartition;
+            private final Consumer<KafkaKeyFW.Builder> encodeRecordKey = this::doEncodeRecordKey;
+            private final Consumer<KafkaHeaderFW.Builder> encodeRecordHeader = this::doEncodeRecordHeader;
 
             private final KafkaFetchStream stream;
             private final long routeId;
-            private final long initialId;
-            private final long replyId;
-            private final MessageConsumer network;
             private final String topic;
             private final int partitionId;
+            private final KafkaClientFetchController controller;
+            private final KafkaTopicCounters topicCounters;
+            private final KafkaLatencyHistogram fetchRtt;
+            private final long[] fetchRequestedAt;
+
+            private long initialId;
+            private long replyId;
+            private MessageConsumer network;
+            private long affinity;
+            private long preferredAffinity;
 
             private long nextOffset;
             private long latestOffset;
@@ -1922,6 +2029,7 @@ public final class KafkaClientFetchFactory implements StreamFactory
             private int decodeSlotReserved;
 
             private int decodableResponseBytes;
+            private int decodeFetchResponseBytes;
             private int decodableTopics;
             private int decodableTransactions;
             private int decodablePartitions;
@@ -1937,6 +2045,15 @@ public final class KafkaClientFetchFactory implements StreamFactory
             private int decodableRecordBytes;
             private int decodableRecordValueBytes;
 
+            private long encodeRecordOffset;
+            private long encodeRecordTimestamp;
+            private int encodeRecordDeferred;
+            private int encodeRecordHeadersSizeMax;
+            private OctetsFW encodeRecordKeyValue;
+            private int encodeRecordHeaderCount;
+            private DirectBuffer encodeRecordHeaders;
+            private MessageHeaderFW encodeRecordHeaderValue;
+
             private int nextRequestId;
             private int nextResponseId;
 
@@ -1954,11 +2071,16 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 this.routeId = routeId;
                 this.initialId = supplyInitialId.applyAsLong(routeId);
                 this.replyId = supplyReplyId.applyAsLong(initialId);
-                this.network = router.supplyReceiver(initialId);
+                this.network = supplyNetwork.apply(initialId);
                 this.topic = requireNonNull(topic);
                 this.partitionId = partitionId;
                 this.nextOffset = initialOffset;
                 this.latestOffset = latestOffset;
+                this.controller = fetchAdaptive ? new KafkaClientFetchController(fetchMaxWaitMillis,
+                        decodeMaxBytes, partitionMaxBytes, fetchAdaptiveLatencyMillis) : null;
+                this.topicCounters = counters.supplyTopicCounters(routeId, topic);
+                this.fetchRtt = counters.supplyHistogram(routeId, "fetch.rtt.us");
+                this.fetchRequestedAt = new long[FETCH_REQUESTS_IN_FLIGHT_MASK + 1];
                 this.encoder = encodeFetchRequest;
                 this.decoder = decodeFetchResponse;
             }
@@ -2090,7 +2212,15 @@ public final class KafkaClientFetchFactory implements StreamFactory
 
                 state = KafkaState.closedReply(state);
 
-                cleanupNetwork(traceId);
+                if (affinity != leaderId)
+                {
+                    preferredAffinity = leaderId;
+                    doNetworkSwitchReplica(traceId);
+                }
+                else
+                {
+                    cleanupNetwork(traceId);
+                }
             }
 
             private void onNetworkReset(
@@ -2106,7 +2236,15 @@ public final class KafkaClientFetchFactory implements StreamFactory
 
                 state = KafkaState.closedInitial(state);
 
-                cleanupNetwork(traceId);
+                if (affinity != leaderId)
+                {
+                    preferredAffinity = leaderId;
+                    doNetworkSwitchReplica(traceId);
+                }
+                else
+                {
+                    cleanupNetwork(traceId);
+                }
             }
 
             private void onNetworkWindow(
@@ -2142,9 +2280,16 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 final long traceId = signal.traceId();
                 final int signalId = signal.signalId();
 
-                if (signalId == SIGNAL_NEXT_REQUEST)
+                switch (signalId)
                 {
+                case SIGNAL_NEXT_REQUEST:
                     doEncodeRequestIfNecessary(traceId, initialBudgetId);
+                    break;
+                case SIGNAL_SWITCH_REPLICA:
+                    doNetworkSwitchReplica(traceId);
+                    break;
+                default:
+                    break;
                 }
             }
 
@@ -2153,6 +2298,9 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 long authorization,
                 long affinity)
             {
+                this.affinity = affinity;
+                this.preferredAffinity = affinity;
+
                 state = KafkaState.openingInitial(state);
                 correlations.put(replyId, this::onNetwork);
 
@@ -2182,6 +2330,37 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 doBegin(network, routeId, initialId, traceId, authorization, affinity, extension);
             }
 
+            private void doNetworkSwitchReplica(
+                long traceId)
+            {
+                if (KafkaConfiguration.DEBUG)
+                {
+                    System.out.format("[client] [0x%016x] %s[%d] FETCH replica %d -> %d\n",
+                        replyId, topic, partitionId, affinity, preferredAffinity);
+                }
+
+                if (!KafkaState.initialClosed(state))
+                {
+                    doNetworkEnd(traceId, authorization);
+                }
+                doNetworkResetIfNecessary(traceId);
+
+                initialId = supplyInitialId.applyAsLong(routeId);
+                replyId = supplyReplyId.applyAsLong(initialId);
+                network = supplyNetwork.apply(initialId);
+
+                state = 0;
+                initialBudget = 0;
+                initialPadding = 0;
+                replyBudget = 0;
+                nextRequestId = 0;
+                nextResponseId = 0;
+                encoder = encodeFetchRequest;
+                decoder = decodeFetchResponse;
+
+                doNetworkBegin(traceId, authorization, preferredAffinity);
+            }
+
             private void doNetworkData(
                 long traceId,
                 long budgetId,
@@ -2341,6 +2520,28 @@ public final class KafkaClientFetchFactory implements StreamFactory
             private void doEncodeFetchRequest(
                 long traceId,
                 long budgetId)
+            {
+                doEncodeFetchRequest(traceId, budgetId, nextOffset);
+            }
+
+            private void doPipelineFetchRequestIfNecessary(
+                long traceId,
+                long lastOffset)
+            {
+                if (fetchPipelineMaxBytes > 0 &&
+                    encoder == encodeFetchRequest &&
+                    nextRequestId == nextResponseId + 1 &&
+                    (long) decodableResponseBytes + fetchPartitionMaxBytes() <= fetchPipelineMaxBytes &&
+                    clientRoute.partitions.get(partitionId) == leaderId)
+                {
+                    doEncodeFetchRequest(traceId, initialBudgetId, lastOffset + 1);
+                }
+            }
+
+            private void doEncodeFetchRequest(
+                long traceId,
+                long budgetId,
+                long fetchOffset)
             {
                 final MutableDirectBuffer encodeBuffer = writeBuffer;
                 final int encodeOffset = DataFW.FIELD_OFFSET_PAYLOAD;
@@ -2351,23 +2552,38 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 final RequestHeaderFW requestHeader = requestHeaderRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
                         .length(0)
                         .apiKey(FETCH_API_KEY)
-                        .apiVersion(FETCH_API_VERSION)
+                        .apiVersion(fetchRackId != null ? FETCH_RACK_API_VERSION : FETCH_API_VERSION)
                         .correlationId(0)
                         .clientId((String) null)
                         .build();
 
                 encodeProgress = requestHeader.limit();
 
+                final int maxWaitTimeMillis = controller != null ? controller.maxWaitMillis() : fetchMaxWaitMillis;
+                final int minBytes = controller != null ? controller.minBytes() : 1;
+                final int maxPartitionBytes = fetchPartitionMaxBytes();
+                final int maxBytes = controller != null ? Math.min(maxPartitionBytes, fetchMaxBytes) : fetchMaxBytes;
+
                 final FetchRequestFW fetchRequest = fetchRequestRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
-                        .maxWaitTimeMillis(fetchMaxWaitMillis)
-                        .minBytes(1)
-                        .maxBytes(fetchMaxBytes)
+                        .maxWaitTimeMillis(maxWaitTimeMillis)
+                        .minBytes(minBytes)
+                        .maxBytes(maxBytes)
                         .isolationLevel((byte) 0)
                         .topicCount(1)
                         .build();
 
                 encodeProgress = fetchRequest.limit();
 
+                if (fetchRackId != null)
+                {
+                    // sessionless fetch, inserted ahead of topic count
+                    encodeProgress -= Integer.BYTES;
+                    encodeBuffer.putInt(encodeProgress, FETCH_SESSION_ID_NONE, BIG_ENDIAN);
+                    encodeBuffer.putInt(encodeProgress + Integer.BYTES, FETCH_SESSION_EPOCH_FINAL, BIG_ENDIAN);
+                    encodeBuffer.putInt(encodeProgress + Integer.BYTES * 2, 1, BIG_ENDIAN);
+                    encodeProgress += Integer.BYTES * 3;
+                }
+
                 final TopicRequestFW topicRequest = fetchTopicRequestRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
                         .name(topic)
                         .partitionCount(1)
@@ -2375,15 +2591,31 @@ public final class KafkaClientFetchFactory implements StreamFactory
 
                 encodeProgress = topicRequest.limit();
 
+                final int partitionRequestAt = encodeProgress;
+                final int leaderEpochBytes = fetchRackId != null ? Integer.BYTES : 0;
+
                 final PartitionRequestFW partitionRequest = fetchPartitionRequestRW
-                        .wrap(encodeBuffer, encodeProgress, encodeLimit)
+                        .wrap(encodeBuffer, encodeProgress + leaderEpochBytes, encodeLimit)
                         .partitionId((int) partitionId)
-                        .fetchOffset(nextOffset)
-                        .maxBytes(partitionMaxBytes)
+                        .fetchOffset(fetchOffset)
+                        .maxBytes(maxPartitionBytes)
                         .build();
 
                 encodeProgress = partitionRequest.limit();
 
+                if (fetchRackId != null)
+                {
+                    // current leader epoch follows partition id, then forgotten topics and rack id trail the request
+                    encodeBuffer.putInt(partitionRequestAt, (int) partitionId, BIG_ENDIAN);
+                    encodeBuffer.putInt(partitionRequestAt + Integer.BYTES, FETCH_LEADER_EPOCH_NONE, BIG_ENDIAN);
+                    encodeBuffer.putInt(encodeProgress, 0, BIG_ENDIAN);
+                    encodeProgress += Integer.BYTES;
+                    encodeBuffer.putShort(encodeProgress, (short) fetchRackId.length, BIG_ENDIAN);
+                    encodeProgress += Short.BYTES;
+                    encodeBuffer.putBytes(encodeProgress, fetchRackId);
+                    encodeProgress += fetchRackId.length;
+                }
+
                 final int requestId = nextRequestId++;
                 final int requestSize = encodeProgress - encodeOffset - RequestHeaderFW.FIELD_OFFSET_API_KEY;
 
@@ -2397,12 +2629,21 @@ public final class KafkaClientFetchFactory implements StreamFactory
 
                 if (KafkaConfiguration.DEBUG)
                 {
-                    System.out.format("[0x%016x] %s[%d] FETCH %d\n", replyId, topic, partitionId, nextOffset);
+                    System.out.format("[0x%016x] %s[%d] FETCH %d\n", replyId, topic, partitionId, fetchOffset);
                 }
 
+                topicCounters.fetchRequests.accept(1L);
+
+                fetchRequestedAt[requestId & FETCH_REQUESTS_IN_FLIGHT_MASK] = nanoTime();
+
                 doNetworkData(traceId, budgetId, encodeBuffer, encodeOffset, encodeProgress);
             }
 
+            private int fetchPartitionMaxBytes()
+            {
+                return controller != null ? controller.maxBytes() : partitionMaxBytes;
+            }
+
             private void encodeNetwork(
                 long traceId,
                 long authorization,
@@ -2536,6 +2777,11 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 int partitionId,
                 long partitionOffset)
             {
+                if (errorCode != ERROR_NONE)
+                {
+                    topicCounters.onError(errorCode);
+                }
+
                 switch (errorCode)
                 {
                 case ERROR_NONE:
@@ -2555,6 +2801,11 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 int partitionId,
                 int errorCode)
             {
+                if (errorCode != ERROR_NONE)
+                {
+                    topicCounters.onError(errorCode);
+                }
+
                 switch (errorCode)
                 {
                 case ERROR_NONE:
@@ -2563,6 +2814,13 @@ public final class KafkaClientFetchFactory implements StreamFactory
                     doApplicationBeginIfNecessary(traceId, authorization, topic, partitionId, nextOffset, latestOffset);
                     break;
                 case ERROR_OFFSET_OUT_OF_RANGE:
+                    if (affinity != leaderId)
+                    {
+                        // follower may lag behind the leader, retry same offset at leader
+                        preferredAffinity = leaderId;
+                        break;
+                    }
+
                     assert partitionId == this.partitionId;
                     // TODO: recover at EARLIEST or LATEST ?
                     nextOffset = OFFSET_HISTORICAL;
@@ -2571,6 +2829,12 @@ public final class KafkaClientFetchFactory implements StreamFactory
                     doEncodeRequestIfNecessary(traceId, initialBudgetId);
                     break;
                 default:
+                    if (affinity != leaderId)
+                    {
+                        preferredAffinity = leaderId;
+                        break;
+                    }
+
                     if (errorCode == ERROR_NOT_LEADER_FOR_PARTITION)
                     {
                         final long metaInitialId = clientRoute.metaInitialId;
@@ -2587,6 +2851,16 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 }
             }
 
+            private void onDecodeFetchPreferredReplica(
+                int replicaId)
+            {
+                if (replicaId != FETCH_PREFERRED_REPLICA_NONE &&
+                    clientRoute.brokers.containsKey(replicaId))
+                {
+                    preferredAffinity = replicaId;
+                }
+            }
+
             private void onDecodeFetchRecord(
                 long traceId,
                 int reserved,
@@ -2599,22 +2873,17 @@ public final class KafkaClientFetchFactory implements StreamFactory
             {
                 this.nextOffset = offset + 1;
 
+                topicCounters.fetchRecords.accept(1L);
+
+                this.encodeRecordOffset = offset;
+                this.encodeRecordTimestamp = timestamp;
+                this.encodeRecordKeyValue = key;
+                this.encodeRecordHeaderCount = headerCount;
+                this.encodeRecordHeaders = headers;
+
                 final KafkaDataExFW kafkaDataEx = kafkaDataExRW.wrap(extBuffer, 0, extBuffer.capacity())
                         .typeId(kafkaTypeId)
-                        .fetch(f ->
-                        {
-                            f.timestamp(timestamp);
-                            f.partition(p -> p.partitionId(decodePartitionId).partitionOffset(offset).latestOffset(latestOffset));
-                            f.key(k -> setKey(k, key));
-                            final int headersLimit = headers.capacity();
-                            int headerProgress = 0;
-                            for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
-                            {
-                                final MessageHeaderFW header = messageHeaderRO.wrap(headers, headerProgress, headersLimit);
-                                f.headersItem(i -> setHeader(i, header.key(), header.value()));
-                                headerProgress = header.limit();
-                            }
-                        })
+                        .fetch(encodeRecord)
                         .build();
 
                 doApplicationData(traceId, authorization, FLAG_INIT | FLAG_FIN, reserved, value, kafkaDataEx);
@@ -2630,15 +2899,15 @@ public final class KafkaClientFetchFactory implements StreamFactory
                 OctetsFW key,
                 OctetsFW valueInit)
             {
+                this.encodeRecordOffset = offset;
+                this.encodeRecordTimestamp = timestamp;
+                this.encodeRecordDeferred = deferred;
+                this.encodeRecordHeadersSizeMax = headersSizeMax;
+                this.encodeRecordKeyValue = key;
+
                 final KafkaDataExFW kafkaDataEx = kafkaDataExRW.wrap(extBuffer, 0, extBuffer.capacity())
                         .typeId(kafkaTypeId)
-                        .fetch(f -> f.deferred(deferred)
-                                     .timestamp(timestamp)
-                                     .headersSizeMax(headersSizeMax)
-                                     .partition(p -> p.partitionId(decodePartitionId)
-                                                      .partitionOffset(offset)
-                                                      .latestOffset(latestOffset))
-                                     .key(k -> setKey(k, key)))
+                        .fetch(encodeRecordValueInit)
                         .build();
 
                 doApplicationData(traceId, authorization, FLAG_INIT, reserved, valueInit, kafkaDataEx);
@@ -2662,25 +2931,100 @@ public final class KafkaClientFetchFactory implements StreamFactory
             {
                 this.nextOffset = offset + 1;
 
+                topicCounters.fetchRecords.accept(1L);
+
+                this.encodeRecordOffset = offset;
+                this.encodeRecordHeaderCount = headerCount;
+                this.encodeRecordHeaders = headers;
+
                 final KafkaDataExFW kafkaDataEx = kafkaDataExRW.wrap(extBuffer, 0, extBuffer.capacity())
                         .typeId(kafkaTypeId)
-                        .fetch(f ->
-                        {
-                            f.partition(p -> p.partitionId(decodePartitionId).partitionOffset(offset).latestOffset(latestOffset));
-                            final int headersLimit = headers.capacity();
-                            int headerProgress = 0;
-                            for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
-                            {
-                                final MessageHeaderFW header = messageHeaderRO.wrap(headers, headerProgress, headersLimit);
-                                f.headersItem(i -> setHeader(i, header.key(), header.value()));
-                                headerProgress = header.limit();
-                            }
-                        })
+                        .fetch(encodeRecordValueFin)
                         .build();
 
                 doApplicationData(traceId, authorization, FLAG_FIN, reserved, value, kafkaDataEx);
             }
 
+            private void doEncodeRecord(
+                KafkaFetchDataExFW.Builder builder)
+            {
+                builder.timestamp(encodeRecordTimestamp)
+                       .partition(encodeRecordPartition)
+                       .key(encodeRecordKey);
+                doEncodeRecordHeaders(builder);
+            }
+
+            private void doEncodeRecordValueInit(
+                KafkaFetchDataExFW.Builder builder)
+            {
+                builder.deferred(encodeRecordDeferred)
+                       .timestamp(encodeRecordTimestamp)
+                       .headersSizeMax(encodeRecordHeadersSizeMax)
+                       .partition(encodeRecordPartition)
+                       .key(encodeRecordKey);
+            }
+
+            private void doEncodeRecordValueFin(
+                KafkaFetchDataExFW.Builder builder)
+            {
+                builder.partition(encodeRecordPartition);
+                doEncodeRecordHeaders(builder);
+            }
+
+            private void doEncodeRecordPartition(
+                KafkaOffsetFW.Builder builder)
+            {
+                builder.partitionId(decodePartitionId)
+                       .partitionOffset(encodeRecordOffset)
+                       .latestOffset(latestOffset);
+            }
+
+            private void doEncodeRecordKey(
+                KafkaKeyFW.Builder builder)
+            {
+                setKey(builder, encodeRecordKeyValue);
+            }
+
+            private void doEncodeRecordHeaders(
+                KafkaFetchDataExFW.Builder builder)
+            {
+                final DirectBuffer headers = encodeRecordHeaders;
+                final int headersLimit = headers.capacity();
+                int headerProgress = 0;
+                for (int headerIndex = 0; headerIndex < encodeRecordHeaderCount; headerIndex++)
+                {
+                    encodeRecordHeaderValue = messageHeaderRO.wrap(headers, headerProgress, headersLimit);
+                    builder.headersItem(encodeRecordHeader);
+                    headerProgress = encodeRecordHeaderValue.limit();
+                }
+                encodeRecordHeaderValue = null;
+            }
+
+            private void doEncodeRecordHeader(
+                KafkaHeaderFW.Builder builder)
+            {
+                setHeader(builder, encodeRecordHeaderValue.key(), encodeRecordHeaderValue.value());
+            }
+
+            private void onDecodeFetchResponse(
+                long traceId)
+            {
+                topicCounters.fetchBytes.accept(decodeFetchResponseBytes);
+
+                final long elapsedNanos = nanoTime() - fetchRequestedAt[nextResponseId & FETCH_REQUESTS_IN_FLIGHT_MASK];
+                fetchRtt.record(NANOSECONDS.toMicros(elapsedNanos));
+
+                if (controller != null)
+                {
+                    final long elapsedMillis = NANOSECONDS.toMillis(elapsedNanos);
+                    final int backlogBytes = decodeSlot != NO_SLOT ? decodeSlotOffset : 0;
+
+                    controller.onFetchResponse(decodeFetchResponseBytes, elapsedMillis, stream.replyBudget, backlogBytes);
+                }
+
+                onDecodeResponse(traceId);
+            }
+
             private void onDecodeResponse(
                 long traceId)
             {
@@ -2688,7 +3032,10 @@ public final class KafkaClientFetchFactory implements StreamFactory
 
                 if (clientRoute.partitions.get(partitionId) == leaderId)
                 {
-                    signaler.signalNow(routeId, initialId, SIGNAL_NEXT_REQUEST);
+                    final int signalId = preferredAffinity != affinity && nextRequestId == nextResponseId
+                            ? SIGNAL_SWITCH_REPLICA
+                            : SIGNAL_NEXT_REQUEST;
+                    signaler.signalNow(routeId, initialId, signalId);
                 }
                 else
                 {
@@ -2802,4 +3149,10 @@ public final class KafkaClientFetchFactory implements StreamFactory
         // sixth lowest bit indicates whether the RecordBatch includes a control message
         return (attributes & 0x20) != 0;
     }
+
+    private static byte[] rackId(
+        String rack)
+    {
+        return rack != null && !rack.isEmpty() ? rack.getBytes(UTF_8) : null;
+    }
 }
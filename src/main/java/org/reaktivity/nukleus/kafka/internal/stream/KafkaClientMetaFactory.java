@@ -16,10 +16,14 @@
 package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
 
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.LongFunction;
 import java.util.function.LongSupplier;
@@ -72,6 +76,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
     private static final int ERROR_NONE = 0;
 
     private static final int SIGNAL_NEXT_REQUEST = 1;
+    private static final int SIGNAL_SHARED_POLL = 2;
 
     private static final DirectBuffer EMPTY_BUFFER = new UnsafeBuffer();
     private static final OctetsFW EMPTY_OCTETS = new OctetsFW().wrap(EMPTY_BUFFER, 0, 0);
@@ -106,6 +111,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
 
     private final RequestHeaderFW.Builder requestHeaderRW = new RequestHeaderFW.Builder();
     private final MetadataRequestFW.Builder metadataRequestRW = new MetadataRequestFW.Builder();
+    private final String16FW.Builder topicNameRW = new String16FW.Builder(ByteOrder.BIG_ENDIAN);
 
     private final ResponseHeaderFW responseHeaderRO = new ResponseHeaderFW();
     private final MetadataResponseFW metadataResponseRO = new MetadataResponseFW();
@@ -127,6 +133,9 @@ public final class KafkaClientMetaFactory implements StreamFactory
     private final MessageFunction<RouteFW> wrapRoute = (t, b, i, l) -> routeRO.wrap(b, i, i + l);
 
     private final long maxAgeMillis;
+    private final boolean adminBatch;
+    private final boolean metaShared;
+    private final long metaSharedPollMillis;
     private final int kafkaTypeId;
     private final RouteManager router;
     private final MutableDirectBuffer writeBuffer;
@@ -137,7 +146,10 @@ public final class KafkaClientMetaFactory implements StreamFactory
     private final LongUnaryOperator supplyInitialId;
     private final LongUnaryOperator supplyReplyId;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
+    private final LongFunction<MessageConsumer> supplyNetwork;
     private final LongFunction<KafkaClientRoute> supplyClientRoute;
+    private final Long2ObjectHashMap<KafkaMetaGroup> groups;
+    private final List<String> encodeTopics;
 
     public KafkaClientMetaFactory(
         KafkaConfiguration config,
@@ -151,9 +163,13 @@ public final class KafkaClientMetaFactory implements StreamFactory
         ToIntFunction<String> supplyTypeId,
         LongFunction<BudgetDebitor> supplyDebitor,
         Long2ObjectHashMap<MessageConsumer> correlations,
+        LongFunction<MessageConsumer> supplyNetwork,
         LongFunction<KafkaClientRoute> supplyClientRoute)
     {
         this.maxAgeMillis = Math.min(config.clientMetaMaxAgeMillis(), config.clientMaxIdleMillis() >> 1);
+        this.adminBatch = config.clientAdminBatch();
+        this.metaShared = config.clientMetaShared();
+        this.metaSharedPollMillis = config.clientMetaSharedPollMillis();
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.router = router;
         this.signaler = signaler;
@@ -164,7 +180,10 @@ public final class KafkaClientMetaFactory implements StreamFactory
         this.supplyInitialId = supplyInitialId;
         this.supplyReplyId = supplyReplyId;
         this.correlations = correlations;
+        this.supplyNetwork = supplyNetwork;
         this.supplyClientRoute = supplyClientRoute;
+        this.groups = new Long2ObjectHashMap<>();
+        this.encodeTopics = new ArrayList<>();
     }
 
     @Override
@@ -237,6 +256,25 @@ public final class KafkaClientMetaFactory implements StreamFactory
         return newStream;
     }
 
+    private KafkaMetaGroup supplyGroup(
+        long resolvedId,
+        long affinity)
+    {
+        KafkaMetaGroup group = null;
+
+        if (adminBatch)
+        {
+            group = groups.computeIfAbsent(resolvedId, id -> new KafkaMetaGroup(id, affinity));
+
+            if (group.affinity != affinity)
+            {
+                group = null;
+            }
+        }
+
+        return group;
+    }
+
     private MessageConsumer newNetworkStream(
         BeginFW begin,
         MessageConsumer network)
@@ -575,7 +613,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
             client.decodeableTopics = cluster.topicCount();
             client.decoder = decodeTopics;
 
-            assert client.decodeableTopics == 1;
+            assert client.decodeableTopics == 1 || client.group != null;
         }
 
         return progress;
@@ -723,8 +761,12 @@ public final class KafkaClientMetaFactory implements StreamFactory
         private final long affinity;
         private final KafkaMetaClient client;
         private final KafkaClientRoute clientRoute;
+        private final KafkaClientMetadata metadata;
 
         private int state;
+        private boolean leader;
+        private long metadataVersion;
+        private long pollAt = NO_CANCEL_ID;
 
         private long replyBudgetId;
         private int replyBudget;
@@ -745,6 +787,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
             this.affinity = affinity;
             this.client = new KafkaMetaClient(resolvedId, topic);
             this.clientRoute = supplyClientRoute.apply(resolvedId);
+            this.metadata = metaShared ? clientRoute.supplyMetadata(topic) : null;
         }
 
         private void onApplication(
@@ -783,6 +826,10 @@ public final class KafkaClientMetaFactory implements StreamFactory
                 final ResetFW reset = resetRO.wrap(buffer, index, index + length);
                 onApplicationReset(reset);
                 break;
+            case SignalFW.TYPE_ID:
+                final SignalFW signal = signalRO.wrap(buffer, index, index + length);
+                onApplicationSignal(signal);
+                break;
             default:
                 break;
             }
@@ -796,8 +843,104 @@ public final class KafkaClientMetaFactory implements StreamFactory
 
             state = KafkaState.openingInitial(state);
             clientRoute.metaInitialId = initialId;
+            client.authorization = authorization;
+
+            if (metadata == null || metadata.acquire(client))
+            {
+                doClientBegin(traceId, authorization);
+            }
+            else
+            {
+                doSharedRead(traceId);
+            }
 
-            client.doNetworkBegin(traceId, authorization, affinity);
+            doSharedPollIfNecessary();
+        }
+
+        private void doClientBegin(
+            long traceId,
+            long authorization)
+        {
+            leader = metadata != null;
+
+            final KafkaMetaGroup group = supplyGroup(client.routeId, affinity);
+            if (group != null)
+            {
+                group.join(traceId, authorization, client);
+            }
+            else
+            {
+                client.doNetworkBegin(traceId, authorization, affinity);
+            }
+        }
+
+        private void onApplicationSignal(
+            SignalFW signal)
+        {
+            final long traceId = signal.traceId();
+            final int signalId = signal.signalId();
+
+            if (signalId == SIGNAL_SHARED_POLL)
+            {
+                pollAt = NO_CANCEL_ID;
+
+                if (!KafkaState.initialClosed(state))
+                {
+                    if (leader)
+                    {
+                        if (metadata.consumeRefresh())
+                        {
+                            final KafkaMetaClient carrier = client.group != null ? client.group.carrier : client;
+                            carrier.doEncodeRequestIfNecessary(traceId);
+                        }
+                    }
+                    else if (metadata.acquire(client))
+                    {
+                        doClientBegin(traceId, client.authorization);
+                    }
+                    else
+                    {
+                        doSharedRead(traceId);
+                    }
+
+                    doSharedPollIfNecessary();
+                }
+            }
+        }
+
+        private void doSharedRead(
+            long traceId)
+        {
+            final long newVersion = metadata.read(metadataVersion, clientRoute.brokers, client.newPartitions);
+
+            if (newVersion != metadataVersion)
+            {
+                metadataVersion = newVersion;
+                client.onDecodeMemberResponse(traceId);
+            }
+        }
+
+        private void doSharedPollIfNecessary()
+        {
+            if (metadata != null && pollAt == NO_CANCEL_ID && !KafkaState.initialClosed(state))
+            {
+                pollAt = signaler.signalAt(currentTimeMillis() + metaSharedPollMillis, routeId, initialId, SIGNAL_SHARED_POLL);
+            }
+        }
+
+        private void cleanupShared()
+        {
+            if (pollAt != NO_CANCEL_ID)
+            {
+                signaler.cancel(pollAt);
+                pollAt = NO_CANCEL_ID;
+            }
+
+            if (leader)
+            {
+                leader = false;
+                metadata.release(client);
+            }
         }
 
         private void onApplicationData(
@@ -816,8 +959,14 @@ public final class KafkaClientMetaFactory implements StreamFactory
 
             state = KafkaState.closedInitial(state);
             clientRoute.metaInitialId = 0L;
+            cleanupShared();
+
+            if (client.isCarrier())
+            {
+                client.doNetworkEnd(traceId, authorization);
+            }
 
-            client.doNetworkEnd(traceId, authorization);
+            client.leaveGroupIfNecessary(traceId);
         }
 
         private void onApplicationAbort(
@@ -827,8 +976,14 @@ public final class KafkaClientMetaFactory implements StreamFactory
 
             state = KafkaState.closedInitial(state);
             clientRoute.metaInitialId = 0L;
+            cleanupShared();
 
-            client.doNetworkAbortIfNecessary(traceId);
+            if (client.isCarrier())
+            {
+                client.doNetworkAbortIfNecessary(traceId);
+            }
+
+            client.leaveGroupIfNecessary(traceId);
         }
 
         private void onApplicationFlush(
@@ -836,7 +991,16 @@ public final class KafkaClientMetaFactory implements StreamFactory
         {
             final long traceId = flush.traceId();
 
-            client.doEncodeRequestIfNecessary(traceId);
+            if (metadata != null && !leader)
+            {
+                metadata.requestRefresh();
+                doSharedRead(traceId);
+            }
+            else
+            {
+                final KafkaMetaClient carrier = client.group != null ? client.group.carrier : client;
+                carrier.doEncodeRequestIfNecessary(traceId);
+            }
         }
 
         private void onApplicationWindow(
@@ -857,8 +1021,19 @@ public final class KafkaClientMetaFactory implements StreamFactory
             final long traceId = reset.traceId();
 
             state = KafkaState.closedInitial(state);
+            cleanupShared();
 
-            client.doNetworkResetIfNecessary(traceId);
+            if (client.isCarrier())
+            {
+                client.doNetworkResetIfNecessary(traceId);
+
+                if (client.group != null)
+                {
+                    client.doNetworkAbortIfNecessary(traceId);
+                }
+            }
+
+            client.leaveGroupIfNecessary(traceId);
         }
 
         private void doApplicationBeginIfNecessary(
@@ -966,6 +1141,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
             long traceId,
             Flyweight extension)
         {
+            cleanupShared();
             doApplicationResetIfNecessary(traceId, extension);
             doApplicationAbortIfNecessary(traceId);
         }
@@ -1007,6 +1183,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
             private int decodeableTopics;
             private int decodeablePartitions;
             private Int2IntHashMap partitions;
+            private KafkaMetaGroup group;
 
             KafkaMetaClient(
                 long routeId,
@@ -1015,7 +1192,7 @@ public final class KafkaClientMetaFactory implements StreamFactory
                 this.routeId = routeId;
                 this.initialId = supplyInitialId.applyAsLong(routeId);
                 this.replyId = supplyReplyId.applyAsLong(initialId);
-                this.network = router.supplyReceiver(initialId);
+                this.network = supplyNetwork.apply(initialId);
                 this.decoder = decodeResponse;
                 this.topic = requireNonNull(topic);
                 this.partitions = new Int2IntHashMap(-1);
@@ -1130,6 +1307,11 @@ public final class KafkaClientMetaFactory implements StreamFactory
                 cancelNextRequestSignal();
 
                 doApplicationEnd(traceId);
+
+                if (group != null)
+                {
+                    group.dissolve(traceId);
+                }
             }
 
             private void onNetworkAbort(
@@ -1311,13 +1493,37 @@ public final class KafkaClientMetaFactory implements StreamFactory
 
                 encodeProgress = requestHeader.limit();
 
+                final List<String> topics = group != null ? group.supplyTopics() : null;
+                final int topicCount = topics != null ? topics.size() : 1;
+
                 final MetadataRequestFW metadataRequest = metadataRequestRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
-                        .topicCount(1)
-                        .topicName(topic)
+                        .topicCount(topicCount)
+                        .topicName(topics != null ? topics.get(0) : topic)
                         .build();
 
                 encodeProgress = metadataRequest.limit();
 
+                if (topicCount > 1)
+                {
+                    final int trailerOffset = metadataRequest.topicName().limit();
+                    final int trailerSize = encodeProgress - trailerOffset;
+                    extBuffer.putBytes(0, encodeBuffer, trailerOffset, trailerSize);
+
+                    encodeProgress = trailerOffset;
+
+                    for (int index = 1; index < topicCount; index++)
+                    {
+                        final String16FW topicName = topicNameRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
+                                .set(topics.get(index), UTF_8)
+                                .build();
+
+                        encodeProgress = topicName.limit();
+                    }
+
+                    encodeBuffer.putBytes(encodeProgress, extBuffer, 0, trailerSize);
+                    encodeProgress += trailerSize;
+                }
+
                 final int requestId = nextRequestId++;
                 final int requestSize = encodeProgress - encodeOffset - RequestHeaderFW.FIELD_OFFSET_API_KEY;
 
@@ -1471,6 +1677,22 @@ public final class KafkaClientMetaFactory implements StreamFactory
                 long authorization,
                 int errorCode,
                 String topic)
+            {
+                if (group != null)
+                {
+                    group.onDecodeTopic(traceId, authorization, errorCode, topic);
+                }
+                else
+                {
+                    onDecodeMemberTopic(traceId, authorization, errorCode, topic);
+                }
+            }
+
+            private void onDecodeMemberTopic(
+                long traceId,
+                long authorization,
+                int errorCode,
+                String topic)
             {
                 switch (errorCode)
                 {
@@ -1484,7 +1706,10 @@ public final class KafkaClientMetaFactory implements StreamFactory
                                                                  .error(errorCode)
                                                                  .build();
                     cleanupApplication(traceId, resetEx);
-                    doNetworkEnd(traceId, authorization);
+                    if (group == null)
+                    {
+                        doNetworkEnd(traceId, authorization);
+                    }
                     break;
                 }
             }
@@ -1494,6 +1719,22 @@ public final class KafkaClientMetaFactory implements StreamFactory
                 int partitionId,
                 int leaderId,
                 int partitionError)
+            {
+                if (group != null)
+                {
+                    group.onDecodePartition(traceId, partitionId, leaderId, partitionError);
+                }
+                else
+                {
+                    onDecodeMemberPartition(traceId, partitionId, leaderId, partitionError);
+                }
+            }
+
+            private void onDecodeMemberPartition(
+                long traceId,
+                int partitionId,
+                int leaderId,
+                int partitionError)
             {
                 if (partitionError == ERROR_NONE)
                 {
@@ -1504,6 +1745,27 @@ public final class KafkaClientMetaFactory implements StreamFactory
             private void onDecodeResponse(
                 long traceId)
             {
+                nextResponseId++;
+
+                if (group != null)
+                {
+                    group.onDecodeResponse(traceId, this);
+                }
+                else
+                {
+                    onDecodeMemberResponse(traceId);
+                    doScheduleNextRequest();
+                }
+            }
+
+            private void onDecodeMemberResponse(
+                long traceId)
+            {
+                if (leader)
+                {
+                    metadata.publish(clientRoute.brokers, newPartitions);
+                }
+
                 doApplicationWindow(traceId, 0L, 0, 0);
                 doApplicationBeginIfNecessary(traceId, authorization, topic);
 
@@ -1527,20 +1789,57 @@ public final class KafkaClientMetaFactory implements StreamFactory
 
                     doApplicationData(traceId, authorization, kafkaDataEx);
                 }
+            }
 
-                nextResponseId++;
+            private void doScheduleNextRequest()
+            {
                 nextRequestAt = signaler.signalAt(currentTimeMillis() + maxAgeMillis, routeId, initialId, SIGNAL_NEXT_REQUEST);
             }
 
+            private boolean isCarrier()
+            {
+                return group != null ? group.carrier == this : KafkaState.initialOpening(state);
+            }
+
+            private void leaveGroupIfNecessary(
+                long traceId)
+            {
+                if (group != null)
+                {
+                    group.leave(traceId, this);
+                }
+            }
+
+            private void cleanupMember(
+                long traceId)
+            {
+                cleanupApplication(traceId, EMPTY_OCTETS);
+            }
+
             private void cleanupNetwork(
                 long traceId)
             {
-                cancelNextRequestSignal();
+                if (isCarrier())
+                {
+                    cancelNextRequestSignal();
 
-                doNetworkResetIfNecessary(traceId);
-                doNetworkAbortIfNecessary(traceId);
+                    doNetworkResetIfNecessary(traceId);
+                    doNetworkAbortIfNecessary(traceId);
+                }
 
                 cleanupApplication(traceId, EMPTY_OCTETS);
+
+                if (group != null)
+                {
+                    if (group.carrier == this)
+                    {
+                        group.dissolve(traceId);
+                    }
+                    else
+                    {
+                        group.leave(traceId, this);
+                    }
+                }
             }
 
             private void cleanupDecodeSlotIfNecessary()
@@ -1566,4 +1865,201 @@ public final class KafkaClientMetaFactory implements StreamFactory
             }
         }
     }
+
+    private final class KafkaMetaGroup
+    {
+        private final long resolvedId;
+        private final long affinity;
+        private final List<KafkaMetaStream.KafkaMetaClient> members;
+        private final List<KafkaMetaStream.KafkaMetaClient> decodeMembers;
+        private final List<KafkaMetaStream.KafkaMetaClient> responseMembers;
+        private final List<KafkaMetaStream.KafkaMetaClient> failedMembers;
+
+        private KafkaMetaStream.KafkaMetaClient carrier;
+        private boolean refresh;
+
+        KafkaMetaGroup(
+            long resolvedId,
+            long affinity)
+        {
+            this.resolvedId = resolvedId;
+            this.affinity = affinity;
+            this.members = new ArrayList<>();
+            this.decodeMembers = new ArrayList<>();
+            this.responseMembers = new ArrayList<>();
+            this.failedMembers = new ArrayList<>();
+        }
+
+        private void join(
+            long traceId,
+            long authorization,
+            KafkaMetaStream.KafkaMetaClient member)
+        {
+            member.group = this;
+            member.authorization = authorization;
+            members.add(member);
+
+            if (carrier == null)
+            {
+                carrier = member;
+                carrier.doNetworkBegin(traceId, authorization, affinity);
+            }
+            else if (carrier.nextRequestId == carrier.nextResponseId)
+            {
+                carrier.doEncodeRequest(traceId, carrier.initialBudgetId);
+            }
+            else
+            {
+                refresh = true;
+            }
+        }
+
+        private void leave(
+            long traceId,
+            KafkaMetaStream.KafkaMetaClient member)
+        {
+            members.remove(member);
+            decodeMembers.remove(member);
+            responseMembers.remove(member);
+            member.group = null;
+
+            if (members.isEmpty())
+            {
+                carrier = null;
+                groups.remove(resolvedId);
+            }
+            else if (carrier == member)
+            {
+                carrier = members.get(0);
+                refresh = false;
+                carrier.doNetworkBegin(traceId, carrier.authorization, affinity);
+            }
+        }
+
+        private void dissolve(
+            long traceId)
+        {
+            final KafkaMetaStream.KafkaMetaClient carrier = this.carrier;
+
+            while (!members.isEmpty())
+            {
+                final KafkaMetaStream.KafkaMetaClient member = members.remove(members.size() - 1);
+                member.group = null;
+
+                if (member != carrier)
+                {
+                    member.cleanupMember(traceId);
+                }
+            }
+
+            decodeMembers.clear();
+            responseMembers.clear();
+            failedMembers.clear();
+
+            this.carrier = null;
+            groups.remove(resolvedId);
+        }
+
+        private List<String> supplyTopics()
+        {
+            encodeTopics.clear();
+
+            for (int index = 0; index < members.size(); index++)
+            {
+                final String topic = members.get(index).topic;
+                if (!encodeTopics.contains(topic))
+                {
+                    encodeTopics.add(topic);
+                }
+            }
+
+            return encodeTopics;
+        }
+
+        private void onDecodeTopic(
+            long traceId,
+            long authorization,
+            int errorCode,
+            String topic)
+        {
+            decodeMembers.clear();
+
+            for (int index = 0; index < members.size(); index++)
+            {
+                final KafkaMetaStream.KafkaMetaClient member = members.get(index);
+                if (member.topic.equals(topic))
+                {
+                    decodeMembers.add(member);
+                }
+            }
+
+            for (int index = 0; index < decodeMembers.size(); index++)
+            {
+                final KafkaMetaStream.KafkaMetaClient member = decodeMembers.get(index);
+                member.authorization = authorization;
+                member.onDecodeMemberTopic(traceId, authorization, errorCode, topic);
+
+                if (errorCode == ERROR_NONE)
+                {
+                    responseMembers.add(member);
+                }
+                else
+                {
+                    failedMembers.add(member);
+                }
+            }
+        }
+
+        private void onDecodePartition(
+            long traceId,
+            int partitionId,
+            int leaderId,
+            int partitionError)
+        {
+            for (int index = 0; index < decodeMembers.size(); index++)
+            {
+                final KafkaMetaStream.KafkaMetaClient member = decodeMembers.get(index);
+                member.onDecodeMemberPartition(traceId, partitionId, leaderId, partitionError);
+            }
+        }
+
+        private void onDecodeResponse(
+            long traceId,
+            KafkaMetaStream.KafkaMetaClient responder)
+        {
+            for (int index = 0; index < responseMembers.size(); index++)
+            {
+                final KafkaMetaStream.KafkaMetaClient member = responseMembers.get(index);
+                member.onDecodeMemberResponse(traceId);
+            }
+
+            decodeMembers.clear();
+            responseMembers.clear();
+
+            for (int index = 0; index < failedMembers.size(); index++)
+            {
+                final KafkaMetaStream.KafkaMetaClient member = failedMembers.get(index);
+                if (member == carrier)
+                {
+                    member.doNetworkEnd(traceId, member.authorization);
+                }
+                leave(traceId, member);
+            }
+
+            failedMembers.clear();
+
+            if (carrier == responder)
+            {
+                if (refresh)
+                {
+                    refresh = false;
+                    responder.doEncodeRequestIfNecessary(traceId);
+                }
+                else
+                {
+                    responder.doScheduleNextRequest();
+                }
+            }
+        }
+    }
 }
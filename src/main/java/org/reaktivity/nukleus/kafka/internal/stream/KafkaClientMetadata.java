@@ -0,0 +1,158 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.agrona.collections.Int2IntHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+
+public final class KafkaClientMetadata
+{
+    private static final KafkaBrokerInfo[] EMPTY_BROKERS = new KafkaBrokerInfo[0];
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private final AtomicReference<Object> owner;
+    private final AtomicBoolean refresh;
+
+    private volatile Snapshot snapshot;
+
+    public KafkaClientMetadata()
+    {
+        this.owner = new AtomicReference<>();
+        this.refresh = new AtomicBoolean();
+        this.snapshot = new Snapshot(0L, EMPTY_BROKERS, EMPTY_INTS, EMPTY_INTS);
+    }
+
+    public boolean acquire(
+        Object candidate)
+    {
+        return owner.get() == candidate || owner.compareAndSet(null, candidate);
+    }
+
+    public void release(
+        Object candidate)
+    {
+        owner.compareAndSet(candidate, null);
+    }
+
+    public void requestRefresh()
+    {
+        refresh.lazySet(true);
+    }
+
+    public boolean consumeRefresh()
+    {
+        return refresh.get() && refresh.getAndSet(false);
+    }
+
+    public long version()
+    {
+        return snapshot.version;
+    }
+
+    void publish(
+        Long2ObjectHashMap<KafkaBrokerInfo> brokers,
+        Int2IntHashMap partitions)
+    {
+        final Snapshot current = snapshot;
+
+        final KafkaBrokerInfo[] newBrokers = brokers.values().toArray(EMPTY_BROKERS);
+        Arrays.sort(newBrokers, (b1, b2) -> Integer.compare(b1.brokerId, b2.brokerId));
+
+        final int[] newPartitionIds = new int[partitions.size()];
+        final int[] newLeaderIds = new int[partitions.size()];
+        final int[] sortedIds = partitions.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int index = 0; index < sortedIds.length; index++)
+        {
+            newPartitionIds[index] = sortedIds[index];
+            newLeaderIds[index] = partitions.get(sortedIds[index]);
+        }
+
+        if (!current.matches(newBrokers, newPartitionIds, newLeaderIds))
+        {
+            snapshot = new Snapshot(current.version + 1, newBrokers, newPartitionIds, newLeaderIds);
+        }
+    }
+
+    long read(
+        long version,
+        Long2ObjectHashMap<KafkaBrokerInfo> brokers,
+        Int2IntHashMap partitions)
+    {
+        final Snapshot current = snapshot;
+
+        if (current.version != version)
+        {
+            brokers.clear();
+            for (KafkaBrokerInfo broker : current.brokers)
+            {
+                brokers.put(broker.brokerId, broker);
+            }
+
+            partitions.clear();
+            for (int index = 0; index < current.partitionIds.length; index++)
+            {
+                partitions.put(current.partitionIds[index], current.leaderIds[index]);
+            }
+        }
+
+        return current.version;
+    }
+
+    private static final class Snapshot
+    {
+        private final long version;
+        private final KafkaBrokerInfo[] brokers;
+        private final int[] partitionIds;
+        private final int[] leaderIds;
+
+        private Snapshot(
+            long version,
+            KafkaBrokerInfo[] brokers,
+            int[] partitionIds,
+            int[] leaderIds)
+        {
+            this.version = version;
+            this.brokers = brokers;
+            this.partitionIds = partitionIds;
+            this.leaderIds = leaderIds;
+        }
+
+        private boolean matches(
+            KafkaBrokerInfo[] brokers,
+            int[] partitionIds,
+            int[] leaderIds)
+        {
+            boolean matches = Arrays.equals(partitionIds, this.partitionIds) &&
+                    Arrays.equals(leaderIds, this.leaderIds) &&
+                    brokers.length == this.brokers.length;
+
+            for (int index = 0; matches && index < brokers.length; index++)
+            {
+                final KafkaBrokerInfo broker = brokers[index];
+                final KafkaBrokerInfo existing = this.brokers[index];
+                matches = broker.brokerId == existing.brokerId &&
+                        broker.port == existing.port &&
+                        broker.host.equals(existing.host);
+            }
+
+            return matches;
+        }
+    }
+}
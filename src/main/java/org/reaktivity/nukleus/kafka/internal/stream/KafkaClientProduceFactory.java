@@ -112,9 +112,17 @@ public final class KafkaClientProduceFactory implements StreamFactory
     private static final int RECORD_LENGTH_MAX = 5; // varint32(max_value)
 
     private static final int ERROR_NONE = 0;
+    private static final int ERROR_DUPLICATE_SEQUENCE_NUMBER = 46;
 
     private static final int SIGNAL_NEXT_REQUEST = 1;
 
+    private static final int PRODUCE_MAX_IN_FLIGHT_IDEMPOTENT = 5; // broker caches last 5 batches per producer
+
+    private static final int PRODUCER_ID_NONE = 0;
+    private static final int PRODUCER_ID_UNRESOLVED = 1;
+    private static final int PRODUCER_ID_RESOLVING = 2;
+    private static final int PRODUCER_ID_RESOLVED = 3;
+
     private static final DirectBuffer EMPTY_BUFFER = new UnsafeBuffer();
     private static final OctetsFW EMPTY_OCTETS = new OctetsFW().wrap(EMPTY_BUFFER, 0, 0);
     private static final Consumer<OctetsFW.Builder> EMPTY_EXTENSION = ex -> {};
@@ -126,6 +134,20 @@ public final class KafkaClientProduceFactory implements StreamFactory
     private static final short PRODUCE_API_KEY = 0;
     private static final short PRODUCE_API_VERSION = 3;
 
+    private static final short INIT_PRODUCER_ID_API_KEY = 22;
+    private static final short INIT_PRODUCER_ID_API_VERSION = 0;
+    private static final int INIT_PRODUCER_ID_TRANSACTION_TIMEOUT_MILLIS = 60000;
+    private static final int INIT_PRODUCER_ID_REQUEST_SIZE = Short.BYTES + Integer.BYTES;
+    private static final int INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_THROTTLE_TIME = Integer.BYTES;
+    private static final int INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_ERROR_CODE =
+            INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_THROTTLE_TIME + Integer.BYTES;
+    private static final int INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_PRODUCER_ID =
+            INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_ERROR_CODE + Short.BYTES;
+    private static final int INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_PRODUCER_EPOCH =
+            INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_PRODUCER_ID + Long.BYTES;
+    private static final int INIT_PRODUCER_ID_RESPONSE_SIZE =
+            INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_PRODUCER_EPOCH + Short.BYTES;
+
     private final RouteFW routeRO = new RouteFW();
     private final KafkaRouteExFW kafkaRouteExRO = new KafkaRouteExFW();
 
@@ -170,6 +192,8 @@ public final class KafkaClientProduceFactory implements StreamFactory
     private final KafkaProduceClientEncoder encodeRecordInit = this::encodeRecordInit;
     private final KafkaProduceClientEncoder encodeRecordContFin = this::encodeRecordContFin;
 
+    private final KafkaProduceClientDecoder decodeInitProducerIdResponse = this::decodeInitProducerIdResponse;
+    private final KafkaProduceClientDecoder decodeInitProducerId = this::decodeInitProducerId;
     private final KafkaProduceClientDecoder decodeProduceResponse = this::decodeProduceResponse;
     private final KafkaProduceClientDecoder decodeProduce = this::decodeProduce;
     private final KafkaProduceClientDecoder decodeProduceTopics = this::decodeProduceTopics;
@@ -183,6 +207,8 @@ public final class KafkaClientProduceFactory implements StreamFactory
     private final int produceMaxWaitMillis;
     private final long produceRequestMaxDelay;
     private final ProduceAck produceAcks;
+    private final boolean produceIdempotence;
+    private final int produceMaxInFlight;
     private final int kafkaTypeId;
     private final int tcpTypeId;
     private final RouteManager router;
@@ -194,7 +220,9 @@ public final class KafkaClientProduceFactory implements StreamFactory
     private final LongUnaryOperator supplyInitialId;
     private final LongUnaryOperator supplyReplyId;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
+    private final LongFunction<MessageConsumer> supplyNetwork;
     private final LongFunction<KafkaClientRoute> supplyClientRoute;
+    private final KafkaCounters counters;
     private final int decodeMaxBytes;
     private final int encodeMaxBytes;
     private final CRC32C crc32c;
@@ -210,11 +238,17 @@ public final class KafkaClientProduceFactory implements StreamFactory
         LongSupplier supplyTraceId,
         ToIntFunction<String> supplyTypeId,
         Long2ObjectHashMap<MessageConsumer> correlations,
-        LongFunction<KafkaClientRoute> supplyClientRoute)
+        LongFunction<MessageConsumer> supplyNetwork,
+        LongFunction<KafkaClientRoute> supplyClientRoute,
+        KafkaCounters counters)
     {
         this.produceMaxWaitMillis = config.clientProduceMaxResponseMillis();
         this.produceRequestMaxDelay = config.clientProduceMaxRequestMillis();
         this.produceAcks = ProduceAck.valueOf(config.clientProduceAcks());
+        this.produceIdempotence = config.clientProduceIdempotence() && produceAcks == ProduceAck.IN_SYNC_REPLICAS;
+        this.produceMaxInFlight = produceIdempotence
+                ? Math.min(Math.max(config.clientProduceMaxInFlight(), 1), PRODUCE_MAX_IN_FLIGHT_IDEMPOTENT)
+                : 1;
         this.kafkaTypeId = supplyTypeId.applyAsInt(KafkaNukleus.NAME);
         this.tcpTypeId = supplyTypeId.applyAsInt("tcp");
         this.router = router;
@@ -226,7 +260,9 @@ public final class KafkaClientProduceFactory implements StreamFactory
         this.supplyInitialId = supplyInitialId;
         this.supplyReplyId = supplyReplyId;
         this.correlations = correlations;
+        this.supplyNetwork = supplyNetwork;
         this.supplyClientRoute = supplyClientRoute;
+        this.counters = counters;
         this.decodeMaxBytes = decodePool.slotCapacity();
         this.encodeMaxBytes = Math.min(config.clientProduceMaxBytes(),
                 encodePool.slotCapacity() - PRODUCE_REQUEST_RECORDS_OFFSET_MAX);
@@ -566,6 +602,69 @@ public final class KafkaClientProduceFactory implements StreamFactory
             int limit);
     }
 
+    private int decodeInitProducerIdResponse(
+        KafkaProduceClient client,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int reserved,
+        DirectBuffer buffer,
+        int offset,
+        int progress,
+        int limit)
+    {
+        final int length = limit - progress;
+
+        if (length != 0)
+        {
+            final ResponseHeaderFW responseHeader = responseHeaderRO.tryWrap(buffer, progress, limit);
+            if (responseHeader != null)
+            {
+                progress = responseHeader.limit();
+                client.decodableResponseBytes = responseHeader.length();
+                client.decoder = decodeInitProducerId;
+            }
+        }
+
+        return progress;
+    }
+
+    private int decodeInitProducerId(
+        KafkaProduceClient client,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int reserved,
+        DirectBuffer buffer,
+        int offset,
+        int progress,
+        int limit)
+    {
+        final int length = limit - progress;
+
+        if (length >= INIT_PRODUCER_ID_RESPONSE_SIZE)
+        {
+            final int errorCodeAt = progress + INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_ERROR_CODE;
+            final int producerIdAt = progress + INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_PRODUCER_ID;
+            final int producerEpochAt = progress + INIT_PRODUCER_ID_RESPONSE_FIELD_OFFSET_PRODUCER_EPOCH;
+
+            final short errorCode = buffer.getShort(errorCodeAt, BIG_ENDIAN);
+            final long producerId = buffer.getLong(producerIdAt, BIG_ENDIAN);
+            final short producerEpoch = buffer.getShort(producerEpochAt, BIG_ENDIAN);
+
+            progress += INIT_PRODUCER_ID_RESPONSE_SIZE;
+
+            client.decodableResponseBytes -= INIT_PRODUCER_ID_RESPONSE_SIZE;
+            assert client.decodableResponseBytes == 0;
+
+            client.decoder = decodeProduceResponse;
+
+            client.onDecodeInitProducerId(traceId, errorCode, producerId, producerEpoch);
+        }
+
+        return progress;
+    }
+
     private int decodeProduceResponse(
         KafkaProduceClient client,
         long traceId,
@@ -1063,6 +1162,7 @@ public final class KafkaClientProduceFactory implements StreamFactory
         private final String topic;
         private final int partitionId;
         private final KafkaClientRoute clientRoute;
+        private final KafkaTopicCounters topicCounters;
 
         private int state;
         private int encodeFlags;
@@ -1100,6 +1200,12 @@ public final class KafkaClientProduceFactory implements StreamFactory
         private int nextRequestId;
         private int nextResponseId;
 
+        private long producerId;
+        private short producerEpoch;
+        private int producerSequence;
+        private int producerState;
+        private int requestsInFlightMax;
+
         private KafkaProduceClientDecoder decoder;
         private KafkaProduceClientEncoder encoder;
         private int signaledRequestId;
@@ -1114,12 +1220,18 @@ public final class KafkaClientProduceFactory implements StreamFactory
             this.routeId = routeId;
             this.initialId = supplyInitialId.applyAsLong(routeId);
             this.replyId = supplyReplyId.applyAsLong(initialId);
-            this.network = router.supplyReceiver(initialId);
+            this.network = supplyNetwork.apply(initialId);
             this.topic = requireNonNull(topic);
             this.partitionId = partitionId;
-            this.decoder = decodeProduceResponse;
+            this.producerId = RECORD_BATCH_PRODUCER_ID_NONE;
+            this.producerEpoch = RECORD_BATCH_PRODUCER_EPOCH_NONE;
+            this.producerSequence = RECORD_BATCH_SEQUENCE_NONE;
+            this.producerState = produceIdempotence ? PRODUCER_ID_UNRESOLVED : PRODUCER_ID_NONE;
+            this.requestsInFlightMax = 1;
+            this.decoder = produceIdempotence ? decodeInitProducerIdResponse : decodeProduceResponse;
             this.encoder = encodeRecord;
             this.clientRoute = supplyClientRoute.apply(routeId);
+            this.topicCounters = counters.supplyTopicCounters(routeId, topic);
             this.encodeableRecordBatchTimestamp = TIMESTAMP_NONE;
             this.encodeableRecordBatchTimestampMax = TIMESTAMP_NONE;
         }
@@ -1281,6 +1393,11 @@ public final class KafkaClientProduceFactory implements StreamFactory
 
             state = KafkaState.openedInitial(state);
 
+            if (producerState == PRODUCER_ID_UNRESOLVED)
+            {
+                doEncodeInitProducerIdRequest(window.traceId());
+            }
+
             if (encodeSlot != NO_SLOT)
             {
                 final MutableDirectBuffer buffer = encodePool.buffer(encodeSlot);
@@ -1599,7 +1716,9 @@ public final class KafkaClientProduceFactory implements StreamFactory
             long traceId)
         {
             if (signaledRequestId <= nextRequestId &&
-                nextRequestId == nextResponseId &&
+                nextRequestId - nextResponseId < requestsInFlightMax &&
+                producerState != PRODUCER_ID_UNRESOLVED &&
+                producerState != PRODUCER_ID_RESOLVING &&
                 encodeSlot != NO_SLOT)
             {
                 if (produceRequestMaxDelay == 0)
@@ -1617,12 +1736,66 @@ public final class KafkaClientProduceFactory implements StreamFactory
         private void doEncodeRequestIfNecessary(
             long traceId)
         {
-            if (nextRequestId == nextResponseId && encodeSlot != NO_SLOT)
+            if (nextRequestId - nextResponseId < requestsInFlightMax &&
+                encodeableRequestBytes == 0 &&
+                producerState != PRODUCER_ID_UNRESOLVED &&
+                producerState != PRODUCER_ID_RESOLVING &&
+                encodeSlot != NO_SLOT)
             {
                 doEncodeProduceRequest(traceId);
             }
         }
 
+        private void doEncodeInitProducerIdRequest(
+            long traceId)
+        {
+            final MutableDirectBuffer encodeBuffer = writeBuffer;
+            final int encodeOffset = DataFW.FIELD_OFFSET_PAYLOAD;
+            final int encodeLimit = encodeBuffer.capacity();
+
+            int encodeProgress = encodeOffset;
+
+            final RequestHeaderFW requestHeader = requestHeaderRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
+                    .length(0)
+                    .apiKey(INIT_PRODUCER_ID_API_KEY)
+                    .apiVersion(INIT_PRODUCER_ID_API_VERSION)
+                    .correlationId(0)
+                    .clientId(CLIENT_ID_NONE)
+                    .build();
+
+            encodeProgress = requestHeader.limit();
+
+            encodeBuffer.putShort(encodeProgress, (short) -1, BIG_ENDIAN);
+            encodeBuffer.putInt(encodeProgress + Short.BYTES, INIT_PRODUCER_ID_TRANSACTION_TIMEOUT_MILLIS, BIG_ENDIAN);
+            encodeProgress += INIT_PRODUCER_ID_REQUEST_SIZE;
+
+            final int encodeSizeOf = encodeProgress - encodeOffset;
+            final int requestSize = encodeSizeOf - FIELD_OFFSET_API_KEY;
+            final int reserved = encodeSizeOf + initialPadding;
+
+            if (initialBudget >= reserved)
+            {
+                requestHeaderRW.wrap(encodeBuffer, requestHeader.offset(), requestHeader.limit())
+                        .length(requestSize)
+                        .apiKey(requestHeader.apiKey())
+                        .apiVersion(requestHeader.apiVersion())
+                        .correlationId(0)
+                        .clientId(requestHeader.clientId().asString())
+                        .build();
+
+                if (KafkaConfiguration.DEBUG)
+                {
+                    System.out.format("[client] %s[%d] INIT_PRODUCER_ID\n", topic, partitionId);
+                }
+
+                initialBudget -= reserved;
+                producerState = PRODUCER_ID_RESOLVING;
+
+                doData(network, routeId, initialId, traceId, authorization, initialBudgetId,
+                       reserved, encodeBuffer, encodeOffset, encodeSizeOf, EMPTY_OCTETS);
+            }
+        }
+
         private void doEncodeProduceRequest(
             long traceId)
         {
@@ -1672,25 +1845,7 @@ public final class KafkaClientProduceFactory implements StreamFactory
             final int crcOffset = encodeProgress - encodeOffset + RecordBatchFW.FIELD_OFFSET_CRC;
             final int crcLimit = encodeProgress - encodeOffset + RecordBatchFW.FIELD_OFFSET_ATTRIBUTES;
 
-            final short attributes = encodeableRecordBatchTimestampMax == 0L
-                    ? RECORD_BATCH_ATTRIBUTES_NO_TIMESTAMP
-                    : RECORD_BATCH_ATTRIBUTES_NONE;
-
-            final RecordBatchFW recordBatch = recordBatchRW.wrap(encodeBuffer, encodeProgress, encodeLimit)
-                    .baseOffset(0)
-                    .length(recordBatchLength)
-                    .leaderEpoch(-1)
-                    .magic(RECORD_BATCH_MAGIC)
-                    .crc(0)
-                    .attributes(attributes)
-                    .lastOffsetDelta(encodeableRecordCount - 1)
-                    .firstTimestamp(encodeableRecordBatchTimestamp)
-                    .maxTimestamp(encodeableRecordBatchTimestampMax)
-                    .producerId(RECORD_BATCH_PRODUCER_ID_NONE)
-                    .producerEpoch(RECORD_BATCH_PRODUCER_EPOCH_NONE)
-                    .baseSequence(RECORD_BATCH_SEQUENCE_NONE)
-                    .recordCount(encodeableRecordCount)
-                    .build();
+            final RecordBatchFW recordBatch = doEncodeRecordBatch(encodeBuffer, encodeProgress, encodeLimit, recordBatchLength);
 
             encodeProgress = recordBatch.limit();
 
@@ -1713,6 +1868,10 @@ public final class KafkaClientProduceFactory implements StreamFactory
                 System.out.format("[client] %s[%d] PRODUCE\n", topic, partitionId);
             }
 
+            topicCounters.produceRequests.accept(1L);
+            topicCounters.produceRecords.accept(encodeableRecordCount);
+            topicCounters.produceBytes.accept(encodeableRecordBytes);
+
             assert encodeableRequestBytes == 0;
             encodeableRequestBytes = encodeSizeOf + encodeableRecordBytes;
             encodeableRecordCount = 0;
@@ -1744,6 +1903,40 @@ public final class KafkaClientProduceFactory implements StreamFactory
             doNetworkData(traceId, EMPTY_BUFFER, 0, 0);
         }
 
+        private RecordBatchFW doEncodeRecordBatch(
+            MutableDirectBuffer encodeBuffer,
+            int encodeOffset,
+            int encodeLimit,
+            int recordBatchLength)
+        {
+            final short attributes = encodeableRecordBatchTimestampMax == 0L
+                    ? RECORD_BATCH_ATTRIBUTES_NO_TIMESTAMP
+                    : RECORD_BATCH_ATTRIBUTES_NONE;
+
+            final RecordBatchFW recordBatch = recordBatchRW.wrap(encodeBuffer, encodeOffset, encodeLimit)
+                    .baseOffset(0)
+                    .length(recordBatchLength)
+                    .leaderEpoch(-1)
+                    .magic(RECORD_BATCH_MAGIC)
+                    .crc(0)
+                    .attributes(attributes)
+                    .lastOffsetDelta(encodeableRecordCount - 1)
+                    .firstTimestamp(encodeableRecordBatchTimestamp)
+                    .maxTimestamp(encodeableRecordBatchTimestampMax)
+                    .producerId(producerId)
+                    .producerEpoch(producerEpoch)
+                    .baseSequence(producerSequence)
+                    .recordCount(encodeableRecordCount)
+                    .build();
+
+            if (producerState == PRODUCER_ID_RESOLVED)
+            {
+                producerSequence = (producerSequence + encodeableRecordCount) & Integer.MAX_VALUE;
+            }
+
+            return recordBatch;
+        }
+
         private long computeChecksum(
             MutableDirectBuffer encodeBuffer,
             int encodeLimit,
@@ -1855,6 +2048,14 @@ public final class KafkaClientProduceFactory implements StreamFactory
             else
             {
                 stream.doApplicationWindowIfNecessary(traceId, encodeMaxBytes - encodeSlotLimit - encodeableRecordHeadersBytes);
+
+                if (length > 0 &&
+                    encodeableRequestBytes == 0 &&
+                    nextRequestId - nextResponseId < requestsInFlightMax &&
+                    encodeSlot != NO_SLOT)
+                {
+                    signaler.signalNow(routeId, initialId, SIGNAL_NEXT_REQUEST);
+                }
             }
         }
 
@@ -1921,9 +2122,15 @@ public final class KafkaClientProduceFactory implements StreamFactory
             int errorCode,
             int partitionId)
         {
+            if (errorCode != ERROR_NONE)
+            {
+                topicCounters.onError(errorCode);
+            }
+
             switch (errorCode)
             {
             case ERROR_NONE:
+            case ERROR_DUPLICATE_SEQUENCE_NUMBER:
                 assert partitionId == this.partitionId;
                 break;
             default:
@@ -1937,6 +2144,33 @@ public final class KafkaClientProduceFactory implements StreamFactory
             }
         }
 
+        private void onDecodeInitProducerId(
+            long traceId,
+            int errorCode,
+            long producerId,
+            short producerEpoch)
+        {
+            if (errorCode == ERROR_NONE)
+            {
+                // note: new producer id per connection, so batches in flight when the connection was lost
+                //       are not deduplicated if the cache resends them after reconnect
+                this.producerId = producerId;
+                this.producerEpoch = producerEpoch;
+                this.producerSequence = 0;
+                this.producerState = PRODUCER_ID_RESOLVED;
+                this.requestsInFlightMax = produceMaxInFlight;
+            }
+            else
+            {
+                this.producerState = PRODUCER_ID_NONE;
+            }
+
+            if (encodeSlot != NO_SLOT)
+            {
+                signaler.signalNow(routeId, initialId, SIGNAL_NEXT_REQUEST);
+            }
+        }
+
         private void onDecodeResponse(
             long traceId)
         {
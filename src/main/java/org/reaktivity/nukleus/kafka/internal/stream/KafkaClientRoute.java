@@ -15,6 +15,8 @@
  */
 package org.reaktivity.nukleus.kafka.internal.stream;
 
+import java.util.function.Function;
+
 import org.agrona.collections.Int2IntHashMap;
 import org.agrona.collections.Long2ObjectHashMap;
 
@@ -26,11 +28,21 @@ public final class KafkaClientRoute
 
     public volatile long metaInitialId;
 
+    private final Function<String, KafkaClientMetadata> supplyMetadata;
+
     public KafkaClientRoute(
-        long routeId)
+        long routeId,
+        Function<String, KafkaClientMetadata> supplyMetadata)
     {
         this.routeId = routeId;
+        this.supplyMetadata = supplyMetadata;
         this.brokers = new Long2ObjectHashMap<>();
         this.partitions = new Int2IntHashMap(-1);
     }
+
+    public KafkaClientMetadata supplyMetadata(
+        String topic)
+    {
+        return supplyMetadata.apply(topic);
+    }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.Object2ObjectHashMap;
+
+public final class KafkaCounters
+{
+    private static final LongConsumer NO_ACCUMULATOR = v -> {};
+
+    private final String kind;
+    private final Function<String, LongConsumer> supplyAccumulator;
+    private final Long2ObjectHashMap<Object2ObjectHashMap<String, KafkaTopicCounters>> countersByRouteId;
+    private final Long2ObjectHashMap<Object2ObjectHashMap<String, KafkaLatencyHistogram>> histogramsByRouteId;
+    private final Long2ObjectHashMap<Object2ObjectHashMap<String, KafkaCachePartitionGauges>> gaugesByRouteId;
+
+    private int countersRemaining;
+
+    public KafkaCounters(
+        String kind,
+        int countersMax,
+        Function<String, LongConsumer> supplyAccumulator)
+    {
+        this.kind = kind;
+        this.countersRemaining = supplyAccumulator != null ? Math.max(countersMax, 0) : 0;
+        this.supplyAccumulator = supplyAccumulator != null ? supplyAccumulator : n -> NO_ACCUMULATOR;
+        this.countersByRouteId = new Long2ObjectHashMap<>();
+        this.histogramsByRouteId = new Long2ObjectHashMap<>();
+        this.gaugesByRouteId = new Long2ObjectHashMap<>();
+    }
+
+    public KafkaTopicCounters supplyTopicCounters(
+        long routeId,
+        String topic)
+    {
+        Object2ObjectHashMap<String, KafkaTopicCounters> countersByTopic = countersByRouteId.get(routeId);
+        if (countersByTopic == null)
+        {
+            countersByTopic = new Object2ObjectHashMap<>();
+            countersByRouteId.put(routeId, countersByTopic);
+        }
+
+        KafkaTopicCounters counters = countersByTopic.get(topic);
+        if (counters == null)
+        {
+            counters = new KafkaTopicCounters(this, routeId, topic);
+            countersByTopic.put(topic, counters);
+        }
+
+        return counters;
+    }
+
+    public KafkaLatencyHistogram supplyHistogram(
+        long routeId,
+        String name)
+    {
+        Object2ObjectHashMap<String, KafkaLatencyHistogram> histogramsByName = histogramsByRouteId.get(routeId);
+        if (histogramsByName == null)
+        {
+            histogramsByName = new Object2ObjectHashMap<>();
+            histogramsByRouteId.put(routeId, histogramsByName);
+        }
+
+        KafkaLatencyHistogram histogram = histogramsByName.get(name);
+        if (histogram == null)
+        {
+            histogram = newHistogram(routeId, name);
+            histogramsByName.put(name, histogram);
+        }
+
+        return histogram;
+    }
+
+    public KafkaCachePartitionGauges supplyPartitionGauges(
+        long routeId,
+        String topic,
+        int partitionId)
+    {
+        Object2ObjectHashMap<String, KafkaCachePartitionGauges> gaugesByPartition = gaugesByRouteId.get(routeId);
+        if (gaugesByPartition == null)
+        {
+            gaugesByPartition = new Object2ObjectHashMap<>();
+            gaugesByRouteId.put(routeId, gaugesByPartition);
+        }
+
+        final String partitionKey = String.format("%s.%d", topic, partitionId);
+        KafkaCachePartitionGauges gauges = gaugesByPartition.get(partitionKey);
+        if (gauges == null)
+        {
+            gauges = new KafkaCachePartitionGauges(this, routeId, topic, partitionId);
+            gaugesByPartition.put(partitionKey, gauges);
+        }
+
+        return gauges;
+    }
+
+    private KafkaLatencyHistogram newHistogram(
+        long routeId,
+        String name)
+    {
+        final boolean reserved = reserve(KafkaLatencyHistogram.COUNTERS);
+        final String prefix = String.format("%s.%d.%s", kind, routeId, name);
+
+        final LongConsumer[] buckets = new LongConsumer[KafkaLatencyHistogram.BUCKETS];
+        for (int index = 0; index < buckets.length; index++)
+        {
+            final String bucketName = String.format("%s.%s", prefix, KafkaLatencyHistogram.bucketName(index));
+            buckets[index] = reserved ? newAccumulator(bucketName) : NO_ACCUMULATOR;
+        }
+        final LongConsumer sum = reserved ? newAccumulator(String.format("%s.sum", prefix)) : NO_ACCUMULATOR;
+
+        return new KafkaLatencyHistogram(buckets, sum);
+    }
+
+    boolean reserve(
+        int count)
+    {
+        final boolean reserved = countersRemaining >= count;
+        if (reserved)
+        {
+            countersRemaining -= count;
+        }
+        return reserved;
+    }
+
+    LongConsumer supplyAccumulator(
+        long routeId,
+        String topic,
+        String name)
+    {
+        return newAccumulator(counterName(routeId, topic, name));
+    }
+
+    static LongConsumer noAccumulator()
+    {
+        return NO_ACCUMULATOR;
+    }
+
+    private LongConsumer newAccumulator(
+        String name)
+    {
+        final LongConsumer accumulator = supplyAccumulator.apply(name);
+        accumulator.accept(0L);
+        return accumulator;
+    }
+
+    private String counterName(
+        long routeId,
+        String topic,
+        String name)
+    {
+        return String.format("%s.%d.%s.%s", kind, routeId, topic, name);
+    }
+}
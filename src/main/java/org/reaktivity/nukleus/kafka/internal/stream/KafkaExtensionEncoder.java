@@ -0,0 +1,385 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.function.Consumer;
+
+import org.agrona.MutableDirectBuffer;
+import org.reaktivity.nukleus.kafka.internal.types.ArrayFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaType;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaTypeFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaHeaderFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaKeyFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaOffsetFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaDataExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaFetchDataExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaFetchFlushExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaFlushExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaProduceDataExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaProduceFlushExFW;
+
+final class KafkaExtensionEncoder
+{
+    private static final int SHAPE_FULL = 0;
+    private static final int SHAPE_INIT = 1;
+    private static final int SHAPE_FIN = 2;
+
+    private final KafkaDataExFW.Builder kafkaDataExRW = new KafkaDataExFW.Builder();
+    private final KafkaFlushExFW.Builder kafkaFlushExRW = new KafkaFlushExFW.Builder();
+
+    private final Consumer<KafkaFetchDataExFW.Builder> encodeFetchData = this::encodeFetchData;
+    private final Consumer<KafkaProduceDataExFW.Builder> encodeProduceData = this::encodeProduceData;
+    private final Consumer<KafkaFetchFlushExFW.Builder> encodeFetchFlush = this::encodeFetchFlush;
+    private final Consumer<KafkaProduceFlushExFW.Builder> encodeProduceFlush = this::encodeProduceFlush;
+    private final Consumer<KafkaOffsetFW.Builder> encodePartition = this::encodePartition;
+    private final Consumer<KafkaOffsetFW.Builder> encodeProducePartition = this::encodeProducePartition;
+    private final Consumer<KafkaKeyFW.Builder> encodeKey = this::encodeKey;
+    private final Consumer<KafkaDeltaFW.Builder> encodeDelta = this::encodeDelta;
+    private final Consumer<KafkaDeltaTypeFW.Builder> encodeDeltaType = this::encodeDeltaType;
+    private final Consumer<KafkaHeaderFW> encodeFetchHeader = this::encodeFetchHeader;
+    private final Consumer<KafkaHeaderFW> encodeProduceHeader = this::encodeProduceHeader;
+    private final Consumer<KafkaHeaderFW.Builder> encodeHeader = this::encodeHeader;
+
+    private final int kafkaTypeId;
+    private final MutableDirectBuffer buffer;
+
+    private int shape;
+    private int deferred;
+    private long timestamp;
+    private int partitionId;
+    private long partitionOffset;
+    private long latestOffset;
+    private int sequence;
+    private long checksum;
+    private KafkaKeyFW key;
+    private KafkaDeltaType deltaType;
+    private long ancestorOffset;
+    private ArrayFW<KafkaHeaderFW> headers;
+    private KafkaHeaderFW header;
+    private KafkaFetchDataExFW.Builder fetchDataEx;
+    private KafkaProduceDataExFW.Builder produceDataEx;
+
+    KafkaExtensionEncoder(
+        int kafkaTypeId,
+        MutableDirectBuffer buffer)
+    {
+        this.kafkaTypeId = kafkaTypeId;
+        this.buffer = buffer;
+    }
+
+    KafkaDataExFW fetchDataFull(
+        long timestamp,
+        int partitionId,
+        long partitionOffset,
+        long latestOffset,
+        KafkaKeyFW key,
+        KafkaDeltaType deltaType,
+        long ancestorOffset,
+        ArrayFW<KafkaHeaderFW> headers)
+    {
+        this.shape = SHAPE_FULL;
+        this.timestamp = timestamp;
+        this.partitionId = partitionId;
+        this.partitionOffset = partitionOffset;
+        this.latestOffset = latestOffset;
+        this.key = key;
+        this.deltaType = deltaType;
+        this.ancestorOffset = ancestorOffset;
+        this.headers = headers;
+
+        return encodeFetchDataEx();
+    }
+
+    KafkaDataExFW fetchDataInit(
+        int deferred,
+        long timestamp,
+        int partitionId,
+        long partitionOffset,
+        long latestOffset,
+        KafkaKeyFW key,
+        KafkaDeltaType deltaType,
+        long ancestorOffset)
+    {
+        this.shape = SHAPE_INIT;
+        this.deferred = deferred;
+        this.timestamp = timestamp;
+        this.partitionId = partitionId;
+        this.partitionOffset = partitionOffset;
+        this.latestOffset = latestOffset;
+        this.key = key;
+        this.deltaType = deltaType;
+        this.ancestorOffset = ancestorOffset;
+
+        return encodeFetchDataEx();
+    }
+
+    KafkaDataExFW fetchDataFin(
+        int partitionId,
+        long partitionOffset,
+        long latestOffset,
+        KafkaDeltaType deltaType,
+        long ancestorOffset,
+        ArrayFW<KafkaHeaderFW> headers)
+    {
+        this.shape = SHAPE_FIN;
+        this.partitionId = partitionId;
+        this.partitionOffset = partitionOffset;
+        this.latestOffset = latestOffset;
+        this.deltaType = deltaType;
+        this.ancestorOffset = ancestorOffset;
+        this.headers = headers;
+
+        return encodeFetchDataEx();
+    }
+
+    KafkaDataExFW produceDataFull(
+        long timestamp,
+        int sequence,
+        long checksum,
+        KafkaKeyFW key,
+        ArrayFW<KafkaHeaderFW> headers)
+    {
+        this.shape = SHAPE_FULL;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+        this.checksum = checksum;
+        this.key = key;
+        this.headers = headers;
+
+        return encodeProduceDataEx();
+    }
+
+    KafkaDataExFW produceDataInit(
+        int deferred,
+        long timestamp,
+        int sequence,
+        long checksum,
+        KafkaKeyFW key,
+        ArrayFW<KafkaHeaderFW> headers)
+    {
+        this.shape = SHAPE_INIT;
+        this.deferred = deferred;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+        this.checksum = checksum;
+        this.key = key;
+        this.headers = headers;
+
+        return encodeProduceDataEx();
+    }
+
+    KafkaDataExFW produceDataFin(
+        ArrayFW<KafkaHeaderFW> headers)
+    {
+        this.shape = SHAPE_FIN;
+        this.headers = headers;
+
+        return encodeProduceDataEx();
+    }
+
+    KafkaFlushExFW fetchFlush(
+        int partitionId,
+        long partitionOffset,
+        long latestOffset)
+    {
+        this.partitionId = partitionId;
+        this.partitionOffset = partitionOffset;
+        this.latestOffset = latestOffset;
+
+        final KafkaFlushExFW flushEx = kafkaFlushExRW.wrap(buffer, 0, buffer.capacity())
+                .typeId(kafkaTypeId)
+                .fetch(encodeFetchFlush)
+                .build();
+
+        return flushEx;
+    }
+
+    KafkaFlushExFW produceFlush(
+        int partitionId,
+        long partitionOffset)
+    {
+        this.partitionId = partitionId;
+        this.partitionOffset = partitionOffset;
+
+        final KafkaFlushExFW flushEx = kafkaFlushExRW.wrap(buffer, 0, buffer.capacity())
+                .typeId(kafkaTypeId)
+                .produce(encodeProduceFlush)
+                .build();
+
+        return flushEx;
+    }
+
+    private KafkaDataExFW encodeFetchDataEx()
+    {
+        final KafkaDataExFW dataEx = kafkaDataExRW.wrap(buffer, 0, buffer.capacity())
+                .typeId(kafkaTypeId)
+                .fetch(encodeFetchData)
+                .build();
+
+        reset();
+
+        return dataEx;
+    }
+
+    private KafkaDataExFW encodeProduceDataEx()
+    {
+        final KafkaDataExFW dataEx = kafkaDataExRW.wrap(buffer, 0, buffer.capacity())
+                .typeId(kafkaTypeId)
+                .produce(encodeProduceData)
+                .build();
+
+        reset();
+
+        return dataEx;
+    }
+
+    private void reset()
+    {
+        this.key = null;
+        this.headers = null;
+        this.header = null;
+        this.fetchDataEx = null;
+        this.produceDataEx = null;
+    }
+
+    private void encodeFetchData(
+        KafkaFetchDataExFW.Builder builder)
+    {
+        switch (shape)
+        {
+        case SHAPE_FULL:
+            builder.timestamp(timestamp)
+                   .partition(encodePartition)
+                   .key(encodeKey)
+                   .delta(encodeDelta);
+            fetchDataEx = builder;
+            headers.forEach(encodeFetchHeader);
+            break;
+        case SHAPE_INIT:
+            builder.deferred(deferred)
+                   .timestamp(timestamp)
+                   .partition(encodePartition)
+                   .key(encodeKey)
+                   .delta(encodeDelta);
+            break;
+        case SHAPE_FIN:
+            builder.partition(encodePartition)
+                   .delta(encodeDelta);
+            fetchDataEx = builder;
+            headers.forEach(encodeFetchHeader);
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void encodeProduceData(
+        KafkaProduceDataExFW.Builder builder)
+    {
+        switch (shape)
+        {
+        case SHAPE_FULL:
+            builder.timestamp(timestamp)
+                   .sequence(sequence)
+                   .crc32c(checksum)
+                   .key(encodeKey);
+            break;
+        case SHAPE_INIT:
+            builder.deferred(deferred)
+                   .timestamp(timestamp)
+                   .sequence(sequence)
+                   .crc32c(checksum)
+                   .key(encodeKey);
+            break;
+        default:
+            break;
+        }
+
+        produceDataEx = builder;
+        headers.forEach(encodeProduceHeader);
+    }
+
+    private void encodeFetchFlush(
+        KafkaFetchFlushExFW.Builder builder)
+    {
+        builder.partition(encodePartition);
+    }
+
+    private void encodeProduceFlush(
+        KafkaProduceFlushExFW.Builder builder)
+    {
+        builder.partition(encodeProducePartition);
+    }
+
+    private void encodePartition(
+        KafkaOffsetFW.Builder builder)
+    {
+        builder.partitionId(partitionId)
+               .partitionOffset(partitionOffset)
+               .latestOffset(latestOffset);
+    }
+
+    private void encodeProducePartition(
+        KafkaOffsetFW.Builder builder)
+    {
+        builder.partitionId(partitionId)
+               .partitionOffset(partitionOffset);
+    }
+
+    private void encodeKey(
+        KafkaKeyFW.Builder builder)
+    {
+        builder.length(key.length())
+               .value(key.value());
+    }
+
+    private void encodeDelta(
+        KafkaDeltaFW.Builder builder)
+    {
+        builder.type(encodeDeltaType)
+               .ancestorOffset(ancestorOffset);
+    }
+
+    private void encodeDeltaType(
+        KafkaDeltaTypeFW.Builder builder)
+    {
+        builder.set(deltaType);
+    }
+
+    private void encodeFetchHeader(
+        KafkaHeaderFW header)
+    {
+        this.header = header;
+        fetchDataEx.headersItem(encodeHeader);
+    }
+
+    private void encodeProduceHeader(
+        KafkaHeaderFW header)
+    {
+        this.header = header;
+        produceDataEx.headersItem(encodeHeader);
+    }
+
+    private void encodeHeader(
+        KafkaHeaderFW.Builder builder)
+    {
+        builder.nameLen(header.nameLen())
+               .name(header.name())
+               .valueLen(header.valueLen())
+               .value(header.value());
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.function.LongConsumer;
+
+public final class KafkaLatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 1;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAJOR_BUCKETS = 24;
+
+    static final int BUCKETS = MAJOR_BUCKETS * SUB_BUCKETS + 1;
+    static final int COUNTERS = BUCKETS + 1;
+
+    private final LongConsumer[] buckets;
+    private final LongConsumer sum;
+
+    KafkaLatencyHistogram(
+        LongConsumer[] buckets,
+        LongConsumer sum)
+    {
+        assert buckets.length == BUCKETS;
+        this.buckets = buckets;
+        this.sum = sum;
+    }
+
+    public void record(
+        long value)
+    {
+        final long recorded = Math.max(value, 0L);
+        buckets[bucket(recorded)].accept(1L);
+        sum.accept(recorded);
+    }
+
+    static int bucket(
+        long value)
+    {
+        // log-linear, power-of-two majors each split into linear sub-buckets, upper bound inclusive
+        final long excess = Math.max(value, 1L) - 1L;
+
+        int bucket;
+        if (excess < SUB_BUCKETS)
+        {
+            bucket = (int) excess;
+        }
+        else
+        {
+            final int major = Long.SIZE - 1 - Long.numberOfLeadingZeros(excess);
+            final int sub = (int) (excess >>> (major - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            bucket = (major - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    static long bucketBound(
+        int index)
+    {
+        assert index < BUCKETS - 1;
+
+        long bound;
+        if (index < SUB_BUCKETS)
+        {
+            bound = index + 1;
+        }
+        else
+        {
+            final int major = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            final int sub = index % SUB_BUCKETS;
+            bound = (long) (SUB_BUCKETS + sub + 1) << (major - SUB_BUCKET_BITS);
+        }
+
+        return bound;
+    }
+
+    static String bucketName(
+        int index)
+    {
+        return index < BUCKETS - 1 ? String.format("le.%d", bucketBound(index)) : "le.inf";
+    }
+}
@@ -102,6 +102,7 @@ public final class KafkaMergedFactory implements StreamFactory
     private static final String16FW CONFIG_NAME_MAX_COMPACTION_LAG_MILLIS = new String16FW("max.compaction.lag.ms");
     private static final String16FW CONFIG_NAME_MIN_CLEANABLE_DIRTY_RATIO = new String16FW("min.cleanable.dirty.ratio");
 
+    private static final int ERROR_LEADER_NOT_AVAILABLE = 5;
     private static final int ERROR_NOT_LEADER_FOR_PARTITION = 6;
     private static final int ERROR_UNKNOWN = -1;
 
@@ -158,6 +159,7 @@ public final class KafkaMergedFactory implements StreamFactory
     private final LongUnaryOperator supplyReplyId;
     private final Long2ObjectHashMap<MessageConsumer> correlations;
     private final MergedBudgetCreditor creditor;
+    private final int produceStickyBytes;
 
     public KafkaMergedFactory(
         KafkaConfiguration config,
@@ -178,6 +180,7 @@ public final class KafkaMergedFactory implements StreamFactory
         this.supplyReplyId = supplyReplyId;
         this.correlations = correlations;
         this.creditor = creditor;
+        this.produceStickyBytes = config.clientProduceStickyBytes();
     }
 
     @Override
@@ -896,6 +899,7 @@ public final class KafkaMergedFactory implements StreamFactory
         private final Long2LongHashMap nextOffsetsById;
         private final long defaultOffset;
         private final KafkaDeltaType deltaType;
+        private final KafkaStickyPartitioner stickyPartitioner;
 
         private KafkaOffsetType maximumOffset;
         private List<KafkaMergedFilter> filters;
@@ -910,11 +914,11 @@ public final class KafkaMergedFactory implements StreamFactory
         private int replyPadding;
         private int replyMinimum;
 
-        private int nextNullKeyHash;
         private int fetchStreamIndex;
         private long mergedReplyBudgetId = NO_CREDITOR_INDEX;
 
         private KafkaUnmergedProduceStream producer;
+        private boolean producerSticky;
 
         KafkaMergedStream(
             MessageConsumer sender,
@@ -947,6 +951,7 @@ public final class KafkaMergedFactory implements StreamFactory
             this.nextOffsetsById = initialOffsetsById;
             this.defaultOffset = defaultOffset;
             this.deltaType = deltaType;
+            this.stickyPartitioner = new KafkaStickyPartitioner(produceStickyBytes);
         }
 
         private void onMergedMessage(
@@ -1055,12 +1060,18 @@ public final class KafkaMergedFactory implements StreamFactory
                     final KafkaUnmergedProduceStream newProducer = findProducePartitionLeader(nextPartitionId);
                     assert newProducer != null; // TODO
                     this.producer = newProducer;
+                    this.producerSticky = produceStickyBytes != 0 && partitionId == DYNAMIC_PARTITION && key.length() == -1;
                 }
 
                 assert producer != null;
 
                 producer.doProduceInitialData(traceId, reserved, flags, budgetId, payload, extension);
 
+                if (producerSticky)
+                {
+                    stickyPartitioner.onMessageProduced(producer.partitionId, payload != null ? payload.sizeof() : 0);
+                }
+
                 if ((flags & FLAGS_FIN) != FLAGS_NONE)
                 {
                     this.producer = null;
@@ -1079,7 +1090,13 @@ public final class KafkaMergedFactory implements StreamFactory
             KafkaKeyFW key)
         {
             final int partitionCount = leadersByPartitionId.size();
-            final int keyHash = key.length() != -1 ? defaultKeyHash(key) : nextNullKeyHash++;
+
+            if (key.length() == -1)
+            {
+                return stickyPartitioner.nextPartition(partitionCount);
+            }
+
+            final int keyHash = defaultKeyHash(key);
             final int partitionId = partitionCount > 0 ? (0x7fff_ffff & keyHash) % partitionCount : 0;
 
             return partitionId;
@@ -1730,6 +1747,11 @@ public final class KafkaMergedFactory implements StreamFactory
             int partitionId,
             int error)
         {
+            if (error == ERROR_NOT_LEADER_FOR_PARTITION || error == ERROR_LEADER_NOT_AVAILABLE)
+            {
+                stickyPartitioner.onPartitionLeaderError(partitionId);
+            }
+
             if (error == ERROR_NOT_LEADER_FOR_PARTITION)
             {
                 final KafkaUnmergedProduceStream leader = findProducePartitionLeader(partitionId);
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+final class KafkaStickyPartitioner
+{
+    private static final int NO_PARTITION = -1;
+
+    private final int stickyBytesMax;
+
+    private int nextNullKeyHash;
+    private int partitionId;
+    private int stickyBytes;
+
+    KafkaStickyPartitioner(
+        int stickyBytesMax)
+    {
+        this.stickyBytesMax = stickyBytesMax;
+        this.partitionId = NO_PARTITION;
+    }
+
+    int nextPartition(
+        int partitionCount)
+    {
+        if (partitionId == NO_PARTITION ||
+            partitionId >= partitionCount ||
+            stickyBytes >= stickyBytesMax)
+        {
+            final int nullKeyHash = nextNullKeyHash++;
+            partitionId = partitionCount > 0 ? (0x7fff_ffff & nullKeyHash) % partitionCount : 0;
+            stickyBytes = 0;
+        }
+
+        return partitionId;
+    }
+
+    void onMessageProduced(
+        int partitionId,
+        int length)
+    {
+        if (partitionId == this.partitionId)
+        {
+            stickyBytes += length;
+        }
+    }
+
+    void onPartitionLeaderError(
+        int partitionId)
+    {
+        if (partitionId == this.partitionId)
+        {
+            this.partitionId = NO_PARTITION;
+        }
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.reaktivity.nukleus.kafka.internal.stream;
 
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
 import org.reaktivity.nukleus.route.AddressFactoryBuilder;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
 
@@ -24,4 +27,10 @@ public interface KafkaStreamFactoryBuilder extends StreamFactoryBuilder
     {
         return null;
     }
+
+    default KafkaStreamFactoryBuilder setAccumulatorSupplier(
+        Function<String, LongConsumer> supplyAccumulator)
+    {
+        return this;
+    }
 }
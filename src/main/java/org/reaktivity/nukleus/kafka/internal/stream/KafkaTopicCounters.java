@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import java.util.function.LongConsumer;
+
+import org.agrona.collections.Int2ObjectHashMap;
+
+public final class KafkaTopicCounters
+{
+    static final int COUNTERS = 6;
+
+    public final LongConsumer fetchRequests;
+    public final LongConsumer fetchRecords;
+    public final LongConsumer fetchBytes;
+    public final LongConsumer produceRequests;
+    public final LongConsumer produceRecords;
+    public final LongConsumer produceBytes;
+
+    private final KafkaCounters counters;
+    private final long routeId;
+    private final String topic;
+    private final Int2ObjectHashMap<LongConsumer> errorsByCode;
+
+    KafkaTopicCounters(
+        KafkaCounters counters,
+        long routeId,
+        String topic)
+    {
+        final boolean reserved = counters.reserve(COUNTERS);
+        this.counters = counters;
+        this.routeId = routeId;
+        this.topic = topic;
+        this.fetchRequests = supplyAccumulator(reserved, "fetch.requests");
+        this.fetchRecords = supplyAccumulator(reserved, "fetch.records");
+        this.fetchBytes = supplyAccumulator(reserved, "fetch.bytes");
+        this.produceRequests = supplyAccumulator(reserved, "produce.requests");
+        this.produceRecords = supplyAccumulator(reserved, "produce.records");
+        this.produceBytes = supplyAccumulator(reserved, "produce.bytes");
+        this.errorsByCode = new Int2ObjectHashMap<>();
+    }
+
+    public void onError(
+        int errorCode)
+    {
+        LongConsumer errors = errorsByCode.get(errorCode);
+        if (errors == null)
+        {
+            errors = supplyAccumulator(counters.reserve(1), String.format("errors.%d", errorCode));
+            errorsByCode.put(errorCode, errors);
+        }
+        errors.accept(1L);
+    }
+
+    private LongConsumer supplyAccumulator(
+        boolean reserved,
+        String name)
+    {
+        return reserved ? counters.supplyAccumulator(routeId, topic, name) : KafkaCounters.noAccumulator();
+    }
+}
@@ -15,13 +15,41 @@
  */
 package org.reaktivity.nukleus.kafka.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_DIRECTORIES;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_LEADER_FAILOVER;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_LEADER_FAILOVER_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_RECONNECT_DELAY;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_RECONNECT_DELAY_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_ADMIN_BATCH;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_ADMIN_BATCH_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_CONNECTION_POOL_SIZE;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_META_MAX_AGE_MILLIS;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_META_MAX_AGE_MILLIS_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_IDEMPOTENCE;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_STICKY_BYTES;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_RACK;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_RACK_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_COUNTERS_MAX;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_COUNTERS_MAX_NAME;
+import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_CACHE_DIRECTORY;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
 
 import org.junit.Test;
+import org.reaktivity.nukleus.Configuration;
 
 public class KafkaConfigurationTest
 {
@@ -30,5 +58,27 @@ public class KafkaConfigurationTest
     {
         assertEquals(KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS.name(), KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS_NAME);
         assertEquals(KAFKA_CACHE_SERVER_RECONNECT_DELAY.name(), KAFKA_CACHE_SERVER_RECONNECT_DELAY_NAME);
+        assertEquals(KAFKA_COUNTERS_MAX.name(), KAFKA_COUNTERS_MAX_NAME);
+        assertEquals(KAFKA_CLIENT_PRODUCE_IDEMPOTENCE.name(), KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME);
+        assertEquals(KAFKA_CLIENT_PRODUCE_STICKY_BYTES.name(), KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME);
+        assertEquals(KAFKA_CLIENT_CONNECTION_POOL_SIZE.name(), KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME);
+        assertEquals(KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES.name(), KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES_NAME);
+        assertEquals(KAFKA_CLIENT_ADMIN_BATCH.name(), KAFKA_CLIENT_ADMIN_BATCH_NAME);
+        assertEquals(KAFKA_CLIENT_META_MAX_AGE_MILLIS.name(), KAFKA_CLIENT_META_MAX_AGE_MILLIS_NAME);
+        assertEquals(KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS.name(), KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS_NAME);
+        assertEquals(KAFKA_CLIENT_RACK.name(), KAFKA_CLIENT_RACK_NAME);
+        assertEquals(KAFKA_CACHE_LEADER_FAILOVER.name(), KAFKA_CACHE_LEADER_FAILOVER_NAME);
+    }
+
+    @Test
+    public void shouldResolveRelativeCacheDirectories() throws Exception
+    {
+        final Properties properties = new Properties();
+        properties.setProperty(REAKTOR_CACHE_DIRECTORY.name(), "/var/cache/reaktor");
+        properties.setProperty(KAFKA_CACHE_DIRECTORIES.name(), "kafka1, /mnt/kafka2");
+        final KafkaConfiguration config = new KafkaConfiguration(new Configuration(properties));
+
+        assertArrayEquals(new Path[] { Paths.get("/var/cache/reaktor/kafka1"), Paths.get("/mnt/kafka2") },
+                config.cacheDirectories());
     }
 }
@@ -19,12 +19,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
-import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 import org.agrona.DirectBuffer;
-import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Rule;
 import org.junit.Test;
@@ -40,9 +38,9 @@ public class KafkaCacheFileTest
     {
         Path location = tempFolder.newFile().toPath();
         int capacity = 1024;
-        MutableDirectBuffer appendBuf = new UnsafeBuffer(ByteBuffer.allocate(1024));
+        int appendCapacity = 1024;
 
-        try (KafkaCacheFile file = new KafkaCacheFile(location, capacity, appendBuf))
+        try (KafkaCacheFile file = new KafkaCacheFile(location, capacity, appendCapacity))
         {
             file.appendBytes(new UnsafeBuffer("Hello, world".getBytes(UTF_8)));
         }
@@ -55,9 +53,9 @@ public class KafkaCacheFileTest
     {
         Path location = tempFolder.newFile().toPath();
         int capacity = 1024;
-        MutableDirectBuffer appendBuf = new UnsafeBuffer(ByteBuffer.allocate(1024));
+        int appendCapacity = 1024;
 
-        try (KafkaCacheFile file = new KafkaCacheFile(location, capacity, appendBuf))
+        try (KafkaCacheFile file = new KafkaCacheFile(location, capacity, appendCapacity))
         {
             file.appendBytes(new UnsafeBuffer("Hello, world".getBytes(UTF_8)));
             file.freeze();
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheHash.hash32;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheHash.xxhash64;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class KafkaCacheHashTest
+{
+    @Test
+    public void shouldHashEmpty()
+    {
+        DirectBuffer buffer = new UnsafeBuffer(new byte[0]);
+
+        assertEquals(0xEF46DB3751D8E999L, xxhash64(buffer, 0, 0, 0L));
+    }
+
+    @Test
+    public void shouldHashShort()
+    {
+        DirectBuffer buffer = new UnsafeBuffer("abc".getBytes(UTF_8));
+
+        assertEquals(0x44BC2CF5AD770999L, xxhash64(buffer, 0, buffer.capacity(), 0L));
+    }
+
+    @Test
+    public void shouldHashLong()
+    {
+        DirectBuffer buffer = new UnsafeBuffer("Nobody inspects the spammish repetition".getBytes(UTF_8));
+
+        assertEquals(0xFBCEA83C8A378BF1L, xxhash64(buffer, 0, buffer.capacity(), 0L));
+    }
+
+    @Test
+    public void shouldHashAtOffset()
+    {
+        DirectBuffer expected = new UnsafeBuffer("Nobody inspects the spammish repetition".getBytes(UTF_8));
+        DirectBuffer buffer = new UnsafeBuffer("...Nobody inspects the spammish repetition...".getBytes(UTF_8));
+
+        assertEquals(hash32(expected, 0, expected.capacity()), hash32(buffer, 3, expected.capacity()));
+    }
+}
@@ -99,6 +99,48 @@ public class KafkaCacheIndexFileTest
             assertEquals(1, cursorValue(last));
         }
 
+        @Test
+        public void shouldSeekFirstAndLastNotFound()
+        {
+            long first = indexFile.first(1024);
+            long last = indexFile.last(1024);
+
+            assertEquals(NEXT_SEGMENT_VALUE, cursorValue(first));
+            assertEquals(1024, cursorIndex(first));
+            assertEquals(NEXT_SEGMENT_VALUE, cursorValue(last));
+            assertEquals(-1, cursorIndex(last));
+        }
+
+        @Test
+        public void shouldSeekFirstAndLastAcrossFences() throws Exception
+        {
+            File tempFile = tempFolder.newFile();
+
+            int entries = 2048;
+            ByteBuffer indexEntryHolder = allocate(SIZEOF_INDEX_RECORD).order(nativeOrder());
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), CREATE, APPEND))
+            {
+                for (int index = 0; index < entries; index++)
+                {
+                    int indexKey = index < 100 ? 1 : index < 1900 ? 2 : 3;
+                    long indexEntry = indexEntry(indexKey, index);
+                    indexEntryHolder.clear();
+                    indexEntryHolder.putLong(indexEntry);
+                    indexEntryHolder.flip();
+                    channel.write(indexEntryHolder);
+                }
+            }
+
+            KafkaCacheIndexFile sortedFile = new KafkaCacheIndexFile.SortedByKey(tempFile.toPath());
+
+            assertEquals(100, cursorIndex(sortedFile.first(2)));
+            assertEquals(1899, cursorIndex(sortedFile.last(2)));
+            assertEquals(0, cursorIndex(sortedFile.first(1)));
+            assertEquals(99, cursorIndex(sortedFile.last(1)));
+            assertEquals(1900, cursorIndex(sortedFile.first(3)));
+            assertEquals(2047, cursorIndex(sortedFile.last(3)));
+        }
+
         @Test
         public void shouldResolve()
         {
@@ -18,9 +18,11 @@ package org.reaktivity.nukleus.kafka.internal.cache;
 import static java.lang.System.currentTimeMillis;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorRecord.cursorValue;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_BUFFER_SLOT_CAPACITY;
 
 import java.nio.ByteBuffer;
@@ -32,9 +34,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
+import org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheCursorFactory.KafkaCacheCursor;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition.Node;
 import org.reaktivity.nukleus.kafka.internal.types.Array32FW;
 import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaType;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaFilterFW;
 import org.reaktivity.nukleus.kafka.internal.types.KafkaHeaderFW;
 import org.reaktivity.nukleus.kafka.internal.types.KafkaKeyFW;
 import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
@@ -247,6 +251,269 @@ public class KafkaCachePartitionTest
             assertEquals("[KafkaCacheSegment] test[0] @ 15 +1", head15s.toString());
         }
 
+        @Test
+        public void shouldIndexSelectedHeadersOnly() throws Exception
+        {
+            Path location = tempFolder.newFolder().toPath();
+            KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
+            config.indexHeaders = new OctetsFW[] { new OctetsFW().wrap(new UnsafeBuffer("header".getBytes(UTF_8)), 0, 6) };
+
+            MutableDirectBuffer writeBuffer = new UnsafeBuffer(ByteBuffer.allocate(1024));
+
+            KafkaKeyFW key = new KafkaKeyFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                .length(4)
+                .value(k -> k.set("test".getBytes(UTF_8)))
+                .build();
+
+            Array32FW<KafkaHeaderFW> headers = new Array32FW.Builder<>(new KafkaHeaderFW.Builder(), new KafkaHeaderFW())
+                    .wrap(writeBuffer, key.limit(), writeBuffer.capacity())
+                    .item(h -> h.nameLen(6).name(n -> n.set("header".getBytes(UTF_8)))
+                                .valueLen(5).value(v -> v.set("value".getBytes(UTF_8))))
+                    .item(h -> h.nameLen(7).name(n -> n.set("ignored".getBytes(UTF_8)))
+                                .valueLen(5).value(v -> v.set("value".getBytes(UTF_8))))
+                    .build();
+
+            OctetsFW value = new OctetsFW.Builder()
+                    .wrap(writeBuffer, headers.limit(), writeBuffer.capacity())
+                    .set("value".getBytes(UTF_8))
+                    .build();
+
+            KafkaCachePartition partition = new KafkaCachePartition(location, config, "cache", "test", 0, 65536, long[]::new);
+            Node head10 = partition.append(10L);
+
+            partition.writeEntry(11L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+
+            assertEquals(2 * Long.BYTES, head10.segment().hashFile().capacity());
+        }
+
+        @Test
+        public void shouldFindAndMarkAncestorInCompressedSegment() throws Exception
+        {
+            Path location = tempFolder.newFolder().toPath();
+            KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
+            config.segmentCompression = true;
+
+            MutableDirectBuffer writeBuffer = new UnsafeBuffer(ByteBuffer.allocate(1024));
+
+            KafkaKeyFW key = new KafkaKeyFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                .length(4)
+                .value(k -> k.set("test".getBytes(UTF_8)))
+                .build();
+
+            Array32FW<KafkaHeaderFW> headers = new Array32FW.Builder<>(new KafkaHeaderFW.Builder(), new KafkaHeaderFW())
+                    .wrap(writeBuffer, key.limit(), writeBuffer.capacity())
+                    .build();
+
+            OctetsFW value = new OctetsFW.Builder()
+                    .wrap(writeBuffer, headers.limit(), writeBuffer.capacity())
+                    .set("value".getBytes(UTF_8))
+                    .build();
+
+            KafkaCacheEntryFW ancestorRO = new KafkaCacheEntryFW();
+
+            KafkaCachePartition partition = new KafkaCachePartition(location, config, "cache", "test", 0, 65536, long[]::new);
+            Node head10 = partition.append(10L);
+            int logCapacity = head10.segment().logFile().capacity();
+
+            partition.writeEntry(11L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+            partition.writeEntry(12L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+            logCapacity = head10.segment().logFile().capacity() - logCapacity;
+
+            Node head15 = partition.append(15L);
+            Node tail10 = head15.previous();
+            tail10.compressed().join();
+            partition.swapCompressed();
+
+            long keyHash = partition.computeKeyHash(key);
+            KafkaCacheEntryFW ancestor = tail10.findAndMarkAncestor(key, keyHash, 16L, ancestorRO);
+
+            assertNotNull(ancestor);
+            assertEquals(12L, ancestor.offset$());
+            assertEquals(logCapacity, tail10.segment().logFile().capacity());
+
+            KafkaCacheEntryFW marked = tail10.findAndMarkAncestor(key, keyHash, 17L, ancestorRO);
+
+            assertNotNull(marked);
+            assertEquals(12L, marked.offset$());
+            assertEquals(16L, marked.descendant());
+        }
+
+        @Test
+        public void shouldFindAndMarkDirtyInLaterCompressedBlock() throws Exception
+        {
+            Path location = tempFolder.newFolder().toPath();
+            KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
+            config.segmentCompression = true;
+            config.segmentCompressionBlockBytes = 1;
+
+            MutableDirectBuffer writeBuffer = new UnsafeBuffer(ByteBuffer.allocate(1024));
+
+            KafkaKeyFW key = new KafkaKeyFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                .length(4)
+                .value(k -> k.set("test".getBytes(UTF_8)))
+                .build();
+
+            Array32FW<KafkaHeaderFW> headers = new Array32FW.Builder<>(new KafkaHeaderFW.Builder(), new KafkaHeaderFW())
+                    .wrap(writeBuffer, key.limit(), writeBuffer.capacity())
+                    .build();
+
+            OctetsFW value = new OctetsFW.Builder()
+                    .wrap(writeBuffer, headers.limit(), writeBuffer.capacity())
+                    .set("value".getBytes(UTF_8))
+                    .build();
+
+            KafkaCacheEntryFW dirtyRO = new KafkaCacheEntryFW();
+            KafkaCacheEntryFW entryRO = new KafkaCacheEntryFW();
+
+            KafkaCachePartition partition = new KafkaCachePartition(location, config, "cache", "test", 0, 65536, long[]::new);
+            partition.append(10L);
+            partition.writeEntry(11L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+            partition.writeEntry(12L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+            partition.writeEntry(13L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+
+            Node head15 = partition.append(15L);
+            Node tail10 = head15.previous();
+            tail10.compressed().join();
+            partition.swapCompressed();
+
+            KafkaCacheSegment segment = tail10.segment();
+            int position13 = cursorValue(segment.indexFile().first(3));
+
+            assertNotEquals(0, position13);
+            assertEquals(0, segment.dirtyBytes());
+
+            KafkaCacheEntryFW dirty = tail10.findAndMarkDirty(dirtyRO, 13L);
+
+            assertNotNull(dirty);
+            assertEquals(13L, dirty.offset$());
+            assertEquals(dirty.sizeof(), segment.dirtyBytes());
+
+            KafkaCacheEntryFW entry11 = segment.logFile().readBytes(0, entryRO::wrap);
+            assertEquals(11L, entry11.offset$());
+            assertEquals(0, entry11.flags() & 0x01);
+
+            KafkaCacheEntryFW entry13 = segment.logFile().readBytes(position13, entryRO::wrap);
+            assertEquals(13L, entry13.offset$());
+            assertEquals(0x01, entry13.flags() & 0x01);
+        }
+
+        @Test
+        public void shouldRetainDirtyMarkedWhileCompressing() throws Exception
+        {
+            Path location = tempFolder.newFolder().toPath();
+            KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
+            config.segmentCompression = true;
+
+            MutableDirectBuffer writeBuffer = new UnsafeBuffer(ByteBuffer.allocate(1024));
+
+            KafkaKeyFW key = new KafkaKeyFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                .length(4)
+                .value(k -> k.set("test".getBytes(UTF_8)))
+                .build();
+
+            Array32FW<KafkaHeaderFW> headers = new Array32FW.Builder<>(new KafkaHeaderFW.Builder(), new KafkaHeaderFW())
+                    .wrap(writeBuffer, key.limit(), writeBuffer.capacity())
+                    .build();
+
+            OctetsFW value = new OctetsFW.Builder()
+                    .wrap(writeBuffer, headers.limit(), writeBuffer.capacity())
+                    .set("value".getBytes(UTF_8))
+                    .build();
+
+            KafkaCacheEntryFW dirtyRO = new KafkaCacheEntryFW();
+            KafkaCacheEntryFW entryRO = new KafkaCacheEntryFW();
+
+            KafkaCachePartition partition = new KafkaCachePartition(location, config, "cache", "test", 0, 65536, long[]::new);
+            partition.append(10L);
+            partition.writeEntry(11L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+            partition.writeEntry(12L, 0L, key, headers, value, null, KafkaDeltaType.NONE);
+
+            Node head15 = partition.append(15L);
+            Node tail10 = head15.previous();
+
+            assertSame(KafkaCacheFile.Log.class, tail10.segment().logFile().getClass());
+
+            KafkaCacheEntryFW dirty = tail10.findAndMarkDirty(dirtyRO, 11L);
+            assertNotNull(dirty);
+            int dirtyBytes = dirty.sizeof();
+
+            tail10.compressed().join();
+            partition.swapCompressed();
+
+            KafkaCacheSegment segment = tail10.segment();
+            assertSame(KafkaCacheFile.CompressedLog.class, segment.logFile().getClass());
+            assertEquals(dirtyBytes, segment.dirtyBytes());
+
+            KafkaCacheEntryFW entry11 = segment.logFile().readBytes(0, entryRO::wrap);
+            assertEquals(11L, entry11.offset$());
+            assertEquals(0x01, entry11.flags() & 0x01);
+        }
+
+        @Test
+        public void shouldSkipNotKeyInLaterCompressedBlock() throws Exception
+        {
+            Path location = tempFolder.newFolder().toPath();
+            KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
+            config.segmentCompression = true;
+            config.segmentCompressionBlockBytes = 1;
+
+            MutableDirectBuffer writeBuffer = new UnsafeBuffer(ByteBuffer.allocate(1024));
+
+            KafkaKeyFW keyA = new KafkaKeyFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                .length(1)
+                .value(k -> k.set("a".getBytes(UTF_8)))
+                .build();
+
+            KafkaKeyFW keyB = new KafkaKeyFW.Builder().wrap(writeBuffer, keyA.limit(), writeBuffer.capacity())
+                .length(1)
+                .value(k -> k.set("b".getBytes(UTF_8)))
+                .build();
+
+            Array32FW<KafkaHeaderFW> headers = new Array32FW.Builder<>(new KafkaHeaderFW.Builder(), new KafkaHeaderFW())
+                    .wrap(writeBuffer, keyB.limit(), writeBuffer.capacity())
+                    .build();
+
+            OctetsFW value = new OctetsFW.Builder()
+                    .wrap(writeBuffer, headers.limit(), writeBuffer.capacity())
+                    .set("value".getBytes(UTF_8))
+                    .build();
+
+            Array32FW<KafkaFilterFW> filters = new Array32FW.Builder<>(new KafkaFilterFW.Builder(), new KafkaFilterFW())
+                    .wrap(writeBuffer, value.limit(), writeBuffer.capacity())
+                    .item(f -> f.conditionsItem(c -> c.not(n -> n.condition(nc -> nc.key(k -> k
+                            .length(1)
+                            .value(v -> v.set("a".getBytes(UTF_8))))))))
+                    .build();
+
+            KafkaCachePartition partition = new KafkaCachePartition(location, config, "cache", "test", 0, 65536, long[]::new);
+            partition.append(10L);
+            partition.writeEntry(11L, 0L, keyB, headers, value, null, KafkaDeltaType.NONE);
+            partition.writeEntry(12L, 0L, keyA, headers, value, null, KafkaDeltaType.NONE);
+            partition.writeEntry(13L, 0L, keyB, headers, value, null, KafkaDeltaType.NONE);
+
+            Node head15 = partition.append(15L);
+            Node tail10 = head15.previous();
+            tail10.compressed().join();
+            partition.swapCompressed();
+
+            KafkaCacheCursorFactory cursorFactory = new KafkaCacheCursorFactory(new UnsafeBuffer(ByteBuffer.allocate(1024)));
+            KafkaCacheCursor cursor = cursorFactory.newCursor(cursorFactory.asCondition(filters), KafkaDeltaType.NONE);
+            KafkaCacheEntryFW entryRO = new KafkaCacheEntryFW();
+
+            cursor.init(tail10, 11L, 15L);
+
+            KafkaCacheEntryFW entry11 = cursor.next(entryRO);
+            assertNotNull(entry11);
+            assertEquals(11L, entry11.offset$());
+            cursor.advance(entry11.offset$() + 1);
+
+            KafkaCacheEntryFW entry13 = cursor.next(entryRO);
+            assertNotNull(entry13);
+            assertEquals(13L, entry13.offset$());
+
+            cursor.close();
+        }
+
         @Test
         public void shouldSeekAncestor() throws Exception
         {
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePlacementPolicy.HASH;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePlacementPolicy.LEAST_USED;
+import static org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePlacementPolicy.ROUND_ROBIN;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KafkaCachePlacementTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldPlaceSingleLocation() throws Exception
+    {
+        Path location = tempFolder.newFolder().toPath();
+        KafkaCachePlacement placement = new KafkaCachePlacement(location);
+
+        assertEquals(location, placement.location("test", 0));
+        assertEquals(location, placement.location("test", 1));
+    }
+
+    @Test
+    public void shouldPlaceRoundRobin() throws Exception
+    {
+        Path[] locations = new Path[] { tempFolder.newFolder().toPath(), tempFolder.newFolder().toPath() };
+        KafkaCachePlacement placement = new KafkaCachePlacement(locations, ROUND_ROBIN);
+
+        assertEquals(locations[0], placement.location("test", 0));
+        assertEquals(locations[1], placement.location("test", 1));
+        assertEquals(locations[0], placement.location("test", 2));
+        assertEquals(locations[0], placement.location("test", 0));
+    }
+
+    @Test
+    public void shouldPlaceByHash() throws Exception
+    {
+        Path[] locations = new Path[] { tempFolder.newFolder().toPath(), tempFolder.newFolder().toPath() };
+        KafkaCachePlacement placement1 = new KafkaCachePlacement(locations, HASH);
+        KafkaCachePlacement placement2 = new KafkaCachePlacement(locations, HASH);
+
+        assertEquals(placement1.location("test", 0), placement2.location("test", 0));
+        assertEquals(placement1.location("test", 1), placement2.location("test", 1));
+        assert placement1.location("test", 0) != placement1.location("test", 1);
+    }
+
+    @Test
+    public void shouldPlaceLeastUsed() throws Exception
+    {
+        Path[] locations = new Path[] { tempFolder.newFolder().toPath(), tempFolder.newFolder().toPath() };
+        KafkaCachePlacement placement = new KafkaCachePlacement(locations, LEAST_USED);
+
+        Path location = placement.location("test", 0);
+
+        assert location == locations[0] || location == locations[1];
+    }
+
+    @Test
+    public void shouldPlaceExistingPartition() throws Exception
+    {
+        Path[] locations = new Path[] { tempFolder.newFolder().toPath(), tempFolder.newFolder().toPath() };
+        Files.createDirectories(locations[1].resolve("test-0"));
+
+        KafkaCachePlacement placement = new KafkaCachePlacement(locations, ROUND_ROBIN);
+
+        assertSame(locations[1], placement.location("test", 0));
+        assertSame(locations[0], placement.location("test", 1));
+    }
+
+    @Test
+    public void shouldDescribeObject() throws Exception
+    {
+        Path[] locations = new Path[] { tempFolder.newFolder().toPath(), tempFolder.newFolder().toPath() };
+        KafkaCachePlacement placement = new KafkaCachePlacement(locations, ROUND_ROBIN);
+
+        assertEquals("[KafkaCachePlacement] ROUND_ROBIN 2", placement.toString());
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_DIRECTORY;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
+import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition.Node;
+import org.reaktivity.nukleus.kafka.internal.types.Array32FW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaType;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaHeaderFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaKeyFW;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.cache.KafkaCacheEntryFW;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+
+public final class KafkaCacheScaleSoak
+{
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    private static final Path PROC_SELF_STATUS = Paths.get("/proc/self/status");
+    private static final Path PROC_SELF_MAPS = Paths.get("/proc/self/maps");
+    private static final Path PROC_MAX_MAP_COUNT = Paths.get("/proc/sys/vm/max_map_count");
+
+    private final KafkaCacheEntryFW ancestorRO = new KafkaCacheEntryFW();
+
+    private final KafkaCacheTopic topic;
+    private final KafkaCachePartition[] partitions;
+    private final long[] nextOffsets;
+    private final KafkaKeyFW[] keys;
+    private final long[] keyHashes;
+    private final Array32FW<KafkaHeaderFW> headers;
+    private final OctetsFW value;
+    private final int rampBatch;
+    private final int recordsPerTick;
+    private final long speedup;
+    private final long durationMillis;
+    private final long sampleMillis;
+    private final KafkaCacheSoakBudget budget;
+    private final UnixOperatingSystemMXBean os;
+    private final BufferPoolMXBean direct;
+
+    private int partitionCount;
+    private long records;
+    private long rolls;
+    private long compactions;
+    private long deletions;
+
+    public KafkaCacheScaleSoak(
+        KafkaCache cache,
+        String topicName,
+        int partitionCount,
+        int rampBatch,
+        int keyCount,
+        int valueBytes,
+        int recordsPerTick,
+        long speedup,
+        long simulatedMillis,
+        long simulatedSampleMillis,
+        KafkaCacheSoakBudget budget)
+    {
+        this.topic = cache.supplyTopic(topicName);
+        this.partitions = new KafkaCachePartition[partitionCount];
+        this.nextOffsets = new long[partitionCount];
+        this.keys = new KafkaKeyFW[keyCount];
+        this.keyHashes = new long[keyCount];
+        this.rampBatch = rampBatch;
+        this.recordsPerTick = recordsPerTick;
+        this.speedup = speedup;
+        this.durationMillis = simulatedMillis / speedup;
+        this.sampleMillis = Math.max(simulatedSampleMillis / speedup, 1L);
+        this.budget = budget;
+        this.os = (UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        this.direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(p -> "direct".equals(p.getName()))
+                .findFirst()
+                .orElse(null);
+
+        final MutableDirectBuffer writeBuffer = new UnsafeBuffer(ByteBuffer.allocate(keyCount * 64 + valueBytes + 64));
+        int progress = 0;
+        for (int index = 0; index < keyCount; index++)
+        {
+            final byte[] key = String.format("key-%d", index).getBytes(UTF_8);
+            keys[index] = new KafkaKeyFW.Builder().wrap(writeBuffer, progress, writeBuffer.capacity())
+                    .length(key.length)
+                    .value(k -> k.set(key))
+                    .build();
+            progress = keys[index].limit();
+        }
+
+        this.headers = new Array32FW.Builder<>(new KafkaHeaderFW.Builder(), new KafkaHeaderFW())
+                .wrap(writeBuffer, progress, writeBuffer.capacity())
+                .build();
+
+        this.value = new OctetsFW.Builder()
+                .wrap(writeBuffer, headers.limit(), writeBuffer.capacity())
+                .set(new byte[valueBytes])
+                .build();
+
+        final KafkaCacheTopicConfig config = topic.config();
+        config.cleanupPolicy = KafkaCacheCleanupPolicy.COMPACT_AND_DELETE;
+        config.segmentMillis = Math.max(config.segmentMillis / speedup, 1L);
+        config.retentionMillis = Math.max(config.retentionMillis / speedup, 1L);
+        config.minCompactionLagMillis = 0L;
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        final Path directory = Paths.get(System.getProperty("soak.directory", "target/nukleus-soak"));
+        deleteRecursively(directory);
+        System.setProperty(KAFKA_CACHE_DIRECTORY.name(), directory.toAbsolutePath().toString());
+
+        final KafkaConfiguration config = new KafkaConfiguration();
+        final KafkaCache cache = new KafkaCache(config, "cache");
+
+        final KafkaCacheSoakBudget budget = new KafkaCacheSoakBudget();
+        budget.rssBytes = Long.getLong("soak.budget.rss.mb", 8192L) << 20;
+        budget.directBytes = Long.getLong("soak.budget.direct.mb", 4096L) << 20;
+        budget.fileDescriptors = Long.getLong("soak.budget.fds", 4096L);
+        budget.mappings = Long.getLong("soak.budget.mappings", maxMapCount() * 9 / 10);
+
+        final KafkaCacheScaleSoak soak = new KafkaCacheScaleSoak(
+            cache,
+            System.getProperty("soak.topic", "test"),
+            Integer.getInteger("soak.partitions", 100000),
+            Integer.getInteger("soak.ramp.batch", 1000),
+            Integer.getInteger("soak.keys", 16),
+            Integer.getInteger("soak.value.bytes", 256),
+            Integer.getInteger("soak.records.per.tick", 1),
+            Long.getLong("soak.speedup", 3600L),
+            HOURS.toMillis(Long.getLong("soak.simulated.hours", 6L)),
+            MINUTES.toMillis(Long.getLong("soak.sample.simulated.minutes", 10L)),
+            budget);
+
+        soak.run();
+    }
+
+    public void run() throws IOException
+    {
+        while (partitionCount < partitions.length)
+        {
+            final int limit = Math.min(partitionCount + rampBatch, partitions.length);
+            for (int id = partitionCount; id < limit; id++)
+            {
+                final KafkaCachePartition partition = topic.supplyFetchPartition(id);
+                partition.append(0L);
+                partitions[id] = partition;
+            }
+            partitionCount = limit;
+
+            sampleAndCheck(String.format("ramp %d", partitionCount), 0L);
+        }
+
+        final long startedAt = System.currentTimeMillis();
+        long sampleAt = startedAt + sampleMillis;
+
+        for (long now = startedAt; now - startedAt < durationMillis; now = System.currentTimeMillis())
+        {
+            for (int id = 0; id < partitionCount; id++)
+            {
+                tick(id, now);
+            }
+
+            if (now >= sampleAt)
+            {
+                sampleAndCheck("soak", (now - startedAt) * speedup);
+                sampleAt = now + sampleMillis;
+            }
+        }
+
+        sampleAndCheck("total", durationMillis * speedup);
+    }
+
+    private void tick(
+        int id,
+        long now)
+    {
+        final KafkaCachePartition partition = partitions[id];
+
+        for (int count = 0; count < recordsPerTick; count++)
+        {
+            final long offset = nextOffsets[id]++;
+            final int keyIndex = (int) (offset % keys.length);
+            final KafkaKeyFW key = keys[keyIndex];
+
+            final Node head = partition.newHeadIfNecessary(offset, key, value.sizeof(), 0);
+            final KafkaCacheEntryFW ancestor =
+                    head.findAndMarkAncestor(key, keyHash(partition, keyIndex), offset, ancestorRO);
+            if (ancestor != null)
+            {
+                partition.compactAt(head.segment());
+            }
+
+            partition.writeEntry(offset, now, key, headers, value, ancestor, KafkaDeltaType.NONE);
+            records++;
+        }
+
+        final Node head = partition.head();
+        if (partition.retainAt(head.segment()) <= now)
+        {
+            partition.append(nextOffsets[id]);
+            rolls++;
+        }
+
+        Node segmentNode = partition.sentinel().next();
+        while (segmentNode != partition.head() &&
+                partition.deleteAt(segmentNode.segment(), Long.MAX_VALUE) <= now)
+        {
+            segmentNode.remove();
+            segmentNode = segmentNode.next();
+            deletions++;
+        }
+
+        while (!segmentNode.next().sentinel())
+        {
+            if (segmentNode.segment().cleanableAt() <= now)
+            {
+                final Node nextNode = segmentNode.next();
+                segmentNode.clean(now);
+                segmentNode = nextNode;
+                compactions++;
+            }
+            else
+            {
+                segmentNode = segmentNode.next();
+            }
+        }
+    }
+
+    private long keyHash(
+        KafkaCachePartition partition,
+        int keyIndex)
+    {
+        long keyHash = keyHashes[keyIndex];
+        if (keyHash == 0L)
+        {
+            keyHash = partition.computeKeyHash(keys[keyIndex]);
+            keyHashes[keyIndex] = keyHash;
+        }
+        return keyHash;
+    }
+
+    private void sampleAndCheck(
+        String label,
+        long simulatedMillis) throws IOException
+    {
+        final long rssBytes = rssBytes();
+        final long directBytes = direct != null ? direct.getMemoryUsed() : 0L;
+        final long fileDescriptors = os.getOpenFileDescriptorCount();
+        final long mappings = mappings();
+
+        System.out.format("%s t+%dm partitions %d, records %d, rolls %d, compactions %d, deletions %d, " +
+                "rss MB %.1f, direct MB %.1f, fds %d, mappings %d\n",
+            label, MILLISECONDS.toMinutes(simulatedMillis), partitionCount, records, rolls, compactions, deletions,
+            rssBytes / MEGABYTE, directBytes / MEGABYTE, fileDescriptors, mappings);
+
+        checkBudget("rss bytes", rssBytes, budget.rssBytes);
+        checkBudget("direct bytes", directBytes, budget.directBytes);
+        checkBudget("file descriptors", fileDescriptors, budget.fileDescriptors);
+        checkBudget("mappings", mappings, budget.mappings);
+    }
+
+    private void checkBudget(
+        String name,
+        long actual,
+        long limit)
+    {
+        if (actual > limit)
+        {
+            throw new IllegalStateException(String.format("%s %d exceeds budget %d at %d partitions",
+                    name, actual, limit, partitionCount));
+        }
+    }
+
+    private static long rssBytes() throws IOException
+    {
+        long rssBytes = 0L;
+        try (Stream<String> lines = Files.lines(PROC_SELF_STATUS))
+        {
+            final String rss = lines.filter(l -> l.startsWith("VmRSS:")).findFirst().orElse(null);
+            if (rss != null)
+            {
+                rssBytes = Long.parseLong(rss.replaceAll("[^0-9]", "")) << 10;
+            }
+        }
+        return rssBytes;
+    }
+
+    private static long mappings() throws IOException
+    {
+        try (Stream<String> lines = Files.lines(PROC_SELF_MAPS))
+        {
+            return lines.count();
+        }
+    }
+
+    private static long maxMapCount() throws IOException
+    {
+        return Files.exists(PROC_MAX_MAP_COUNT)
+                ? Long.parseLong(new String(Files.readAllBytes(PROC_MAX_MAP_COUNT), UTF_8).trim())
+                : 65530L;
+    }
+
+    private static void deleteRecursively(
+        Path directory) throws IOException
+    {
+        if (Files.exists(directory))
+        {
+            try (Stream<Path> paths = Files.walk(directory))
+            {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    public static final class KafkaCacheSoakBudget
+    {
+        public long rssBytes;
+        public long directBytes;
+        public long fileDescriptors;
+        public long mappings;
+    }
+}
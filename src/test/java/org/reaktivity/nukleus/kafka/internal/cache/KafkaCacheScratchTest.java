@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.agrona.MutableDirectBuffer;
+import org.junit.Test;
+
+public class KafkaCacheScratchTest
+{
+    @Test
+    public void shouldShareAppendBufferWithinThread()
+    {
+        final MutableDirectBuffer appendBuf = KafkaCacheScratch.current().appendBuf(1024);
+
+        assertSame(KafkaCacheScratch.current(), KafkaCacheScratch.current());
+        assertSame(appendBuf, KafkaCacheScratch.current().appendBuf(1024));
+        assertSame(appendBuf, KafkaCacheScratch.current().appendBuf(512));
+    }
+
+    @Test
+    public void shouldGrowAppendBufferOnDemand()
+    {
+        final MutableDirectBuffer appendBuf = KafkaCacheScratch.current().appendBuf(1024);
+        final MutableDirectBuffer grownBuf = KafkaCacheScratch.current().appendBuf(appendBuf.capacity() + 1);
+
+        assertNotSame(appendBuf, grownBuf);
+        assertEquals(appendBuf.capacity() + 1, grownBuf.capacity());
+    }
+
+    @Test
+    public void shouldIsolateScratchAcrossThreads() throws Exception
+    {
+        final AtomicReference<KafkaCacheScratch> scratchRef = new AtomicReference<>();
+        final Thread thread = new Thread(() -> scratchRef.set(KafkaCacheScratch.current()));
+        thread.start();
+        thread.join();
+
+        assertNotSame(KafkaCacheScratch.current(), scratchRef.get());
+    }
+}
@@ -17,12 +17,10 @@ package org.reaktivity.nukleus.kafka.internal.cache;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
-import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
-import org.agrona.MutableDirectBuffer;
-import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -38,9 +36,9 @@ public class KafkaCacheSegmentTest
     {
         KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
         Path location = tempFolder.getRoot().toPath();
-        MutableDirectBuffer appendBuf = new UnsafeBuffer(ByteBuffer.allocate(0));
+        int appendCapacity = 0;
 
-        try (KafkaCacheSegment head = new KafkaCacheSegment(location, config, "test", 0, 1L, appendBuf, long[]::new);
+        try (KafkaCacheSegment head = new KafkaCacheSegment(location, config, "test", 0, 1L, appendCapacity, long[]::new);
                 KafkaCacheSegment tail = head.freeze())
         {
             assertEquals(head.location(), tail.location());
@@ -60,14 +58,39 @@ public class KafkaCacheSegmentTest
         }
     }
 
+    @Test
+    public void shouldFreezeCompressed() throws Exception
+    {
+        KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
+        config.segmentCompression = true;
+        Path location = tempFolder.getRoot().toPath();
+        int appendCapacity = 0;
+
+        try (KafkaCacheSegment head = new KafkaCacheSegment(location, config, "test", 0, 1L, appendCapacity, long[]::new);
+                KafkaCacheSegment frozen = head.freeze())
+        {
+            frozen.compress(config.segmentCompressionBlockBytes);
+
+            try (KafkaCacheSegment tail = frozen.compressed())
+            {
+                assertEquals(head.baseOffset(), tail.baseOffset());
+                assertNotEquals(head.logFile().location(), tail.logFile().location());
+                assertEquals(head.logFile().capacity(), tail.logFile().capacity());
+                assertNotEquals(head.deltaFile().location(), tail.deltaFile().location());
+                assertEquals(head.deltaFile().capacity(), tail.deltaFile().capacity());
+                assertTrue(tail.logFile().empty());
+            }
+        }
+    }
+
     @Test
     public void shouldDescribeObject() throws Exception
     {
         KafkaCacheTopicConfig config = new KafkaCacheTopicConfig(new KafkaConfiguration());
         Path location = tempFolder.getRoot().toPath();
-        MutableDirectBuffer appendBuf = new UnsafeBuffer(ByteBuffer.allocate(0));
+        int appendCapacity = 0;
 
-        try (KafkaCacheSegment segment = new KafkaCacheSegment(location, config, "test", 0, 1L, appendBuf, long[]::new))
+        try (KafkaCacheSegment segment = new KafkaCacheSegment(location, config, "test", 0, 1L, appendCapacity, long[]::new))
         {
             assertEquals("test", segment.name());
             assertEquals(0, segment.id());
@@ -15,13 +15,18 @@
  */
 package org.reaktivity.nukleus.kafka.internal.cache;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Test;
 import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
 
 public class KafkaCacheTopicTest
 {
@@ -30,7 +35,8 @@ public class KafkaCacheTopicTest
     {
         KafkaConfiguration config = new KafkaConfiguration();
         Path location = config.cacheDirectory().resolve("cache");
-        KafkaCacheTopic topic = new KafkaCacheTopic(location, config, "cache", new AtomicLong(0L), "test", long[]::new);
+        KafkaCachePlacement placement = new KafkaCachePlacement(location);
+        KafkaCacheTopic topic = new KafkaCacheTopic(placement, config, "cache", new AtomicLong(0L), "test", long[]::new);
 
         KafkaCachePartition partitionA = topic.supplyFetchPartition(0);
         KafkaCachePartition partitionB = topic.supplyFetchPartition(0);
@@ -43,11 +49,39 @@ public class KafkaCacheTopicTest
     {
         KafkaConfiguration config = new KafkaConfiguration();
         Path location = config.cacheDirectory().resolve("cache");
+        KafkaCachePlacement placement = new KafkaCachePlacement(location);
 
-        KafkaCacheTopic topic = new KafkaCacheTopic(location, config, "cache", new AtomicLong(0L), "test", long[]::new);
+        KafkaCacheTopic topic = new KafkaCacheTopic(placement, config, "cache", new AtomicLong(0L), "test", long[]::new);
 
         assertEquals("cache", topic.cache());
         assertEquals("test", topic.name());
         assertEquals("[cache] test", topic.toString());
     }
+
+    @Test
+    public void shouldIndexRouteHeadersOverConfiguredHeaders() throws Exception
+    {
+        KafkaConfiguration config = new KafkaConfiguration();
+        Path location = config.cacheDirectory().resolve("cache");
+        KafkaCachePlacement placement = new KafkaCachePlacement(location);
+
+        KafkaCacheTopic topic = new KafkaCacheTopic(placement, config, "cache", new AtomicLong(0L), "test", long[]::new);
+        OctetsFW header1 = asOctets("header1");
+        OctetsFW header2 = asOctets("header2");
+
+        assertTrue(topic.config().indexesHeader(header1));
+        assertTrue(topic.config().indexesHeader(header2));
+
+        topic.config().indexHeaders(new String[] { "header1" });
+
+        assertTrue(topic.config().indexesHeader(header1));
+        assertFalse(topic.config().indexesHeader(header2));
+    }
+
+    private static OctetsFW asOctets(
+        String value)
+    {
+        final byte[] bytes = value.getBytes(UTF_8);
+        return new OctetsFW().wrap(new UnsafeBuffer(bytes), 0, bytes.length);
+    }
 }
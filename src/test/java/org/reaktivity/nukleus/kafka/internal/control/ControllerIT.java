@@ -16,7 +16,9 @@
 package org.reaktivity.nukleus.kafka.internal.control;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.route.RouteKind.CACHE_SERVER;
 import static org.reaktivity.nukleus.route.RouteKind.CLIENT;
 
 import org.junit.Rule;
@@ -38,7 +40,9 @@ public class ControllerIT
         .addScriptRoot("unroute", "org/reaktivity/specification/nukleus/kafka/control/unroute")
         .addScriptRoot("routeEx", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
         .addScriptRoot("unrouteEx", "org/reaktivity/specification/nukleus/kafka/control/unroute.ext")
-        .addScriptRoot("freeze", "org/reaktivity/specification/nukleus/control/freeze");
+        .addScriptRoot("freeze", "org/reaktivity/specification/nukleus/control/freeze")
+        .addScriptRoot("hotKeys", "org/reaktivity/nukleus/kafka/internal/control/hot.keys")
+        .addScriptRoot("routeExIndexHeaders", "org/reaktivity/nukleus/kafka/internal/control/route.ext.index.headers");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(5, SECONDS));
 
@@ -82,6 +86,21 @@ public class ControllerIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${routeExIndexHeaders}/nukleus"
+    })
+    public void shouldRouteCacheServerWithIndexHeaders() throws Exception
+    {
+        k3po.start();
+
+        reaktor.controller(KafkaController.class)
+               .route(CACHE_SERVER, "kafka-cache#0", "kafka#0", "{ topic:\"test\", indexHeaders:[\"header1\"] }")
+               .get();
+
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/client/nukleus",
@@ -119,4 +138,21 @@ public class ControllerIT
 
         k3po.finish();
     }
+
+    @Test
+    @Specification({
+        "${hotKeys}/nukleus"
+    })
+    public void shouldSampleHotKeys() throws Exception
+    {
+        k3po.start();
+
+        String hotKeys = reaktor.controller(KafkaController.class)
+                                .hotKeys(3)
+                                .get();
+
+        k3po.finish();
+
+        assertEquals("[{\"routeId\":1,\"topic\":\"test\",\"partitionId\":0,\"hash\":42,\"rate\":100}]", hotKeys);
+    }
 }
@@ -17,6 +17,7 @@ package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_LEADER_FAILOVER_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SEGMENT_BYTES;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SEGMENT_INDEX_BYTES;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_BOOTSTRAP;
@@ -40,13 +41,16 @@ import org.reaktivity.nukleus.kafka.internal.cache.KafkaCache;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCachePartition;
 import org.reaktivity.nukleus.kafka.internal.cache.KafkaCacheTopic;
 import org.reaktivity.reaktor.test.ReaktorRule;
+import org.reaktivity.reaktor.test.annotation.Configure;
 
 public class CacheFetchIT
 {
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/nukleus/kafka/streams/fetch")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/fetch");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/fetch")
+            .addScriptRoot("internalServer", "org/reaktivity/nukleus/kafka/internal/streams/fetch")
+            .addScriptRoot("internalClient", "org/reaktivity/nukleus/kafka/internal/streams/fetch");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(10, SECONDS));
 
@@ -55,7 +59,7 @@ public class CacheFetchIT
         .directory("target/nukleus-itests")
         .commandBufferCapacity(1024)
         .responseBufferCapacity(1024)
-        .counterValuesBufferCapacity(8192)
+        .counterValuesBufferCapacity(131072)
         .configure(REAKTOR_BUFFER_SLOT_CAPACITY, 8192)
         .configure(KAFKA_CACHE_SERVER_BOOTSTRAP, false)
         .configure(KAFKA_CACHE_SERVER_RECONNECT_DELAY, 0)
@@ -238,6 +242,19 @@ public class CacheFetchIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/cache/controller",
+        "${internalClient}/partition.leader.changed/client",
+        "${internalServer}/partition.leader.changed/server"})
+    @ScriptProperty("serverAddress \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CACHE_LEADER_FAILOVER_NAME, value = "true")
+    public void shouldReceiveMessageValueWhenPartitionLeaderChanged() throws Exception
+    {
+        partition.append(10L);
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/cache/controller",
@@ -21,6 +21,7 @@ import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CAC
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SEGMENT_INDEX_BYTES;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_BOOTSTRAP;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_RECONNECT_DELAY_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_BUFFER_SLOT_CAPACITY;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
 
@@ -42,7 +43,8 @@ public class CacheMergedIT
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/nukleus/kafka/streams/merged")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/merged");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/merged")
+            .addScriptRoot("internal", "org/reaktivity/nukleus/kafka/internal/streams/merged");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(10, SECONDS));
 
@@ -271,6 +273,18 @@ public class CacheMergedIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/cache.merged/controller",
+        "${internal}/merged.produce.message.values.sticky/client",
+        "${server}/unmerged.produce.message.values.dynamic/server"})
+    @ScriptProperty("serverAddress \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME, value = "32")
+    public void shouldProduceMergedMessageValuesSticky() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/cache.merged/controller",
@@ -282,6 +296,17 @@ public class CacheMergedIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/cache.merged/controller",
+        "${internal}/merged.produce.message.value.null/client",
+        "${internal}/unmerged.produce.message.value.null/server"})
+    @ScriptProperty("serverAddress \"nukleus://streams/target#0\"")
+    public void shouldProduceMergedMessageValueNull() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/cache.merged/controller",
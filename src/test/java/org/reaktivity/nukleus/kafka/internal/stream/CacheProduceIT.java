@@ -17,6 +17,7 @@ package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_LEADER_FAILOVER_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_BOOTSTRAP;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CACHE_SERVER_RECONNECT_DELAY;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_BUFFER_SLOT_CAPACITY;
@@ -33,13 +34,16 @@ import org.kaazing.k3po.junit.annotation.ScriptProperty;
 import org.kaazing.k3po.junit.annotation.Specification;
 import org.kaazing.k3po.junit.rules.K3poRule;
 import org.reaktivity.reaktor.test.ReaktorRule;
+import org.reaktivity.reaktor.test.annotation.Configure;
 
 public class CacheProduceIT
 {
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/nukleus/kafka/streams/produce")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/produce");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/produce")
+            .addScriptRoot("internalServer", "org/reaktivity/nukleus/kafka/internal/streams/produce")
+            .addScriptRoot("internalClient", "org/reaktivity/nukleus/kafka/internal/streams/produce");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(10, SECONDS));
 
@@ -48,7 +52,7 @@ public class CacheProduceIT
         .directory("target/nukleus-itests")
         .commandBufferCapacity(1024)
         .responseBufferCapacity(1024)
-        .counterValuesBufferCapacity(8192)
+        .counterValuesBufferCapacity(131072)
         .configure(REAKTOR_BUFFER_SLOT_CAPACITY, 8192)
         .configure(KAFKA_CACHE_SERVER_BOOTSTRAP, false)
         .configure(KAFKA_CACHE_SERVER_RECONNECT_DELAY, 0)
@@ -99,6 +103,18 @@ public class CacheProduceIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/cache/controller",
+        "${internalClient}/partition.leader.changed/client",
+        "${internalServer}/partition.leader.changed/server"})
+    @ScriptProperty("serverAddress \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CACHE_LEADER_FAILOVER_NAME, value = "true")
+    public void shouldSendMessageValueWhenPartitionLeaderChanged() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/cache/controller",
@@ -17,7 +17,9 @@ package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_ADMIN_BATCH_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS_NAME;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
 
 import org.junit.Rule;
@@ -29,13 +31,17 @@ import org.kaazing.k3po.junit.annotation.ScriptProperty;
 import org.kaazing.k3po.junit.annotation.Specification;
 import org.kaazing.k3po.junit.rules.K3poRule;
 import org.reaktivity.reaktor.test.ReaktorRule;
+import org.reaktivity.reaktor.test.annotation.Configure;
 
 public class ClientDescribeIT
 {
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/kafka/describe.configs.v0")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/describe");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/describe")
+            .addScriptRoot("routeAny", "org/reaktivity/specification/nukleus/kafka/control/route")
+            .addScriptRoot("internalServer", "org/reaktivity/nukleus/kafka/internal/kafka/describe.configs.v0")
+            .addScriptRoot("internalClient", "org/reaktivity/nukleus/kafka/internal/streams/describe");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(15, SECONDS));
 
@@ -84,4 +90,30 @@ public class ClientDescribeIT
         k3po.notifyBarrier("CHANGE_TOPIC_CONFIG");
         k3po.finish();
     }
+
+    @Test
+    @Specification({
+        "${routeAny}/client/controller",
+        "${internalClient}/topic.config.info.coalesced/client",
+        "${internalServer}/topic.config.info.coalesced/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_ADMIN_BATCH_NAME, value = "true")
+    @Configure(name = KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS_NAME, value = "60000")
+    public void shouldReceiveTopicConfigInfoCoalesced() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${routeAny}/client/controller",
+        "${internalClient}/topic.config.info.affinity/client",
+        "${internalServer}/topic.config.info.affinity/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_ADMIN_BATCH_NAME, value = "true")
+    @Configure(name = KAFKA_CLIENT_DESCRIBE_MAX_AGE_MILLIS_NAME, value = "60000")
+    public void shouldReceiveTopicConfigInfoWithDifferentAffinity() throws Exception
+    {
+        k3po.finish();
+    }
 }
@@ -17,6 +17,8 @@ package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_RACK_NAME;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_BUFFER_SLOT_CAPACITY;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_DRAIN_ON_CLOSE;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
@@ -44,7 +46,10 @@ public class ClientFetchIT
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/kafka/fetch.v5")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/fetch");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/fetch")
+            .addScriptRoot("internalServer", "org/reaktivity/nukleus/kafka/internal/kafka/fetch.v5")
+            .addScriptRoot("rackServer", "org/reaktivity/nukleus/kafka/internal/kafka/fetch.v11")
+            .addScriptRoot("internalClient", "org/reaktivity/nukleus/kafka/internal/streams/fetch");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(10, SECONDS));
 
@@ -212,6 +217,66 @@ public class ClientFetchIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${internalClient}/message.values.pipelined/client",
+        "${internalServer}/message.values.pipelined/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_FETCH_PIPELINE_MAX_BYTES_NAME, value = "104857600")
+    public void shouldReceiveMessageValuesPipelined() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${client}/message.value/client",
+        "${rackServer}/message.value.rack/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_RACK_NAME, value = "rack1")
+    public void shouldReceiveMessageValueWithRack() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${client}/message.value/client",
+        "${rackServer}/message.value.preferred.replica/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_RACK_NAME, value = "rack1")
+    public void shouldReceiveMessageValueFromPreferredReplica() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${client}/message.value/client",
+        "${rackServer}/message.value.replica.offset.out.of.range/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_RACK_NAME, value = "rack1")
+    public void shouldReceiveMessageValueFromLeaderWhenReplicaOffsetOutOfRange() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${client}/message.value/client",
+        "${rackServer}/message.value.replica.reset/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_RACK_NAME, value = "rack1")
+    public void shouldReceiveMessageValueFromLeaderWhenReplicaReset() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/client/controller",
@@ -19,6 +19,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_META_MAX_AGE_MILLIS;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_MAX_BYTES;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_BUFFER_SLOT_CAPACITY;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
 
@@ -32,13 +33,15 @@ import org.kaazing.k3po.junit.annotation.ScriptProperty;
 import org.kaazing.k3po.junit.annotation.Specification;
 import org.kaazing.k3po.junit.rules.K3poRule;
 import org.reaktivity.reaktor.test.ReaktorRule;
+import org.reaktivity.reaktor.test.annotation.Configure;
 
 public class ClientMergedIT
 {
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/kafka/unmerged.p3.f5.d0.m5")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/merged");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/merged")
+            .addScriptRoot("internal", "org/reaktivity/nukleus/kafka/internal/streams/merged");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(10, SECONDS));
 
@@ -213,6 +216,18 @@ public class ClientMergedIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/client.merged/controller",
+        "${internal}/merged.produce.message.values.sticky/client",
+        "${server}/unmerged.produce.message.values.dynamic/server"})
+    @ScriptProperty("serverAddress \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_PRODUCE_STICKY_BYTES_NAME, value = "32")
+    public void shouldProduceMergedMessageValuesSticky() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/client.merged/controller",
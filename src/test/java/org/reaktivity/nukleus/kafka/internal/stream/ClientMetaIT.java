@@ -17,7 +17,10 @@ package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_ADMIN_BATCH_NAME;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_META_MAX_AGE_MILLIS;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_META_MAX_AGE_MILLIS_NAME;
 import static org.reaktivity.reaktor.test.ReaktorRule.EXTERNAL_AFFINITY_MASK;
 
 import org.junit.Rule;
@@ -29,13 +32,17 @@ import org.kaazing.k3po.junit.annotation.ScriptProperty;
 import org.kaazing.k3po.junit.annotation.Specification;
 import org.kaazing.k3po.junit.rules.K3poRule;
 import org.reaktivity.reaktor.test.ReaktorRule;
+import org.reaktivity.reaktor.test.annotation.Configure;
 
 public class ClientMetaIT
 {
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/kafka/metadata.v5")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/meta");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/meta")
+            .addScriptRoot("routeAny", "org/reaktivity/specification/nukleus/kafka/control/route")
+            .addScriptRoot("internalServer", "org/reaktivity/nukleus/kafka/internal/kafka/metadata.v5")
+            .addScriptRoot("internalClient", "org/reaktivity/nukleus/kafka/internal/streams/meta");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(15, SECONDS));
 
@@ -82,6 +89,44 @@ public class ClientMetaIT
         k3po.finish();
     }
 
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${client}/topic.partition.info/client",
+        "${server}/topic.partition.info/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME, value = "1")
+    public void shouldReceiveTopicPartitionInfoPooled() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${routeAny}/client/controller",
+        "${internalClient}/topic.partition.info.coalesced/client",
+        "${internalServer}/topic.partition.info.coalesced/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_ADMIN_BATCH_NAME, value = "true")
+    @Configure(name = KAFKA_CLIENT_META_MAX_AGE_MILLIS_NAME, value = "60000")
+    public void shouldReceiveTopicPartitionInfoCoalesced() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${routeAny}/client/controller",
+        "${internalClient}/topic.partition.info.affinity/client",
+        "${internalServer}/topic.partition.info.affinity/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_ADMIN_BATCH_NAME, value = "true")
+    @Configure(name = KAFKA_CLIENT_META_MAX_AGE_MILLIS_NAME, value = "60000")
+    public void shouldReceiveTopicPartitionInfoWithDifferentAffinity() throws Exception
+    {
+        k3po.finish();
+    }
+
     @Test
     @Specification({
         "${route}/client/controller",
@@ -17,6 +17,7 @@ package org.reaktivity.nukleus.kafka.internal.stream;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.rules.RuleChain.outerRule;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME;
 import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_PRODUCE_MAX_REQUEST_MILLIS_NAME;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_BUFFER_SLOT_CAPACITY;
 import static org.reaktivity.reaktor.ReaktorConfiguration.REAKTOR_DRAIN_ON_CLOSE;
@@ -39,7 +40,9 @@ public class ClientProduceIT
     private final K3poRule k3po = new K3poRule()
             .addScriptRoot("route", "org/reaktivity/specification/nukleus/kafka/control/route.ext")
             .addScriptRoot("server", "org/reaktivity/specification/kafka/produce.v3")
-            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/produce");
+            .addScriptRoot("client", "org/reaktivity/specification/nukleus/kafka/streams/produce")
+            .addScriptRoot("internalServer", "org/reaktivity/nukleus/kafka/internal/kafka/produce.v3")
+            .addScriptRoot("internalClient", "org/reaktivity/nukleus/kafka/internal/streams/produce");
 
     private final TestRule timeout = new DisableOnDebug(new Timeout(10, SECONDS));
 
@@ -309,4 +312,40 @@ public class ClientProduceIT
     {
         k3po.finish();
     }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${client}/message.value/client",
+        "${internalServer}/message.value.idempotent/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME, value = "true")
+    public void shouldSendMessageValueIdempotent() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${internalClient}/message.values.sequential/client",
+        "${internalServer}/message.values.idempotent.in.flight/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME, value = "true")
+    public void shouldSendMessageValuesIdempotentInFlight() throws Exception
+    {
+        k3po.finish();
+    }
+
+    @Test
+    @Specification({
+        "${route}/client/controller",
+        "${internalClient}/message.values.sequential/client",
+        "${internalServer}/message.values.idempotent.duplicate/server"})
+    @ScriptProperty("networkAccept \"nukleus://streams/target#0\"")
+    @Configure(name = KAFKA_CLIENT_PRODUCE_IDEMPOTENCE_NAME, value = "true")
+    public void shouldSendMessageValuesIdempotentAfterDuplicate() throws Exception
+    {
+        k3po.finish();
+    }
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheBootstrapScheduler.NO_DEADLINE;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class KafkaCacheBootstrapSchedulerTest
+{
+    private final List<String> started = new ArrayList<>();
+
+    @Test
+    public void shouldLimitConcurrentWarmUps()
+    {
+        final KafkaCacheBootstrapScheduler scheduler = new KafkaCacheBootstrapScheduler(2, 0);
+
+        scheduler.schedule(new TestTask("p0", false));
+        scheduler.schedule(new TestTask("p1", false));
+        scheduler.schedule(new TestTask("p2", false));
+
+        assertEquals(NO_DEADLINE, scheduler.dispatch(0L, 0L));
+        assertEquals(List.of("p0", "p1"), started);
+        assertEquals(2, scheduler.active());
+        assertEquals(1, scheduler.pending());
+
+        scheduler.release();
+        scheduler.dispatch(0L, 0L);
+        assertEquals(List.of("p0", "p1", "p2"), started);
+        assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    public void shouldStartSubscribedPartitionsFirst()
+    {
+        final KafkaCacheBootstrapScheduler scheduler = new KafkaCacheBootstrapScheduler(1, 0);
+
+        scheduler.schedule(new TestTask("p0", false));
+        scheduler.schedule(new TestTask("p1", true));
+        scheduler.schedule(new TestTask("p2", false));
+
+        scheduler.dispatch(0L, 0L);
+        assertEquals(List.of("p1"), started);
+
+        scheduler.release();
+        scheduler.dispatch(0L, 0L);
+        assertEquals(List.of("p1", "p0"), started);
+    }
+
+    @Test
+    public void shouldLimitStartRate()
+    {
+        final KafkaCacheBootstrapScheduler scheduler = new KafkaCacheBootstrapScheduler(0, 2);
+
+        scheduler.schedule(new TestTask("p0", false));
+        scheduler.schedule(new TestTask("p1", false));
+        scheduler.schedule(new TestTask("p2", false));
+
+        assertEquals(1500L, scheduler.dispatch(0L, 500L));
+        assertEquals(List.of("p0", "p1"), started);
+
+        assertEquals(1500L, scheduler.dispatch(0L, 1000L));
+        assertEquals(2, started.size());
+
+        assertEquals(NO_DEADLINE, scheduler.dispatch(0L, 1500L));
+        assertEquals(List.of("p0", "p1", "p2"), started);
+    }
+
+    @Test
+    public void shouldCancelPendingWarmUp()
+    {
+        final KafkaCacheBootstrapScheduler scheduler = new KafkaCacheBootstrapScheduler(1, 0);
+        final TestTask task = new TestTask("p1", false);
+
+        scheduler.schedule(new TestTask("p0", false));
+        scheduler.schedule(task);
+        scheduler.dispatch(0L, 0L);
+
+        assertTrue(scheduler.cancel(task));
+
+        scheduler.release();
+        scheduler.dispatch(0L, 0L);
+        assertEquals(List.of("p0"), started);
+        assertEquals(0, scheduler.active());
+    }
+
+    private final class TestTask implements KafkaCacheBootstrapScheduler.Task
+    {
+        private final String name;
+        private final boolean subscribed;
+
+        private TestTask(
+            String name,
+            boolean subscribed)
+        {
+            this.name = name;
+            this.subscribed = subscribed;
+        }
+
+        @Override
+        public boolean subscribed()
+        {
+            return subscribed;
+        }
+
+        @Override
+        public void start(
+            long traceId)
+        {
+            started.add(name);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheHotKeysRegistry.KafkaCacheHotKey;
+
+public class KafkaCacheHotKeysRegistryTest
+{
+    @Test
+    public void shouldRankHotKeysAcrossPartitions()
+    {
+        final KafkaCacheHotKeysRegistry registry = new KafkaCacheHotKeysRegistry();
+
+        registry.publish(1L, "test", 0, new int[] { 42, 7 }, new long[] { 100L, 10L }, 2);
+        registry.publish(1L, "test", 1, new int[] { 13 }, new long[] { 50L }, 1);
+
+        final List<KafkaCacheHotKey> hotKeys = registry.top(2);
+
+        assertEquals(2, hotKeys.size());
+        assertEquals(42, hotKeys.get(0).hash);
+        assertEquals(0, hotKeys.get(0).partitionId);
+        assertEquals(100L, hotKeys.get(0).rate);
+        assertEquals(13, hotKeys.get(1).hash);
+        assertEquals(1, hotKeys.get(1).partitionId);
+    }
+
+    @Test
+    public void shouldReplacePreviousSample()
+    {
+        final KafkaCacheHotKeysRegistry registry = new KafkaCacheHotKeysRegistry();
+
+        registry.publish(1L, "test", 0, new int[] { 42 }, new long[] { 100L }, 1);
+        registry.publish(1L, "test", 0, new int[] { 7 }, new long[] { 10L }, 1);
+
+        final List<KafkaCacheHotKey> hotKeys = registry.top(10);
+
+        assertEquals(1, hotKeys.size());
+        assertEquals(7, hotKeys.get(0).hash);
+    }
+
+    @Test
+    public void shouldWithdrawPartition()
+    {
+        final KafkaCacheHotKeysRegistry registry = new KafkaCacheHotKeysRegistry();
+
+        registry.publish(1L, "test", 0, new int[] { 42 }, new long[] { 100L }, 1);
+        registry.withdraw(1L, "test", 0);
+
+        assertTrue(registry.top(10).isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KafkaCacheHotKeysTest
+{
+    @Test
+    public void shouldRankHottestKeysFirst()
+    {
+        final KafkaCacheHotKeys hotKeys = new KafkaCacheHotKeys(2);
+
+        for (int i = 0; i < 100; i++)
+        {
+            hotKeys.record(42);
+            if (i % 2 == 0)
+            {
+                hotKeys.record(7);
+            }
+            if (i % 10 == 0)
+            {
+                hotKeys.record(i);
+            }
+        }
+
+        final int[] hashes = new int[2];
+        final long[] counts = new long[2];
+        final int count = hotKeys.drain(hashes, counts);
+
+        assertEquals(2, count);
+        assertEquals(42, hashes[0]);
+        assertTrue(counts[0] >= 100L);
+        assertEquals(7, hashes[1]);
+        assertTrue(counts[1] >= 50L);
+    }
+
+    @Test
+    public void shouldResetAfterDrain()
+    {
+        final KafkaCacheHotKeys hotKeys = new KafkaCacheHotKeys(4);
+
+        hotKeys.record(1);
+        hotKeys.record(1);
+        hotKeys.drain(new int[4], new long[4]);
+
+        assertEquals(0, hotKeys.size());
+
+        hotKeys.record(1);
+
+        final int[] hashes = new int[4];
+        final long[] counts = new long[4];
+        assertEquals(1, hotKeys.drain(hashes, counts));
+        assertEquals(1, hashes[0]);
+        assertEquals(1L, counts[0]);
+    }
+
+    @Test
+    public void shouldIgnoreKeysWhenDisabled()
+    {
+        final KafkaCacheHotKeys hotKeys = new KafkaCacheHotKeys(0);
+
+        hotKeys.record(1);
+
+        assertEquals(0, hotKeys.drain(new int[0], new long[0]));
+    }
+}
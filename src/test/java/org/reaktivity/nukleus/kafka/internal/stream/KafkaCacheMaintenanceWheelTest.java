@@ -0,0 +1,143 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.reaktivity.nukleus.kafka.internal.stream.KafkaCacheMaintenanceWheel.Timer;
+
+public class KafkaCacheMaintenanceWheelTest
+{
+    private int expired;
+
+    @Test
+    public void shouldExpireNotBeforeDeadline()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(10L, 0L);
+        final Timer timer = new Timer(() -> expired++);
+
+        wheel.schedule(timer, 25L);
+
+        assertEquals(0, wheel.advance(20L, Integer.MAX_VALUE));
+        assertTrue(timer.scheduled());
+        assertEquals(1, wheel.advance(30L, Integer.MAX_VALUE));
+        assertFalse(timer.scheduled());
+        assertEquals(1, expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void shouldRescheduleEarlier()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(10L, 0L);
+        final Timer timer = new Timer(() -> expired++);
+
+        wheel.schedule(timer, 100_000L);
+        wheel.schedule(timer, 50L);
+
+        assertEquals(1, wheel.size());
+        assertEquals(50L, timer.deadline());
+        assertEquals(1, wheel.advance(60L, Integer.MAX_VALUE));
+        assertEquals(0, wheel.advance(200_000L, Integer.MAX_VALUE));
+        assertEquals(1, expired);
+    }
+
+    @Test
+    public void shouldCancel()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(10L, 0L);
+        final Timer timer = new Timer(() -> expired++);
+
+        wheel.schedule(timer, 50L);
+        wheel.cancel(timer);
+        wheel.cancel(timer);
+
+        assertEquals(0, wheel.size());
+        assertEquals(0, wheel.advance(100L, Integer.MAX_VALUE));
+        assertEquals(0, expired);
+    }
+
+    @Test
+    public void shouldExpireOverdueOnNextAdvance()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(10L, 1000L);
+        final Timer timer = new Timer(() -> expired++);
+
+        wheel.schedule(timer, 10L);
+
+        assertEquals(1, wheel.advance(1000L, Integer.MAX_VALUE));
+        assertEquals(1, expired);
+    }
+
+    @Test
+    public void shouldCascadeFromHigherLevels()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(1L, 7L);
+        final long[] deadlines = { 70L, 4_100L, 300_000L, 16_000_000L };
+        final long[] expiredAt = new long[deadlines.length];
+        final long[] now = new long[1];
+
+        for (int index = 0; index < deadlines.length; index++)
+        {
+            final int timerIndex = index;
+            wheel.schedule(new Timer(() -> expiredAt[timerIndex] = now[0]), deadlines[index]);
+        }
+
+        for (now[0] = 7L; wheel.size() != 0; now[0] += 997L)
+        {
+            wheel.advance(now[0], Integer.MAX_VALUE);
+        }
+
+        for (int index = 0; index < deadlines.length; index++)
+        {
+            assertTrue(expiredAt[index] >= deadlines[index]);
+            assertTrue(expiredAt[index] < deadlines[index] + 997L);
+        }
+    }
+
+    @Test
+    public void shouldExpireBeyondWheelSpan()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(1L, 0L);
+        final long deadline = 3L << (KafkaCacheMaintenanceWheel.SLOT_BITS * KafkaCacheMaintenanceWheel.LEVELS);
+        final Timer timer = new Timer(() -> expired++);
+
+        wheel.schedule(timer, deadline);
+
+        assertEquals(0, wheel.advance(deadline - 1L, Integer.MAX_VALUE));
+        assertEquals(1, wheel.advance(deadline, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldBoundExpiryBatch()
+    {
+        final KafkaCacheMaintenanceWheel wheel = new KafkaCacheMaintenanceWheel(10L, 0L);
+
+        for (int index = 0; index < 10; index++)
+        {
+            wheel.schedule(new Timer(() -> expired++), 50L);
+        }
+
+        assertEquals(4, wheel.advance(50L, 4));
+        assertEquals(4, wheel.advance(50L, 4));
+        assertEquals(2, wheel.advance(50L, 4));
+        assertEquals(10, expired);
+        assertEquals(0, wheel.size());
+    }
+}
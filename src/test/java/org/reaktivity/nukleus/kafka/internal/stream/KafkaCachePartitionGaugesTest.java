@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.junit.Test;
+
+public class KafkaCachePartitionGaugesTest
+{
+    private static final int COUNTERS_MAX = 1024;
+
+    private final Map<String, Long> values = new HashMap<>();
+
+    @Test
+    public void shouldSampleCursorLag()
+    {
+        final KafkaCounters counters = new KafkaCounters("cache", COUNTERS_MAX, this::supplyAccumulator);
+        final KafkaCachePartitionGauges gauges = counters.supplyPartitionGauges(1L, "test", 0);
+
+        gauges.sampleCursorLag(new long[] { 7L, 0L, 3L, 12L, 1L }, 5);
+
+        assertEquals(12L, values.get("cache.1.test.0.cursor.lag.max").longValue());
+        assertEquals(3L, values.get("cache.1.test.0.cursor.lag.median").longValue());
+
+        gauges.sampleCursorLag(new long[] { 2L, 4L, 99L }, 2);
+
+        assertEquals(4L, values.get("cache.1.test.0.cursor.lag.max").longValue());
+        assertEquals(2L, values.get("cache.1.test.0.cursor.lag.median").longValue());
+
+        gauges.resetCursorLag();
+
+        assertEquals(0L, values.get("cache.1.test.0.cursor.lag.max").longValue());
+        assertEquals(0L, values.get("cache.1.test.0.cursor.lag.median").longValue());
+    }
+
+    @Test
+    public void shouldAccumulateGaugeDeltas()
+    {
+        final KafkaCounters counters = new KafkaCounters("cache", COUNTERS_MAX, this::supplyAccumulator);
+        final KafkaCachePartitionGauges gauges = counters.supplyPartitionGauges(1L, "test", 2);
+
+        gauges.headOffset.set(10L);
+        gauges.headOffset.set(25L);
+
+        assertEquals(25L, gauges.headOffset.value());
+        assertEquals(25L, values.get("cache.1.test.2.head.offset").longValue());
+
+        gauges.resetSegments();
+
+        assertEquals(0L, values.get("cache.1.test.2.head.offset").longValue());
+    }
+
+    @Test
+    public void shouldReusePartitionGauges()
+    {
+        final KafkaCounters counters = new KafkaCounters("cache", COUNTERS_MAX, this::supplyAccumulator);
+
+        assertSame(counters.supplyPartitionGauges(1L, "test", 0), counters.supplyPartitionGauges(1L, "test", 0));
+    }
+
+    private LongConsumer supplyAccumulator(
+        String name)
+    {
+        return v -> values.merge(name, v, Long::sum);
+    }
+}
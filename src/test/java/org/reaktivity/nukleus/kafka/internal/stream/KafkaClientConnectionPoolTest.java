@@ -0,0 +1,418 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.function.MessageFunction;
+import org.reaktivity.nukleus.function.MessagePredicate;
+import org.reaktivity.nukleus.kafka.internal.KafkaConfiguration;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.AbortFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.route.RouteManager;
+import org.reaktivity.reaktor.internal.buffer.DefaultBufferPool;
+
+public class KafkaClientConnectionPoolTest
+{
+    private static final long ROUTE_ID = 1L;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final WindowFW windowRO = new WindowFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final MutableDirectBuffer frameBuffer = new UnsafeBuffer(new byte[1024]);
+    private final MutableDirectBuffer payloadBuffer = new UnsafeBuffer(new byte[256]);
+
+    private final Long2ObjectHashMap<MessageConsumer> correlations = new Long2ObjectHashMap<>();
+    private final List<Endpoint> networks = new ArrayList<>();
+
+    private KafkaClientConnectionPool pool;
+    private long nextStreamId;
+
+    @Before
+    public void initPool()
+    {
+        final Properties properties = new Properties();
+        properties.setProperty(KAFKA_CLIENT_CONNECTION_POOL_SIZE_NAME, "1");
+        final KafkaConfiguration config = new KafkaConfiguration(new Configuration(properties));
+
+        pool = new KafkaClientConnectionPool(config, new NetworkRouter(), new UnsafeBuffer(new byte[1024]),
+                new DefaultBufferPool(8 * 256, 256), r -> nextStreamId += 2, i -> i | 1L, correlations);
+    }
+
+    @Test
+    public void shouldShareConnectionForSameAffinity()
+    {
+        final Endpoint client1 = newClient(0L);
+        final Endpoint client2 = newClient(0L);
+
+        assertEquals(1, networks.size());
+
+        final Endpoint network = networks.get(0);
+        doNetworkReady(network);
+
+        assertTrue(client1.begun);
+        assertTrue(client2.begun);
+    }
+
+    @Test
+    public void shouldNotShareConnectionForDifferentAffinity()
+    {
+        newClient(1L);
+        newClient(2L);
+
+        assertEquals(2, networks.size());
+        assertEquals(1L, networks.get(0).affinity);
+        assertEquals(2L, networks.get(1).affinity);
+    }
+
+    @Test
+    public void shouldCorrelateResponsesOnSharedConnection()
+    {
+        final Endpoint client1 = newClient(0L);
+        final Endpoint client2 = newClient(0L);
+        final Endpoint network = networks.get(0);
+        doNetworkReady(network);
+
+        doWindow(client1.receiver, client1.replyId, 256);
+        doWindow(client2.receiver, client2.replyId, 256);
+        doRequest(client1, 7);
+        doRequest(client2, 7);
+
+        assertEquals(24, network.payloadLimit);
+        final int correlationId1 = network.payload.getInt(8, BIG_ENDIAN);
+        final int correlationId2 = network.payload.getInt(20, BIG_ENDIAN);
+        assertTrue(correlationId1 != correlationId2);
+
+        doResponse(network, correlationId2, 0x22);
+        doResponse(network, correlationId1, 0x11);
+
+        assertResponse(client1, 7, 0x11);
+        assertResponse(client2, 7, 0x22);
+    }
+
+    @Test
+    public void shouldNotStallSharedConnectionWithoutReplyWindow()
+    {
+        final Endpoint client1 = newClient(0L);
+        final Endpoint client2 = newClient(0L);
+        final Endpoint network = networks.get(0);
+        doNetworkReady(network);
+
+        doWindow(client2.receiver, client2.replyId, 256);
+        doRequest(client1, 1);
+        doRequest(client2, 2);
+
+        final int correlationId1 = network.payload.getInt(8, BIG_ENDIAN);
+        final int correlationId2 = network.payload.getInt(20, BIG_ENDIAN);
+
+        doResponse(network, correlationId1, 0x11);
+        doResponse(network, correlationId2, 0x22);
+
+        assertEquals(0, client1.payloadLimit);
+        assertResponse(client2, 2, 0x22);
+
+        doWindow(client1.receiver, client1.replyId, 4);
+        assertEquals(4, client1.payloadLimit);
+
+        doWindow(client1.receiver, client1.replyId, 256);
+        assertResponse(client1, 1, 0x11);
+    }
+
+    @Test
+    public void shouldStopDecodingWhenBufferedReplyExceedsSlot()
+    {
+        final Endpoint client1 = newClient(0L);
+        final Endpoint client2 = newClient(0L);
+        final Endpoint network = networks.get(0);
+        doNetworkReady(network);
+
+        doWindow(client2.receiver, client2.replyId, 256);
+        doRequest(client1, 1);
+        doRequest(client1, 1);
+        doRequest(client2, 2);
+
+        final int correlationId1 = network.payload.getInt(8, BIG_ENDIAN);
+        final int correlationId2 = network.payload.getInt(20, BIG_ENDIAN);
+        final int correlationId3 = network.payload.getInt(32, BIG_ENDIAN);
+
+        doResponse(network, correlationId1, 0x11, 160);
+        doResponse(network, correlationId2, 0x11, 160);
+
+        assertFalse(client1.aborted);
+        assertEquals(256 - 80, network.credit - 2 * 168);
+
+        doResponse(network, correlationId3, 0x22);
+
+        assertEquals(0, client1.payloadLimit);
+        assertEquals(0, client2.payloadLimit);
+
+        doWindow(client1.receiver, client1.replyId, 512);
+
+        assertEquals(2 * 168, client1.payloadLimit);
+        assertResponse(client2, 2, 0x22);
+        assertEquals(256, network.credit - 2 * 168 - 9);
+    }
+
+    private Endpoint newClient(
+        long affinity)
+    {
+        final long initialId = nextStreamId += 2;
+        final Endpoint client = new Endpoint();
+        client.replyId = initialId | 1L;
+        client.initialId = initialId;
+        client.receiver = pool.supplyNetwork(initialId);
+        correlations.put(client.replyId, client::onMessage);
+
+        final BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .routeId(ROUTE_ID)
+                .streamId(initialId)
+                .traceId(0L)
+                .authorization(0L)
+                .affinity(affinity)
+                .build();
+        client.receiver.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+
+        return client;
+    }
+
+    private void doNetworkReady(
+        Endpoint network)
+    {
+        final MessageConsumer receiver = correlations.get(network.replyId);
+
+        final BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .routeId(ROUTE_ID)
+                .streamId(network.replyId)
+                .traceId(0L)
+                .authorization(0L)
+                .affinity(0L)
+                .build();
+        receiver.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+
+        doWindow(network.receiver, network.initialId, 1024);
+    }
+
+    private void doRequest(
+        Endpoint client,
+        int correlationId)
+    {
+        payloadBuffer.putInt(0, 8, BIG_ENDIAN);
+        payloadBuffer.putShort(4, (short) 3, BIG_ENDIAN);
+        payloadBuffer.putShort(6, (short) 0, BIG_ENDIAN);
+        payloadBuffer.putInt(8, correlationId, BIG_ENDIAN);
+
+        doData(client.receiver, client.initialId, payloadBuffer, 12);
+    }
+
+    private void doResponse(
+        Endpoint network,
+        int correlationId,
+        int value)
+    {
+        doResponse(network, correlationId, value, 1);
+    }
+
+    private void doResponse(
+        Endpoint network,
+        int correlationId,
+        int value,
+        int length)
+    {
+        payloadBuffer.putInt(0, 4 + length, BIG_ENDIAN);
+        payloadBuffer.putInt(4, correlationId, BIG_ENDIAN);
+        payloadBuffer.setMemory(8, length, (byte) value);
+
+        doData(correlations.get(network.replyId), network.replyId, payloadBuffer, 8 + length);
+    }
+
+    private void doData(
+        MessageConsumer receiver,
+        long streamId,
+        DirectBuffer payload,
+        int length)
+    {
+        final DataFW data = dataRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .routeId(ROUTE_ID)
+                .streamId(streamId)
+                .traceId(0L)
+                .authorization(0L)
+                .budgetId(0L)
+                .reserved(length)
+                .payload(payload, 0, length)
+                .build();
+        receiver.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
+    }
+
+    private void doWindow(
+        MessageConsumer receiver,
+        long streamId,
+        int credit)
+    {
+        final WindowFW window = windowRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .routeId(ROUTE_ID)
+                .streamId(streamId)
+                .traceId(0L)
+                .authorization(0L)
+                .budgetId(0L)
+                .credit(credit)
+                .padding(0)
+                .build();
+        receiver.accept(window.typeId(), window.buffer(), window.offset(), window.sizeof());
+    }
+
+    private static void assertResponse(
+        Endpoint client,
+        int correlationId,
+        int value)
+    {
+        final DirectBuffer buffer = client.payload;
+
+        assertEquals(9, client.payloadLimit);
+        assertEquals(5, buffer.getInt(0, BIG_ENDIAN));
+        assertEquals(correlationId, buffer.getInt(4, BIG_ENDIAN));
+        assertEquals(value, buffer.getByte(8));
+    }
+
+    private final class NetworkRouter implements RouteManager
+    {
+        @Override
+        public <R> R resolveExternal(
+            long authorization,
+            MessagePredicate filter,
+            MessageFunction<R> wrapper)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <R> R resolve(
+            long routeId,
+            long authorization,
+            MessagePredicate filter,
+            MessageFunction<R> wrapper)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEach(
+            MessageConsumer consumer)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MessageConsumer supplyReceiver(
+            long streamId)
+        {
+            final Endpoint network = new Endpoint();
+            network.initialId = streamId;
+            network.replyId = streamId | 1L;
+            networks.add(network);
+            return network::onMessage;
+        }
+
+        @Override
+        public void setThrottle(
+            long streamId,
+            MessageConsumer throttle)
+        {
+            for (Endpoint network : networks)
+            {
+                if (network.initialId == streamId)
+                {
+                    network.receiver = throttle;
+                }
+            }
+        }
+
+        @Override
+        public void clearThrottle(
+            long streamId)
+        {
+        }
+    }
+
+    private final class Endpoint
+    {
+        private final MutableDirectBuffer payload = new ExpandableArrayBuffer();
+
+        private long initialId;
+        private long replyId;
+        private long affinity;
+        private MessageConsumer receiver;
+        private int payloadLimit;
+        private int credit;
+        private boolean begun;
+        private boolean aborted;
+
+        private void onMessage(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            switch (msgTypeId)
+            {
+            case BeginFW.TYPE_ID:
+                final BeginFW begin = beginRO.wrap(buffer, index, index + length);
+                affinity = begin.affinity();
+                begun = true;
+                break;
+            case DataFW.TYPE_ID:
+                final DataFW data = dataRO.wrap(buffer, index, index + length);
+                final OctetsFW bytes = data.payload();
+                payload.putBytes(payloadLimit, bytes.buffer(), bytes.offset(), bytes.sizeof());
+                payloadLimit += bytes.sizeof();
+                break;
+            case WindowFW.TYPE_ID:
+                final WindowFW window = windowRO.wrap(buffer, index, index + length);
+                credit += window.credit();
+                break;
+            case AbortFW.TYPE_ID:
+                aborted = true;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+}
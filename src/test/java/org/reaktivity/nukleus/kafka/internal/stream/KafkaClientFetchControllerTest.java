@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KafkaClientFetchControllerTest
+{
+    @Test
+    public void shouldGrowMaxBytesWhenResponsesFull()
+    {
+        final KafkaClientFetchController controller = new KafkaClientFetchController(60000, 1024, 4096, 100);
+
+        assertEquals(1024, controller.maxBytes());
+
+        controller.onFetchResponse(1024, 10L, 65536, 0);
+        assertEquals(2048, controller.maxBytes());
+
+        controller.onFetchResponse(2048, 10L, 65536, 0);
+        controller.onFetchResponse(4096, 10L, 65536, 0);
+        assertEquals(4096, controller.maxBytes());
+    }
+
+    @Test
+    public void shouldShrinkMaxBytesWhenBacklogged()
+    {
+        final KafkaClientFetchController controller = new KafkaClientFetchController(60000, 1024, 4096, 100);
+
+        controller.onFetchResponse(1024, 10L, 65536, 0);
+        controller.onFetchResponse(2048, 10L, 65536, 0);
+        assertEquals(4096, controller.maxBytes());
+
+        controller.onFetchResponse(4096, 10L, 65536, 512);
+        assertEquals(2048, controller.maxBytes());
+
+        controller.onFetchResponse(2048, 10L, 65536, 512);
+        controller.onFetchResponse(2048, 10L, 65536, 512);
+        assertEquals(1024, controller.maxBytes());
+    }
+
+    @Test
+    public void shouldBatchArrivalsWithinLatency()
+    {
+        final KafkaClientFetchController controller = new KafkaClientFetchController(60000, 65536, 65536, 100);
+
+        assertEquals(1, controller.minBytes());
+        assertEquals(60000, controller.maxWaitMillis());
+
+        controller.onFetchResponse(1000, 1L, 65536, 0);
+
+        assertTrue(controller.minBytes() > 1);
+        assertTrue(controller.minBytes() <= 65536);
+        assertEquals(100, controller.maxWaitMillis());
+    }
+
+    @Test
+    public void shouldLimitMinBytesToCredit()
+    {
+        final KafkaClientFetchController controller = new KafkaClientFetchController(60000, 65536, 65536, 100);
+
+        controller.onFetchResponse(60000, 1L, 256, 0);
+
+        assertEquals(256, controller.minBytes());
+    }
+
+    @Test
+    public void shouldRevertToLongPollWhenIdle()
+    {
+        final KafkaClientFetchController controller = new KafkaClientFetchController(60000, 65536, 65536, 100);
+
+        controller.onFetchResponse(1000, 1L, 65536, 0);
+        assertEquals(100, controller.maxWaitMillis());
+
+        for (int i = 0; i < 64; i++)
+        {
+            controller.onFetchResponse(0, 100L, 65536, 0);
+        }
+
+        assertEquals(1, controller.minBytes());
+        assertEquals(60000, controller.maxWaitMillis());
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.collections.Int2IntHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.junit.Test;
+
+public class KafkaClientMetadataTest
+{
+    @Test
+    public void shouldAcquireForSingleOwner()
+    {
+        final KafkaClientMetadata metadata = new KafkaClientMetadata();
+        final Object owner = new Object();
+        final Object other = new Object();
+
+        assertTrue(metadata.acquire(owner));
+        assertTrue(metadata.acquire(owner));
+        assertFalse(metadata.acquire(other));
+
+        metadata.release(other);
+        assertFalse(metadata.acquire(other));
+
+        metadata.release(owner);
+        assertTrue(metadata.acquire(other));
+    }
+
+    @Test
+    public void shouldPublishVersionOnlyWhenChanged()
+    {
+        final KafkaClientMetadata metadata = new KafkaClientMetadata();
+        final Long2ObjectHashMap<KafkaBrokerInfo> brokers = new Long2ObjectHashMap<>();
+        final Int2IntHashMap partitions = new Int2IntHashMap(-1);
+
+        brokers.put(1, new KafkaBrokerInfo(1, "broker1", 9092));
+        partitions.put(0, 1);
+
+        assertEquals(0L, metadata.version());
+
+        metadata.publish(brokers, partitions);
+        assertEquals(1L, metadata.version());
+
+        metadata.publish(brokers, partitions);
+        assertEquals(1L, metadata.version());
+
+        partitions.put(0, 2);
+        metadata.publish(brokers, partitions);
+        assertEquals(2L, metadata.version());
+    }
+
+    @Test
+    public void shouldReadPublishedSnapshot()
+    {
+        final KafkaClientMetadata metadata = new KafkaClientMetadata();
+        final Long2ObjectHashMap<KafkaBrokerInfo> brokers = new Long2ObjectHashMap<>();
+        final Int2IntHashMap partitions = new Int2IntHashMap(-1);
+
+        brokers.put(1, new KafkaBrokerInfo(1, "broker1", 9092));
+        brokers.put(2, new KafkaBrokerInfo(2, "broker2", 9092));
+        partitions.put(0, 1);
+        partitions.put(1, 2);
+        metadata.publish(brokers, partitions);
+
+        final Long2ObjectHashMap<KafkaBrokerInfo> readBrokers = new Long2ObjectHashMap<>();
+        final Int2IntHashMap readPartitions = new Int2IntHashMap(-1);
+
+        final long version = metadata.read(0L, readBrokers, readPartitions);
+
+        assertEquals(1L, version);
+        assertEquals(2, readBrokers.size());
+        assertEquals("broker2", readBrokers.get(2).host);
+        assertEquals(partitions, readPartitions);
+    }
+
+    @Test
+    public void shouldConsumeRefreshOnce()
+    {
+        final KafkaClientMetadata metadata = new KafkaClientMetadata();
+
+        assertFalse(metadata.consumeRefresh());
+
+        metadata.requestRefresh();
+        assertTrue(metadata.consumeRefresh());
+        assertFalse(metadata.consumeRefresh());
+    }
+}
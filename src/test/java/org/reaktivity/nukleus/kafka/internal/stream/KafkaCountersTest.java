@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.junit.Test;
+
+public class KafkaCountersTest
+{
+    private static final int COUNTERS_MAX = 1024;
+
+    private final Map<String, Long> values = new HashMap<>();
+
+    @Test
+    public void shouldCountPerRouteAndTopic()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", COUNTERS_MAX, this::supplyAccumulator);
+
+        final KafkaTopicCounters test = counters.supplyTopicCounters(1L, "test");
+        final KafkaTopicCounters other = counters.supplyTopicCounters(2L, "test");
+
+        test.fetchRequests.accept(1L);
+        test.fetchRecords.accept(3L);
+        test.fetchBytes.accept(1024L);
+        other.produceRecords.accept(1L);
+
+        assertEquals(1L, values.get("client.1.test.fetch.requests").longValue());
+        assertEquals(3L, values.get("client.1.test.fetch.records").longValue());
+        assertEquals(1024L, values.get("client.1.test.fetch.bytes").longValue());
+        assertEquals(1L, values.get("client.2.test.produce.records").longValue());
+    }
+
+    @Test
+    public void shouldReuseTopicCounters()
+    {
+        final KafkaCounters counters = new KafkaCounters("cache", COUNTERS_MAX, this::supplyAccumulator);
+
+        assertSame(counters.supplyTopicCounters(1L, "test"), counters.supplyTopicCounters(1L, "test"));
+    }
+
+    @Test
+    public void shouldCountErrorsByCode()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", COUNTERS_MAX, this::supplyAccumulator);
+        final KafkaTopicCounters test = counters.supplyTopicCounters(1L, "test");
+
+        test.onError(6);
+        test.onError(6);
+        test.onError(3);
+
+        assertEquals(2L, values.get("client.1.test.errors.6").longValue());
+        assertEquals(1L, values.get("client.1.test.errors.3").longValue());
+    }
+
+    @Test
+    public void shouldIgnoreMissingSuppliers()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", COUNTERS_MAX, null);
+        final KafkaTopicCounters test = counters.supplyTopicCounters(1L, "test");
+
+        test.fetchRequests.accept(1L);
+        test.fetchBytes.accept(1024L);
+        test.onError(6);
+
+        assertEquals(0, values.size());
+    }
+
+    @Test
+    public void shouldAllocateTopicCountersEagerly()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", COUNTERS_MAX, this::supplyAccumulator);
+
+        counters.supplyTopicCounters(1L, "test");
+
+        assertEquals(KafkaTopicCounters.COUNTERS, values.size());
+        assertEquals(0L, values.get("client.1.test.produce.bytes").longValue());
+    }
+
+    @Test
+    public void shouldNotExceedCountersMax()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", KafkaTopicCounters.COUNTERS + 1, this::supplyAccumulator);
+
+        final KafkaTopicCounters test = counters.supplyTopicCounters(1L, "test");
+        final KafkaTopicCounters other = counters.supplyTopicCounters(1L, "other");
+
+        other.fetchBytes.accept(1024L);
+        test.onError(6);
+        test.onError(3);
+
+        assertEquals(KafkaTopicCounters.COUNTERS + 1, values.size());
+        assertEquals(1L, values.get("client.1.test.errors.6").longValue());
+        assertFalse(values.containsKey("client.1.test.errors.3"));
+        assertFalse(values.containsKey("client.1.other.fetch.bytes"));
+    }
+
+    @Test
+    public void shouldDisableCountersByDefault()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", 0, this::supplyAccumulator);
+        final KafkaTopicCounters test = counters.supplyTopicCounters(1L, "test");
+
+        test.produceRequests.accept(1L);
+        test.onError(6);
+
+        assertEquals(0, values.size());
+    }
+
+    private LongConsumer supplyAccumulator(
+        String name)
+    {
+        return v -> values.merge(name, v, Long::sum);
+    }
+}
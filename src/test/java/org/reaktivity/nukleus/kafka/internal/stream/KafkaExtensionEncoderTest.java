@@ -0,0 +1,224 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.reaktivity.nukleus.kafka.internal.types.ArrayFW;
+import org.reaktivity.nukleus.kafka.internal.types.Flyweight;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaDeltaType;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaHeaderFW;
+import org.reaktivity.nukleus.kafka.internal.types.KafkaKeyFW;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaDataExFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.KafkaFetchDataExFW;
+
+import com.sun.management.ThreadMXBean;
+
+public class KafkaExtensionEncoderTest
+{
+    private static final int KAFKA_TYPE_ID = 1;
+    private static final int RECORDS = 10_000;
+
+    private static final DirectBuffer KEY = new UnsafeBuffer("key".getBytes(UTF_8));
+    private static final DirectBuffer NAME = new UnsafeBuffer("name".getBytes(UTF_8));
+    private static final DirectBuffer VALUE = new UnsafeBuffer("value".getBytes(UTF_8));
+
+    private final KafkaDataExFW.Builder kafkaDataExRW = new KafkaDataExFW.Builder();
+    private final KafkaDataExFW kafkaDataExRO = new KafkaDataExFW();
+
+    private final MutableDirectBuffer expectedBuffer = new UnsafeBuffer(new byte[1024]);
+    private final MutableDirectBuffer sampleBuffer = new UnsafeBuffer(new byte[1024]);
+
+    private KafkaExtensionEncoder encoder;
+    private KafkaKeyFW key;
+    private ArrayFW<KafkaHeaderFW> headers;
+
+    @Before
+    public void initSample()
+    {
+        final KafkaDataExFW sample = kafkaDataExRW.wrap(sampleBuffer, 0, sampleBuffer.capacity())
+                .typeId(KAFKA_TYPE_ID)
+                .fetch(f -> f.partition(p -> p.partitionId(0).partitionOffset(0L))
+                             .key(k -> k.length(KEY.capacity()).value(KEY, 0, KEY.capacity()))
+                             .delta(d -> d.type(t -> t.set(KafkaDeltaType.NONE)))
+                             .headersItem(h -> h.nameLen(NAME.capacity())
+                                                .name(NAME, 0, NAME.capacity())
+                                                .valueLen(VALUE.capacity())
+                                                .value(VALUE, 0, VALUE.capacity()))
+                             .headersItem(h -> h.nameLen(NAME.capacity())
+                                                .name(NAME, 0, NAME.capacity())
+                                                .valueLen(-1)
+                                                .value((OctetsFW) null)))
+                .build();
+
+        final KafkaFetchDataExFW fetch = kafkaDataExRO.wrap(sample.buffer(), sample.offset(), sample.limit()).fetch();
+
+        this.key = fetch.key();
+        this.headers = fetch.headers();
+        this.encoder = new KafkaExtensionEncoder(KAFKA_TYPE_ID, new UnsafeBuffer(new byte[1024]));
+    }
+
+    @Test
+    public void shouldEncodeFetchDataFull()
+    {
+        final KafkaDataExFW expected = kafkaDataExRW.wrap(expectedBuffer, 0, expectedBuffer.capacity())
+                .typeId(KAFKA_TYPE_ID)
+                .fetch(f -> f.timestamp(12L)
+                             .partition(p -> p.partitionId(1).partitionOffset(34L).latestOffset(56L))
+                             .key(k -> k.length(key.length()).value(key.value()))
+                             .delta(d -> d.type(t -> t.set(KafkaDeltaType.NONE)).ancestorOffset(-1L))
+                             .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
+                                                                               .name(h.name())
+                                                                               .valueLen(h.valueLen())
+                                                                               .value(h.value())))))
+                .build();
+
+        final KafkaDataExFW actual =
+                encoder.fetchDataFull(12L, 1, 34L, 56L, key, KafkaDeltaType.NONE, -1L, headers);
+
+        assertEncoded(expected, actual);
+    }
+
+    @Test
+    public void shouldEncodeFetchDataInit()
+    {
+        final KafkaDataExFW expected = kafkaDataExRW.wrap(expectedBuffer, 0, expectedBuffer.capacity())
+                .typeId(KAFKA_TYPE_ID)
+                .fetch(f -> f.deferred(100)
+                             .timestamp(12L)
+                             .partition(p -> p.partitionId(1).partitionOffset(34L).latestOffset(56L))
+                             .key(k -> k.length(key.length()).value(key.value()))
+                             .delta(d -> d.type(t -> t.set(KafkaDeltaType.NONE)).ancestorOffset(-1L)))
+                .build();
+
+        final KafkaDataExFW actual =
+                encoder.fetchDataInit(100, 12L, 1, 34L, 56L, key, KafkaDeltaType.NONE, -1L);
+
+        assertEncoded(expected, actual);
+    }
+
+    @Test
+    public void shouldEncodeFetchDataFin()
+    {
+        final KafkaDataExFW expected = kafkaDataExRW.wrap(expectedBuffer, 0, expectedBuffer.capacity())
+                .typeId(KAFKA_TYPE_ID)
+                .fetch(f -> f.partition(p -> p.partitionId(1).partitionOffset(34L).latestOffset(56L))
+                             .delta(d -> d.type(t -> t.set(KafkaDeltaType.NONE)).ancestorOffset(-1L))
+                             .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
+                                                                               .name(h.name())
+                                                                               .valueLen(h.valueLen())
+                                                                               .value(h.value())))))
+                .build();
+
+        final KafkaDataExFW actual = encoder.fetchDataFin(1, 34L, 56L, KafkaDeltaType.NONE, -1L, headers);
+
+        assertEncoded(expected, actual);
+    }
+
+    @Test
+    public void shouldEncodeProduceDataFull()
+    {
+        final KafkaDataExFW expected = kafkaDataExRW.wrap(expectedBuffer, 0, expectedBuffer.capacity())
+                .typeId(KAFKA_TYPE_ID)
+                .produce(f -> f.timestamp(12L)
+                               .sequence(3)
+                               .crc32c(0x1234L)
+                               .key(k -> k.length(key.length()).value(key.value()))
+                               .headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
+                                                                                 .name(h.name())
+                                                                                 .valueLen(h.valueLen())
+                                                                                 .value(h.value())))))
+                .build();
+
+        final KafkaDataExFW actual = encoder.produceDataFull(12L, 3, 0x1234L, key, headers);
+
+        assertEncoded(expected, actual);
+    }
+
+    @Test
+    public void shouldEncodeProduceDataFin()
+    {
+        final KafkaDataExFW expected = kafkaDataExRW.wrap(expectedBuffer, 0, expectedBuffer.capacity())
+                .typeId(KAFKA_TYPE_ID)
+                .produce(f -> f.headers(hs -> headers.forEach(h -> hs.item(i -> i.nameLen(h.nameLen())
+                                                                                 .name(h.name())
+                                                                                 .valueLen(h.valueLen())
+                                                                                 .value(h.value())))))
+                .build();
+
+        final KafkaDataExFW actual = encoder.produceDataFin(headers);
+
+        assertEncoded(expected, actual);
+    }
+
+    @Test
+    public void shouldNotAllocatePerRecord()
+    {
+        final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        final long threadId = Thread.currentThread().getId();
+
+        encodeRecords(RECORDS);
+
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        final int sizeof = encodeRecords(RECORDS);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertTrue(sizeof > 0);
+        assertTrue(String.format("%d bytes allocated for %d records", allocated, RECORDS), allocated < RECORDS);
+    }
+
+    private int encodeRecords(
+        int count)
+    {
+        int sizeof = 0;
+        for (int i = 0; i < count; i++)
+        {
+            sizeof += encoder.fetchDataFull(i, 0, i, i, key, KafkaDeltaType.NONE, -1L, headers).sizeof();
+            sizeof += encoder.fetchDataInit(1, i, 0, i, i, key, KafkaDeltaType.NONE, -1L).sizeof();
+            sizeof += encoder.fetchDataFin(0, i, i, KafkaDeltaType.NONE, -1L, headers).sizeof();
+            sizeof += encoder.produceDataFull(i, i, 0L, key, headers).sizeof();
+            sizeof += encoder.fetchFlush(0, i, i).sizeof();
+            sizeof += encoder.produceFlush(0, i).sizeof();
+        }
+        return sizeof;
+    }
+
+    private static void assertEncoded(
+        Flyweight expected,
+        Flyweight actual)
+    {
+        assertEquals(expected.sizeof(), actual.sizeof());
+        for (int index = 0; index < expected.sizeof(); index++)
+        {
+            assertEquals(expected.buffer().getByte(expected.offset() + index),
+                         actual.buffer().getByte(actual.offset() + index));
+        }
+    }
+}
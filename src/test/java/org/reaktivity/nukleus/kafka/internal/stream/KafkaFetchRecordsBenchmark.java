@@ -0,0 +1,311 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.concurrent.TimeUnit;
+
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.Varint32FW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.MessageHeaderFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordBatchFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordHeaderFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordTrailerFW;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KafkaFetchRecordsBenchmark
+{
+    private static final int RECORD_BATCH_SIZE_MAX = 1024 * 1024;
+    private static final int FIELD_LIMIT_RECORD_BATCH_LENGTH = RecordBatchFW.FIELD_OFFSET_LEADER_EPOCH;
+
+    private final RecordBatchFW recordBatchRO = new RecordBatchFW();
+    private final Varint32FW recordLengthRO = new Varint32FW();
+    private final RecordHeaderFW recordHeaderRO = new RecordHeaderFW();
+    private final RecordTrailerFW recordTrailerRO = new RecordTrailerFW();
+    private final MessageHeaderFW messageHeaderRO = new MessageHeaderFW();
+    private final OctetsFW valueRO = new OctetsFW();
+    private final DirectBuffer headersRO = new UnsafeBuffer(0, 0);
+
+    @Param({ "64", "1024", "16384" })
+    public int recordSize;
+
+    @Param({ "0", "4" })
+    public int headerCount;
+
+    @Param({ "0", "1460", "8192" })
+    public int fragmentSize;
+
+    private MutableDirectBuffer recordSet;
+    private int recordSetLimit;
+    private MutableDirectBuffer decodeSlot;
+
+    @Setup
+    public void init()
+    {
+        final int recordCount = Math.max(RECORD_BATCH_SIZE_MAX / 2 / (recordSize + 64 * headerCount + 32), 1);
+
+        this.recordSet = new UnsafeBuffer(new byte[RECORD_BATCH_SIZE_MAX]);
+        this.recordSetLimit = encodeRecordBatch(recordSet, recordCount, recordSize, headerCount);
+        this.decodeSlot = new UnsafeBuffer(new byte[RECORD_BATCH_SIZE_MAX]);
+    }
+
+    @Benchmark
+    public long decode(
+        Blackhole blackhole)
+    {
+        final int frameSize = fragmentSize != 0 ? fragmentSize : recordSetLimit;
+
+        long decodedRecords = 0;
+        int decodeSlotLimit = 0;
+        int decodableRecords = -1;
+
+        for (int frameOffset = 0; frameOffset < recordSetLimit; frameOffset += frameSize)
+        {
+            final int frameLimit = Math.min(frameOffset + frameSize, recordSetLimit);
+
+            DirectBuffer buffer = recordSet;
+            int progress = frameOffset;
+            int limit = frameLimit;
+
+            if (decodeSlotLimit != 0)
+            {
+                decodeSlot.putBytes(decodeSlotLimit, recordSet, frameOffset, frameLimit - frameOffset);
+                decodeSlotLimit += frameLimit - frameOffset;
+                buffer = decodeSlot;
+                progress = 0;
+                limit = decodeSlotLimit;
+            }
+
+            if (decodableRecords == -1)
+            {
+                final RecordBatchFW recordBatch = recordBatchRO.tryWrap(buffer, progress, limit);
+                if (recordBatch != null)
+                {
+                    decodableRecords = recordBatch.recordCount();
+                    progress = recordBatch.limit();
+                }
+            }
+
+            while (decodableRecords > 0)
+            {
+                final int recordLimit = decodeRecord(buffer, progress, limit, blackhole);
+                if (recordLimit == -1)
+                {
+                    break;
+                }
+
+                progress = recordLimit;
+                decodableRecords--;
+                decodedRecords++;
+            }
+
+            final int remaining = limit - progress;
+            if (remaining != 0)
+            {
+                decodeSlot.putBytes(0, buffer, progress, remaining);
+            }
+            decodeSlotLimit = remaining;
+        }
+
+        return decodedRecords;
+    }
+
+    public static void main(
+        String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(KafkaFetchRecordsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private int decodeRecord(
+        DirectBuffer buffer,
+        int progress,
+        int limit,
+        Blackhole blackhole)
+    {
+        final Varint32FW recordLength = recordLengthRO.tryWrap(buffer, progress, limit);
+        if (recordLength == null)
+        {
+            return -1;
+        }
+
+        final int sizeofRecord = recordLength.sizeof() + recordLength.value();
+        if (progress + sizeofRecord > limit)
+        {
+            return -1;
+        }
+
+        final RecordHeaderFW recordHeader = recordHeaderRO.tryWrap(buffer, progress, limit);
+        if (recordHeader == null)
+        {
+            return -1;
+        }
+
+        final int recordLimit = recordHeader.offset() + sizeofRecord;
+        final int valueLength = recordHeader.valueLength();
+        final int valueOffset = recordHeader.limit();
+        final OctetsFW value = valueLength != -1 ? valueRO.wrap(buffer, valueOffset, valueOffset + valueLength) : null;
+
+        final int trailerOffset = valueOffset + Math.max(valueLength, 0);
+        final RecordTrailerFW recordTrailer = recordTrailerRO.wrap(buffer, trailerOffset, recordLimit);
+        final int headerCount = recordTrailer.headerCount();
+        final int headersOffset = recordTrailer.limit();
+        final int headersLength = recordLimit - headersOffset;
+
+        blackhole.consume(recordHeader.offsetDelta());
+        blackhole.consume(recordHeader.timestampDelta());
+        blackhole.consume(recordHeader.key());
+        blackhole.consume(value);
+
+        if (headersLength != 0)
+        {
+            final DirectBuffer headers = headersRO;
+            headers.wrap(buffer, headersOffset, headersLength);
+
+            int headerProgress = 0;
+            for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
+            {
+                final MessageHeaderFW header = messageHeaderRO.wrap(headers, headerProgress, headersLength);
+                blackhole.consume(header.key());
+                blackhole.consume(header.value());
+                headerProgress = header.limit();
+            }
+        }
+
+        return recordLimit;
+    }
+
+    static int encodeRecordBatch(
+        MutableDirectBuffer buffer,
+        int recordCount,
+        int valueSize,
+        int headerCount)
+    {
+        final byte[] value = new byte[valueSize];
+        final byte[] key = "key".getBytes(UTF_8);
+        final byte[] headerName = "header".getBytes(UTF_8);
+        final byte[] headerValue = "value".getBytes(UTF_8);
+
+        int progress = RecordBatchFW.FIELD_OFFSET_RECORD_COUNT + Integer.BYTES;
+        for (int offsetDelta = 0; offsetDelta < recordCount; offsetDelta++)
+        {
+            int recordSize = 1 + sizeofVarint(0) + sizeofVarint(offsetDelta) +
+                    sizeofVarint(key.length) + key.length + sizeofVarint(value.length) + value.length +
+                    sizeofVarint(headerCount);
+            for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
+            {
+                recordSize += sizeofVarint(headerName.length) + headerName.length +
+                        sizeofVarint(headerValue.length) + headerValue.length;
+            }
+
+            progress = putVarint(buffer, progress, recordSize);
+            buffer.putByte(progress++, (byte) 0);
+            progress = putVarint(buffer, progress, 0);
+            progress = putVarint(buffer, progress, offsetDelta);
+            progress = putVarint(buffer, progress, key.length);
+            buffer.putBytes(progress, key);
+            progress += key.length;
+            progress = putVarint(buffer, progress, value.length);
+            buffer.putBytes(progress, value);
+            progress += value.length;
+            progress = putVarint(buffer, progress, headerCount);
+            for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
+            {
+                progress = putVarint(buffer, progress, headerName.length);
+                buffer.putBytes(progress, headerName);
+                progress += headerName.length;
+                progress = putVarint(buffer, progress, headerValue.length);
+                buffer.putBytes(progress, headerValue);
+                progress += headerValue.length;
+            }
+        }
+
+        buffer.putLong(RecordBatchFW.FIELD_OFFSET_BASE_OFFSET, 0L, BIG_ENDIAN);
+        buffer.putInt(RecordBatchFW.FIELD_OFFSET_LENGTH, progress - FIELD_LIMIT_RECORD_BATCH_LENGTH, BIG_ENDIAN);
+        buffer.putInt(RecordBatchFW.FIELD_OFFSET_LEADER_EPOCH, -1, BIG_ENDIAN);
+        buffer.putByte(RecordBatchFW.FIELD_OFFSET_MAGIC, (byte) 2);
+        buffer.putShort(RecordBatchFW.FIELD_OFFSET_ATTRIBUTES, (short) 0, BIG_ENDIAN);
+        buffer.putInt(RecordBatchFW.FIELD_OFFSET_LAST_OFFSET_DELTA, recordCount - 1, BIG_ENDIAN);
+        buffer.putLong(RecordBatchFW.FIELD_OFFSET_FIRST_TIMESTAMP, System.currentTimeMillis(), BIG_ENDIAN);
+        buffer.putLong(RecordBatchFW.FIELD_OFFSET_MAX_TIMESTAMP, System.currentTimeMillis(), BIG_ENDIAN);
+        buffer.putLong(RecordBatchFW.FIELD_OFFSET_PRODUCER_ID, -1L, BIG_ENDIAN);
+        buffer.putShort(RecordBatchFW.FIELD_OFFSET_PRODUCER_EPOCH, (short) -1, BIG_ENDIAN);
+        buffer.putInt(RecordBatchFW.FIELD_OFFSET_BASE_SEQUENCE, -1, BIG_ENDIAN);
+        buffer.putInt(RecordBatchFW.FIELD_OFFSET_RECORD_COUNT, recordCount, BIG_ENDIAN);
+
+        return progress;
+    }
+
+    private static int sizeofVarint(
+        int value)
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+        int size = 1;
+        while ((zigzag & ~0x7f) != 0)
+        {
+            zigzag >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int putVarint(
+        MutableDirectBuffer buffer,
+        int offset,
+        int value)
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7f) != 0)
+        {
+            buffer.putByte(offset++, (byte) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.putByte(offset++, (byte) zigzag);
+        return offset;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.junit.Test;
+
+public class KafkaLatencyHistogramTest
+{
+    private static final int COUNTERS_MAX = 1024;
+
+    private final Map<String, Long> values = new HashMap<>();
+
+    @Test
+    public void shouldSelectLogLinearBuckets()
+    {
+        assertEquals(0, KafkaLatencyHistogram.bucket(0L));
+        assertEquals(0, KafkaLatencyHistogram.bucket(1L));
+        assertEquals(1, KafkaLatencyHistogram.bucket(2L));
+        assertEquals(2, KafkaLatencyHistogram.bucket(3L));
+        assertEquals(3, KafkaLatencyHistogram.bucket(4L));
+        assertEquals(4, KafkaLatencyHistogram.bucket(5L));
+        assertEquals(4, KafkaLatencyHistogram.bucket(6L));
+        assertEquals(5, KafkaLatencyHistogram.bucket(7L));
+        assertEquals(5, KafkaLatencyHistogram.bucket(8L));
+        assertEquals(18, KafkaLatencyHistogram.bucket(700L));
+        assertEquals(19, KafkaLatencyHistogram.bucket(1000L));
+        assertEquals(47, KafkaLatencyHistogram.bucket(16777216L));
+        assertEquals(48, KafkaLatencyHistogram.bucket(16777217L));
+        assertEquals(KafkaLatencyHistogram.BUCKETS - 1, KafkaLatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldNameBucketsByUpperBound()
+    {
+        assertEquals("le.1", KafkaLatencyHistogram.bucketName(0));
+        assertEquals("le.2", KafkaLatencyHistogram.bucketName(1));
+        assertEquals("le.6", KafkaLatencyHistogram.bucketName(4));
+        assertEquals("le.8", KafkaLatencyHistogram.bucketName(5));
+        assertEquals("le.768", KafkaLatencyHistogram.bucketName(18));
+        assertEquals("le.1024", KafkaLatencyHistogram.bucketName(19));
+        assertEquals("le.16777216", KafkaLatencyHistogram.bucketName(47));
+        assertEquals("le.inf", KafkaLatencyHistogram.bucketName(48));
+    }
+
+    @Test
+    public void shouldBoundEveryValueByItsBucket()
+    {
+        for (long value = 1L; value <= 1L << 20; value++)
+        {
+            final int bucket = KafkaLatencyHistogram.bucket(value);
+            assertTrue(value <= KafkaLatencyHistogram.bucketBound(bucket));
+            assertTrue(bucket == 0 || value > KafkaLatencyHistogram.bucketBound(bucket - 1));
+        }
+    }
+
+    @Test
+    public void shouldRecordPerRouteHistogram()
+    {
+        final KafkaCounters counters = new KafkaCounters("cache", COUNTERS_MAX, this::supplyAccumulator);
+        final KafkaLatencyHistogram histogram = counters.supplyHistogram(1L, "produce.ack.us");
+
+        histogram.record(700L);
+        histogram.record(1000L);
+        histogram.record(-5L);
+        histogram.record(60_000_000L);
+
+        assertEquals(1L, values.get("cache.1.produce.ack.us.le.768").longValue());
+        assertEquals(1L, values.get("cache.1.produce.ack.us.le.1024").longValue());
+        assertEquals(1L, values.get("cache.1.produce.ack.us.le.1").longValue());
+        assertEquals(1L, values.get("cache.1.produce.ack.us.le.inf").longValue());
+        assertEquals(60_001_700L, values.get("cache.1.produce.ack.us.sum").longValue());
+        assertEquals(0L, values.get("cache.1.produce.ack.us.le.512").longValue());
+    }
+
+    @Test
+    public void shouldAllocateHistogramEagerly()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", COUNTERS_MAX, this::supplyAccumulator);
+
+        counters.supplyHistogram(1L, "fetch.rtt.us");
+
+        assertEquals(KafkaLatencyHistogram.COUNTERS, values.size());
+    }
+
+    @Test
+    public void shouldNotRecordWhenCountersMaxExceeded()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", KafkaLatencyHistogram.COUNTERS - 1, this::supplyAccumulator);
+        final KafkaLatencyHistogram histogram = counters.supplyHistogram(1L, "fetch.rtt.us");
+
+        histogram.record(100L);
+
+        assertEquals(0, values.size());
+    }
+
+    @Test
+    public void shouldReuseHistogramPerRoute()
+    {
+        final KafkaCounters counters = new KafkaCounters("client", COUNTERS_MAX, this::supplyAccumulator);
+
+        assertSame(counters.supplyHistogram(1L, "fetch.rtt.us"), counters.supplyHistogram(1L, "fetch.rtt.us"));
+    }
+
+    private LongConsumer supplyAccumulator(
+        String name)
+    {
+        return v -> values.merge(name, v, Long::sum);
+    }
+}
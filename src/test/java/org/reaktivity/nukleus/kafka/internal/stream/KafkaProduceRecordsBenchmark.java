@@ -0,0 +1,278 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.reaktivity.nukleus.kafka.internal.stream.KafkaChecksum.combineCRC32C;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordBatchFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordHeaderFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordTrailerFW;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KafkaProduceRecordsBenchmark
+{
+    private static final int ENCODE_SLOT_CAPACITY = 1024 * 1024;
+    private static final int RECORDS_OFFSET = RecordBatchFW.FIELD_OFFSET_RECORD_COUNT + Integer.BYTES;
+    private static final int RECORD_LENGTH_MAX = 5;
+    private static final byte RECORD_BATCH_MAGIC = 2;
+    private static final short RECORD_BATCH_ATTRIBUTES_NONE = 0;
+    private static final byte RECORD_ATTRIBUTES_NONE = 0;
+
+    private final RecordBatchFW.Builder recordBatchRW = new RecordBatchFW.Builder();
+    private final RecordHeaderFW.Builder recordHeaderRW = new RecordHeaderFW.Builder();
+    private final RecordTrailerFW.Builder recordTrailerRW = new RecordTrailerFW.Builder();
+    private final CRC32C crc32c = new CRC32C();
+
+    @Param({ "64", "1024", "16384" })
+    public int recordSize;
+
+    @Param({ "0", "4" })
+    public int headerCount;
+
+    @Param({ "0", "1460", "8192" })
+    public int fragmentSize;
+
+    private int recordCount;
+    private OctetsFW key;
+    private MutableDirectBuffer value;
+    private long valueChecksum;
+    private MutableDirectBuffer headerItems;
+    private int headerItemsSize;
+    private MutableDirectBuffer encodeBuffer;
+    private MutableDirectBuffer encodeSlot;
+    private ByteBuffer encodeSlotByteBuffer;
+
+    @Setup
+    public void init()
+    {
+        final byte[] keyBytes = "key".getBytes(UTF_8);
+        final byte[] headerName = "header".getBytes(UTF_8);
+        final byte[] headerValue = "value".getBytes(UTF_8);
+
+        this.recordCount = Math.max(ENCODE_SLOT_CAPACITY / 2 / (recordSize + 64 * headerCount + 32), 1);
+        this.key = new OctetsFW().wrap(new UnsafeBuffer(keyBytes), 0, keyBytes.length);
+        this.value = new UnsafeBuffer(new byte[recordSize]);
+
+        crc32c.reset();
+        crc32c.update(value.byteArray(), 0, recordSize);
+        this.valueChecksum = crc32c.getValue();
+
+        this.headerItems = new UnsafeBuffer(new byte[64 * headerCount + 1]);
+        int headerProgress = 0;
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
+        {
+            headerItems.putByte(headerProgress++, (byte) (headerName.length << 1));
+            headerItems.putBytes(headerProgress, headerName);
+            headerProgress += headerName.length;
+            headerItems.putByte(headerProgress++, (byte) (headerValue.length << 1));
+            headerItems.putBytes(headerProgress, headerValue);
+            headerProgress += headerValue.length;
+        }
+        this.headerItemsSize = headerProgress;
+
+        this.encodeBuffer = new UnsafeBuffer(new byte[ENCODE_SLOT_CAPACITY]);
+        this.encodeSlotByteBuffer = ByteBuffer.allocateDirect(ENCODE_SLOT_CAPACITY);
+        this.encodeSlot = new UnsafeBuffer(encodeSlotByteBuffer);
+    }
+
+    @Benchmark
+    public long encode()
+    {
+        int encodeSlotLimit = RECORDS_OFFSET;
+        long checksum = 0L;
+
+        for (int offsetDelta = 0; offsetDelta < recordCount; offsetDelta++)
+        {
+            final int recordOffset = encodeSlotLimit;
+
+            encodeSlotLimit = encodeRecordHeader(encodeSlotLimit, offsetDelta);
+
+            final int valueFragmentSize = fragmentSize != 0 ? fragmentSize : recordSize;
+            for (int valueOffset = 0; valueOffset < recordSize; valueOffset += valueFragmentSize)
+            {
+                final int valueLength = Math.min(valueFragmentSize, recordSize - valueOffset);
+                encodeSlot.putBytes(encodeSlotLimit, value, valueOffset, valueLength);
+                encodeSlotLimit += valueLength;
+            }
+
+            final int trailerOffset = encodeSlotLimit;
+            encodeSlotLimit = encodeRecordTrailer(encodeSlotLimit);
+
+            if (fragmentSize != 0)
+            {
+                checksum = checksumFragmented(checksum, recordOffset, trailerOffset, encodeSlotLimit);
+            }
+        }
+
+        final RecordBatchFW recordBatch = recordBatchRW.wrap(encodeSlot, 0, RECORDS_OFFSET)
+                .baseOffset(0)
+                .length(encodeSlotLimit - RecordBatchFW.FIELD_OFFSET_LEADER_EPOCH)
+                .leaderEpoch(-1)
+                .magic(RECORD_BATCH_MAGIC)
+                .crc(0)
+                .attributes(RECORD_BATCH_ATTRIBUTES_NONE)
+                .lastOffsetDelta(recordCount - 1)
+                .firstTimestamp(0L)
+                .maxTimestamp(0L)
+                .producerId(-1L)
+                .producerEpoch((short) -1)
+                .baseSequence(-1)
+                .recordCount(recordCount)
+                .build();
+
+        if (fragmentSize == 0)
+        {
+            encodeSlotByteBuffer.limit(encodeSlotLimit);
+            encodeSlotByteBuffer.position(RecordBatchFW.FIELD_OFFSET_ATTRIBUTES);
+
+            crc32c.reset();
+            crc32c.update(encodeSlotByteBuffer);
+            checksum = crc32c.getValue();
+        }
+        else
+        {
+            encodeSlotByteBuffer.limit(RECORDS_OFFSET);
+            encodeSlotByteBuffer.position(RecordBatchFW.FIELD_OFFSET_ATTRIBUTES);
+
+            crc32c.reset();
+            crc32c.update(encodeSlotByteBuffer);
+            checksum = combineCRC32C(crc32c.getValue(), checksum, encodeSlotLimit - RECORDS_OFFSET);
+        }
+
+        encodeSlot.putInt(RecordBatchFW.FIELD_OFFSET_CRC, (int) checksum, BIG_ENDIAN);
+
+        return recordBatch.limit() + checksum;
+    }
+
+    public static void main(
+        String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(KafkaProduceRecordsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private int encodeRecordHeader(
+        int encodeSlotLimit,
+        int offsetDelta)
+    {
+        final int encodeLimit = encodeBuffer.capacity();
+
+        RecordHeaderFW recordHeader = recordHeaderRW.wrap(encodeBuffer, 0, encodeLimit)
+                .length(Integer.MAX_VALUE)
+                .attributes(RECORD_ATTRIBUTES_NONE)
+                .timestampDelta(0)
+                .offsetDelta(offsetDelta)
+                .keyLength(key.sizeof())
+                .key(key)
+                .valueLength(recordSize)
+                .build();
+
+        final RecordTrailerFW recordTrailer = recordTrailerRW.wrap(encodeBuffer, recordHeader.limit(), encodeLimit)
+                .headerCount(headerCount)
+                .build();
+        final int recordTrailerSize = recordTrailer.sizeof();
+        final int sizeofRecord = recordHeader.limit() + recordSize + recordTrailerSize + headerItemsSize -
+                RECORD_LENGTH_MAX;
+
+        recordHeader = recordHeaderRW.wrap(encodeBuffer, 0, encodeLimit)
+                .length(sizeofRecord)
+                .attributes(RECORD_ATTRIBUTES_NONE)
+                .timestampDelta(0)
+                .offsetDelta(offsetDelta)
+                .keyLength(key.sizeof())
+                .key(key)
+                .valueLength(recordSize)
+                .build();
+
+        encodeSlot.putBytes(encodeSlotLimit, encodeBuffer, 0, recordHeader.limit());
+        return encodeSlotLimit + recordHeader.limit();
+    }
+
+    private int encodeRecordTrailer(
+        int encodeSlotLimit)
+    {
+        final RecordTrailerFW recordTrailer = recordTrailerRW.wrap(encodeSlot, encodeSlotLimit, encodeSlot.capacity())
+                .headerCount(headerCount)
+                .build();
+
+        int encodeProgress = recordTrailer.limit();
+        if (headerItemsSize != 0)
+        {
+            encodeSlot.putBytes(encodeProgress, headerItems, 0, headerItemsSize);
+            encodeProgress += headerItemsSize;
+        }
+
+        return encodeProgress;
+    }
+
+    private long checksumFragmented(
+        long checksum,
+        int recordOffset,
+        int trailerOffset,
+        int recordLimit)
+    {
+        final int valueOffset = trailerOffset - recordSize;
+
+        encodeSlotByteBuffer.limit(valueOffset);
+        encodeSlotByteBuffer.position(recordOffset);
+        crc32c.reset();
+        crc32c.update(encodeSlotByteBuffer);
+        checksum = combineCRC32C(checksum, crc32c.getValue(), valueOffset - recordOffset);
+
+        checksum = combineCRC32C(checksum, valueChecksum, recordSize);
+
+        encodeSlotByteBuffer.limit(recordLimit);
+        encodeSlotByteBuffer.position(trailerOffset);
+        crc32c.reset();
+        crc32c.update(encodeSlotByteBuffer);
+        return combineCRC32C(checksum, crc32c.getValue(), recordLimit - trailerOffset);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class KafkaStickyPartitionerTest
+{
+    @Test
+    public void shouldRotatePerMessageWhenNotSticky()
+    {
+        final KafkaStickyPartitioner partitioner = new KafkaStickyPartitioner(0);
+
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 16);
+        assertEquals(1, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(1, 16);
+        assertEquals(2, partitioner.nextPartition(3));
+        assertEquals(0, partitioner.nextPartition(3));
+    }
+
+    @Test
+    public void shouldSwitchPartitionWhenStickyBytesReached()
+    {
+        final KafkaStickyPartitioner partitioner = new KafkaStickyPartitioner(32);
+
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 16);
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 16);
+        assertEquals(1, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(1, 16);
+        assertEquals(1, partitioner.nextPartition(3));
+    }
+
+    @Test
+    public void shouldCountBytesOnlyForStickyPartition()
+    {
+        final KafkaStickyPartitioner partitioner = new KafkaStickyPartitioner(32);
+
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 16);
+        partitioner.onMessageProduced(2, 64);
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 16);
+        assertEquals(1, partitioner.nextPartition(3));
+    }
+
+    @Test
+    public void shouldSwitchPartitionOnLeaderError()
+    {
+        final KafkaStickyPartitioner partitioner = new KafkaStickyPartitioner(1024);
+
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 16);
+        partitioner.onPartitionLeaderError(2);
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onPartitionLeaderError(0);
+        assertEquals(1, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(1, 16);
+        assertEquals(1, partitioner.nextPartition(3));
+    }
+
+    @Test
+    public void shouldSwitchPartitionWhenPartitionCountShrinks()
+    {
+        final KafkaStickyPartitioner partitioner = new KafkaStickyPartitioner(32);
+
+        assertEquals(0, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(0, 32);
+        assertEquals(1, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(1, 32);
+        assertEquals(2, partitioner.nextPartition(3));
+        partitioner.onMessageProduced(2, 16);
+        assertEquals(2, partitioner.nextPartition(3));
+        assertEquals(1, partitioner.nextPartition(2));
+        assertEquals(1, partitioner.nextPartition(3));
+    }
+
+    @Test
+    public void shouldSelectPartitionZeroWithoutPartitions()
+    {
+        final KafkaStickyPartitioner partitioner = new KafkaStickyPartitioner(32);
+
+        assertEquals(0, partitioner.nextPartition(0));
+    }
+}
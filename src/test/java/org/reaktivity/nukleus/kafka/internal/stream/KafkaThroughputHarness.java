@@ -0,0 +1,216 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.stream;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.kafka.internal.KafkaConfiguration.KAFKA_COUNTERS_MAX;
+import static org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerConfiguration.KAFKA_FAKE_BROKER_BATCH_MAX_BYTES;
+import static org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerConfiguration.KAFKA_FAKE_BROKER_HEADER_COUNT;
+import static org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerConfiguration.KAFKA_FAKE_BROKER_KEY_BYTES;
+import static org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerConfiguration.KAFKA_FAKE_BROKER_PARTITIONS;
+import static org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerConfiguration.KAFKA_FAKE_BROKER_RECORD_RATE;
+import static org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerConfiguration.KAFKA_FAKE_BROKER_VALUE_BYTES;
+import static org.reaktivity.nukleus.route.RouteKind.CACHE_SERVER;
+import static org.reaktivity.nukleus.route.RouteKind.CLIENT;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.reaktivity.nukleus.kafka.internal.KafkaController;
+import org.reaktivity.nukleus.kafka.internal.KafkaNukleus;
+import org.reaktivity.nukleus.kafka.internal.test.KafkaFakeBrokerNukleus;
+import org.reaktivity.reaktor.ReaktorConfiguration;
+import org.reaktivity.reaktor.test.ReaktorRule;
+
+import com.sun.management.ThreadMXBean;
+
+public final class KafkaThroughputHarness
+{
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private final ReaktorRule reaktor;
+    private final String topic;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final ThreadMXBean threads;
+
+    private KafkaController controller;
+    private long cacheRouteId;
+    private long clientRouteId;
+
+    public KafkaThroughputHarness(
+        ReaktorRule reaktor,
+        String topic,
+        int warmupSeconds,
+        int durationSeconds)
+    {
+        this.reaktor = reaktor;
+        this.topic = topic;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+        this.threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    public static void main(
+        String[] args) throws Throwable
+    {
+        final String topic = System.getProperty("harness.topic", "test");
+        final int warmupSeconds = Integer.getInteger("harness.warmup.seconds", 5);
+        final int durationSeconds = Integer.getInteger("harness.duration.seconds", 30);
+
+        final ReaktorRule reaktor = new ReaktorRule()
+            .nukleus(n -> KafkaNukleus.NAME.equals(n) || KafkaFakeBrokerNukleus.NAME.equals(n))
+            .directory("target/nukleus-harness")
+            .commandBufferCapacity(1024)
+            .responseBufferCapacity(1024)
+            .counterValuesBufferCapacity(1024 * 1024)
+            .configure(KAFKA_COUNTERS_MAX, Integer.getInteger("harness.counters.max", 1024))
+            .configure(KAFKA_FAKE_BROKER_PARTITIONS, Integer.getInteger("harness.partitions", 1))
+            .configure(KAFKA_FAKE_BROKER_RECORD_RATE, Integer.getInteger("harness.record.rate", 100000))
+            .configure(KAFKA_FAKE_BROKER_KEY_BYTES, Integer.getInteger("harness.key.bytes", 16))
+            .configure(KAFKA_FAKE_BROKER_VALUE_BYTES, Integer.getInteger("harness.value.bytes", 1024))
+            .configure(KAFKA_FAKE_BROKER_HEADER_COUNT, Integer.getInteger("harness.header.count", 0))
+            .configure(KAFKA_FAKE_BROKER_BATCH_MAX_BYTES, Integer.getInteger("harness.batch.max.bytes", 1024 * 1024))
+            .configure(ReaktorConfiguration.REAKTOR_DRAIN_ON_CLOSE, false)
+            .clean();
+
+        final KafkaThroughputHarness harness = new KafkaThroughputHarness(reaktor, topic, warmupSeconds, durationSeconds);
+
+        final Statement statement = new Statement()
+        {
+            @Override
+            public void evaluate() throws Throwable
+            {
+                harness.run();
+            }
+        };
+
+        reaktor.apply(statement, Description.createSuiteDescription(KafkaThroughputHarness.class)).evaluate();
+    }
+
+    public void run() throws Exception
+    {
+        controller = reaktor.controller(KafkaController.class);
+        clientRouteId = controller.route(CLIENT, "kafka#2", "broker#0").get();
+        cacheRouteId = controller.route(CACHE_SERVER, "kafka#1", "kafka#2").get();
+        controller.route(CACHE_SERVER, "kafka#1", "kafka#1", String.format("{\"topic\":\"%s\"}", topic)).get();
+
+        Thread.sleep(SECONDS.toMillis(warmupSeconds));
+
+        final KafkaThroughputSample started = sample();
+        KafkaThroughputSample previous = started;
+
+        for (int second = 1; second <= durationSeconds; second++)
+        {
+            Thread.sleep(SECONDS.toMillis(1));
+
+            final KafkaThroughputSample current = sample();
+            report(String.format("%3ds", second), previous, current);
+            previous = current;
+        }
+
+        report("total", started, previous);
+    }
+
+    private KafkaThroughputSample sample()
+    {
+        final KafkaThroughputSample sample = new KafkaThroughputSample();
+        sample.nanos = System.nanoTime();
+        sample.records = reaktor.counter(String.format("cache.%d.%s.fetch.records", cacheRouteId, topic));
+        sample.bytes = reaktor.counter(String.format("cache.%d.%s.fetch.bytes", cacheRouteId, topic));
+        sample.allocated = allocatedBytes();
+        sampleHistogram(String.format("client.%d.fetch.rtt.us", clientRouteId), sample.fetchRtt);
+        sampleHistogram(String.format("cache.%d.cache.append.us", cacheRouteId), sample.cacheAppend);
+        return sample;
+    }
+
+    private void sampleHistogram(
+        String name,
+        long[] buckets)
+    {
+        for (int index = 0; index < KafkaLatencyHistogram.BUCKETS; index++)
+        {
+            buckets[index] = reaktor.counter(String.format("%s.%s", name, KafkaLatencyHistogram.bucketName(index)));
+        }
+    }
+
+    private long allocatedBytes()
+    {
+        long allocated = 0L;
+        for (long threadId : threads.getAllThreadIds())
+        {
+            allocated += Math.max(threads.getThreadAllocatedBytes(threadId), 0L);
+        }
+        return allocated;
+    }
+
+    private static void report(
+        String label,
+        KafkaThroughputSample from,
+        KafkaThroughputSample to)
+    {
+        final double seconds = Math.max(to.nanos - from.nanos, 1L) / (double) NANOSECONDS.convert(1, SECONDS);
+
+        System.out.format("%s records/s %.0f, MB/s %.1f, fetch rtt p99 %s us, cache append p99 %s us, alloc MB/s %.1f\n",
+            label,
+            (to.records - from.records) / seconds,
+            (to.bytes - from.bytes) / MEGABYTE / seconds,
+            percentile(from.fetchRtt, to.fetchRtt, 0.99),
+            percentile(from.cacheAppend, to.cacheAppend, 0.99),
+            (to.allocated - from.allocated) / MEGABYTE / seconds);
+    }
+
+    private static String percentile(
+        long[] from,
+        long[] to,
+        double quantile)
+    {
+        long total = 0L;
+        for (int index = 0; index < to.length; index++)
+        {
+            total += to[index] - from[index];
+        }
+
+        final long threshold = (long) Math.ceil(total * quantile);
+
+        String bound = "-";
+        long cumulative = 0L;
+        for (int index = 0; total != 0L && index < to.length; index++)
+        {
+            cumulative += to[index] - from[index];
+            if (cumulative >= threshold)
+            {
+                bound = KafkaLatencyHistogram.bucketName(index).substring("le.".length());
+                break;
+            }
+        }
+
+        return bound;
+    }
+
+    private static final class KafkaThroughputSample
+    {
+        private final long[] fetchRtt = new long[KafkaLatencyHistogram.BUCKETS];
+        private final long[] cacheAppend = new long[KafkaLatencyHistogram.BUCKETS];
+
+        private long nanos;
+        private long records;
+        private long bytes;
+        private long allocated;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.test;
+
+import org.reaktivity.nukleus.Configuration;
+
+public class KafkaFakeBrokerConfiguration extends Configuration
+{
+    public static final IntPropertyDef KAFKA_FAKE_BROKER_PARTITIONS;
+    public static final IntPropertyDef KAFKA_FAKE_BROKER_RECORD_RATE;
+    public static final IntPropertyDef KAFKA_FAKE_BROKER_KEY_BYTES;
+    public static final IntPropertyDef KAFKA_FAKE_BROKER_VALUE_BYTES;
+    public static final IntPropertyDef KAFKA_FAKE_BROKER_HEADER_COUNT;
+    public static final IntPropertyDef KAFKA_FAKE_BROKER_BATCH_MAX_BYTES;
+
+    private static final ConfigurationDef KAFKA_FAKE_BROKER_CONFIG;
+
+    static
+    {
+        final ConfigurationDef config = new ConfigurationDef("nukleus.kafka.fake.broker");
+        KAFKA_FAKE_BROKER_PARTITIONS = config.property("partitions", 1);
+        KAFKA_FAKE_BROKER_RECORD_RATE = config.property("record.rate", 100000);
+        KAFKA_FAKE_BROKER_KEY_BYTES = config.property("key.bytes", 16);
+        KAFKA_FAKE_BROKER_VALUE_BYTES = config.property("value.bytes", 1024);
+        KAFKA_FAKE_BROKER_HEADER_COUNT = config.property("header.count", 0);
+        KAFKA_FAKE_BROKER_BATCH_MAX_BYTES = config.property("batch.max.bytes", 1024 * 1024);
+        KAFKA_FAKE_BROKER_CONFIG = config;
+    }
+
+    public KafkaFakeBrokerConfiguration(
+        Configuration config)
+    {
+        super(KAFKA_FAKE_BROKER_CONFIG, config);
+    }
+
+    public int partitions()
+    {
+        return KAFKA_FAKE_BROKER_PARTITIONS.getAsInt(this);
+    }
+
+    public int recordRate()
+    {
+        return KAFKA_FAKE_BROKER_RECORD_RATE.getAsInt(this);
+    }
+
+    public int keyBytes()
+    {
+        return KAFKA_FAKE_BROKER_KEY_BYTES.getAsInt(this);
+    }
+
+    public int valueBytes()
+    {
+        return KAFKA_FAKE_BROKER_VALUE_BYTES.getAsInt(this);
+    }
+
+    public int headerCount()
+    {
+        return KAFKA_FAKE_BROKER_HEADER_COUNT.getAsInt(this);
+    }
+
+    public int batchMaxBytes()
+    {
+        return KAFKA_FAKE_BROKER_BATCH_MAX_BYTES.getAsInt(this);
+    }
+}
@@ -0,0 +1,1061 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.test;
+
+import static java.lang.System.currentTimeMillis;
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.reaktivity.nukleus.concurrent.Signaler.NO_CANCEL_ID;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.reaktivity.nukleus.concurrent.Signaler;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.kafka.internal.types.OctetsFW;
+import org.reaktivity.nukleus.kafka.internal.types.codec.message.RecordBatchFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.AbortFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.kafka.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.route.RouteManager;
+import org.reaktivity.nukleus.stream.StreamFactory;
+
+public final class KafkaFakeBrokerFactory implements StreamFactory
+{
+    private static final short FETCH_API_KEY = 1;
+    private static final short OFFSETS_API_KEY = 2;
+    private static final short METADATA_API_KEY = 3;
+    private static final short DESCRIBE_CONFIGS_API_KEY = 32;
+    private static final short FETCH_SESSION_API_VERSION = 7;
+    private static final short FETCH_RACK_API_VERSION = 11;
+
+    private static final int BROKER_NODE_ID = 1;
+    private static final byte[] BROKER_HOST = "broker".getBytes(UTF_8);
+    private static final int BROKER_PORT = 9092;
+
+    private static final long OFFSET_EARLIEST = -2L;
+
+    private static final int REQUEST_WINDOW = 65536;
+    private static final int SIZEOF_RECORD_BATCH_HEADER = RecordBatchFW.FIELD_OFFSET_RECORD_COUNT + Integer.BYTES;
+    private static final int SIZEOF_VARINT_MAX = 5;
+
+    private static final int SIGNAL_FETCH_READY = 1;
+
+    private static final Consumer<OctetsFW.Builder> EMPTY_EXTENSION = ex -> {};
+    private static final Map<String, String> TOPIC_CONFIGS;
+
+    static
+    {
+        final Map<String, String> topicConfigs = new HashMap<>();
+        topicConfigs.put("cleanup.policy", "delete");
+        topicConfigs.put("max.message.bytes", "1000012");
+        topicConfigs.put("segment.bytes", "1073741824");
+        topicConfigs.put("segment.index.bytes", "10485760");
+        topicConfigs.put("segment.ms", "604800000");
+        topicConfigs.put("retention.bytes", "-1");
+        topicConfigs.put("retention.ms", "604800000");
+        topicConfigs.put("delete.retention.ms", "86400000");
+        topicConfigs.put("min.compaction.lag.ms", "0");
+        topicConfigs.put("max.compaction.lag.ms", "9223372036854775807");
+        topicConfigs.put("min.cleanable.dirty.ratio", "0.5");
+        TOPIC_CONFIGS = topicConfigs;
+    }
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final EndFW endRO = new EndFW();
+    private final AbortFW abortRO = new AbortFW();
+    private final WindowFW windowRO = new WindowFW();
+    private final ResetFW resetRO = new ResetFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final EndFW.Builder endRW = new EndFW.Builder();
+    private final AbortFW.Builder abortRW = new AbortFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+    private final ResetFW.Builder resetRW = new ResetFW.Builder();
+
+    private final RouteManager router;
+    private final MutableDirectBuffer writeBuffer;
+    private final Signaler signaler;
+    private final LongUnaryOperator supplyReplyId;
+    private final LongSupplier supplyTraceId;
+    private final long startedAt;
+    private final int partitions;
+    private final int recordRate;
+    private final int batchMaxBytes;
+    private final int headerCount;
+    private final DirectBuffer keyTemplate;
+    private final DirectBuffer valueTemplate;
+    private final DirectBuffer headersTemplate;
+    private final int sizeofRecordMax;
+
+    KafkaFakeBrokerFactory(
+        KafkaFakeBrokerConfiguration config,
+        RouteManager router,
+        MutableDirectBuffer writeBuffer,
+        Signaler signaler,
+        LongUnaryOperator supplyReplyId,
+        LongSupplier supplyTraceId,
+        long startedAt)
+    {
+        this.router = router;
+        this.writeBuffer = writeBuffer;
+        this.signaler = signaler;
+        this.supplyReplyId = supplyReplyId;
+        this.supplyTraceId = supplyTraceId;
+        this.startedAt = startedAt;
+        this.partitions = Math.max(config.partitions(), 1);
+        this.recordRate = config.recordRate();
+        this.batchMaxBytes = config.batchMaxBytes();
+        this.headerCount = config.headerCount();
+        this.keyTemplate = newTemplate(config.keyBytes(), 'k');
+        this.valueTemplate = newTemplate(config.valueBytes(), 'v');
+        this.headersTemplate = newHeadersTemplate(headerCount);
+        this.sizeofRecordMax = SIZEOF_VARINT_MAX * 6 + Byte.BYTES + keyTemplate.capacity() + valueTemplate.capacity() +
+                headersTemplate.capacity();
+    }
+
+    @Override
+    public MessageConsumer newStream(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length,
+        MessageConsumer sender)
+    {
+        final BeginFW begin = beginRO.wrap(buffer, index, index + length);
+        final long routeId = begin.routeId();
+        final long initialId = begin.streamId();
+        final long authorization = begin.authorization();
+        final long affinity = begin.affinity();
+
+        MessageConsumer newStream = null;
+
+        if ((initialId & 0x0000_0000_0000_0001L) != 0L)
+        {
+            newStream = new KafkaFakeBrokerConnection(sender, routeId, initialId, authorization, affinity)::onConnection;
+        }
+
+        return newStream;
+    }
+
+    private long highWatermark(
+        long now)
+    {
+        return recordRate > 0 ? (now - startedAt) * recordRate / (1000L * partitions) : Long.MAX_VALUE;
+    }
+
+    private long availableAt(
+        long offset,
+        long now)
+    {
+        return recordRate > 0 ? startedAt + (offset + 1) * partitions * 1000L / recordRate : now;
+    }
+
+    private void doBegin(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        long affinity,
+        Consumer<OctetsFW.Builder> extension)
+    {
+        final BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .affinity(affinity)
+                .extension(extension)
+                .build();
+
+        receiver.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+    }
+
+    private void doData(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int reserved,
+        DirectBuffer payload,
+        int offset,
+        int length)
+    {
+        final DataFW data = dataRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .budgetId(budgetId)
+                .reserved(reserved)
+                .payload(payload, offset, length)
+                .build();
+
+        receiver.accept(data.typeId(), data.buffer(), data.offset(), data.sizeof());
+    }
+
+    private void doEnd(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization)
+    {
+        final EndFW end = endRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .build();
+
+        receiver.accept(end.typeId(), end.buffer(), end.offset(), end.sizeof());
+    }
+
+    private void doAbort(
+        MessageConsumer receiver,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization)
+    {
+        final AbortFW abort = abortRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .build();
+
+        receiver.accept(abort.typeId(), abort.buffer(), abort.offset(), abort.sizeof());
+    }
+
+    private void doWindow(
+        MessageConsumer sender,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization,
+        long budgetId,
+        int credit,
+        int padding)
+    {
+        final WindowFW window = windowRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .budgetId(budgetId)
+                .credit(credit)
+                .padding(padding)
+                .build();
+
+        sender.accept(window.typeId(), window.buffer(), window.offset(), window.sizeof());
+    }
+
+    private void doReset(
+        MessageConsumer sender,
+        long routeId,
+        long streamId,
+        long traceId,
+        long authorization)
+    {
+        final ResetFW reset = resetRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .routeId(routeId)
+                .streamId(streamId)
+                .traceId(traceId)
+                .authorization(authorization)
+                .build();
+
+        sender.accept(reset.typeId(), reset.buffer(), reset.offset(), reset.sizeof());
+    }
+
+    private final class KafkaFakeBrokerConnection
+    {
+        private final MessageConsumer sender;
+        private final long routeId;
+        private final long initialId;
+        private final long replyId;
+        private final long affinity;
+        private final MutableDirectBuffer decodeBuffer;
+        private final MutableDirectBuffer encodeBuffer;
+
+        private long authorization;
+        private boolean initialClosed;
+        private boolean replyOpened;
+        private boolean replyClosed;
+
+        private int decodeOffset;
+        private int decodeLimit;
+        private int encodeOffset;
+        private int encodeLimit;
+
+        private long replyBudgetId;
+        private int replyBudget;
+        private int replyPadding;
+
+        private long fetchDeadline;
+        private long fetchReadyId = NO_CANCEL_ID;
+
+        private KafkaFakeBrokerConnection(
+            MessageConsumer sender,
+            long routeId,
+            long initialId,
+            long authorization,
+            long affinity)
+        {
+            this.sender = sender;
+            this.routeId = routeId;
+            this.initialId = initialId;
+            this.replyId = supplyReplyId.applyAsLong(initialId);
+            this.authorization = authorization;
+            this.affinity = affinity;
+            this.decodeBuffer = new ExpandableArrayBuffer(REQUEST_WINDOW);
+            this.encodeBuffer = new ExpandableArrayBuffer(batchMaxBytes + REQUEST_WINDOW);
+        }
+
+        private void onConnection(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            switch (msgTypeId)
+            {
+            case BeginFW.TYPE_ID:
+                final BeginFW begin = beginRO.wrap(buffer, index, index + length);
+                onConnectionBegin(begin);
+                break;
+            case DataFW.TYPE_ID:
+                final DataFW data = dataRO.wrap(buffer, index, index + length);
+                onConnectionData(data);
+                break;
+            case EndFW.TYPE_ID:
+                final EndFW end = endRO.wrap(buffer, index, index + length);
+                onConnectionEnd(end);
+                break;
+            case AbortFW.TYPE_ID:
+                final AbortFW abort = abortRO.wrap(buffer, index, index + length);
+                onConnectionAbort(abort);
+                break;
+            case WindowFW.TYPE_ID:
+                final WindowFW window = windowRO.wrap(buffer, index, index + length);
+                onConnectionWindow(window);
+                break;
+            case ResetFW.TYPE_ID:
+                final ResetFW reset = resetRO.wrap(buffer, index, index + length);
+                onConnectionReset(reset);
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void onConnectionBegin(
+            BeginFW begin)
+        {
+            final long traceId = begin.traceId();
+
+            doWindow(sender, routeId, initialId, traceId, authorization, 0L, REQUEST_WINDOW, 0);
+
+            router.setThrottle(replyId, this::onConnection);
+            doBegin(sender, routeId, replyId, traceId, authorization, affinity, EMPTY_EXTENSION);
+        }
+
+        private void onConnectionData(
+            DataFW data)
+        {
+            final long traceId = data.traceId();
+            final OctetsFW payload = data.payload();
+
+            authorization = data.authorization();
+
+            final int length = payload.sizeof();
+
+            decodeBuffer.putBytes(decodeLimit, payload.buffer(), payload.offset(), length);
+            decodeLimit += length;
+
+            doWindow(sender, routeId, initialId, traceId, authorization, 0L, data.reserved(), 0);
+
+            decodeRequests(traceId);
+        }
+
+        private void onConnectionEnd(
+            EndFW end)
+        {
+            final long traceId = end.traceId();
+
+            initialClosed = true;
+
+            cancelFetchReady();
+            doConnectionEndIfNecessary(traceId);
+        }
+
+        private void onConnectionAbort(
+            AbortFW abort)
+        {
+            final long traceId = abort.traceId();
+
+            initialClosed = true;
+
+            cancelFetchReady();
+            doConnectionAbortIfNecessary(traceId);
+        }
+
+        private void onConnectionWindow(
+            WindowFW window)
+        {
+            final long traceId = window.traceId();
+
+            replyOpened = true;
+
+            replyBudgetId = window.budgetId();
+            replyBudget += window.credit();
+            replyPadding = window.padding();
+
+            flushResponses(traceId);
+        }
+
+        private void onConnectionReset(
+            ResetFW reset)
+        {
+            final long traceId = reset.traceId();
+
+            replyClosed = true;
+
+            cancelFetchReady();
+
+            if (!initialClosed)
+            {
+                initialClosed = true;
+                doReset(sender, routeId, initialId, traceId, authorization);
+            }
+        }
+
+        private void onFetchReadySignal(
+            int signalId)
+        {
+            assert signalId == SIGNAL_FETCH_READY;
+
+            fetchReadyId = NO_CANCEL_ID;
+
+            decodeRequests(supplyTraceId.getAsLong());
+        }
+
+        private void cancelFetchReady()
+        {
+            if (fetchReadyId != NO_CANCEL_ID)
+            {
+                signaler.cancel(fetchReadyId);
+                fetchReadyId = NO_CANCEL_ID;
+            }
+        }
+
+        private void doConnectionEndIfNecessary(
+            long traceId)
+        {
+            if (!replyClosed)
+            {
+                replyClosed = true;
+                doEnd(sender, routeId, replyId, traceId, authorization);
+            }
+        }
+
+        private void doConnectionAbortIfNecessary(
+            long traceId)
+        {
+            if (!replyClosed)
+            {
+                replyClosed = true;
+                doAbort(sender, routeId, replyId, traceId, authorization);
+            }
+        }
+
+        private void decodeRequests(
+            long traceId)
+        {
+            while (fetchReadyId == NO_CANCEL_ID &&
+                   decodeLimit - decodeOffset >= Integer.BYTES)
+            {
+                final int requestSize = decodeBuffer.getInt(decodeOffset, BIG_ENDIAN);
+                final int requestLimit = decodeOffset + Integer.BYTES + requestSize;
+
+                if (requestLimit > decodeLimit)
+                {
+                    break;
+                }
+
+                if (!decodeRequest(decodeBuffer, decodeOffset + Integer.BYTES, requestLimit))
+                {
+                    break;
+                }
+
+                decodeOffset = requestLimit;
+            }
+
+            if (decodeOffset == decodeLimit)
+            {
+                decodeOffset = 0;
+                decodeLimit = 0;
+            }
+
+            flushResponses(traceId);
+        }
+
+        private boolean decodeRequest(
+            DirectBuffer buffer,
+            int offset,
+            int limit)
+        {
+            final short apiKey = buffer.getShort(offset, BIG_ENDIAN);
+            final short apiVersion = buffer.getShort(offset + Short.BYTES, BIG_ENDIAN);
+            final int correlationId = buffer.getInt(offset + Short.BYTES * 2, BIG_ENDIAN);
+            final int progress = skipString(buffer, offset + Short.BYTES * 2 + Integer.BYTES);
+
+            boolean decoded = true;
+
+            switch (apiKey)
+            {
+            case METADATA_API_KEY:
+                encodeMetadataResponse(buffer, progress, correlationId);
+                break;
+            case DESCRIBE_CONFIGS_API_KEY:
+                encodeDescribeConfigsResponse(buffer, progress, correlationId);
+                break;
+            case OFFSETS_API_KEY:
+                encodeOffsetsResponse(buffer, progress, correlationId);
+                break;
+            case FETCH_API_KEY:
+                decoded = encodeFetchResponse(buffer, progress, apiVersion, correlationId);
+                break;
+            default:
+                doConnectionAbortIfNecessary(supplyTraceId.getAsLong());
+                break;
+            }
+
+            return decoded;
+        }
+
+        private void encodeMetadataResponse(
+            DirectBuffer buffer,
+            int offset,
+            int correlationId)
+        {
+            final MutableDirectBuffer encodeBuffer = this.encodeBuffer;
+            final int responseAt = encodeLimit;
+
+            int progress = responseAt + Integer.BYTES;
+            encodeBuffer.putInt(progress, correlationId, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putInt(progress, 1, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putInt(progress, BROKER_NODE_ID, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putShort(progress, (short) BROKER_HOST.length, BIG_ENDIAN);
+            progress += Short.BYTES;
+            encodeBuffer.putBytes(progress, BROKER_HOST);
+            progress += BROKER_HOST.length;
+            encodeBuffer.putInt(progress, BROKER_PORT, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putShort(progress, (short) -1, BIG_ENDIAN);
+            progress += Short.BYTES;
+            encodeBuffer.putShort(progress, (short) -1, BIG_ENDIAN);
+            progress += Short.BYTES;
+            encodeBuffer.putInt(progress, BROKER_NODE_ID, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            final int topicCount = Math.max(buffer.getInt(offset, BIG_ENDIAN), 0);
+            int topicAt = offset + Integer.BYTES;
+
+            encodeBuffer.putInt(progress, topicCount, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            for (int topicIndex = 0; topicIndex < topicCount; topicIndex++)
+            {
+                encodeBuffer.putShort(progress, (short) 0, BIG_ENDIAN);
+                progress += Short.BYTES;
+                progress = copyString(buffer, topicAt, progress);
+                topicAt = skipString(buffer, topicAt);
+                encodeBuffer.putByte(progress, (byte) 0);
+                progress += Byte.BYTES;
+                encodeBuffer.putInt(progress, partitions, BIG_ENDIAN);
+                progress += Integer.BYTES;
+
+                for (int partitionId = 0; partitionId < partitions; partitionId++)
+                {
+                    encodeBuffer.putShort(progress, (short) 0, BIG_ENDIAN);
+                    progress += Short.BYTES;
+                    encodeBuffer.putInt(progress, partitionId, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putInt(progress, BROKER_NODE_ID, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putInt(progress, 1, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putInt(progress, BROKER_NODE_ID, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putInt(progress, 1, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putInt(progress, BROKER_NODE_ID, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                }
+            }
+
+            encodeResponseSize(responseAt, progress);
+        }
+
+        private void encodeDescribeConfigsResponse(
+            DirectBuffer buffer,
+            int offset,
+            int correlationId)
+        {
+            final MutableDirectBuffer encodeBuffer = this.encodeBuffer;
+            final int responseAt = encodeLimit;
+
+            int progress = responseAt + Integer.BYTES;
+            encodeBuffer.putInt(progress, correlationId, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            final int resourceCount = buffer.getInt(offset, BIG_ENDIAN);
+            int resourceAt = offset + Integer.BYTES;
+
+            encodeBuffer.putInt(progress, resourceCount, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            for (int resourceIndex = 0; resourceIndex < resourceCount; resourceIndex++)
+            {
+                encodeBuffer.putShort(progress, (short) 0, BIG_ENDIAN);
+                progress += Short.BYTES;
+                encodeBuffer.putShort(progress, (short) -1, BIG_ENDIAN);
+                progress += Short.BYTES;
+                encodeBuffer.putByte(progress, buffer.getByte(resourceAt));
+                progress += Byte.BYTES;
+                resourceAt += Byte.BYTES;
+                progress = copyString(buffer, resourceAt, progress);
+                resourceAt = skipString(buffer, resourceAt);
+
+                final int configCount = buffer.getInt(resourceAt, BIG_ENDIAN);
+                resourceAt += Integer.BYTES;
+
+                encodeBuffer.putInt(progress, Math.max(configCount, 0), BIG_ENDIAN);
+                progress += Integer.BYTES;
+
+                for (int configIndex = 0; configIndex < configCount; configIndex++)
+                {
+                    final int nameLength = buffer.getShort(resourceAt, BIG_ENDIAN);
+                    final String name = buffer.getStringWithoutLengthUtf8(resourceAt + Short.BYTES, nameLength);
+                    final String value = TOPIC_CONFIGS.get(name);
+
+                    progress = copyString(buffer, resourceAt, progress);
+                    resourceAt = skipString(buffer, resourceAt);
+
+                    if (value != null)
+                    {
+                        final int valueLength = encodeBuffer.putStringWithoutLengthUtf8(progress + Short.BYTES, value);
+                        encodeBuffer.putShort(progress, (short) valueLength, BIG_ENDIAN);
+                        progress += Short.BYTES + valueLength;
+                    }
+                    else
+                    {
+                        encodeBuffer.putShort(progress, (short) -1, BIG_ENDIAN);
+                        progress += Short.BYTES;
+                    }
+
+                    encodeBuffer.putByte(progress, (byte) 0);
+                    progress += Byte.BYTES;
+                    encodeBuffer.putByte(progress, (byte) 1);
+                    progress += Byte.BYTES;
+                    encodeBuffer.putByte(progress, (byte) 0);
+                    progress += Byte.BYTES;
+                }
+            }
+
+            encodeResponseSize(responseAt, progress);
+        }
+
+        private void encodeOffsetsResponse(
+            DirectBuffer buffer,
+            int offset,
+            int correlationId)
+        {
+            final MutableDirectBuffer encodeBuffer = this.encodeBuffer;
+            final long now = currentTimeMillis();
+            final long latestOffset = recordRate > 0 ? highWatermark(now) : 0L;
+            final int responseAt = encodeLimit;
+
+            int progress = responseAt + Integer.BYTES;
+            encodeBuffer.putInt(progress, correlationId, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            int requestAt = offset + Integer.BYTES + Byte.BYTES;
+            final int topicCount = buffer.getInt(requestAt, BIG_ENDIAN);
+            requestAt += Integer.BYTES;
+
+            encodeBuffer.putInt(progress, topicCount, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            for (int topicIndex = 0; topicIndex < topicCount; topicIndex++)
+            {
+                progress = copyString(buffer, requestAt, progress);
+                requestAt = skipString(buffer, requestAt);
+
+                final int partitionCount = buffer.getInt(requestAt, BIG_ENDIAN);
+                requestAt += Integer.BYTES;
+
+                encodeBuffer.putInt(progress, partitionCount, BIG_ENDIAN);
+                progress += Integer.BYTES;
+
+                for (int partitionIndex = 0; partitionIndex < partitionCount; partitionIndex++)
+                {
+                    final int partitionId = buffer.getInt(requestAt, BIG_ENDIAN);
+                    final long timestamp = buffer.getLong(requestAt + Integer.BYTES, BIG_ENDIAN);
+                    requestAt += Integer.BYTES + Long.BYTES;
+
+                    encodeBuffer.putInt(progress, partitionId, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putShort(progress, (short) 0, BIG_ENDIAN);
+                    progress += Short.BYTES;
+                    encodeBuffer.putLong(progress, -1L, BIG_ENDIAN);
+                    progress += Long.BYTES;
+                    encodeBuffer.putLong(progress, timestamp == OFFSET_EARLIEST ? 0L : latestOffset, BIG_ENDIAN);
+                    progress += Long.BYTES;
+                }
+            }
+
+            encodeResponseSize(responseAt, progress);
+        }
+
+        private boolean encodeFetchResponse(
+            DirectBuffer buffer,
+            int offset,
+            short apiVersion,
+            int correlationId)
+        {
+            final MutableDirectBuffer encodeBuffer = this.encodeBuffer;
+            final long now = currentTimeMillis();
+            final long highWatermark = highWatermark(now);
+            final int responseAt = encodeLimit;
+
+            int requestAt = offset + Integer.BYTES;
+            final int maxWaitMillis = buffer.getInt(requestAt, BIG_ENDIAN);
+            requestAt += Integer.BYTES * 2;
+            int maxBytes = Math.min(buffer.getInt(requestAt, BIG_ENDIAN), batchMaxBytes);
+            requestAt += Integer.BYTES + Byte.BYTES;
+            requestAt += apiVersion >= FETCH_SESSION_API_VERSION ? Integer.BYTES * 2 : 0;
+
+            int progress = responseAt + Integer.BYTES;
+            encodeBuffer.putInt(progress, correlationId, BIG_ENDIAN);
+            progress += Integer.BYTES;
+            encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            if (apiVersion >= FETCH_SESSION_API_VERSION)
+            {
+                encodeBuffer.putShort(progress, (short) 0, BIG_ENDIAN);
+                progress += Short.BYTES;
+                encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+                progress += Integer.BYTES;
+            }
+
+            final int topicCount = buffer.getInt(requestAt, BIG_ENDIAN);
+            requestAt += Integer.BYTES;
+
+            encodeBuffer.putInt(progress, topicCount, BIG_ENDIAN);
+            progress += Integer.BYTES;
+
+            long recordCount = 0L;
+            long readyAt = Long.MAX_VALUE;
+
+            for (int topicIndex = 0; topicIndex < topicCount; topicIndex++)
+            {
+                progress = copyString(buffer, requestAt, progress);
+                requestAt = skipString(buffer, requestAt);
+
+                final int partitionCount = buffer.getInt(requestAt, BIG_ENDIAN);
+                requestAt += Integer.BYTES;
+
+                encodeBuffer.putInt(progress, partitionCount, BIG_ENDIAN);
+                progress += Integer.BYTES;
+
+                for (int partitionIndex = 0; partitionIndex < partitionCount; partitionIndex++)
+                {
+                    final int partitionId = buffer.getInt(requestAt, BIG_ENDIAN);
+                    requestAt += Integer.BYTES;
+                    requestAt += apiVersion >= FETCH_RACK_API_VERSION ? Integer.BYTES : 0;
+                    final long fetchOffset = buffer.getLong(requestAt, BIG_ENDIAN);
+                    requestAt += Long.BYTES * 2;
+                    final int partitionMaxBytes = Math.min(buffer.getInt(requestAt, BIG_ENDIAN), maxBytes);
+                    requestAt += Integer.BYTES;
+
+                    final long maxRecords = Math.max(partitionMaxBytes - SIZEOF_RECORD_BATCH_HEADER, 0) / sizeofRecordMax;
+                    final long available = Math.max(highWatermark - fetchOffset, 0L);
+                    final int records = (int) Math.min(available, Math.max(maxRecords, 1L));
+
+                    if (records == 0)
+                    {
+                        readyAt = Math.min(readyAt, availableAt(fetchOffset, now));
+                    }
+
+                    encodeBuffer.putInt(progress, partitionId, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+                    encodeBuffer.putShort(progress, (short) 0, BIG_ENDIAN);
+                    progress += Short.BYTES;
+                    final int highWatermarkAt = progress;
+                    progress += Long.BYTES * 2;
+                    encodeBuffer.putLong(progress, 0L, BIG_ENDIAN);
+                    progress += Long.BYTES;
+                    encodeBuffer.putInt(progress, 0, BIG_ENDIAN);
+                    progress += Integer.BYTES;
+
+                    if (apiVersion >= FETCH_RACK_API_VERSION)
+                    {
+                        encodeBuffer.putInt(progress, -1, BIG_ENDIAN);
+                        progress += Integer.BYTES;
+                    }
+
+                    final int recordSetAt = progress;
+                    progress += Integer.BYTES;
+                    progress = records > 0 ? encodeRecordBatch(progress, fetchOffset, records, now) : progress;
+                    encodeBuffer.putInt(recordSetAt, progress - recordSetAt - Integer.BYTES, BIG_ENDIAN);
+
+                    final long partitionHighWatermark = recordRate > 0 ? highWatermark : fetchOffset + records;
+                    encodeBuffer.putLong(highWatermarkAt, partitionHighWatermark, BIG_ENDIAN);
+                    encodeBuffer.putLong(highWatermarkAt + Long.BYTES, partitionHighWatermark, BIG_ENDIAN);
+
+                    maxBytes = Math.max(maxBytes - (progress - recordSetAt), 0);
+                    recordCount += records;
+                }
+            }
+
+            if (fetchDeadline == 0L)
+            {
+                fetchDeadline = now + maxWaitMillis;
+            }
+
+            final boolean encoded = recordCount != 0L || now >= fetchDeadline;
+
+            if (encoded)
+            {
+                fetchDeadline = 0L;
+                encodeResponseSize(responseAt, progress);
+            }
+            else
+            {
+                fetchReadyId = signaler.signalAt(Math.min(readyAt, fetchDeadline), SIGNAL_FETCH_READY, this::onFetchReadySignal);
+            }
+
+            return encoded;
+        }
+
+        private int encodeRecordBatch(
+            int offset,
+            long baseOffset,
+            int recordCount,
+            long now)
+        {
+            final MutableDirectBuffer encodeBuffer = this.encodeBuffer;
+            final int keyLength = keyTemplate.capacity();
+            final int valueLength = valueTemplate.capacity();
+            final int headersLength = headersTemplate.capacity();
+            final long firstTimestamp = availableAt(baseOffset, now);
+
+            int progress = offset + SIZEOF_RECORD_BATCH_HEADER;
+            for (int offsetDelta = 0; offsetDelta < recordCount; offsetDelta++)
+            {
+                final int timestampDelta = (int) (availableAt(baseOffset + offsetDelta, now) - firstTimestamp);
+                final int recordSize = Byte.BYTES + sizeofVarint(timestampDelta) + sizeofVarint(offsetDelta) +
+                        sizeofVarint(keyLength) + keyLength + sizeofVarint(valueLength) + valueLength +
+                        sizeofVarint(headerCount) + headersLength;
+
+                progress = putVarint(encodeBuffer, progress, recordSize);
+                encodeBuffer.putByte(progress, (byte) 0);
+                progress += Byte.BYTES;
+                progress = putVarint(encodeBuffer, progress, timestampDelta);
+                progress = putVarint(encodeBuffer, progress, offsetDelta);
+                progress = putVarint(encodeBuffer, progress, keyLength);
+                encodeBuffer.putBytes(progress, keyTemplate, 0, keyLength);
+                if (keyLength >= Integer.BYTES)
+                {
+                    encodeBuffer.putInt(progress + keyLength - Integer.BYTES, (int) (baseOffset + offsetDelta), BIG_ENDIAN);
+                }
+                progress += keyLength;
+                progress = putVarint(encodeBuffer, progress, valueLength);
+                encodeBuffer.putBytes(progress, valueTemplate, 0, valueLength);
+                progress += valueLength;
+                progress = putVarint(encodeBuffer, progress, headerCount);
+                encodeBuffer.putBytes(progress, headersTemplate, 0, headersLength);
+                progress += headersLength;
+            }
+
+            // batch checksum is left unset, the nukleus does not verify it
+            final long maxTimestamp = availableAt(baseOffset + recordCount - 1, now);
+            encodeBuffer.putLong(offset + RecordBatchFW.FIELD_OFFSET_BASE_OFFSET, baseOffset, BIG_ENDIAN);
+            encodeBuffer.putInt(offset + RecordBatchFW.FIELD_OFFSET_LENGTH,
+                    progress - offset - RecordBatchFW.FIELD_OFFSET_LEADER_EPOCH, BIG_ENDIAN);
+            encodeBuffer.putInt(offset + RecordBatchFW.FIELD_OFFSET_LEADER_EPOCH, -1, BIG_ENDIAN);
+            encodeBuffer.putByte(offset + RecordBatchFW.FIELD_OFFSET_MAGIC, (byte) 2);
+            encodeBuffer.putInt(offset + RecordBatchFW.FIELD_OFFSET_MAGIC + Byte.BYTES, 0, BIG_ENDIAN);
+            encodeBuffer.putShort(offset + RecordBatchFW.FIELD_OFFSET_ATTRIBUTES, (short) 0, BIG_ENDIAN);
+            encodeBuffer.putInt(offset + RecordBatchFW.FIELD_OFFSET_LAST_OFFSET_DELTA, recordCount - 1, BIG_ENDIAN);
+            encodeBuffer.putLong(offset + RecordBatchFW.FIELD_OFFSET_FIRST_TIMESTAMP, firstTimestamp, BIG_ENDIAN);
+            encodeBuffer.putLong(offset + RecordBatchFW.FIELD_OFFSET_MAX_TIMESTAMP, maxTimestamp, BIG_ENDIAN);
+            encodeBuffer.putLong(offset + RecordBatchFW.FIELD_OFFSET_PRODUCER_ID, -1L, BIG_ENDIAN);
+            encodeBuffer.putShort(offset + RecordBatchFW.FIELD_OFFSET_PRODUCER_EPOCH, (short) -1, BIG_ENDIAN);
+            encodeBuffer.putInt(offset + RecordBatchFW.FIELD_OFFSET_BASE_SEQUENCE, -1, BIG_ENDIAN);
+            encodeBuffer.putInt(offset + RecordBatchFW.FIELD_OFFSET_RECORD_COUNT, recordCount, BIG_ENDIAN);
+
+            return progress;
+        }
+
+        private void encodeResponseSize(
+            int responseAt,
+            int responseLimit)
+        {
+            encodeBuffer.putInt(responseAt, responseLimit - responseAt - Integer.BYTES, BIG_ENDIAN);
+            encodeLimit = responseLimit;
+        }
+
+        private int copyString(
+            DirectBuffer buffer,
+            int offset,
+            int progress)
+        {
+            final int length = skipString(buffer, offset) - offset;
+            encodeBuffer.putBytes(progress, buffer, offset, length);
+            return progress + length;
+        }
+
+        private void flushResponses(
+            long traceId)
+        {
+            while (replyOpened && !replyClosed &&
+                   encodeOffset < encodeLimit)
+            {
+                final int length = Math.min(Math.min(encodeLimit - encodeOffset, replyBudget - replyPadding),
+                        writeBuffer.capacity() >> 1);
+
+                if (length <= 0)
+                {
+                    break;
+                }
+
+                final int reserved = length + replyPadding;
+                replyBudget -= reserved;
+
+                doData(sender, routeId, replyId, traceId, authorization, replyBudgetId, reserved,
+                        encodeBuffer, encodeOffset, length);
+
+                encodeOffset += length;
+            }
+
+            if (encodeOffset == encodeLimit)
+            {
+                encodeOffset = 0;
+                encodeLimit = 0;
+            }
+
+            if (initialClosed && encodeLimit == 0)
+            {
+                doConnectionEndIfNecessary(traceId);
+            }
+        }
+    }
+
+    private static int skipString(
+        DirectBuffer buffer,
+        int offset)
+    {
+        return offset + Short.BYTES + Math.max(buffer.getShort(offset, BIG_ENDIAN), 0);
+    }
+
+    private static DirectBuffer newTemplate(
+        int length,
+        char fill)
+    {
+        final MutableDirectBuffer template = new UnsafeBuffer(new byte[Math.max(length, 0)]);
+        template.setMemory(0, template.capacity(), (byte) fill);
+        return template;
+    }
+
+    private static DirectBuffer newHeadersTemplate(
+        int headerCount)
+    {
+        final MutableDirectBuffer template = new ExpandableArrayBuffer();
+        final byte[] headerValue = "value".getBytes(UTF_8);
+
+        int progress = 0;
+        for (int headerIndex = 0; headerIndex < headerCount; headerIndex++)
+        {
+            final byte[] headerName = String.format("header%d", headerIndex).getBytes(UTF_8);
+            progress = putVarint(template, progress, headerName.length);
+            template.putBytes(progress, headerName);
+            progress += headerName.length;
+            progress = putVarint(template, progress, headerValue.length);
+            template.putBytes(progress, headerValue);
+            progress += headerValue.length;
+        }
+
+        return new UnsafeBuffer(template.byteArray(), 0, progress);
+    }
+
+    private static int sizeofVarint(
+        int value)
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+        int size = 1;
+        while ((zigzag & ~0x7f) != 0)
+        {
+            zigzag >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int putVarint(
+        MutableDirectBuffer buffer,
+        int offset,
+        int value)
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7f) != 0)
+        {
+            buffer.putByte(offset++, (byte) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.putByte(offset++, (byte) zigzag);
+        return offset;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.test;
+
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+import org.agrona.MutableDirectBuffer;
+import org.reaktivity.nukleus.concurrent.Signaler;
+import org.reaktivity.nukleus.route.RouteManager;
+import org.reaktivity.nukleus.stream.StreamFactory;
+import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
+
+public final class KafkaFakeBrokerFactoryBuilder implements StreamFactoryBuilder
+{
+    private final KafkaFakeBrokerConfiguration config;
+    private final long startedAt;
+
+    private RouteManager router;
+    private MutableDirectBuffer writeBuffer;
+    private LongUnaryOperator supplyReplyId;
+    private LongSupplier supplyTraceId;
+    private Signaler signaler;
+
+    public KafkaFakeBrokerFactoryBuilder(
+        KafkaFakeBrokerConfiguration config,
+        long startedAt)
+    {
+        this.config = config;
+        this.startedAt = startedAt;
+    }
+
+    @Override
+    public KafkaFakeBrokerFactoryBuilder setRouteManager(
+        RouteManager router)
+    {
+        this.router = router;
+        return this;
+    }
+
+    @Override
+    public KafkaFakeBrokerFactoryBuilder setSignaler(
+        Signaler signaler)
+    {
+        this.signaler = signaler;
+        return this;
+    }
+
+    @Override
+    public KafkaFakeBrokerFactoryBuilder setWriteBuffer(
+        MutableDirectBuffer writeBuffer)
+    {
+        this.writeBuffer = writeBuffer;
+        return this;
+    }
+
+    @Override
+    public KafkaFakeBrokerFactoryBuilder setReplyIdSupplier(
+        LongUnaryOperator supplyReplyId)
+    {
+        this.supplyReplyId = supplyReplyId;
+        return this;
+    }
+
+    @Override
+    public KafkaFakeBrokerFactoryBuilder setTraceIdSupplier(
+        LongSupplier supplyTraceId)
+    {
+        this.supplyTraceId = supplyTraceId;
+        return this;
+    }
+
+    @Override
+    public StreamFactory build()
+    {
+        return new KafkaFakeBrokerFactory(
+                config,
+                router,
+                writeBuffer,
+                signaler,
+                supplyReplyId,
+                supplyTraceId,
+                startedAt);
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016-2020 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.kafka.internal.test;
+
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.NukleusFactorySpi;
+
+public final class KafkaFakeBrokerNukleusFactorySpi implements NukleusFactorySpi
+{
+    @Override
+    public String name()
+    {
+        return KafkaFakeBrokerNukleus.NAME;
+    }
+
+    @Override
+    public KafkaFakeBrokerNukleus create(
+        Configuration config)
+    {
+        return new KafkaFakeBrokerNukleus(new KafkaFakeBrokerConfiguration(config));
+    }
+}